@@ -0,0 +1,96 @@
+package com.redseeker.common;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.springframework.stereotype.Component;
+
+/**
+ * Locates the SQLite database and the {@code models} directory next to it, where derived files
+ * (snapshots, matrices, road graphs) live. {@code REDSEEKER_DB_PATH} overrides the database file;
+ * otherwise {@code database/red_tourism.db} is looked up from the working directory and its parent,
+ * so the backend runs from either the repository root or {@code backend/}. Caches that persist
+ * across restarts use their own database file in the models directory, so the checked-in
+ * application database is never written at startup.
+ */
+@Component
+public class DatabasePaths {
+  private static final String DATABASE_FILE = "red_tourism.db";
+  private static final String MODELS_DIRECTORY = "models";
+  private static final String CACHE_DATABASE_FILE = "cache.db";
+
+  private final Path databaseFile;
+
+  public DatabasePaths() {
+    this.databaseFile = resolveDatabaseFile();
+  }
+
+  /**
+   * @return the JDBC URL of the application database
+   */
+  public String getDatabaseUrl() {
+    return "jdbc:sqlite:" + databaseFile;
+  }
+
+  /**
+   * @return the JDBC URL of the cache database in the models directory; the directory is created
+   *     if missing, SQLite creates the file itself
+   */
+  public String getCacheDatabaseUrl() {
+    Path directory = getModelsDirectory();
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException ex) {
+      // Opening the connection then fails with an SQLException the caller already handles.
+    }
+    return "jdbc:sqlite:" + directory.resolve(CACHE_DATABASE_FILE);
+  }
+
+  /**
+   * @return the directory for derived files, next to the database file
+   */
+  public Path getModelsDirectory() {
+    Path parent = databaseFile.toAbsolutePath().getParent();
+    return parent.resolve(MODELS_DIRECTORY);
+  }
+
+  /**
+   * @param configured explicitly configured directory, may be blank
+   * @return the configured directory when set, otherwise the models directory
+   */
+  public Path resolveModelsDirectory(String configured) {
+    if (configured != null && !configured.isBlank()) {
+      return Paths.get(configured).toAbsolutePath();
+    }
+    return getModelsDirectory();
+  }
+
+  /**
+   * @param configured explicitly configured path, may be blank
+   * @param fileName file name inside the models directory
+   * @return the configured path when set, otherwise {@code fileName} in the models directory
+   */
+  public Path resolveModelFile(String configured, String fileName) {
+    if (configured != null && !configured.isBlank()) {
+      return Paths.get(configured).toAbsolutePath();
+    }
+    return getModelsDirectory().resolve(fileName);
+  }
+
+  private static Path resolveDatabaseFile() {
+    String override = System.getenv("REDSEEKER_DB_PATH");
+    if (override != null && !override.isBlank()) {
+      return Paths.get(override);
+    }
+    Path direct = Paths.get("database", DATABASE_FILE);
+    if (Files.exists(direct)) {
+      return direct.toAbsolutePath();
+    }
+    Path parent = Paths.get("..", "database", DATABASE_FILE);
+    if (Files.exists(parent)) {
+      return parent.toAbsolutePath();
+    }
+    return Paths.get("database", DATABASE_FILE);
+  }
+}
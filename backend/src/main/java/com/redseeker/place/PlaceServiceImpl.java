@@ -4,6 +4,11 @@ package com.redseeker.place;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redseeker.route.AttractionDistanceMatrix;
+import com.redseeker.route.AttractionDistanceMatrixService;
+import com.redseeker.route.DirectionCache;
+import com.redseeker.route.RouteInfo;
+import com.redseeker.route.RouteStep;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.io.IOException;
@@ -28,11 +33,16 @@ public class PlaceServiceImpl implements PlaceService {
   private final String amapKey;
   private final HttpClient httpClient;
   private final ObjectMapper objectMapper;
+  private final DirectionCache directionCache;
+  private final AttractionDistanceMatrixService distanceMatrixService;
 
-  public PlaceServiceImpl() {
+  public PlaceServiceImpl(
+      DirectionCache directionCache, AttractionDistanceMatrixService distanceMatrixService) {
     this.amapKey = resolveAmapKey();
     this.httpClient = HttpClient.newHttpClient();
     this.objectMapper = new ObjectMapper();
+    this.directionCache = directionCache;
+    this.distanceMatrixService = distanceMatrixService;
   }
 
   @Override
@@ -169,6 +179,17 @@ public class PlaceServiceImpl implements PlaceService {
   }
 
   private PlaceCandidate enrichDistance(PlaceLocation origin, PlaceCandidate place, String mode) {
+    // 起点和目标都是景点时，直接读取景点距离矩阵中已知的道路距离
+    AttractionDistanceMatrix matrix = distanceMatrixService.current();
+    if (matrix != null) {
+      int from = matrix.locate(origin.getLongitude(), origin.getLatitude());
+      int to = matrix.locate(place.getLocation().getLongitude(), place.getLocation().getLatitude());
+      if (from >= 0 && to >= 0 && matrix.roadDistance(mode, from, to) >= 0) {
+        place.setRealDistance(matrix.roadDistance(mode, from, to));
+        place.setRealDuration(matrix.roadDuration(mode, from, to));
+        return place;
+      }
+    }
     try {
       DistanceResult result = callAmapDirection(origin, place.getLocation(), mode);
       if (result != null) {
@@ -184,6 +205,16 @@ public class PlaceServiceImpl implements PlaceService {
 
   private DistanceResult callAmapDirection(PlaceLocation origin, PlaceLocation destination, String mode)
       throws IOException, InterruptedException {
+    // 与路线规划模块共用方向缓存，键的方式和策略参数须保持一致
+    String strategy = DirectionCache.defaultStrategy(mode);
+    String cacheKey = DirectionCache.key(mode, strategy,
+        origin.getLongitude(), origin.getLatitude(),
+        destination.getLongitude(), destination.getLatitude());
+    RouteInfo cached = directionCache.get(cacheKey);
+    if (cached != null) {
+      return new DistanceResult(cached.getDistance(), cached.getDuration());
+    }
+
     String baseUrl = "walking".equals(mode)
         ? "https://restapi.amap.com/v3/direction/walking"
         : "https://restapi.amap.com/v3/direction/driving";
@@ -193,7 +224,7 @@ public class PlaceServiceImpl implements PlaceService {
     query.put("origin", origin.getLongitude() + "," + origin.getLatitude());
     query.put("destination", destination.getLongitude() + "," + destination.getLatitude());
     if ("driving".equals(mode)) {
-      query.put("strategy", "0");
+      query.put("strategy", strategy);
     }
 
     String url = baseUrl + "?" + buildQuery(query);
@@ -218,7 +249,23 @@ public class PlaceServiceImpl implements PlaceService {
       return null;
     }
 
-    return new DistanceResult(pathNode.path("distance").asInt(), pathNode.path("duration").asInt());
+    RouteInfo info = new RouteInfo();
+    info.setDistance(pathNode.path("distance").asInt());
+    info.setDuration(pathNode.path("duration").asInt());
+    info.setPolyline(pathNode.path("polyline").asText(null));
+    List<RouteStep> steps = new ArrayList<>();
+    for (JsonNode step : pathNode.path("steps")) {
+      steps.add(
+          new RouteStep(
+              step.path("instruction").asText(null),
+              step.path("road").asText(null),
+              step.path("distance").asInt(),
+              step.path("duration").asInt(),
+              step.path("polyline").asText(null)));
+    }
+    info.setSteps(steps);
+    directionCache.put(cacheKey, info);
+    return new DistanceResult(info.getDistance(), info.getDuration());
   }
 
   private List<PlaceCandidate> sortByStraightDistance(List<PlaceCandidate> places) {
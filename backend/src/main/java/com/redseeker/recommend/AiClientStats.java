@@ -0,0 +1,92 @@
+package com.redseeker.recommend;
+
+public class AiClientStats {
+  private final int maxConcurrent;
+  private final int inFlight;
+  private final int waiting;
+  private final long upstreamCalls;
+  private final long failures;
+  private final long rejections;
+  private final long cacheHits;
+  private final long coalesced;
+  private final double averageQueueMillis;
+  private final double maxQueueMillis;
+
+  public AiClientStats(
+      int maxConcurrent,
+      int inFlight,
+      int waiting,
+      long upstreamCalls,
+      long failures,
+      long rejections,
+      long cacheHits,
+      long coalesced,
+      double averageQueueMillis,
+      double maxQueueMillis) {
+    this.maxConcurrent = maxConcurrent;
+    this.inFlight = inFlight;
+    this.waiting = waiting;
+    this.upstreamCalls = upstreamCalls;
+    this.failures = failures;
+    this.rejections = rejections;
+    this.cacheHits = cacheHits;
+    this.coalesced = coalesced;
+    this.averageQueueMillis = averageQueueMillis;
+    this.maxQueueMillis = maxQueueMillis;
+  }
+
+  public int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  /**
+   * @return upstream calls currently holding a bulkhead permit
+   */
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return callers currently queued for a permit
+   */
+  public int getWaiting() {
+    return waiting;
+  }
+
+  public long getUpstreamCalls() {
+    return upstreamCalls;
+  }
+
+  public long getFailures() {
+    return failures;
+  }
+
+  /**
+   * @return calls turned away because no permit freed up within the acquire timeout
+   */
+  public long getRejections() {
+    return rejections;
+  }
+
+  public long getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * @return calls that waited for an identical prompt already in flight instead of calling upstream
+   */
+  public long getCoalesced() {
+    return coalesced;
+  }
+
+  /**
+   * @return average time spent waiting for a permit in milliseconds, or 0 before the first call
+   */
+  public double getAverageQueueMillis() {
+    return averageQueueMillis;
+  }
+
+  public double getMaxQueueMillis() {
+    return maxQueueMillis;
+  }
+}
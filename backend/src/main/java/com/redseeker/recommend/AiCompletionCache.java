@@ -0,0 +1,210 @@
+package com.redseeker.recommend;
+
+import com.redseeker.common.DatabasePaths;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Completions of the AI model keyed by model and normalized prompt, so repeated prompts (popular
+ * city/day plans) are answered without an upstream call. A bounded in-memory LRU sits in front of
+ * the {@code ai_completion_cache} table of the cache database ({@code models/cache.db}, see
+ * {@link DatabasePaths#getCacheDatabaseUrl()}), which keeps entries across restarts. Entries expire
+ * {@code zhipu.cache.ttl-ms} after they were stored; expired rows are purged periodically. With
+ * {@code zhipu.cache.persistent=false} only the in-memory LRU is used.
+ */
+@Service
+public class AiCompletionCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AiCompletionCache.class);
+
+  private final String databaseUrl;
+  private final long ttlMillis;
+  private final int maxEntries;
+  private final boolean persistent;
+
+  // Guarded by this.
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  public AiCompletionCache(
+      DatabasePaths databasePaths,
+      @Value("${zhipu.cache.ttl-ms:86400000}") long ttlMillis,
+      @Value("${zhipu.cache.max-entries:1000}") int maxEntries,
+      @Value("${zhipu.cache.persistent:true}") boolean persistent) {
+    this.databaseUrl = databasePaths.getCacheDatabaseUrl();
+    this.ttlMillis = ttlMillis;
+    this.maxEntries = Math.max(0, maxEntries);
+    this.persistent = persistent;
+  }
+
+  @PostConstruct
+  public void initTable() {
+    if (!isEnabled() || !persistent) {
+      return;
+    }
+    try (Connection connection = openConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute(
+          "CREATE TABLE IF NOT EXISTS ai_completion_cache ("
+              + "cache_key TEXT PRIMARY KEY,"
+              + "content TEXT NOT NULL,"
+              + "created_at INTEGER NOT NULL"
+              + ")");
+    } catch (SQLException ex) {
+      LOGGER.error("Failed to initialize AI completion cache table", ex);
+    }
+  }
+
+  boolean isEnabled() {
+    return ttlMillis > 0 && maxEntries > 0;
+  }
+
+  /**
+   * @return a fixed-length key for the model and (already normalized) prompt
+   */
+  static String key(String model, String normalizedPrompt) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(model.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(normalizedPrompt.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+  }
+
+  /**
+   * @return the cached completion, or {@code null} when absent or expired
+   */
+  String get(String key) {
+    if (!isEnabled()) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        if (now - entry.createdAt < ttlMillis) {
+          return entry.content;
+        }
+        entries.remove(key);
+      }
+    }
+    Entry stored = persistent ? load(key, now) : null;
+    if (stored == null) {
+      return null;
+    }
+    synchronized (this) {
+      entries.putIfAbsent(key, stored);
+      trim();
+    }
+    return stored.content;
+  }
+
+  void put(String key, String content) {
+    if (!isEnabled()) {
+      return;
+    }
+    Entry entry = new Entry(content, System.currentTimeMillis());
+    synchronized (this) {
+      entries.put(key, entry);
+      trim();
+    }
+    if (!persistent) {
+      return;
+    }
+    String sql =
+        "INSERT OR REPLACE INTO ai_completion_cache (cache_key, content, created_at) "
+            + "VALUES (?, ?, ?)";
+    try (Connection connection = openConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(1, key);
+      statement.setString(2, content);
+      statement.setLong(3, entry.createdAt);
+      statement.executeUpdate();
+    } catch (SQLException ex) {
+      LOGGER.warn("Failed to persist AI completion", ex);
+    }
+  }
+
+  @Scheduled(
+      fixedDelayString = "${zhipu.cache.purge-interval-ms:3600000}",
+      initialDelayString = "${zhipu.cache.purge-interval-ms:3600000}")
+  public void purgeExpired() {
+    if (!isEnabled()) {
+      return;
+    }
+    long cutoff = System.currentTimeMillis() - ttlMillis;
+    synchronized (this) {
+      entries.values().removeIf(entry -> entry.createdAt <= cutoff);
+    }
+    if (!persistent) {
+      return;
+    }
+    try (Connection connection = openConnection();
+        PreparedStatement statement =
+            connection.prepareStatement("DELETE FROM ai_completion_cache WHERE created_at <= ?")) {
+      statement.setLong(1, cutoff);
+      int removed = statement.executeUpdate();
+      if (removed > 0) {
+        LOGGER.debug("Purged {} expired AI completions", removed);
+      }
+    } catch (SQLException ex) {
+      LOGGER.warn("Failed to purge expired AI completions", ex);
+    }
+  }
+
+  private Entry load(String key, long now) {
+    String sql = "SELECT content, created_at FROM ai_completion_cache WHERE cache_key = ?";
+    try (Connection connection = openConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(1, key);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        if (resultSet.next() && now - resultSet.getLong("created_at") < ttlMillis) {
+          return new Entry(resultSet.getString("content"), resultSet.getLong("created_at"));
+        }
+      }
+    } catch (SQLException ex) {
+      LOGGER.warn("Failed to read AI completion cache", ex);
+    }
+    return null;
+  }
+
+  private void trim() {
+    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+    while (entries.size() > maxEntries && eldest.hasNext()) {
+      eldest.next();
+      eldest.remove();
+    }
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+
+  private static final class Entry {
+    private final String content;
+    private final long createdAt;
+
+    private Entry(String content, long createdAt) {
+      this.content = content;
+      this.createdAt = createdAt;
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package com.redseeker.recommend;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 public interface AiService {
     /**
      * Generate content using AI model
@@ -7,4 +10,19 @@ public interface AiService {
      * @return AI generated content
      */
     String generateContent(String prompt);
+
+    /**
+     * Generate content using AI model, forwarding text deltas as the model produces them. No thread
+     * waits for the model meanwhile; deltas arrive in order on an HTTP client thread.
+     * @param prompt prompt text
+     * @param onDelta receives each generated text fragment; throwing cancels the generation
+     * @return completes with the full generated content, or exceptionally when the call fails or
+     *     exceeds its deadline; cancelling it aborts the upstream call
+     */
+    CompletableFuture<String> streamContent(String prompt, Consumer<String> onDelta);
+
+    /**
+     * @return bulkhead, cache and coalescing counters of the client
+     */
+    AiClientStats getStats();
 }
@@ -0,0 +1,204 @@
+package com.redseeker.recommend;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Alternating least squares for implicit feedback (Hu, Koren and Volinsky). Every user–item pair
+ * takes part: the preference is 1 where the user interacted with the item and 0 elsewhere, with
+ * confidence {@code 1 + α · strength}, so unobserved pairs count as weak negatives. Each half-step
+ * fixes one side and solves, per user (or item), the {@code k × k} system {@code (YᵀY + Yᵀ(Cᵤ −
+ * I)Y + λI) x = Yᵀ Cᵤ p} by Cholesky decomposition; {@code YᵀY} is computed once per half-step, so
+ * a row costs only its own observations. Input rows use dense indexes; output factors are
+ * row-major {@code float} arrays ready for {@link LatentFactorSnapshot#write}, and their dot
+ * product predicts a preference around {@code [0, 1]}.
+ */
+final class AlsTrainer {
+  private final int factorCount;
+  private final int iterations;
+  private final double regularization;
+  private final double alpha;
+  private final long seed;
+
+  AlsTrainer(int factorCount, int iterations, double regularization, double alpha, long seed) {
+    this.factorCount = factorCount;
+    this.iterations = iterations;
+    this.regularization = regularization;
+    this.alpha = alpha;
+    this.seed = seed;
+  }
+
+  /**
+   * @param rowItems per user, the dense item indexes it interacted with
+   * @param rowStrengths per user, interaction strengths (e.g. browse counts) parallel to {@code
+   *     rowItems}
+   * @param itemCount number of dense item indexes, including items nobody interacted with
+   */
+  Factors train(int[][] rowItems, float[][] rowStrengths, int itemCount) {
+    int userCount = rowItems.length;
+    int k = factorCount;
+
+    // Transpose once so the item half-step can walk each item's observations directly.
+    int[] columnSizes = new int[itemCount];
+    for (int user = 0; user < userCount; user++) {
+      for (int item : rowItems[user]) {
+        columnSizes[item]++;
+      }
+    }
+    int[][] columnUsers = new int[itemCount][];
+    float[][] columnStrengths = new float[itemCount][];
+    for (int item = 0; item < itemCount; item++) {
+      columnUsers[item] = new int[columnSizes[item]];
+      columnStrengths[item] = new float[columnSizes[item]];
+    }
+    int[] fill = new int[itemCount];
+    for (int user = 0; user < userCount; user++) {
+      for (int i = 0; i < rowItems[user].length; i++) {
+        int item = rowItems[user][i];
+        columnUsers[item][fill[item]] = user;
+        columnStrengths[item][fill[item]++] = rowStrengths[user][i];
+      }
+    }
+
+    Random random = new Random(seed);
+    double scale = 0.1 / Math.sqrt(k);
+    float[] userFactors = new float[userCount * k];
+    float[] itemFactors = new float[itemCount * k];
+    for (int i = 0; i < itemFactors.length; i++) {
+      itemFactors[i] = (float) (scale * random.nextDouble());
+    }
+
+    double[] shared = new double[k * k];
+    double[] gram = new double[k * k];
+    double[] rhs = new double[k];
+    for (int iteration = 0; iteration < iterations; iteration++) {
+      gramian(itemFactors, itemCount, shared);
+      for (int user = 0; user < userCount; user++) {
+        solve(
+            rowItems[user],
+            rowStrengths[user],
+            itemFactors,
+            userFactors,
+            user,
+            shared,
+            gram,
+            rhs);
+      }
+      gramian(userFactors, userCount, shared);
+      for (int item = 0; item < itemCount; item++) {
+        solve(
+            columnUsers[item],
+            columnStrengths[item],
+            userFactors,
+            itemFactors,
+            item,
+            shared,
+            gram,
+            rhs);
+      }
+    }
+    return new Factors(userFactors, itemFactors);
+  }
+
+  /** Fills the lower triangle of {@code out} with {@code FᵀF} over all rows of {@code factors}. */
+  private void gramian(float[] factors, int rows, double[] out) {
+    int k = factorCount;
+    Arrays.fill(out, 0.0);
+    for (int row = 0; row < rows; row++) {
+      int base = row * k;
+      for (int a = 0; a < k; a++) {
+        double va = factors[base + a];
+        for (int b = 0; b <= a; b++) {
+          out[a * k + b] += va * factors[base + b];
+        }
+      }
+    }
+  }
+
+  /**
+   * Solves the system of one row of {@code target} against the fixed {@code other} factors, whose
+   * Gramian is {@code shared}. Rows without observations prefer nothing and are set to zero.
+   */
+  private void solve(
+      int[] indexes,
+      float[] strengths,
+      float[] other,
+      float[] target,
+      int row,
+      double[] shared,
+      double[] gram,
+      double[] rhs) {
+    int k = factorCount;
+    int at = row * k;
+    if (indexes.length == 0) {
+      for (int f = 0; f < k; f++) {
+        target[at + f] = 0f;
+      }
+      return;
+    }
+    System.arraycopy(shared, 0, gram, 0, gram.length);
+    Arrays.fill(rhs, 0.0);
+    for (int i = 0; i < indexes.length; i++) {
+      int base = indexes[i] * k;
+      double extra = alpha * strengths[i];
+      double confidence = 1.0 + extra;
+      for (int a = 0; a < k; a++) {
+        double va = other[base + a];
+        rhs[a] += confidence * va;
+        for (int b = 0; b <= a; b++) {
+          gram[a * k + b] += extra * va * other[base + b];
+        }
+      }
+    }
+    for (int a = 0; a < k; a++) {
+      gram[a * k + a] += regularization;
+    }
+
+    // In-place Cholesky (lower triangle), then forward and back substitution.
+    for (int a = 0; a < k; a++) {
+      for (int b = 0; b <= a; b++) {
+        double s = gram[a * k + b];
+        for (int c = 0; c < b; c++) {
+          s -= gram[a * k + c] * gram[b * k + c];
+        }
+        gram[a * k + b] = a == b ? Math.sqrt(Math.max(s, 1e-12)) : s / gram[b * k + b];
+      }
+    }
+    for (int a = 0; a < k; a++) {
+      double s = rhs[a];
+      for (int c = 0; c < a; c++) {
+        s -= gram[a * k + c] * rhs[c];
+      }
+      rhs[a] = s / gram[a * k + a];
+    }
+    for (int a = k - 1; a >= 0; a--) {
+      double s = rhs[a];
+      for (int c = a + 1; c < k; c++) {
+        s -= gram[c * k + a] * rhs[c];
+      }
+      rhs[a] = s / gram[a * k + a];
+    }
+    for (int f = 0; f < k; f++) {
+      target[at + f] = (float) rhs[f];
+    }
+  }
+
+  /** Trained factors, row-major. */
+  static final class Factors {
+    private final float[] userFactors;
+    private final float[] itemFactors;
+
+    private Factors(float[] userFactors, float[] itemFactors) {
+      this.userFactors = userFactors;
+      this.itemFactors = itemFactors;
+    }
+
+    float[] getUserFactors() {
+      return userFactors;
+    }
+
+    float[] getItemFactors() {
+      return itemFactors;
+    }
+  }
+}
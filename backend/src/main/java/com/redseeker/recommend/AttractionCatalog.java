@@ -0,0 +1,145 @@
+package com.redseeker.recommend;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Versioned, immutable snapshot of the attraction catalog. A new instance is built whenever the
+ * underlying tables change; readers keep using whichever snapshot they obtained.
+ */
+public final class AttractionCatalog {
+  private static final KeywordAutomaton NATIONAL_DAY_MATCHER =
+      KeywordAutomaton.of(
+          List.of("国庆", "建国", "开国", "新中国", "中华人民共和国成立", "天安门", "开国大典", "首都"));
+
+  private final long version;
+  private final String fingerprint;
+  private final List<CatalogAttraction> attractions;
+  private final Map<String, Integer> positions;
+  private final AttractionTagIndex tagIndex;
+  private final LocalTime[] hourBoundaries;
+  private final AttractionGeoIndex geoIndex;
+  private final BitSet nationalDayRelated;
+
+  /**
+   * @param tags event tags of each attraction, parallel to {@code attractions}
+   */
+  AttractionCatalog(
+      long version,
+      String fingerprint,
+      List<CatalogAttraction> attractions,
+      List<List<String>> tags) {
+    this.version = version;
+    this.fingerprint = fingerprint;
+    this.attractions = List.copyOf(attractions);
+    Map<String, Integer> index = new HashMap<>();
+    for (int position = 0; position < this.attractions.size(); position++) {
+      index.put(this.attractions.get(position).getId(), position);
+    }
+    this.positions = Collections.unmodifiableMap(index);
+    this.tagIndex = new AttractionTagIndex(tags);
+    TreeSet<LocalTime> boundaries = new TreeSet<>();
+    for (CatalogAttraction attraction : this.attractions) {
+      BusinessHours hours = attraction.getParsedBusinessHours();
+      if (hours != null && !hours.isAllDay()) {
+        boundaries.add(hours.getStart());
+        boundaries.add(hours.getEnd());
+      }
+    }
+    this.hourBoundaries = boundaries.toArray(new LocalTime[0]);
+    this.geoIndex = new AttractionGeoIndex(this.attractions);
+    this.nationalDayRelated = new BitSet(this.attractions.size());
+    for (int position = 0; position < this.attractions.size(); position++) {
+      CatalogAttraction attraction = this.attractions.get(position);
+      boolean related =
+          NATIONAL_DAY_MATCHER.containsAny(attraction.getName())
+              || NATIONAL_DAY_MATCHER.containsAny(attraction.getHistory())
+              || NATIONAL_DAY_MATCHER.containsAny(attraction.getStageName());
+      for (int i = 0; !related && i < tags.get(position).size(); i++) {
+        related = NATIONAL_DAY_MATCHER.containsAny(tags.get(position).get(i));
+      }
+      nationalDayRelated.set(position, related);
+    }
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  String getFingerprint() {
+    return fingerprint;
+  }
+
+  public List<CatalogAttraction> getAttractions() {
+    return attractions;
+  }
+
+  public CatalogAttraction get(String id) {
+    Integer position = positions.get(id);
+    return position == null ? null : attractions.get(position);
+  }
+
+  /**
+   * @return the position of the attraction in {@link #getAttractions()}, or -1 when unknown
+   */
+  public int positionOf(String id) {
+    Integer position = positions.get(id);
+    return position == null ? -1 : position;
+  }
+
+  /**
+   * @return the event tags of the attraction at {@code position} with the city merged in, sorted
+   */
+  public List<String> getTags(int position, String city) {
+    return tagIndex.tagsOf(position, city);
+  }
+
+  AttractionTagIndex getTagIndex() {
+    return tagIndex;
+  }
+
+  AttractionGeoIndex getGeoIndex() {
+    return geoIndex;
+  }
+
+  /**
+   * @return whether the name, history, historical stage or event tags of the attraction mention
+   *     National Day or the founding of the PRC; precomputed when the catalog is built
+   */
+  public boolean isNationalDayRelated(int position) {
+    return nationalDayRelated.get(position);
+  }
+
+  /**
+   * @return whether {@code text} contains one of the National Day keywords
+   */
+  static boolean mentionsNationalDay(String text) {
+    return NATIONAL_DAY_MATCHER.containsAny(text);
+  }
+
+  /**
+   * Maps a time of day to the segment between consecutive opening and closing times of this
+   * catalog. Every attraction is either open or closed throughout a segment, so two times in the
+   * same segment yield the same opening-hours outcome everywhere. Boundaries are inclusive in
+   * {@link BusinessHours#isOpenAt}, so each boundary is a segment of its own (odd numbers) between
+   * the open intervals (even numbers).
+   */
+  public int timeSegment(LocalTime time) {
+    int slot = Arrays.binarySearch(hourBoundaries, time);
+    return slot >= 0 ? 2 * slot + 1 : 2 * (-slot - 1);
+  }
+
+  public int size() {
+    return attractions.size();
+  }
+
+  public boolean isEmpty() {
+    return attractions.isEmpty();
+  }
+}
@@ -0,0 +1,232 @@
+package com.redseeker.recommend;
+
+import com.redseeker.common.DatabasePaths;
+import com.redseeker.common.ErrorCode;
+import com.redseeker.common.ServiceException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Owns the in-memory {@link AttractionCatalog}. The catalog is built once at startup and rebuilt
+ * in the background only when a cheap fingerprint of the attraction tables changes, so request
+ * paths never read attraction rows from SQLite.
+ */
+@Service
+public class AttractionCatalogService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AttractionCatalogService.class);
+
+  private static final String FINGERPRINT_SQL =
+      "SELECT "
+          + "(SELECT COUNT(*) || ':' || COALESCE(MAX(id), 0) || ':' || COALESCE(MAX(updated_at), '') || ':' "
+          + "|| COALESCE(SUM(LENGTH(name) + LENGTH(COALESCE(address, '')) + LENGTH(COALESCE(brief_intro, '')) "
+          + "+ LENGTH(COALESCE(historical_background, '')) + LENGTH(COALESCE(business_hours, ''))), 0) || ':' "
+          + "|| COALESCE(SUM(category), 0) || ':' || COALESCE(SUM(longitude + latitude), 0) FROM attractions) "
+          + "|| '|' || (SELECT COUNT(*) || ':' || COALESCE(SUM(attraction_id * 31 + event_id), 0) "
+          + "FROM attraction_events) "
+          + "|| '|' || (SELECT COUNT(*) || ':' || COALESCE(SUM(COALESCE(start_year, 0) + COALESCE(end_year, 0)), 0) "
+          + "|| ':' || COALESCE(SUM(LENGTH(COALESCE(event_name, '')) + LENGTH(COALESCE(period, ''))), 0) "
+          + "FROM historical_events) AS fingerprint";
+
+  private final String databaseUrl;
+  private final AtomicReference<AttractionCatalog> current = new AtomicReference<>();
+  private final AtomicLong versions = new AtomicLong();
+
+  public AttractionCatalogService(DatabasePaths databasePaths) {
+    this.databaseUrl = databasePaths.getDatabaseUrl();
+    try {
+      reload();
+    } catch (SQLException ex) {
+      LOGGER.error("Failed to build attraction catalog at startup; will retry on first use", ex);
+    }
+  }
+
+  /**
+   * @return the latest catalog snapshot
+   */
+  public AttractionCatalog current() {
+    AttractionCatalog catalog = current.get();
+    if (catalog != null) {
+      return catalog;
+    }
+    synchronized (this) {
+      catalog = current.get();
+      if (catalog != null) {
+        return catalog;
+      }
+      try {
+        return reload();
+      } catch (SQLException ex) {
+        LOGGER.error("Failed to load attractions", ex);
+        throw new ServiceException(ErrorCode.INTERNAL_ERROR, "Failed to load attractions");
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the catalog if the attraction, event or event-link tables changed since the last build.
+   */
+  @Scheduled(
+      fixedDelayString = "${recommend.catalog.refresh-interval-ms:300000}",
+      initialDelayString = "${recommend.catalog.refresh-interval-ms:300000}")
+  public void refreshIfChanged() {
+    try {
+      AttractionCatalog catalog = current.get();
+      String fingerprint = loadFingerprint();
+      if (catalog == null || !catalog.getFingerprint().equals(fingerprint)) {
+        synchronized (this) {
+          reload();
+        }
+      }
+    } catch (SQLException ex) {
+      LOGGER.warn("Failed to refresh attraction catalog; keeping version {}", currentVersion(), ex);
+    }
+  }
+
+  private long currentVersion() {
+    AttractionCatalog catalog = current.get();
+    return catalog == null ? 0L : catalog.getVersion();
+  }
+
+  private AttractionCatalog reload() throws SQLException {
+    long started = System.nanoTime();
+    AttractionCatalog catalog;
+    try (Connection connection = openConnection()) {
+      String fingerprint = loadFingerprint(connection);
+      Map<String, EventSummary> events = loadEvents(connection);
+      List<CatalogAttraction> attractions = new ArrayList<>();
+      List<List<String>> tags = new ArrayList<>();
+      loadAttractions(connection, events, attractions, tags);
+      catalog = new AttractionCatalog(versions.incrementAndGet(), fingerprint, attractions, tags);
+    }
+    current.set(catalog);
+    LOGGER.info(
+        "Attraction catalog v{} built: {} attractions in {} ms",
+        catalog.getVersion(),
+        catalog.size(),
+        (System.nanoTime() - started) / 1_000_000);
+    return catalog;
+  }
+
+  private String loadFingerprint() throws SQLException {
+    try (Connection connection = openConnection()) {
+      return loadFingerprint(connection);
+    }
+  }
+
+  private String loadFingerprint(Connection connection) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(FINGERPRINT_SQL);
+        ResultSet resultSet = statement.executeQuery()) {
+      return resultSet.next() ? String.valueOf(resultSet.getString("fingerprint")) : "";
+    }
+  }
+
+  private void loadAttractions(
+      Connection connection,
+      Map<String, EventSummary> events,
+      List<CatalogAttraction> records,
+      List<List<String>> tags)
+      throws SQLException {
+    String sql =
+        "SELECT id, name, address, category, brief_intro, historical_background, business_hours, "
+            + "per_capita_consumption, longitude, latitude FROM attractions";
+    try (PreparedStatement statement = connection.prepareStatement(sql);
+        ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        String id = String.valueOf(resultSet.getInt("id"));
+        EventSummary summary = events.getOrDefault(id, EventSummary.EMPTY);
+        records.add(
+            new CatalogAttraction(
+                id,
+                resultSet.getString("name"),
+                resultSet.getString("address"),
+                resultSet.getInt("category"),
+                resultSet.getString("brief_intro"),
+                resultSet.getString("historical_background"),
+                resultSet.getString("business_hours"),
+                resultSet.getDouble("per_capita_consumption"),
+                resultSet.getObject("longitude", Double.class),
+                resultSet.getObject("latitude", Double.class),
+                summary.stageStart,
+                summary.stageEnd,
+                summary.stageName));
+        tags.add(new ArrayList<>(summary.tags));
+      }
+    }
+  }
+
+  /**
+   * Loads every attraction-event link in one pass, producing both the tag set and the stage
+   * (earliest start year, latest end year, first period) of each attraction.
+   */
+  private Map<String, EventSummary> loadEvents(Connection connection) throws SQLException {
+    String sql =
+        "SELECT ae.attraction_id, he.event_name, he.period, he.start_year, he.end_year "
+            + "FROM attraction_events ae "
+            + "JOIN historical_events he ON he.id = ae.event_id";
+    Map<String, EventSummary> result = new HashMap<>();
+    try (PreparedStatement statement = connection.prepareStatement(sql);
+        ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        String id = String.valueOf(resultSet.getInt("attraction_id"));
+        EventSummary summary = result.computeIfAbsent(id, key -> new EventSummary());
+        String eventName = resultSet.getString("event_name");
+        String period = resultSet.getString("period");
+        addIfPresent(summary.tags, eventName);
+        addIfPresent(summary.tags, period);
+        summary.accept(
+            nullableInt(resultSet, "start_year"), nullableInt(resultSet, "end_year"), period);
+      }
+    }
+    return result;
+  }
+
+  private Integer nullableInt(ResultSet resultSet, String column) throws SQLException {
+    int value = resultSet.getInt(column);
+    return resultSet.wasNull() ? null : value;
+  }
+
+  private void addIfPresent(TreeSet<String> tags, String value) {
+    if (value != null && !value.isBlank()) {
+      tags.add(value.trim());
+    }
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+
+  private static final class EventSummary {
+    private static final EventSummary EMPTY = new EventSummary();
+
+    private final TreeSet<String> tags = new TreeSet<>();
+    private Integer stageStart;
+    private Integer stageEnd;
+    private String stageName;
+
+    private void accept(Integer start, Integer end, String period) {
+      if (start != null && (stageStart == null || start < stageStart)) {
+        stageStart = start;
+      }
+      if (end != null && (stageEnd == null || end > stageEnd)) {
+        stageEnd = end;
+      }
+      if (period != null && (stageName == null || period.compareTo(stageName) < 0)) {
+        stageName = period;
+      }
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package com.redseeker.recommend;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Static k-d tree over the coordinates of an {@link AttractionCatalog}. Points are stored as unit
+ * vectors on the sphere, so straight-line (chord) distance is monotonic in great-circle distance
+ * and subtree boxes give exact lower bounds for radius and nearest-neighbour pruning. Every subtree
+ * also records its longitude/latitude extent for bounding-box queries. The tree is implicit: the
+ * node of slot range {@code [lo, hi)} is its middle slot, which also holds that subtree's bounds.
+ * Attractions without coordinates are not indexed.
+ */
+final class AttractionGeoIndex {
+  static final double EARTH_RADIUS_METERS = 6371000.0;
+
+  private static final Comparator<Hit> BY_DISTANCE =
+      Comparator.comparingDouble(Hit::getDistance).thenComparingInt(Hit::getPosition);
+
+  private final int[] positions;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final double[][] points;
+  // Per-node bounds: [minX, minY, minZ, maxX, maxY, maxZ] and [minLon, minLat, maxLon, maxLat].
+  private final double[][] boxes;
+  private final double[][] extents;
+
+  AttractionGeoIndex(List<CatalogAttraction> attractions) {
+    List<Integer> located = new ArrayList<>();
+    for (int position = 0; position < attractions.size(); position++) {
+      CatalogAttraction attraction = attractions.get(position);
+      if (attraction.getLatitude() != null && attraction.getLongitude() != null) {
+        located.add(position);
+      }
+    }
+    int size = located.size();
+    positions = new int[size];
+    latitudes = new double[size];
+    longitudes = new double[size];
+    points = new double[size][];
+    boxes = new double[size][];
+    extents = new double[size][];
+    for (int slot = 0; slot < size; slot++) {
+      CatalogAttraction attraction = attractions.get(located.get(slot));
+      positions[slot] = located.get(slot);
+      latitudes[slot] = attraction.getLatitude();
+      longitudes[slot] = attraction.getLongitude();
+      points[slot] = toUnitVector(latitudes[slot], longitudes[slot]);
+    }
+    build(0, size);
+  }
+
+  int size() {
+    return positions.length;
+  }
+
+  /**
+   * @return attractions within {@code radiusMeters} of the point, nearest first
+   */
+  List<Hit> withinRadius(double latitude, double longitude, double radiusMeters) {
+    List<Hit> hits = new ArrayList<>();
+    if (positions.length == 0 || radiusMeters < 0) {
+      return hits;
+    }
+    double[] query = toUnitVector(latitude, longitude);
+    double maxChord = chordForDistance(radiusMeters);
+    collectWithinRadius(0, positions.length, query, maxChord, latitude, longitude, radiusMeters,
+        hits);
+    hits.sort(BY_DISTANCE);
+    return hits;
+  }
+
+  /**
+   * @return attractions inside the longitude/latitude box (inclusive), ordered by distance from
+   *     the reference point
+   */
+  List<Hit> withinBox(
+      double minLongitude,
+      double minLatitude,
+      double maxLongitude,
+      double maxLatitude,
+      double referenceLatitude,
+      double referenceLongitude) {
+    List<Hit> hits = new ArrayList<>();
+    collectWithinBox(
+        0, positions.length, minLongitude, minLatitude, maxLongitude, maxLatitude,
+        referenceLatitude, referenceLongitude, hits);
+    hits.sort(BY_DISTANCE);
+    return hits;
+  }
+
+  /**
+   * @return the {@code count} attractions nearest to the point, nearest first
+   */
+  List<Hit> nearest(double latitude, double longitude, int count) {
+    if (positions.length == 0 || count <= 0) {
+      return new ArrayList<>();
+    }
+    PriorityQueue<Hit> best = new PriorityQueue<>(count, BY_DISTANCE.reversed());
+    collectNearest(
+        0, positions.length, toUnitVector(latitude, longitude), latitude, longitude, count, best);
+    List<Hit> hits = new ArrayList<>(best);
+    hits.sort(BY_DISTANCE);
+    return hits;
+  }
+
+  /**
+   * Great-circle distance in meters (haversine formula).
+   */
+  static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    return EARTH_RADIUS_METERS * c;
+  }
+
+  private void collectWithinRadius(
+      int lo,
+      int hi,
+      double[] query,
+      double maxChord,
+      double latitude,
+      double longitude,
+      double radiusMeters,
+      List<Hit> hits) {
+    if (lo >= hi) {
+      return;
+    }
+    int node = (lo + hi) >>> 1;
+    if (boxDistance(boxes[node], query) > maxChord) {
+      return;
+    }
+    double distance = haversine(latitude, longitude, latitudes[node], longitudes[node]);
+    if (distance <= radiusMeters) {
+      hits.add(new Hit(positions[node], distance));
+    }
+    collectWithinRadius(lo, node, query, maxChord, latitude, longitude, radiusMeters, hits);
+    collectWithinRadius(node + 1, hi, query, maxChord, latitude, longitude, radiusMeters, hits);
+  }
+
+  private void collectWithinBox(
+      int lo,
+      int hi,
+      double minLongitude,
+      double minLatitude,
+      double maxLongitude,
+      double maxLatitude,
+      double referenceLatitude,
+      double referenceLongitude,
+      List<Hit> hits) {
+    if (lo >= hi) {
+      return;
+    }
+    int node = (lo + hi) >>> 1;
+    double[] extent = extents[node];
+    if (extent[0] > maxLongitude
+        || extent[2] < minLongitude
+        || extent[1] > maxLatitude
+        || extent[3] < minLatitude) {
+      return;
+    }
+    if (longitudes[node] >= minLongitude
+        && longitudes[node] <= maxLongitude
+        && latitudes[node] >= minLatitude
+        && latitudes[node] <= maxLatitude) {
+      hits.add(
+          new Hit(
+              positions[node],
+              haversine(referenceLatitude, referenceLongitude, latitudes[node], longitudes[node])));
+    }
+    collectWithinBox(lo, node, minLongitude, minLatitude, maxLongitude, maxLatitude,
+        referenceLatitude, referenceLongitude, hits);
+    collectWithinBox(node + 1, hi, minLongitude, minLatitude, maxLongitude, maxLatitude,
+        referenceLatitude, referenceLongitude, hits);
+  }
+
+  private void collectNearest(
+      int lo,
+      int hi,
+      double[] query,
+      double latitude,
+      double longitude,
+      int count,
+      PriorityQueue<Hit> best) {
+    if (lo >= hi) {
+      return;
+    }
+    int node = (lo + hi) >>> 1;
+    if (best.size() == count
+        && distanceForChord(boxDistance(boxes[node], query)) > best.peek().getDistance()) {
+      return;
+    }
+    Hit hit =
+        new Hit(positions[node], haversine(latitude, longitude, latitudes[node], longitudes[node]));
+    if (best.size() < count) {
+      best.add(hit);
+    } else if (BY_DISTANCE.compare(hit, best.peek()) < 0) {
+      best.poll();
+      best.add(hit);
+    }
+    // Descend into the child whose box is closer first so the other is more likely pruned.
+    int leftNode = (lo + node) >>> 1;
+    int rightNode = (node + 1 + hi) >>> 1;
+    boolean leftFirst =
+        node + 1 >= hi
+            || (lo < node
+                && boxDistance(boxes[leftNode], query) <= boxDistance(boxes[rightNode], query));
+    if (leftFirst) {
+      collectNearest(lo, node, query, latitude, longitude, count, best);
+      collectNearest(node + 1, hi, query, latitude, longitude, count, best);
+    } else {
+      collectNearest(node + 1, hi, query, latitude, longitude, count, best);
+      collectNearest(lo, node, query, latitude, longitude, count, best);
+    }
+  }
+
+  /**
+   * Arranges slots {@code [lo, hi)} so the middle slot splits them on the axis of widest spread,
+   * then records the bounds of the range at that slot.
+   */
+  private void build(int lo, int hi) {
+    if (lo >= hi) {
+      return;
+    }
+    double[] box = {
+      Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE,
+      -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE
+    };
+    double[] extent = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+    for (int slot = lo; slot < hi; slot++) {
+      for (int axis = 0; axis < 3; axis++) {
+        box[axis] = Math.min(box[axis], points[slot][axis]);
+        box[axis + 3] = Math.max(box[axis + 3], points[slot][axis]);
+      }
+      extent[0] = Math.min(extent[0], longitudes[slot]);
+      extent[1] = Math.min(extent[1], latitudes[slot]);
+      extent[2] = Math.max(extent[2], longitudes[slot]);
+      extent[3] = Math.max(extent[3], latitudes[slot]);
+    }
+    int axis = 0;
+    for (int candidate = 1; candidate < 3; candidate++) {
+      if (box[candidate + 3] - box[candidate] > box[axis + 3] - box[axis]) {
+        axis = candidate;
+      }
+    }
+    int node = (lo + hi) >>> 1;
+    select(lo, hi - 1, node, axis);
+    boxes[node] = box;
+    extents[node] = extent;
+    build(lo, node);
+    build(node + 1, hi);
+  }
+
+  /** Quickselect: moves the k-th smallest slot of {@code [left, right]} on {@code axis} to k. */
+  private void select(int left, int right, int k, int axis) {
+    while (left < right) {
+      double pivot = points[(left + right) >>> 1][axis];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (points[i][axis] < pivot) {
+          i++;
+        }
+        while (points[j][axis] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void swap(int a, int b) {
+    int position = positions[a];
+    positions[a] = positions[b];
+    positions[b] = position;
+    double latitude = latitudes[a];
+    latitudes[a] = latitudes[b];
+    latitudes[b] = latitude;
+    double longitude = longitudes[a];
+    longitudes[a] = longitudes[b];
+    longitudes[b] = longitude;
+    double[] point = points[a];
+    points[a] = points[b];
+    points[b] = point;
+  }
+
+  private static double boxDistance(double[] box, double[] query) {
+    double squares = 0.0;
+    for (int axis = 0; axis < 3; axis++) {
+      double below = box[axis] - query[axis];
+      double above = query[axis] - box[axis + 3];
+      double gap = Math.max(0.0, Math.max(below, above));
+      squares += gap * gap;
+    }
+    return Math.sqrt(squares);
+  }
+
+  /** Chord length of a great-circle distance, padded so rounding never prunes a true hit. */
+  private static double chordForDistance(double meters) {
+    double angle = Math.min(Math.PI, meters / EARTH_RADIUS_METERS);
+    return 2 * Math.sin(angle / 2) + 1e-9;
+  }
+
+  /** Great-circle distance of a chord length, shrunk slightly so it stays a lower bound. */
+  private static double distanceForChord(double chord) {
+    double angle = 2 * Math.asin(Math.min(1.0, chord / 2));
+    return Math.max(0.0, angle * EARTH_RADIUS_METERS - 1e-3);
+  }
+
+  private static double[] toUnitVector(double latitude, double longitude) {
+    double lat = Math.toRadians(latitude);
+    double lon = Math.toRadians(longitude);
+    return new double[] {
+      Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)
+    };
+  }
+
+  /** One indexed attraction and its distance from the query point in meters. */
+  static final class Hit {
+    private final int position;
+    private final double distance;
+
+    Hit(int position, double distance) {
+      this.position = position;
+      this.distance = distance;
+    }
+
+    int getPosition() {
+      return position;
+    }
+
+    double getDistance() {
+      return distance;
+    }
+  }
+}
@@ -0,0 +1,362 @@
+package com.redseeker.recommend;
+
+import com.redseeker.common.DatabasePaths;
+import com.redseeker.user.BrowseChangedEvent;
+import com.redseeker.user.RatingChangedEvent;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory rating and browse aggregates per attraction plus global totals. Loaded once from
+ * SQLite, then kept current from {@link RatingChangedEvent} and {@link BrowseChangedEvent} so that
+ * every read is O(1); a periodic reconcile replaces the counters with fresh SQL aggregates to
+ * repair any drift (e.g. rows written by other tools).
+ *
+ * <p>Reads never see the live counters. A copy is published on a fixed tick
+ * ({@code recommend.stats.publish-interval-ms}), and {@link #getVersion()} moves only when a
+ * publication changed something. Caches keyed on the version, such as recommendation pages, then
+ * survive steady browse traffic for a whole tick instead of being flushed by every browse.
+ */
+@Service
+public class AttractionStatsService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AttractionStatsService.class);
+  private static final int RECONCILE_ATTEMPTS = 3;
+  private static final int RATING_PRIOR_COUNT = 5;
+
+  private final String databaseUrl;
+  private final TrendingService trendingService;
+  private final double trendingWeight;
+
+  // Replaced wholesale by reconcile; mutated in place by events. Guarded by this for writes.
+  private volatile Snapshot snapshot = new Snapshot();
+  private long writes;
+  // Bumped whenever any live counter may have changed.
+  private volatile long version;
+  // What readers see; never mutated once published.
+  private volatile Snapshot published = new Snapshot();
+  private volatile long publishedVersion;
+  // Live version (plus trending version when weighted) that the published copy was taken at.
+  private long publishedSource = -1;
+
+  public AttractionStatsService(
+      DatabasePaths databasePaths,
+      TrendingService trendingService,
+      @Value("${recommend.trending.base-weight:0.0}") double trendingWeight) {
+    this.databaseUrl = databasePaths.getDatabaseUrl();
+    this.trendingService = trendingService;
+    this.trendingWeight = Math.max(0.0, Math.min(1.0, trendingWeight));
+    try {
+      snapshot = loadSnapshot();
+    } catch (SQLException ex) {
+      LOGGER.error("Failed to load attraction statistics; starting empty until reconcile", ex);
+    }
+    publish();
+  }
+
+  /**
+   * @return the average rating, or {@code null} when the attraction has no ratings
+   */
+  public Double averageRating(String attractionId) {
+    Counters counters = published.counters.get(attractionId);
+    if (counters == null || counters.ratingCount == 0) {
+      return null;
+    }
+    return (double) counters.ratingSum / counters.ratingCount;
+  }
+
+  /**
+   * @return the number of ratings, or {@code null} when there are none
+   */
+  public Integer ratingCount(String attractionId) {
+    Counters counters = published.counters.get(attractionId);
+    return counters == null || counters.ratingCount == 0 ? null : counters.ratingCount;
+  }
+
+  /**
+   * @return the number of browse records, or {@code null} when there are none
+   */
+  public Integer browseCount(String attractionId) {
+    Counters counters = published.counters.get(attractionId);
+    return counters == null || counters.browseCount == 0 ? null : counters.browseCount;
+  }
+
+  /**
+   * @return the average over all ratings, or 0 when there are none
+   */
+  public double globalAverageRating() {
+    Snapshot current = published;
+    return current.ratingCount == 0 ? 0.0 : (double) current.ratingSum / current.ratingCount;
+  }
+
+  public int totalRatings() {
+    return published.ratingCount;
+  }
+
+  public int maxBrowseCount() {
+    return published.maxBrowseCount;
+  }
+
+  /**
+   * Popularity of an attraction in [0, 1]: its Bayesian-smoothed average rating (weight 0.7)
+   * blended with browse heat (weight 0.3), or 0.5 when it has neither ratings nor browses. Heat is
+   * the log-scaled all-time browse count relative to the most browsed attraction, mixed with the
+   * relative trending score by {@code recommend.trending.base-weight} so old spikes can fade.
+   */
+  public double popularity(String attractionId) {
+    Double rating = averageRating(attractionId);
+    Integer count = ratingCount(attractionId);
+    double ratingScore = 0.0;
+    if (rating != null && rating > 0) {
+      double globalAverage = globalAverageRating();
+      double globalAvg = globalAverage > 0 ? globalAverage : 3.5;
+      int baseCount = RATING_PRIOR_COUNT;
+      int safeCount = count == null ? 0 : count;
+      double bayesian = (rating * safeCount + globalAvg * baseCount) / (safeCount + baseCount);
+      ratingScore = Math.min(1.0, bayesian / 5.0);
+    }
+
+    double heatScore = 0.0;
+    Integer browseCount = browseCount(attractionId);
+    int maxBrowseCount = maxBrowseCount();
+    if (browseCount != null && browseCount > 0 && maxBrowseCount > 0) {
+      heatScore = Math.log1p(browseCount) / Math.log1p(maxBrowseCount);
+    }
+    if (trendingWeight > 0) {
+      heatScore =
+          heatScore * (1 - trendingWeight)
+              + published.trending.getOrDefault(attractionId, 0.0) * trendingWeight;
+    }
+
+    if (ratingScore == 0.0 && heatScore == 0.0) {
+      return 0.5;
+    }
+    return (ratingScore * 0.7) + (heatScore * 0.3);
+  }
+
+  /**
+   * @return a counter that changes whenever a publication may have changed what reads return
+   */
+  public long getVersion() {
+    return publishedVersion;
+  }
+
+  /**
+   * Publishes a copy of the live counters (and, when weighted, of the trending scores) if anything
+   * changed since the last publication.
+   */
+  @Scheduled(
+      fixedDelayString = "${recommend.stats.publish-interval-ms:60000}",
+      initialDelayString = "${recommend.stats.publish-interval-ms:60000}")
+  public void publish() {
+    Snapshot copy;
+    long source;
+    synchronized (this) {
+      // Trending scores feed popularity only when weighted; both counters only ever grow.
+      source = trendingWeight > 0 ? version + trendingService.getVersion() : version;
+      if (source == publishedSource) {
+        return;
+      }
+      copy = snapshot.copy();
+    }
+    if (trendingWeight > 0) {
+      for (String attractionId : copy.counters.keySet()) {
+        copy.trending.put(attractionId, trendingService.normalizedScore(attractionId));
+      }
+    }
+    synchronized (this) {
+      published = copy;
+      publishedSource = source;
+      publishedVersion++;
+    }
+  }
+
+  @EventListener
+  public synchronized void onRatingChanged(RatingChangedEvent event) {
+    writes++;
+    version++;
+    Snapshot current = snapshot;
+    if (event.getPreviousRating() != null) {
+      current.addRating(key(event.getAttractionId()), -event.getPreviousRating(), -1);
+    }
+    if (event.getRating() != null) {
+      current.addRating(key(event.getAttractionId()), event.getRating(), 1);
+    }
+  }
+
+  @EventListener
+  public synchronized void onBrowseChanged(BrowseChangedEvent event) {
+    writes++;
+    version++;
+    Snapshot current = snapshot;
+    if (event.getPreviousAttractionId() != null) {
+      current.addBrowse(key(event.getPreviousAttractionId()), -1);
+    }
+    if (event.getAttractionId() != null) {
+      current.addBrowse(key(event.getAttractionId()), 1);
+    }
+  }
+
+  /**
+   * Recomputes all aggregates from SQL. The result is discarded and the attempt repeated when a
+   * write event arrived while the queries ran, since it may or may not be reflected in them.
+   */
+  @Scheduled(
+      fixedDelayString = "${recommend.stats.reconcile-interval-ms:600000}",
+      initialDelayString = "${recommend.stats.reconcile-interval-ms:600000}")
+  public void reconcile() {
+    for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+      long writesBefore;
+      synchronized (this) {
+        writesBefore = writes;
+      }
+      Snapshot loaded;
+      try {
+        loaded = loadSnapshot();
+      } catch (SQLException ex) {
+        LOGGER.warn("Failed to reconcile attraction statistics", ex);
+        return;
+      }
+      synchronized (this) {
+        if (writes == writesBefore) {
+          Snapshot previous = snapshot;
+          snapshot = loaded;
+          version++;
+          if (previous.ratingCount != loaded.ratingCount
+              || previous.ratingSum != loaded.ratingSum
+              || previous.browseCount != loaded.browseCount) {
+            LOGGER.info(
+                "Reconciled drifted attraction statistics: ratings {} -> {}, browses {} -> {}",
+                previous.ratingCount,
+                loaded.ratingCount,
+                previous.browseCount,
+                loaded.browseCount);
+          }
+          return;
+        }
+      }
+    }
+    LOGGER.debug("Skipped statistics reconcile: writes kept arriving during the queries");
+  }
+
+  private Snapshot loadSnapshot() throws SQLException {
+    Snapshot loaded = new Snapshot();
+    String ratingSql =
+        "SELECT attraction_id, SUM(rating) AS total, COUNT(*) AS cnt "
+            + "FROM attraction_ratings GROUP BY attraction_id";
+    String browseSql =
+        "SELECT attraction_id, COUNT(*) AS cnt FROM user_browse_history GROUP BY attraction_id";
+    try (Connection connection = openConnection()) {
+      try (PreparedStatement statement = connection.prepareStatement(ratingSql);
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          loaded.addRating(
+              String.valueOf(resultSet.getInt("attraction_id")),
+              resultSet.getLong("total"),
+              resultSet.getInt("cnt"));
+        }
+      }
+      try (PreparedStatement statement = connection.prepareStatement(browseSql);
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          loaded.addBrowse(
+              String.valueOf(resultSet.getInt("attraction_id")), resultSet.getInt("cnt"));
+        }
+      }
+    }
+    return loaded;
+  }
+
+  private String key(Long attractionId) {
+    return String.valueOf(attractionId);
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+
+  private static final class Counters {
+    private volatile long ratingSum;
+    private volatile int ratingCount;
+    private volatile int browseCount;
+
+    private Counters copy() {
+      Counters copy = new Counters();
+      copy.ratingSum = ratingSum;
+      copy.ratingCount = ratingCount;
+      copy.browseCount = browseCount;
+      return copy;
+    }
+  }
+
+  /**
+   * One generation of counters. Mutated only while holding the service lock (or before it is
+   * published); the maximum browse count is kept exact in O(1) with a histogram of browse counts,
+   * since counts only ever move by one per event. Published copies also carry the normalized
+   * trending score of each attraction.
+   */
+  private static final class Snapshot {
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> browseCountFrequency = new HashMap<>();
+    private final Map<String, Double> trending = new HashMap<>();
+    private volatile long ratingSum;
+    private volatile int ratingCount;
+    private volatile int browseCount;
+    private volatile int maxBrowseCount;
+
+    private Snapshot copy() {
+      Snapshot copy = new Snapshot();
+      counters.forEach((attractionId, live) -> copy.counters.put(attractionId, live.copy()));
+      copy.browseCountFrequency.putAll(browseCountFrequency);
+      copy.ratingSum = ratingSum;
+      copy.ratingCount = ratingCount;
+      copy.browseCount = browseCount;
+      copy.maxBrowseCount = maxBrowseCount;
+      return copy;
+    }
+
+    private void addRating(String attractionId, long sum, int count) {
+      Counters entry = counters.computeIfAbsent(attractionId, key -> new Counters());
+      entry.ratingSum += sum;
+      entry.ratingCount += count;
+      ratingSum += sum;
+      ratingCount += count;
+    }
+
+    private void addBrowse(String attractionId, int delta) {
+      Counters entry = counters.computeIfAbsent(attractionId, key -> new Counters());
+      int before = entry.browseCount;
+      int after = Math.max(0, before + delta);
+      if (before == after) {
+        return;
+      }
+      entry.browseCount = after;
+      browseCount += after - before;
+      if (before > 0) {
+        int remaining = browseCountFrequency.merge(before, -1, Integer::sum);
+        if (remaining == 0) {
+          browseCountFrequency.remove(before);
+        }
+      }
+      if (after > 0) {
+        browseCountFrequency.merge(after, 1, Integer::sum);
+      }
+      if (after > maxBrowseCount) {
+        maxBrowseCount = after;
+      } else if (before == maxBrowseCount && !browseCountFrequency.containsKey(before)) {
+        maxBrowseCount = after;
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.redseeker.recommend;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+
+/**
+ * Compact tag storage for an {@link AttractionCatalog}. Every distinct tag is interned once in a
+ * sorted dictionary; attractions hold sorted {@code int} tag ids, and an inverted list maps each
+ * tag id to the catalog positions that carry it. The dictionary is also compiled into a {@link
+ * KeywordAutomaton} so that all tags contained in a text are found in one pass.
+ */
+final class AttractionTagIndex {
+  private static final int[] NO_TAGS = new int[0];
+
+  private final String[] dictionary;
+  private final int[][] attractionTags;
+  private final int[][] tagAttractions;
+  private final KeywordAutomaton tagMatcher;
+
+  AttractionTagIndex(List<List<String>> tagsByPosition) {
+    TreeSet<String> distinct = new TreeSet<>();
+    for (List<String> tags : tagsByPosition) {
+      distinct.addAll(tags);
+    }
+    this.dictionary = distinct.toArray(new String[0]);
+
+    this.attractionTags = new int[tagsByPosition.size()][];
+    int[] postingSizes = new int[dictionary.length];
+    for (int position = 0; position < tagsByPosition.size(); position++) {
+      List<String> tags = tagsByPosition.get(position);
+      int[] ids = tags.isEmpty() ? NO_TAGS : new int[tags.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = Arrays.binarySearch(dictionary, tags.get(i));
+        postingSizes[ids[i]]++;
+      }
+      Arrays.sort(ids);
+      attractionTags[position] = ids;
+    }
+
+    this.tagAttractions = new int[dictionary.length][];
+    for (int tagId = 0; tagId < dictionary.length; tagId++) {
+      tagAttractions[tagId] = new int[postingSizes[tagId]];
+    }
+    int[] fill = new int[dictionary.length];
+    for (int position = 0; position < attractionTags.length; position++) {
+      for (int tagId : attractionTags[position]) {
+        tagAttractions[tagId][fill[tagId]++] = position;
+      }
+    }
+    this.tagMatcher = KeywordAutomaton.of(Arrays.asList(dictionary));
+  }
+
+  int dictionarySize() {
+    return dictionary.length;
+  }
+
+  String tag(int tagId) {
+    return dictionary[tagId];
+  }
+
+  /**
+   * @return the id of the given tag, or a negative value when no attraction carries it
+   */
+  int tagId(String tag) {
+    return tag == null ? -1 : Arrays.binarySearch(dictionary, tag);
+  }
+
+  /**
+   * @return catalog positions carrying the tag, ascending; callers must not modify the array
+   */
+  int[] attractionsWithTag(int tagId) {
+    return tagAttractions[tagId];
+  }
+
+  /**
+   * Sets in {@code tagIds} the id of every tag that occurs as a substring of {@code text}.
+   */
+  void collectTagsContainedIn(String text, BitSet tagIds) {
+    tagMatcher.collect(text, tagIds);
+  }
+
+  /**
+   * @return whether a preference matches a tag (or other text): after trimming, either contains the
+   *     other; blank values never match
+   */
+  static boolean matchesPreference(String text, String preference) {
+    if (text == null || preference == null) {
+      return false;
+    }
+    String trimmedText = text.trim();
+    String trimmedPref = preference.trim();
+    if (trimmedText.isEmpty() || trimmedPref.isEmpty()) {
+      return false;
+    }
+    return trimmedText.contains(trimmedPref) || trimmedPref.contains(trimmedText);
+  }
+
+  boolean hasTag(int position, int tagId) {
+    return Arrays.binarySearch(attractionTags[position], tagId) >= 0;
+  }
+
+  /**
+   * Returns the tags of an attraction with {@code extraTag} (typically the request city) merged in
+   * sorted position. The returned list is a read-only view; nothing is copied.
+   */
+  List<String> tagsOf(int position, String extraTag) {
+    int[] ids = attractionTags[position];
+    if (extraTag == null || extraTag.isBlank()) {
+      return new TagList(dictionary, ids, null, ids.length);
+    }
+    String extra = extraTag.trim();
+    int extraId = tagId(extra);
+    if (extraId >= 0 && hasTag(position, extraId)) {
+      return new TagList(dictionary, ids, null, ids.length);
+    }
+    int insertAt = 0;
+    while (insertAt < ids.length && dictionary[ids[insertAt]].compareTo(extra) < 0) {
+      insertAt++;
+    }
+    return new TagList(dictionary, ids, extra, insertAt);
+  }
+
+  private static final class TagList extends AbstractList<String> implements RandomAccess {
+    private final String[] dictionary;
+    private final int[] ids;
+    private final String extra;
+    private final int extraIndex;
+
+    private TagList(String[] dictionary, int[] ids, String extra, int extraIndex) {
+      this.dictionary = dictionary;
+      this.ids = ids;
+      this.extra = extra;
+      this.extraIndex = extraIndex;
+    }
+
+    @Override
+    public String get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      if (extra == null || index < extraIndex) {
+        return dictionary[ids[index]];
+      }
+      if (index == extraIndex) {
+        return extra;
+      }
+      return dictionary[ids[index - 1]];
+    }
+
+    @Override
+    public int size() {
+      return extra == null ? ids.length : ids.length + 1;
+    }
+  }
+}
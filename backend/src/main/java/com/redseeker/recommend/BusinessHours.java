@@ -0,0 +1,81 @@
+package com.redseeker.recommend;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parsed form of {@code attractions.business_hours}, e.g. "09:00-17:00", "0900至1630" or "全天开放".
+ */
+public final class BusinessHours {
+  private static final BusinessHours ALL_DAY = new BusinessHours(true, null, null);
+
+  private final boolean allDay;
+  private final LocalTime start;
+  private final LocalTime end;
+
+  private BusinessHours(boolean allDay, LocalTime start, LocalTime end) {
+    this.allDay = allDay;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @return parsed hours, or {@code null} when the text is blank or cannot be understood
+   */
+  public static BusinessHours parse(String businessHours) {
+    if (businessHours == null || businessHours.isBlank()) {
+      return null;
+    }
+    if (businessHours.contains("全天")) {
+      return ALL_DAY;
+    }
+    String normalized = businessHours.replaceAll("\\s", "");
+    String[] parts = normalized.split("[-~至]");
+    if (parts.length < 2) {
+      return null;
+    }
+    LocalTime start = parseHourMinute(parts[0]);
+    LocalTime end = parseHourMinute(parts[1]);
+    if (start == null || end == null) {
+      return null;
+    }
+    return new BusinessHours(false, start, end);
+  }
+
+  public boolean isAllDay() {
+    return allDay;
+  }
+
+  public LocalTime getStart() {
+    return start;
+  }
+
+  public LocalTime getEnd() {
+    return end;
+  }
+
+  public boolean isOpenAt(LocalTime time) {
+    if (allDay || start.equals(end)) {
+      return true;
+    }
+    if (start.isBefore(end)) {
+      return !time.isBefore(start) && !time.isAfter(end);
+    }
+    return !time.isBefore(start) || !time.isAfter(end);
+  }
+
+  private static LocalTime parseHourMinute(String value) {
+    String cleaned = value.replaceAll("[^0-9:]", "");
+    if (cleaned.isEmpty()) {
+      return null;
+    }
+    if (!cleaned.contains(":") && cleaned.length() == 4) {
+      cleaned = cleaned.substring(0, 2) + ":" + cleaned.substring(2);
+    }
+    try {
+      return LocalTime.parse(cleaned);
+    } catch (DateTimeParseException ex) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.redseeker.recommend;
+
+/**
+ * A cheap first-stage source of recommendation candidates. {@link CandidatePipeline} unions the
+ * output of every generator bean and only the union goes through full scoring, so a generator
+ * should cost far less than scoring the catalog and may miss attractions another one covers.
+ */
+interface CandidateGenerator {
+  /**
+   * @return a short stable name used in timing statistics
+   */
+  String name();
+
+  /**
+   * @return at most {@link CandidateQuery#getQuota()} catalog positions, best first; empty when the
+   *     request carries nothing this generator can use
+   */
+  int[] generate(CandidateQuery query);
+}
@@ -0,0 +1,37 @@
+package com.redseeker.recommend;
+
+public class CandidateGeneratorStats {
+  private final String name;
+  private final long invocations;
+  private final long candidates;
+  private final long totalNanos;
+
+  public CandidateGeneratorStats(String name, long invocations, long candidates, long totalNanos) {
+    this.name = name;
+    this.invocations = invocations;
+    this.candidates = candidates;
+    this.totalNanos = totalNanos;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getInvocations() {
+    return invocations;
+  }
+
+  /**
+   * @return candidates returned over all invocations
+   */
+  public long getCandidates() {
+    return candidates;
+  }
+
+  /**
+   * @return average wall time per invocation in milliseconds, or 0 before the first one
+   */
+  public double getAverageMillis() {
+    return invocations == 0 ? 0.0 : totalNanos / 1_000_000.0 / invocations;
+  }
+}
@@ -0,0 +1,119 @@
+package com.redseeker.recommend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * First stage of the recommendation ranking: runs every {@link CandidateGenerator} bean, times it,
+ * and unions their positions into the candidate set that is fully scored. Small catalogs, requests
+ * without a page limit and requests whose eligible set is already small skip this stage and score
+ * every eligible attraction, so their rankings are exact.
+ */
+@Service
+public class CandidatePipeline {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CandidatePipeline.class);
+
+  private final List<CandidateGenerator> generators;
+  private final List<Timing> timings;
+  private final int minCatalogSize;
+  private final int perGenerator;
+
+  public CandidatePipeline(
+      List<CandidateGenerator> generators,
+      @Value("${recommend.candidates.min-catalog-size:1000}") int minCatalogSize,
+      @Value("${recommend.candidates.per-generator:100}") int perGenerator) {
+    this.generators = List.copyOf(generators);
+    this.timings = new ArrayList<>(generators.size());
+    for (CandidateGenerator generator : this.generators) {
+      timings.add(new Timing(generator.name()));
+    }
+    this.minCatalogSize = minCatalogSize;
+    this.perGenerator = Math.max(1, perGenerator);
+  }
+
+  /**
+   * @param eligible ascending positions the request may return, or {@code null} for all
+   * @return ascending positions to score, or {@code eligible} itself when generation is skipped
+   */
+  int[] select(
+      RecommendRequest request,
+      AttractionCatalog catalog,
+      int[] preferenceMatches,
+      double[] cfScores,
+      int[] eligible) {
+    if (generators.isEmpty() || catalog.size() < minCatalogSize || request.getLimit() == null) {
+      return eligible;
+    }
+    int offset = request.getOffset() == null ? 0 : Math.max(0, request.getOffset());
+    long depth = (long) offset + request.getLimit();
+    int eligibleCount = eligible == null ? catalog.size() : eligible.length;
+    int quota = (int) Math.min(catalog.size(), Math.max(perGenerator, depth));
+    if (eligibleCount <= quota) {
+      return eligible;
+    }
+
+    CandidateQuery query = new CandidateQuery(request, catalog, preferenceMatches, cfScores, quota);
+    BitSet union = new BitSet(catalog.size());
+    StringBuilder trace = LOGGER.isDebugEnabled() ? new StringBuilder() : null;
+    for (int i = 0; i < generators.size(); i++) {
+      long start = System.nanoTime();
+      int[] positions = generators.get(i).generate(query);
+      long elapsed = System.nanoTime() - start;
+      timings.get(i).record(positions.length, elapsed);
+      for (int position : positions) {
+        union.set(position);
+      }
+      if (trace != null) {
+        trace.append(' ').append(generators.get(i).name()).append('=').append(positions.length)
+            .append(String.format(" (%.3f ms)", elapsed / 1_000_000.0));
+      }
+    }
+    if (eligible != null) {
+      BitSet allowed = new BitSet(catalog.size());
+      for (int position : eligible) {
+        allowed.set(position);
+      }
+      union.and(allowed);
+    }
+    if (trace != null) {
+      LOGGER.debug("Candidate generation:{}, union={} of {}", trace, union.cardinality(),
+          eligibleCount);
+    }
+    // A union that cannot fill the requested page (e.g. after the distance filter) would change
+    // the results rather than just their cost.
+    return union.cardinality() < depth ? eligible : union.stream().toArray();
+  }
+
+  List<CandidateGeneratorStats> getStats() {
+    List<CandidateGeneratorStats> stats = new ArrayList<>(timings.size());
+    for (Timing timing : timings) {
+      stats.add(
+          new CandidateGeneratorStats(
+              timing.name, timing.invocations.sum(), timing.candidates.sum(), timing.nanos.sum()));
+    }
+    return stats;
+  }
+
+  private static final class Timing {
+    private final String name;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private Timing(String name) {
+      this.name = name;
+    }
+
+    private void record(int count, long elapsedNanos) {
+      invocations.increment();
+      candidates.add(count);
+      nanos.add(elapsedNanos);
+    }
+  }
+}
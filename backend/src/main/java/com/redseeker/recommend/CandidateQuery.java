@@ -0,0 +1,74 @@
+package com.redseeker.recommend;
+
+/**
+ * What candidate generators may read about one request: the request itself plus the per-position
+ * signals the ranking computes before scoring anyway.
+ */
+final class CandidateQuery {
+  private static final int[] NONE = new int[0];
+
+  private final RecommendRequest request;
+  private final AttractionCatalog catalog;
+  private final int[] preferenceMatches;
+  private final double[] cfScores;
+  private final int quota;
+
+  CandidateQuery(
+      RecommendRequest request,
+      AttractionCatalog catalog,
+      int[] preferenceMatches,
+      double[] cfScores,
+      int quota) {
+    this.request = request;
+    this.catalog = catalog;
+    this.preferenceMatches = preferenceMatches;
+    this.cfScores = cfScores;
+    this.quota = quota;
+  }
+
+  RecommendRequest getRequest() {
+    return request;
+  }
+
+  AttractionCatalog getCatalog() {
+    return catalog;
+  }
+
+  /**
+   * @return preference matches per catalog position, all zero without preferences
+   */
+  int[] getPreferenceMatches() {
+    return preferenceMatches;
+  }
+
+  /**
+   * @return collaborative-filtering scores per catalog position, or {@code null} for anonymous
+   *     requests
+   */
+  double[] getCfScores() {
+    return cfScores;
+  }
+
+  /**
+   * @return the most positions one generator may return
+   */
+  int getQuota() {
+    return quota;
+  }
+
+  /**
+   * @param signal values per catalog position; positions at or below zero are skipped
+   * @return up to {@link #getQuota()} positions with the highest signal, best first
+   */
+  int[] top(double[] signal) {
+    TopKSelector selector = new TopKSelector(signal, quota);
+    boolean any = false;
+    for (int position = 0; position < signal.length; position++) {
+      if (signal[position] > 0) {
+        selector.offer(position);
+        any = true;
+      }
+    }
+    return any ? selector.drainSorted() : NONE;
+  }
+}
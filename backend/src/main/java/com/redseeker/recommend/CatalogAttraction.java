@@ -0,0 +1,139 @@
+package com.redseeker.recommend;
+
+/**
+ * Immutable attraction row held by {@link AttractionCatalog}, with business hours and stage info
+ * already resolved. Event tags live in the catalog's {@link AttractionTagIndex}.
+ */
+public final class CatalogAttraction {
+  private final String id;
+  private final String name;
+  private final String address;
+  private final int categoryId;
+  private final String category;
+  private final String briefIntro;
+  private final String historicalBackground;
+  private final String businessHours;
+  private final BusinessHours parsedBusinessHours;
+  private final Double perCapitaConsumption;
+  private final Double longitude;
+  private final Double latitude;
+  private final Integer stageStart;
+  private final Integer stageEnd;
+  private final String stageName;
+
+  CatalogAttraction(
+      String id,
+      String name,
+      String address,
+      int categoryId,
+      String briefIntro,
+      String historicalBackground,
+      String businessHours,
+      Double perCapitaConsumption,
+      Double longitude,
+      Double latitude,
+      Integer stageStart,
+      Integer stageEnd,
+      String stageName) {
+    this.id = id;
+    this.name = name;
+    this.address = address;
+    this.categoryId = categoryId;
+    this.category = formatCategory(categoryId);
+    this.briefIntro = briefIntro;
+    this.historicalBackground = historicalBackground;
+    this.businessHours = businessHours;
+    this.parsedBusinessHours = BusinessHours.parse(businessHours);
+    this.perCapitaConsumption = perCapitaConsumption;
+    this.longitude = longitude;
+    this.latitude = latitude;
+    this.stageStart = stageStart;
+    this.stageEnd = stageEnd;
+    this.stageName = stageName;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getAddress() {
+    return address;
+  }
+
+  public int getCategoryId() {
+    return categoryId;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public String getBusinessHours() {
+    return businessHours;
+  }
+
+  /**
+   * @return parsed business hours, or {@code null} when missing or unparseable
+   */
+  public BusinessHours getParsedBusinessHours() {
+    return parsedBusinessHours;
+  }
+
+  public Double getPerCapitaConsumption() {
+    return perCapitaConsumption;
+  }
+
+  /**
+   * Historical background, falling back to the brief intro and then the address.
+   */
+  public String getHistory() {
+    if (historicalBackground != null && !historicalBackground.isBlank()) {
+      return historicalBackground;
+    }
+    if (briefIntro != null && !briefIntro.isBlank()) {
+      return briefIntro;
+    }
+    return address;
+  }
+
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  public Integer getStageStart() {
+    return stageStart;
+  }
+
+  public Integer getStageEnd() {
+    return stageEnd;
+  }
+
+  public String getStageName() {
+    return stageName;
+  }
+
+  private static String formatCategory(int categoryId) {
+    switch (categoryId) {
+      case 1:
+        return "Revolutionary Site";
+      case 2:
+        return "Celebrity Residence";
+      case 3:
+        return "Memorial Hall";
+      case 4:
+        return "Martyr Cemetery";
+      case 5:
+        return "Patriotic Education Base";
+      default:
+        return "Category-" + categoryId;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.redseeker.recommend;
+
+/**
+ * A collaborative-filtering engine selectable through {@link RecommendRequest#getCfEngine()}.
+ */
+interface CollaborativeScorer {
+  /**
+   * Scores every catalog attraction for the user in [0, 1], parallel to {@link
+   * AttractionCatalog#getAttractions()}. The user's own rating / 5 takes precedence, 0.5 means no
+   * evidence, and all zeros are returned when nobody has rated anything.
+   */
+  double[] scoreCatalog(Long userId, AttractionCatalog catalog);
+
+  /**
+   * Scores one catalog position exactly as {@link #scoreCatalog} would, without touching the rest
+   * of the catalog.
+   */
+  double scoreOne(Long userId, AttractionCatalog catalog, int position);
+}
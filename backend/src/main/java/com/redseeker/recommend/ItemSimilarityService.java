@@ -0,0 +1,474 @@
+package com.redseeker.recommend;
+
+import com.redseeker.common.DatabasePaths;
+import com.redseeker.user.BrowseChangedEvent;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Item-based collaborative filtering. A background job derives an attraction-attraction cosine
+ * similarity table from ratings and browse history and writes it as an {@link
+ * ItemSimilaritySnapshot}; the newest snapshot is memory-mapped at startup and swapped after each
+ * rebuild. Requests only combine the user's own interactions with the precomputed neighbours, so
+ * their cost does not depend on the number of users. The user's interactions are built exactly like
+ * the table's: live ratings from {@link RatingMatrixService}, plus browsed-only attractions at the
+ * implicit rating; browse counts per user are kept in memory from {@link BrowseChangedEvent}s and
+ * reloaded with every rebuild.
+ */
+@Service
+public class ItemSimilarityService implements CollaborativeScorer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ItemSimilarityService.class);
+  private static final String SNAPSHOT_PREFIX = "item-similarity-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  // Predictions are pulled toward a neutral rating as if it came from a neighbour of this
+  // similarity. Weak or scarce evidence stays near neutral, and browse-only profiles (all values
+  // equal) still rank items by how much similarity points at them.
+  private static final double SHRINKAGE = 1.0;
+  private static final double NEUTRAL_RATING = 2.5;
+
+  private final RatingMatrixService ratingMatrixService;
+  private final String databaseUrl;
+  private final Path snapshotDirectory;
+  private final int neighbourCount;
+  private final float browseWeight;
+  private final long rebuildIntervalMs;
+  private final AtomicReference<ItemSimilaritySnapshot> snapshot = new AtomicReference<>();
+  // Guarded by itself: user id -> attraction id -> number of browse records.
+  private final Map<Long, Map<Integer, Integer>> browses = new HashMap<>();
+
+  public ItemSimilarityService(
+      DatabasePaths databasePaths,
+      RatingMatrixService ratingMatrixService,
+      @Value("${recommend.item-cf.neighbours:30}") int neighbourCount,
+      @Value("${recommend.item-cf.browse-weight:3.0}") float browseWeight,
+      @Value("${recommend.item-cf.rebuild-interval-ms:3600000}") long rebuildIntervalMs,
+      @Value("${recommend.item-cf.snapshot-dir:}") String snapshotDir) {
+    this.ratingMatrixService = ratingMatrixService;
+    this.databaseUrl = databasePaths.getDatabaseUrl();
+    this.snapshotDirectory = databasePaths.resolveModelsDirectory(snapshotDir);
+    this.neighbourCount = Math.max(1, neighbourCount);
+    this.browseWeight = browseWeight;
+    this.rebuildIntervalMs = rebuildIntervalMs;
+    loadLatestSnapshot();
+    try {
+      loadInteractions();
+    } catch (SQLException ex) {
+      LOGGER.error("Failed to load browse history; item CF sees ratings only until the next rebuild",
+          ex);
+    }
+  }
+
+  @EventListener
+  public void onBrowseChanged(BrowseChangedEvent event) {
+    synchronized (browses) {
+      if (event.getPreviousAttractionId() != null) {
+        addBrowse(event.getUserId(), event.getPreviousAttractionId().intValue(), -1);
+      }
+      if (event.getAttractionId() != null) {
+        addBrowse(event.getUserId(), event.getAttractionId().intValue(), 1);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the similarity table when there is none yet or the current one is older than the
+   * configured interval.
+   */
+  @Scheduled(fixedDelayString = "${recommend.item-cf.check-interval-ms:60000}")
+  public void rebuildIfStale() {
+    ItemSimilaritySnapshot current = snapshot.get();
+    if (current != null && System.currentTimeMillis() - current.getBuiltAt() < rebuildIntervalMs) {
+      return;
+    }
+    try {
+      rebuild();
+    } catch (SQLException | IOException ex) {
+      LOGGER.warn("Failed to rebuild item similarity snapshot", ex);
+    }
+  }
+
+  /**
+   * @return the build time of the similarity table in use, or 0 when there is none
+   */
+  long snapshotVersion() {
+    ItemSimilaritySnapshot current = snapshot.get();
+    return current == null ? 0L : current.getBuiltAt();
+  }
+
+  /**
+   * Predicts attractions the user has not interacted with as the similarity-weighted average of
+   * the user's interactions with their precomputed neighbours, shrunk toward a neutral rating.
+   */
+  @Override
+  public double[] scoreCatalog(Long userId, AttractionCatalog catalog) {
+    double[] scores = new double[catalog.size()];
+    RatingMatrix ratings = ratingMatrixService.snapshot();
+    Map<Integer, Float> profile = profile(userId, ratings);
+    if (profile.isEmpty()) {
+      if (!ratings.isEmpty() || hasBrowses()) {
+        Arrays.fill(scores, 0.5);
+      }
+      return scores;
+    }
+
+    ItemSimilaritySnapshot table = snapshot.get();
+    double[] weightedSums = new double[table == null ? 0 : table.itemCount()];
+    double[] similaritySums = new double[weightedSums.length];
+    if (table != null) {
+      for (Map.Entry<Integer, Float> interaction : profile.entrySet()) {
+        int item = table.indexOf(interaction.getKey());
+        if (item < 0) {
+          continue;
+        }
+        for (int entry = table.neighboursStart(item); entry < table.neighboursEnd(item); entry++) {
+          double similarity = table.similarity(entry);
+          weightedSums[table.neighbour(entry)] += similarity * interaction.getValue();
+          similaritySums[table.neighbour(entry)] += similarity;
+        }
+      }
+    }
+
+    List<CatalogAttraction> attractions = catalog.getAttractions();
+    for (int position = 0; position < scores.length; position++) {
+      int id = parseId(attractions.get(position).getId());
+      Float own = profile.get(id);
+      int item = table == null ? -1 : table.indexOf(id);
+      if (own != null) {
+        scores[position] = own / 5.0;
+      } else if (item >= 0) {
+        scores[position] = (weightedSums[item] + SHRINKAGE * NEUTRAL_RATING)
+            / (similaritySums[item] + SHRINKAGE) / 5.0;
+      } else {
+        scores[position] = 0.5;
+      }
+    }
+    return scores;
+  }
+
+  /**
+   * Sums, over the user's interactions, the similarity to the one attraction found in each
+   * interacted item's neighbour list.
+   */
+  @Override
+  public double scoreOne(Long userId, AttractionCatalog catalog, int position) {
+    RatingMatrix ratings = ratingMatrixService.snapshot();
+    Map<Integer, Float> profile = profile(userId, ratings);
+    if (profile.isEmpty()) {
+      return !ratings.isEmpty() || hasBrowses() ? 0.5 : 0.0;
+    }
+    int id = parseId(catalog.getAttractions().get(position).getId());
+    Float own = profile.get(id);
+    if (own != null) {
+      return own / 5.0;
+    }
+    ItemSimilaritySnapshot table = snapshot.get();
+    int target = table == null ? -1 : table.indexOf(id);
+    if (target < 0) {
+      return 0.5;
+    }
+    double weightedSum = 0.0;
+    double similaritySum = 0.0;
+    for (Map.Entry<Integer, Float> interaction : profile.entrySet()) {
+      int item = table.indexOf(interaction.getKey());
+      if (item < 0) {
+        continue;
+      }
+      for (int entry = table.neighboursStart(item); entry < table.neighboursEnd(item); entry++) {
+        if (table.neighbour(entry) == target) {
+          double similarity = table.similarity(entry);
+          weightedSum += similarity * interaction.getValue();
+          similaritySum += similarity;
+          break;
+        }
+      }
+    }
+    return (weightedSum + SHRINKAGE * NEUTRAL_RATING) / (similaritySum + SHRINKAGE) / 5.0;
+  }
+
+  /**
+   * @return the user's interactions by attraction id: ratings, and the implicit rating for
+   *     attractions only browsed
+   */
+  private Map<Integer, Float> profile(Long userId, RatingMatrix ratings) {
+    Map<Integer, Float> profile = new HashMap<>();
+    synchronized (browses) {
+      Map<Integer, Integer> browsed = browses.get(userId);
+      if (browsed != null) {
+        browsed.keySet().forEach(id -> profile.put(id, browseWeight));
+      }
+    }
+    int user = ratings.userIndex(userId);
+    if (user >= 0) {
+      int[] rated = ratings.items(user);
+      float[] values = ratings.ratings(user);
+      for (int i = 0; i < rated.length; i++) {
+        profile.put(parseId(ratings.itemId(rated[i])), values[i]);
+      }
+    }
+    return profile;
+  }
+
+  private boolean hasBrowses() {
+    synchronized (browses) {
+      return !browses.isEmpty();
+    }
+  }
+
+  private void addBrowse(Long userId, int attractionId, int delta) {
+    Map<Integer, Integer> row = browses.computeIfAbsent(userId, key -> new HashMap<>());
+    if (row.merge(attractionId, delta, Integer::sum) <= 0) {
+      row.remove(attractionId);
+      if (row.isEmpty()) {
+        browses.remove(userId);
+      }
+    }
+  }
+
+  private synchronized void rebuild() throws SQLException, IOException {
+    long started = System.nanoTime();
+    long builtAt = System.currentTimeMillis();
+    Map<Long, Map<Integer, Float>> interactions = loadInteractions();
+
+    TreeSet<Integer> distinct = new TreeSet<>();
+    interactions.values().forEach(row -> distinct.addAll(row.keySet()));
+    int[] itemIds = distinct.stream().mapToInt(Integer::intValue).toArray();
+    int itemCount = itemIds.length;
+
+    // Sparse user rows and item columns over dense item indexes.
+    int[][] rowItems = new int[interactions.size()][];
+    float[][] rowValues = new float[interactions.size()][];
+    List<List<int[]>> columns = new ArrayList<>(itemCount);
+    for (int item = 0; item < itemCount; item++) {
+      columns.add(new ArrayList<>());
+    }
+    double[] norms = new double[itemCount];
+    int user = 0;
+    for (Map<Integer, Float> row : interactions.values()) {
+      rowItems[user] = new int[row.size()];
+      rowValues[user] = new float[row.size()];
+      int slot = 0;
+      for (Map.Entry<Integer, Float> entry : row.entrySet()) {
+        int item = Arrays.binarySearch(itemIds, entry.getKey());
+        float value = entry.getValue();
+        rowItems[user][slot] = item;
+        rowValues[user][slot] = value;
+        columns.get(item).add(new int[] {user, slot});
+        norms[item] += (double) value * value;
+        slot++;
+      }
+      user++;
+    }
+    for (int item = 0; item < itemCount; item++) {
+      norms[item] = Math.sqrt(norms[item]);
+    }
+
+    int[] offsets = new int[itemCount + 1];
+    int[] neighbours = new int[itemCount * Math.min(neighbourCount, Math.max(0, itemCount - 1))];
+    float[] similarities = new float[neighbours.length];
+    double[] dots = new double[itemCount];
+    int[] touched = new int[itemCount];
+    boolean[] isTouched = new boolean[itemCount];
+    Integer[] order = new Integer[itemCount];
+    int entries = 0;
+    for (int item = 0; item < itemCount; item++) {
+      int touchedCount = 0;
+      for (int[] cell : columns.get(item)) {
+        float value = rowValues[cell[0]][cell[1]];
+        int[] items = rowItems[cell[0]];
+        float[] values = rowValues[cell[0]];
+        for (int i = 0; i < items.length; i++) {
+          if (items[i] == item) {
+            continue;
+          }
+          if (!isTouched[items[i]]) {
+            isTouched[items[i]] = true;
+            touched[touchedCount++] = items[i];
+          }
+          dots[items[i]] += (double) value * values[i];
+        }
+      }
+      int candidates = 0;
+      for (int t = 0; t < touchedCount; t++) {
+        int other = touched[t];
+        double normProduct = norms[item] * norms[other];
+        dots[other] = normProduct == 0.0 ? 0.0 : dots[other] / normProduct;
+        if (dots[other] > 0.0) {
+          order[candidates++] = other;
+        }
+      }
+      Arrays.sort(
+          order,
+          0,
+          candidates,
+          (left, right) -> {
+            int bySimilarity = Double.compare(dots[right], dots[left]);
+            return bySimilarity != 0 ? bySimilarity : Integer.compare(left, right);
+          });
+      int kept = Math.min(candidates, neighbourCount);
+      for (int k = 0; k < kept; k++) {
+        neighbours[entries] = order[k];
+        similarities[entries] = (float) dots[order[k]];
+        entries++;
+      }
+      offsets[item + 1] = entries;
+      for (int t = 0; t < touchedCount; t++) {
+        dots[touched[t]] = 0.0;
+        isTouched[touched[t]] = false;
+      }
+    }
+
+    Files.createDirectories(snapshotDirectory);
+    Path target = snapshotDirectory.resolve(SNAPSHOT_PREFIX + builtAt + SNAPSHOT_SUFFIX);
+    Path temporary = snapshotDirectory.resolve(SNAPSHOT_PREFIX + builtAt + ".tmp");
+    ItemSimilaritySnapshot.write(
+        temporary,
+        builtAt,
+        itemIds,
+        offsets,
+        Arrays.copyOf(neighbours, entries),
+        Arrays.copyOf(similarities, entries));
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    ItemSimilaritySnapshot rebuilt = ItemSimilaritySnapshot.map(target);
+    snapshot.set(rebuilt);
+    deleteSnapshotsExcept(target);
+    LOGGER.info(
+        "Item similarity snapshot built: {} items, {} neighbour entries in {} ms",
+        itemCount,
+        entries,
+        (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   * Explicit ratings count as-is (latest row wins); attractions a user only browsed count as the
+   * configured implicit rating. Also replaces the in-memory browse counts, which drop any drift
+   * from events that raced an earlier load.
+   */
+  private Map<Long, Map<Integer, Float>> loadInteractions() throws SQLException {
+    Map<Long, Map<Integer, Float>> result = new HashMap<>();
+    Map<Long, Map<Integer, Integer>> browseCounts = new HashMap<>();
+    try (Connection connection = openConnection()) {
+      String browseSql =
+          "SELECT user_id, attraction_id, COUNT(*) AS cnt FROM user_browse_history "
+              + "GROUP BY user_id, attraction_id";
+      try (PreparedStatement statement = connection.prepareStatement(browseSql);
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          long user = resultSet.getLong("user_id");
+          int attraction = resultSet.getInt("attraction_id");
+          result.computeIfAbsent(user, key -> new HashMap<>()).put(attraction, browseWeight);
+          browseCounts
+              .computeIfAbsent(user, key -> new HashMap<>())
+              .put(attraction, resultSet.getInt("cnt"));
+        }
+      }
+      String ratingSql =
+          "SELECT user_id, attraction_id, rating FROM attraction_ratings ORDER BY id";
+      try (PreparedStatement statement = connection.prepareStatement(ratingSql);
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          result
+              .computeIfAbsent(resultSet.getLong("user_id"), key -> new HashMap<>())
+              .put(resultSet.getInt("attraction_id"), resultSet.getFloat("rating"));
+        }
+      }
+    }
+    synchronized (browses) {
+      browses.clear();
+      browses.putAll(browseCounts);
+    }
+    return result;
+  }
+
+  private void loadLatestSnapshot() {
+    Path latest = null;
+    long latestBuiltAt = Long.MIN_VALUE;
+    if (Files.isDirectory(snapshotDirectory)) {
+      try (DirectoryStream<Path> files =
+          Files.newDirectoryStream(snapshotDirectory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+        for (Path file : files) {
+          long builtAt = snapshotTimestamp(file);
+          if (builtAt > latestBuiltAt) {
+            latest = file;
+            latestBuiltAt = builtAt;
+          }
+        }
+      } catch (IOException ex) {
+        LOGGER.warn("Failed to list item similarity snapshots in {}", snapshotDirectory, ex);
+      }
+    }
+    if (latest == null) {
+      LOGGER.info("No item similarity snapshot in {}; building in background", snapshotDirectory);
+      return;
+    }
+    try {
+      snapshot.set(ItemSimilaritySnapshot.map(latest));
+      LOGGER.info("Mapped item similarity snapshot {}", latest);
+    } catch (IOException ex) {
+      LOGGER.warn("Ignoring unreadable item similarity snapshot {}", latest, ex);
+    }
+  }
+
+  /**
+   * Removes older snapshots. A file that is still mapped cannot be deleted on every platform; it is
+   * left behind and retried after the next rebuild.
+   */
+  private void deleteSnapshotsExcept(Path keep) {
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(snapshotDirectory, SNAPSHOT_PREFIX + "*")) {
+      for (Path file : files) {
+        if (!file.equals(keep)) {
+          try {
+            Files.deleteIfExists(file);
+          } catch (IOException ex) {
+            LOGGER.debug("Could not delete old item similarity snapshot {}", file, ex);
+          }
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.debug("Failed to clean item similarity snapshots", ex);
+    }
+  }
+
+  private long snapshotTimestamp(Path file) {
+    String name = file.getFileName().toString();
+    try {
+      return Long.parseLong(
+          name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    } catch (NumberFormatException ex) {
+      return Long.MIN_VALUE;
+    }
+  }
+
+  private int parseId(String attractionId) {
+    try {
+      return Integer.parseInt(attractionId);
+    } catch (NumberFormatException ex) {
+      return Integer.MIN_VALUE;
+    }
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+}
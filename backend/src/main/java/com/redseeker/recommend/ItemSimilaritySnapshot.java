@@ -0,0 +1,143 @@
+package com.redseeker.recommend;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped attraction-attraction similarity table.
+ *
+ * <p>File layout (big-endian): magic {@code "RSIS"}, format version, build time (epoch millis),
+ * item count {@code n}, entry count {@code m}, then {@code int[n]} ascending attraction ids,
+ * {@code int[n + 1]} neighbour offsets, {@code int[m]} neighbour item indexes and {@code float[m]}
+ * similarities. The neighbours of item {@code i} occupy entries {@code offsets[i]} to {@code
+ * offsets[i + 1]}, most similar first. Lookups read the mapping directly and allocate nothing.
+ */
+final class ItemSimilaritySnapshot {
+  private static final int MAGIC = 0x52534953;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final long builtAt;
+  private final int itemCount;
+  private final int idsAt;
+  private final int offsetsAt;
+  private final int neighboursAt;
+  private final int similaritiesAt;
+
+  private ItemSimilaritySnapshot(Path path, MappedByteBuffer buffer) throws IOException {
+    this.path = path;
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_BYTES
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != FORMAT_VERSION) {
+      throw new IOException("Not an item similarity snapshot: " + path);
+    }
+    this.builtAt = buffer.getLong(8);
+    this.itemCount = buffer.getInt(16);
+    int entryCount = buffer.getInt(20);
+    this.idsAt = HEADER_BYTES;
+    this.offsetsAt = idsAt + itemCount * 4;
+    this.neighboursAt = offsetsAt + (itemCount + 1) * 4;
+    this.similaritiesAt = neighboursAt + entryCount * 4;
+    if (itemCount < 0 || entryCount < 0 || similaritiesAt + entryCount * 4 != buffer.capacity()) {
+      throw new IOException("Truncated item similarity snapshot: " + path);
+    }
+  }
+
+  static ItemSimilaritySnapshot map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new ItemSimilaritySnapshot(
+          path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Writes a snapshot.
+   *
+   * @param itemIds ascending attraction ids
+   * @param offsets neighbour offsets, {@code itemIds.length + 1} entries
+   * @param neighbours neighbour item indexes
+   * @param similarities similarities parallel to {@code neighbours}
+   */
+  static void write(
+      Path path, long builtAt, int[] itemIds, int[] offsets, int[] neighbours, float[] similarities)
+      throws IOException {
+    try (OutputStream file = Files.newOutputStream(path);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(builtAt);
+      out.writeInt(itemIds.length);
+      out.writeInt(neighbours.length);
+      for (int id : itemIds) {
+        out.writeInt(id);
+      }
+      for (int offset : offsets) {
+        out.writeInt(offset);
+      }
+      for (int neighbour : neighbours) {
+        out.writeInt(neighbour);
+      }
+      for (float similarity : similarities) {
+        out.writeFloat(similarity);
+      }
+    }
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  long getBuiltAt() {
+    return builtAt;
+  }
+
+  int itemCount() {
+    return itemCount;
+  }
+
+  /**
+   * @return the item index of the attraction, or a negative value when it is not in the table
+   */
+  int indexOf(int attractionId) {
+    int low = 0;
+    int high = itemCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int id = buffer.getInt(idsAt + mid * 4);
+      if (id < attractionId) {
+        low = mid + 1;
+      } else if (id > attractionId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  int neighboursStart(int item) {
+    return buffer.getInt(offsetsAt + item * 4);
+  }
+
+  int neighboursEnd(int item) {
+    return buffer.getInt(offsetsAt + (item + 1) * 4);
+  }
+
+  int neighbour(int entry) {
+    return buffer.getInt(neighboursAt + entry * 4);
+  }
+
+  float similarity(int entry) {
+    return buffer.getFloat(similaritiesAt + entry * 4);
+  }
+}
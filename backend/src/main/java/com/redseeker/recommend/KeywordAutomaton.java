@@ -0,0 +1,170 @@
+package com.redseeker.recommend;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho–Corasick automaton over a fixed set of patterns: one left-to-right pass over a text finds
+ * every pattern occurring in it, however many patterns there are. Pattern ids are their indexes in
+ * the list given to {@link #of}; null or empty patterns never match. Instances are immutable and
+ * safe to share between threads.
+ */
+final class KeywordAutomaton {
+  private static final int[] NONE = new int[0];
+
+  // Per state: sorted edge labels with parallel targets, failure link, own pattern ids, and the
+  // nearest state on the failure chain that has pattern ids of its own (-1 when none).
+  private final char[][] labels;
+  private final int[][] targets;
+  private final int[] failure;
+  private final int[][] outputs;
+  private final int[] outputLink;
+  private final int patternCount;
+
+  private KeywordAutomaton(
+      char[][] labels,
+      int[][] targets,
+      int[] failure,
+      int[][] outputs,
+      int[] outputLink,
+      int patternCount) {
+    this.labels = labels;
+    this.targets = targets;
+    this.failure = failure;
+    this.outputs = outputs;
+    this.outputLink = outputLink;
+    this.patternCount = patternCount;
+  }
+
+  static KeywordAutomaton of(List<String> patterns) {
+    List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+    List<List<Integer>> ownPatterns = new ArrayList<>();
+    edges.add(new TreeMap<>());
+    ownPatterns.add(new ArrayList<>());
+    for (int id = 0; id < patterns.size(); id++) {
+      String pattern = patterns.get(id);
+      if (pattern == null || pattern.isEmpty()) {
+        continue;
+      }
+      int state = 0;
+      for (int i = 0; i < pattern.length(); i++) {
+        Integer next = edges.get(state).get(pattern.charAt(i));
+        if (next == null) {
+          next = edges.size();
+          edges.get(state).put(pattern.charAt(i), next);
+          edges.add(new TreeMap<>());
+          ownPatterns.add(new ArrayList<>());
+        }
+        state = next;
+      }
+      ownPatterns.get(state).add(id);
+    }
+
+    int stateCount = edges.size();
+    char[][] labels = new char[stateCount][];
+    int[][] targets = new int[stateCount][];
+    int[][] outputs = new int[stateCount][];
+    for (int state = 0; state < stateCount; state++) {
+      TreeMap<Character, Integer> stateEdges = edges.get(state);
+      labels[state] = new char[stateEdges.size()];
+      targets[state] = new int[stateEdges.size()];
+      int edge = 0;
+      for (Map.Entry<Character, Integer> entry : stateEdges.entrySet()) {
+        labels[state][edge] = entry.getKey();
+        targets[state][edge++] = entry.getValue();
+      }
+      List<Integer> own = ownPatterns.get(state);
+      outputs[state] = own.isEmpty() ? NONE : own.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Breadth-first, so every state's failure target is finished before the state itself.
+    int[] failure = new int[stateCount];
+    int[] outputLink = new int[stateCount];
+    Arrays.fill(outputLink, -1);
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    for (int child : targets[0]) {
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      for (int edge = 0; edge < labels[state].length; edge++) {
+        char label = labels[state][edge];
+        int child = targets[state][edge];
+        int fallback = failure[state];
+        int next;
+        while ((next = step(labels, targets, fallback, label)) < 0 && fallback != 0) {
+          fallback = failure[fallback];
+        }
+        failure[child] = next < 0 ? 0 : next;
+        outputLink[child] =
+            outputs[failure[child]].length > 0 ? failure[child] : outputLink[failure[child]];
+        queue.add(child);
+      }
+    }
+    return new KeywordAutomaton(labels, targets, failure, outputs, outputLink, patterns.size());
+  }
+
+  int patternCount() {
+    return patternCount;
+  }
+
+  /**
+   * @return whether any pattern occurs in {@code text}
+   */
+  boolean containsAny(String text) {
+    if (text == null) {
+      return false;
+    }
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = advance(state, text.charAt(i));
+      if (outputs[state].length > 0 || outputLink[state] >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sets the id of every pattern occurring in {@code text} in {@code matched}.
+   */
+  void collect(String text, BitSet matched) {
+    if (text == null) {
+      return;
+    }
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = advance(state, text.charAt(i));
+      for (int hit = outputs[state].length > 0 ? state : outputLink[state];
+          hit >= 0;
+          hit = outputLink[hit]) {
+        for (int id : outputs[hit]) {
+          matched.set(id);
+        }
+      }
+    }
+  }
+
+  private int advance(int state, char c) {
+    while (true) {
+      int next = step(labels, targets, state, c);
+      if (next >= 0) {
+        return next;
+      }
+      if (state == 0) {
+        return 0;
+      }
+      state = failure[state];
+    }
+  }
+
+  private static int step(char[][] labels, int[][] targets, int state, char c) {
+    int edge = Arrays.binarySearch(labels[state], c);
+    return edge < 0 ? -1 : targets[state][edge];
+  }
+}
@@ -0,0 +1,352 @@
+package com.redseeker.recommend;
+
+import com.redseeker.common.DatabasePaths;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Matrix-factorization collaborative filtering. A background job trains user and attraction
+ * factors with implicit-feedback {@link AlsTrainer} on browse counts and ratings over the whole
+ * catalog and writes them as a {@link LatentFactorSnapshot}; the newest snapshot is memory-mapped
+ * at startup and swapped after each retrain, or when a newer snapshot file appears in the
+ * directory. Training runs on its own thread, so it never holds up the other scheduled jobs. A
+ * request costs one dot product per attraction regardless of how many interactions exist.
+ */
+@Service
+public class LatentFactorService implements CollaborativeScorer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LatentFactorService.class);
+  private static final String SNAPSHOT_PREFIX = "latent-factors-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  private static final long TRAINING_SEED = 20240701L;
+
+  private final RatingMatrixService ratingMatrixService;
+  private final String databaseUrl;
+  private final Path snapshotDirectory;
+  private final AlsTrainer trainer;
+  private final int factorCount;
+  private final long retrainIntervalMs;
+  private final AtomicReference<LatentFactorSnapshot> snapshot = new AtomicReference<>();
+  private final AtomicBoolean training = new AtomicBoolean();
+  private final ExecutorService trainingExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "latent-factor-training");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  public LatentFactorService(
+      DatabasePaths databasePaths,
+      RatingMatrixService ratingMatrixService,
+      @Value("${recommend.mf.factors:16}") int factorCount,
+      @Value("${recommend.mf.iterations:10}") int iterations,
+      @Value("${recommend.mf.regularization:0.1}") double regularization,
+      @Value("${recommend.mf.alpha:40.0}") double alpha,
+      @Value("${recommend.mf.retrain-interval-ms:3600000}") long retrainIntervalMs,
+      @Value("${recommend.mf.snapshot-dir:}") String snapshotDir) {
+    this.ratingMatrixService = ratingMatrixService;
+    this.databaseUrl = databasePaths.getDatabaseUrl();
+    this.snapshotDirectory = databasePaths.resolveModelsDirectory(snapshotDir);
+    this.factorCount = Math.max(1, factorCount);
+    this.trainer =
+        new AlsTrainer(
+            this.factorCount, Math.max(1, iterations), regularization, alpha, TRAINING_SEED);
+    this.retrainIntervalMs = retrainIntervalMs;
+    mapLatestSnapshot();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    trainingExecutor.shutdownNow();
+  }
+
+  /**
+   * Picks up a newer snapshot file written by another process, and starts a retrain on the
+   * training thread when there is none yet or the current one is older than the configured
+   * interval.
+   */
+  @Scheduled(fixedDelayString = "${recommend.mf.check-interval-ms:60000}")
+  public void retrainIfStale() {
+    mapLatestSnapshot();
+    LatentFactorSnapshot current = snapshot.get();
+    if (current != null && System.currentTimeMillis() - current.getBuiltAt() < retrainIntervalMs) {
+      return;
+    }
+    if (!training.compareAndSet(false, true)) {
+      return;
+    }
+    trainingExecutor.execute(
+        () -> {
+          try {
+            retrain();
+          } catch (SQLException | IOException ex) {
+            LOGGER.warn("Failed to train latent factor model", ex);
+          } finally {
+            training.set(false);
+          }
+        });
+  }
+
+  /**
+   * @return the build time of the factor snapshot in use, or 0 when there is none
+   */
+  long snapshotVersion() {
+    LatentFactorSnapshot current = snapshot.get();
+    return current == null ? 0L : current.getBuiltAt();
+  }
+
+  /**
+   * Scores unrated attractions by the predicted preference (user factors · attraction factors),
+   * clamped to {@code [0, 1]}. Users the model has not seen yet fall back to user-based
+   * collaborative filtering.
+   */
+  @Override
+  public double[] scoreCatalog(Long userId, AttractionCatalog catalog) {
+    LatentFactorSnapshot model = snapshot.get();
+    int user = model == null ? -1 : model.userIndex(userId);
+    if (user < 0) {
+      return ratingMatrixService.scoreCatalog(userId, catalog);
+    }
+    float[] userFactors = new float[model.factorCount()];
+    model.userFactors(user, userFactors);
+
+    RatingMatrix ratings = ratingMatrixService.snapshot();
+    int ratedUser = ratings.userIndex(userId);
+    List<CatalogAttraction> attractions = catalog.getAttractions();
+    double[] scores = new double[catalog.size()];
+    for (int position = 0; position < scores.length; position++) {
+      scores[position] =
+          score(model, userFactors, ratings, ratedUser, attractions.get(position).getId());
+    }
+    return scores;
+  }
+
+  @Override
+  public double scoreOne(Long userId, AttractionCatalog catalog, int position) {
+    LatentFactorSnapshot model = snapshot.get();
+    int user = model == null ? -1 : model.userIndex(userId);
+    if (user < 0) {
+      return ratingMatrixService.scoreOne(userId, catalog, position);
+    }
+    float[] userFactors = new float[model.factorCount()];
+    model.userFactors(user, userFactors);
+    RatingMatrix ratings = ratingMatrixService.snapshot();
+    return score(
+        model,
+        userFactors,
+        ratings,
+        ratings.userIndex(userId),
+        catalog.getAttractions().get(position).getId());
+  }
+
+  private double score(
+      LatentFactorSnapshot model,
+      float[] userFactors,
+      RatingMatrix ratings,
+      int ratedUser,
+      String attractionId) {
+    int ratedItem = ratedUser < 0 ? -1 : ratings.itemIndex(attractionId);
+    float own = ratedItem < 0 ? Float.NaN : ratings.rating(ratedUser, ratedItem);
+    if (!Float.isNaN(own)) {
+      return own / 5.0;
+    }
+    int item = model.itemIndex(parseId(attractionId));
+    if (item >= 0) {
+      return Math.max(0.0, Math.min(1.0, model.predict(userFactors, item)));
+    }
+    return 0.5;
+  }
+
+  private synchronized void retrain() throws SQLException, IOException {
+    long started = System.nanoTime();
+    long builtAt = System.currentTimeMillis();
+    TreeSet<Integer> distinct = new TreeSet<>();
+    TreeMap<Long, Map<Integer, Float>> interactions = loadInteractions(distinct);
+    interactions.values().forEach(row -> distinct.addAll(row.keySet()));
+    int[] itemIds = distinct.stream().mapToInt(Integer::intValue).toArray();
+    long[] userIds = new long[interactions.size()];
+    int[][] rowItems = new int[userIds.length][];
+    float[][] rowValues = new float[userIds.length][];
+    int user = 0;
+    for (Map.Entry<Long, Map<Integer, Float>> row : interactions.entrySet()) {
+      userIds[user] = row.getKey();
+      rowItems[user] = new int[row.getValue().size()];
+      rowValues[user] = new float[row.getValue().size()];
+      int slot = 0;
+      for (Map.Entry<Integer, Float> entry : row.getValue().entrySet()) {
+        rowItems[user][slot] = Arrays.binarySearch(itemIds, entry.getKey());
+        rowValues[user][slot++] = entry.getValue();
+      }
+      user++;
+    }
+    AlsTrainer.Factors factors = trainer.train(rowItems, rowValues, itemIds.length);
+
+    Files.createDirectories(snapshotDirectory);
+    Path target = snapshotDirectory.resolve(SNAPSHOT_PREFIX + builtAt + SNAPSHOT_SUFFIX);
+    Path temporary = snapshotDirectory.resolve(SNAPSHOT_PREFIX + builtAt + ".tmp");
+    LatentFactorSnapshot.write(
+        temporary,
+        builtAt,
+        factorCount,
+        userIds,
+        itemIds,
+        factors.getUserFactors(),
+        factors.getItemFactors());
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    snapshot.set(LatentFactorSnapshot.map(target));
+    deleteSnapshotsExcept(target);
+    LOGGER.info(
+        "Latent factor model trained: {} users, {} items, {} factors in {} ms",
+        userIds.length,
+        itemIds.length,
+        factorCount,
+        (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   * Interaction strength per user and attraction: one per browse record plus the stars of the
+   * latest rating. Every attraction id in the catalog is added to {@code itemIds}, so attractions
+   * nobody touched still train as negatives.
+   */
+  private TreeMap<Long, Map<Integer, Float>> loadInteractions(TreeSet<Integer> itemIds)
+      throws SQLException {
+    TreeMap<Long, Map<Integer, Float>> result = new TreeMap<>();
+    try (Connection connection = openConnection()) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM attractions");
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          itemIds.add(resultSet.getInt("id"));
+        }
+      }
+      String browseSql =
+          "SELECT user_id, attraction_id, COUNT(*) AS cnt FROM user_browse_history"
+              + " GROUP BY user_id, attraction_id";
+      try (PreparedStatement statement = connection.prepareStatement(browseSql);
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          result
+              .computeIfAbsent(resultSet.getLong("user_id"), key -> new HashMap<>())
+              .put(resultSet.getInt("attraction_id"), resultSet.getFloat("cnt"));
+        }
+      }
+      Map<Long, Map<Integer, Float>> ratings = new HashMap<>();
+      String ratingSql =
+          "SELECT user_id, attraction_id, rating FROM attraction_ratings ORDER BY id";
+      try (PreparedStatement statement = connection.prepareStatement(ratingSql);
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          ratings
+              .computeIfAbsent(resultSet.getLong("user_id"), key -> new HashMap<>())
+              .put(resultSet.getInt("attraction_id"), resultSet.getFloat("rating"));
+        }
+      }
+      ratings.forEach(
+          (user, rated) ->
+              rated.forEach(
+                  (item, stars) ->
+                      result
+                          .computeIfAbsent(user, key -> new HashMap<>())
+                          .merge(item, stars, Float::sum)));
+    }
+    return result;
+  }
+
+  /**
+   * Maps the newest snapshot in the directory unless it is already in use.
+   */
+  private synchronized void mapLatestSnapshot() {
+    Path latest = null;
+    long latestBuiltAt = Long.MIN_VALUE;
+    if (Files.isDirectory(snapshotDirectory)) {
+      try (DirectoryStream<Path> files =
+          Files.newDirectoryStream(snapshotDirectory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+        for (Path file : files) {
+          long builtAt = snapshotTimestamp(file);
+          if (builtAt > latestBuiltAt) {
+            latest = file;
+            latestBuiltAt = builtAt;
+          }
+        }
+      } catch (IOException ex) {
+        LOGGER.warn("Failed to list latent factor snapshots in {}", snapshotDirectory, ex);
+      }
+    }
+    LatentFactorSnapshot current = snapshot.get();
+    if (latest == null || (current != null && current.getPath().equals(latest))) {
+      return;
+    }
+    try {
+      snapshot.set(LatentFactorSnapshot.map(latest));
+      LOGGER.info("Mapped latent factor snapshot {}", latest);
+    } catch (IOException ex) {
+      LOGGER.warn("Ignoring unreadable latent factor snapshot {}", latest, ex);
+    }
+  }
+
+  /**
+   * Removes older snapshots. A file that is still mapped cannot be deleted on every platform; it is
+   * left behind and retried after the next retrain.
+   */
+  private void deleteSnapshotsExcept(Path keep) {
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(snapshotDirectory, SNAPSHOT_PREFIX + "*")) {
+      for (Path file : files) {
+        if (!file.equals(keep)) {
+          try {
+            Files.deleteIfExists(file);
+          } catch (IOException ex) {
+            LOGGER.debug("Could not delete old latent factor snapshot {}", file, ex);
+          }
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.debug("Failed to clean latent factor snapshots", ex);
+    }
+  }
+
+  private long snapshotTimestamp(Path file) {
+    String name = file.getFileName().toString();
+    try {
+      return Long.parseLong(
+          name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    } catch (NumberFormatException ex) {
+      return Long.MIN_VALUE;
+    }
+  }
+
+  private int parseId(String attractionId) {
+    try {
+      return Integer.parseInt(attractionId);
+    } catch (NumberFormatException ex) {
+      return Integer.MIN_VALUE;
+    }
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+}
@@ -0,0 +1,183 @@
+package com.redseeker.recommend;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped user and attraction factor matrices of a matrix-factorization model.
+ *
+ * <p>File layout (big-endian): magic {@code "RSLF"}, format version, build time (epoch millis),
+ * factor count {@code k}, user count {@code u}, item count {@code n}, then {@code long[u]}
+ * ascending user ids, {@code int[n]} ascending attraction ids, {@code float[u * k]} user factors
+ * and {@code float[n * k]} attraction factors, both row-major. A predicted rating is the dot
+ * product of a user row and an attraction row.
+ */
+final class LatentFactorSnapshot {
+  private static final int MAGIC = 0x52534c46;
+  // Version 2: factors predict implicit preferences in [0, 1] rather than star ratings.
+  private static final int FORMAT_VERSION = 2;
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4;
+
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final long builtAt;
+  private final int factorCount;
+  private final int userCount;
+  private final int itemCount;
+  private final int userIdsAt;
+  private final int itemIdsAt;
+  private final int userFactorsAt;
+  private final int itemFactorsAt;
+
+  private LatentFactorSnapshot(Path path, MappedByteBuffer buffer) throws IOException {
+    this.path = path;
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_BYTES
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != FORMAT_VERSION) {
+      throw new IOException("Not a latent factor snapshot: " + path);
+    }
+    this.builtAt = buffer.getLong(8);
+    this.factorCount = buffer.getInt(16);
+    this.userCount = buffer.getInt(20);
+    this.itemCount = buffer.getInt(24);
+    this.userIdsAt = HEADER_BYTES;
+    this.itemIdsAt = userIdsAt + userCount * 8;
+    this.userFactorsAt = itemIdsAt + itemCount * 4;
+    this.itemFactorsAt = userFactorsAt + userCount * factorCount * 4;
+    if (factorCount <= 0
+        || userCount < 0
+        || itemCount < 0
+        || itemFactorsAt + itemCount * factorCount * 4 != buffer.capacity()) {
+      throw new IOException("Truncated latent factor snapshot: " + path);
+    }
+  }
+
+  static LatentFactorSnapshot map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new LatentFactorSnapshot(
+          path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Writes a snapshot.
+   *
+   * @param userIds ascending user ids
+   * @param itemIds ascending attraction ids
+   * @param userFactors {@code userIds.length * factorCount} values, row-major
+   * @param itemFactors {@code itemIds.length * factorCount} values, row-major
+   */
+  static void write(
+      Path path,
+      long builtAt,
+      int factorCount,
+      long[] userIds,
+      int[] itemIds,
+      float[] userFactors,
+      float[] itemFactors)
+      throws IOException {
+    try (OutputStream file = Files.newOutputStream(path);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(builtAt);
+      out.writeInt(factorCount);
+      out.writeInt(userIds.length);
+      out.writeInt(itemIds.length);
+      for (long id : userIds) {
+        out.writeLong(id);
+      }
+      for (int id : itemIds) {
+        out.writeInt(id);
+      }
+      for (float value : userFactors) {
+        out.writeFloat(value);
+      }
+      for (float value : itemFactors) {
+        out.writeFloat(value);
+      }
+    }
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  long getBuiltAt() {
+    return builtAt;
+  }
+
+  int factorCount() {
+    return factorCount;
+  }
+
+  /**
+   * @return the row of the user, or a negative value when the model has no factors for it
+   */
+  int userIndex(long userId) {
+    int low = 0;
+    int high = userCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long id = buffer.getLong(userIdsAt + mid * 8);
+      if (id < userId) {
+        low = mid + 1;
+      } else if (id > userId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the row of the attraction, or a negative value when the model has no factors for it
+   */
+  int itemIndex(int attractionId) {
+    int low = 0;
+    int high = itemCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int id = buffer.getInt(itemIdsAt + mid * 4);
+      if (id < attractionId) {
+        low = mid + 1;
+      } else if (id > attractionId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Copies the factors of a user into {@code out}, which must hold {@link #factorCount()} values.
+   */
+  void userFactors(int user, float[] out) {
+    int at = userFactorsAt + user * factorCount * 4;
+    for (int f = 0; f < factorCount; f++) {
+      out[f] = buffer.getFloat(at + f * 4);
+    }
+  }
+
+  /**
+   * @return the dot product of {@code userFactors} with the factors of an attraction
+   */
+  double predict(float[] userFactors, int item) {
+    int at = itemFactorsAt + item * factorCount * 4;
+    double dot = 0.0;
+    for (int f = 0; f < factorCount; f++) {
+      dot += userFactors[f] * buffer.getFloat(at + f * 4);
+    }
+    return dot;
+  }
+}
@@ -0,0 +1,56 @@
+package com.redseeker.recommend;
+
+public class NearbyAttraction {
+  private final String id;
+  private final String name;
+  private final String category;
+  private final String address;
+  private final Double longitude;
+  private final Double latitude;
+  private final double distance; // Meters from the query point
+
+  public NearbyAttraction(
+      String id,
+      String name,
+      String category,
+      String address,
+      Double longitude,
+      Double latitude,
+      double distance) {
+    this.id = id;
+    this.name = name;
+    this.category = category;
+    this.address = address;
+    this.longitude = longitude;
+    this.latitude = latitude;
+    this.distance = distance;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public String getAddress() {
+    return address;
+  }
+
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  public double getDistance() {
+    return distance;
+  }
+}
@@ -0,0 +1,35 @@
+package com.redseeker.recommend;
+
+import java.util.List;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/** Attractions nearest to the user's position, from the catalog's geo index. */
+@Component
+@Order(2)
+class NearbyCandidateGenerator implements CandidateGenerator {
+  private static final int[] NONE = new int[0];
+
+  @Override
+  public String name() {
+    return "nearby";
+  }
+
+  @Override
+  public int[] generate(CandidateQuery query) {
+    RecommendRequest request = query.getRequest();
+    if (request.getUserLongitude() == null || request.getUserLatitude() == null) {
+      return NONE;
+    }
+    List<AttractionGeoIndex.Hit> hits =
+        query
+            .getCatalog()
+            .getGeoIndex()
+            .nearest(request.getUserLatitude(), request.getUserLongitude(), query.getQuota());
+    int[] positions = new int[hits.size()];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = hits.get(i).getPosition();
+    }
+    return positions;
+  }
+}
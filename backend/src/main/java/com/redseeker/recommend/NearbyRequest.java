@@ -0,0 +1,101 @@
+package com.redseeker.recommend;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Query of {@code GET /api/recommend/nearby}. Either a center ({@code longitude}, {@code
+ * latitude}) with an optional {@code radius}, or a bounding box ({@code minLongitude}, {@code
+ * minLatitude}, {@code maxLongitude}, {@code maxLatitude}); results are sorted by distance from the
+ * center, or from the box center when no center is given. A center without radius or box returns
+ * the {@code limit} nearest attractions.
+ */
+public class NearbyRequest {
+  @DecimalMin(value = "-180", message = "longitude must be between -180 and 180")
+  @DecimalMax(value = "180", message = "longitude must be between -180 and 180")
+  private Double longitude;
+
+  @DecimalMin(value = "-90", message = "latitude must be between -90 and 90")
+  @DecimalMax(value = "90", message = "latitude must be between -90 and 90")
+  private Double latitude;
+
+  /** Search radius in meters. */
+  @Positive(message = "radius must be positive")
+  private Double radius;
+
+  private Double minLongitude;
+  private Double minLatitude;
+  private Double maxLongitude;
+  private Double maxLatitude;
+
+  @Min(value = 1, message = "limit must be at least 1")
+  @Max(value = 500, message = "limit must be at most 500")
+  private Integer limit;
+
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  public void setLongitude(Double longitude) {
+    this.longitude = longitude;
+  }
+
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  public void setLatitude(Double latitude) {
+    this.latitude = latitude;
+  }
+
+  public Double getRadius() {
+    return radius;
+  }
+
+  public void setRadius(Double radius) {
+    this.radius = radius;
+  }
+
+  public Double getMinLongitude() {
+    return minLongitude;
+  }
+
+  public void setMinLongitude(Double minLongitude) {
+    this.minLongitude = minLongitude;
+  }
+
+  public Double getMinLatitude() {
+    return minLatitude;
+  }
+
+  public void setMinLatitude(Double minLatitude) {
+    this.minLatitude = minLatitude;
+  }
+
+  public Double getMaxLongitude() {
+    return maxLongitude;
+  }
+
+  public void setMaxLongitude(Double maxLongitude) {
+    this.maxLongitude = maxLongitude;
+  }
+
+  public Double getMaxLatitude() {
+    return maxLatitude;
+  }
+
+  public void setMaxLatitude(Double maxLatitude) {
+    this.maxLatitude = maxLatitude;
+  }
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public void setLimit(Integer limit) {
+    this.limit = limit;
+  }
+}
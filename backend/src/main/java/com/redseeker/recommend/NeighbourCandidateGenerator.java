@@ -0,0 +1,33 @@
+package com.redseeker.recommend;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Attractions the request's collaborative-filtering engine rates above neutral, i.e. those liked
+ * by the user's neighbours (or similar to what the user liked).
+ */
+@Component
+@Order(4)
+class NeighbourCandidateGenerator implements CandidateGenerator {
+  private static final int[] NONE = new int[0];
+  private static final double NEUTRAL_SCORE = 0.5;
+
+  @Override
+  public String name() {
+    return "neighbour";
+  }
+
+  @Override
+  public int[] generate(CandidateQuery query) {
+    double[] cfScores = query.getCfScores();
+    if (cfScores == null) {
+      return NONE;
+    }
+    double[] signal = new double[cfScores.length];
+    for (int position = 0; position < cfScores.length; position++) {
+      signal[position] = cfScores[position] - NEUTRAL_SCORE;
+    }
+    return query.top(signal);
+  }
+}
@@ -0,0 +1,62 @@
+package com.redseeker.recommend;
+
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Most popular attractions regardless of the request. Always yields a full quota, so the union is
+ * never smaller than the page the request asks for. The ranking is reused until the catalog or the
+ * statistics change.
+ */
+@Component
+@Order(1)
+class PopularityCandidateGenerator implements CandidateGenerator {
+  private final AttractionStatsService statsService;
+
+  private volatile Ranking ranking;
+
+  PopularityCandidateGenerator(AttractionStatsService statsService) {
+    this.statsService = statsService;
+  }
+
+  @Override
+  public String name() {
+    return "popularity";
+  }
+
+  @Override
+  public int[] generate(CandidateQuery query) {
+    AttractionCatalog catalog = query.getCatalog();
+    long statsVersion = statsService.getVersion();
+    Ranking current = ranking;
+    if (current == null
+        || current.catalogVersion != catalog.getVersion()
+        || current.statsVersion != statsVersion
+        || current.positions.length < Math.min(query.getQuota(), catalog.size())) {
+      List<CatalogAttraction> attractions = catalog.getAttractions();
+      double[] popularity = new double[attractions.size()];
+      for (int position = 0; position < popularity.length; position++) {
+        popularity[position] = statsService.popularity(attractions.get(position).getId());
+      }
+      current = new Ranking(catalog.getVersion(), statsVersion, query.top(popularity));
+      ranking = current;
+    }
+    return current.positions.length <= query.getQuota()
+        ? current.positions
+        : Arrays.copyOf(current.positions, query.getQuota());
+  }
+
+  private static final class Ranking {
+    private final long catalogVersion;
+    private final long statsVersion;
+    private final int[] positions;
+
+    private Ranking(long catalogVersion, long statsVersion, int[] positions) {
+      this.catalogVersion = catalogVersion;
+      this.statsVersion = statsVersion;
+      this.positions = positions;
+    }
+  }
+}
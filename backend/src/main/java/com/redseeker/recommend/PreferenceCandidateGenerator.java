@@ -0,0 +1,24 @@
+package com.redseeker.recommend;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/** Attractions whose tags or category match the most request preferences. */
+@Component
+@Order(3)
+class PreferenceCandidateGenerator implements CandidateGenerator {
+  @Override
+  public String name() {
+    return "preference";
+  }
+
+  @Override
+  public int[] generate(CandidateQuery query) {
+    int[] matches = query.getPreferenceMatches();
+    double[] signal = new double[matches.length];
+    for (int position = 0; position < matches.length; position++) {
+      signal[position] = matches[position];
+    }
+    return query.top(signal);
+  }
+}
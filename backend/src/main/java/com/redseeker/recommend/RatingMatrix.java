@@ -0,0 +1,318 @@
+package com.redseeker.recommend;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable sparse user × attraction rating matrix. Users and attractions are interned to dense
+ * {@code int} indexes; each user row stores sorted item indexes with parallel {@code float}
+ * ratings and a precomputed L2 norm, and a column index maps every item to the users that rated
+ * it. Rows are stored as separate arrays rather than one flat CSR block so that {@link #withRow}
+ * can replace a single user's ratings while sharing every other row with the previous matrix.
+ */
+final class RatingMatrix {
+  private static final int[] NO_ITEMS = new int[0];
+  private static final float[] NO_RATINGS = new float[0];
+
+  static final RatingMatrix EMPTY =
+      new RatingMatrix(
+          new HashMap<>(), new long[0], new HashMap<>(), new String[0],
+          new int[0][], new float[0][], new double[0], new int[0][], 0);
+
+  private final Map<Long, Integer> userIndex;
+  private final long[] userIds;
+  private final Map<String, Integer> itemIndex;
+  private final String[] itemIds;
+  private final int[][] rowItems;
+  private final float[][] rowRatings;
+  private final double[] rowNorms;
+  private final int[][] itemUsers;
+  private final int nonZeros;
+
+  private RatingMatrix(
+      Map<Long, Integer> userIndex,
+      long[] userIds,
+      Map<String, Integer> itemIndex,
+      String[] itemIds,
+      int[][] rowItems,
+      float[][] rowRatings,
+      double[] rowNorms,
+      int[][] itemUsers,
+      int nonZeros) {
+    this.userIndex = userIndex;
+    this.userIds = userIds;
+    this.itemIndex = itemIndex;
+    this.itemIds = itemIds;
+    this.rowItems = rowItems;
+    this.rowRatings = rowRatings;
+    this.rowNorms = rowNorms;
+    this.itemUsers = itemUsers;
+    this.nonZeros = nonZeros;
+  }
+
+  /**
+   * Builds a matrix from per-user ratings keyed by attraction id.
+   */
+  static RatingMatrix build(Map<Long, Map<String, Float>> ratingsByUser) {
+    Map<Long, Integer> userIndex = new HashMap<>();
+    Map<String, Integer> itemIndex = new HashMap<>();
+    long[] userIds = new long[ratingsByUser.size()];
+    for (Map.Entry<Long, Map<String, Float>> entry : ratingsByUser.entrySet()) {
+      userIds[userIndex.size()] = entry.getKey();
+      userIndex.put(entry.getKey(), userIndex.size());
+      for (String itemId : entry.getValue().keySet()) {
+        itemIndex.putIfAbsent(itemId, itemIndex.size());
+      }
+    }
+    String[] itemIds = new String[itemIndex.size()];
+    itemIndex.forEach((id, index) -> itemIds[index] = id);
+
+    int[][] rowItems = new int[userIds.length][];
+    float[][] rowRatings = new float[userIds.length][];
+    double[] rowNorms = new double[userIds.length];
+    int nonZeros = 0;
+    for (int user = 0; user < userIds.length; user++) {
+      Map<String, Float> ratings = ratingsByUser.get(userIds[user]);
+      fillRow(ratings, itemIndex, rowItems, rowRatings, rowNorms, user);
+      nonZeros += rowItems[user].length;
+    }
+    int[][] itemUsers = buildColumns(rowItems, itemIds.length);
+    return new RatingMatrix(
+        userIndex, userIds, itemIndex, itemIds, rowItems, rowRatings, rowNorms, itemUsers,
+        nonZeros);
+  }
+
+  /**
+   * Returns a copy of this matrix with one user's row replaced by {@code ratings}. Unchanged rows
+   * and columns are shared with this instance.
+   */
+  RatingMatrix withRow(long userId, Map<String, Float> ratings) {
+    Map<Long, Integer> newUserIndex = userIndex;
+    long[] newUserIds = userIds;
+    Integer existing = userIndex.get(userId);
+    int user;
+    if (existing == null) {
+      user = userIds.length;
+      newUserIndex = new HashMap<>(userIndex);
+      newUserIndex.put(userId, user);
+      newUserIds = Arrays.copyOf(userIds, user + 1);
+      newUserIds[user] = userId;
+    } else {
+      user = existing;
+    }
+
+    Map<String, Integer> newItemIndex = itemIndex;
+    String[] newItemIds = itemIds;
+    for (String itemId : ratings.keySet()) {
+      if (!newItemIndex.containsKey(itemId)) {
+        if (newItemIndex == itemIndex) {
+          newItemIndex = new HashMap<>(itemIndex);
+        }
+        newItemIndex.put(itemId, newItemIndex.size());
+      }
+    }
+    if (newItemIndex != itemIndex) {
+      newItemIds = Arrays.copyOf(itemIds, newItemIndex.size());
+      for (Map.Entry<String, Integer> entry : newItemIndex.entrySet()) {
+        newItemIds[entry.getValue()] = entry.getKey();
+      }
+    }
+
+    int[][] newRowItems = Arrays.copyOf(rowItems, newUserIds.length);
+    float[][] newRowRatings = Arrays.copyOf(rowRatings, newUserIds.length);
+    double[] newRowNorms = Arrays.copyOf(rowNorms, newUserIds.length);
+    int[] oldItems = user < rowItems.length ? rowItems[user] : NO_ITEMS;
+    fillRow(ratings, newItemIndex, newRowItems, newRowRatings, newRowNorms, user);
+    int[] newItems = newRowItems[user];
+
+    int[][] newItemUsers = Arrays.copyOf(itemUsers, newItemIds.length);
+    for (int item = itemUsers.length; item < newItemUsers.length; item++) {
+      newItemUsers[item] = NO_ITEMS;
+    }
+    for (int item : oldItems) {
+      if (Arrays.binarySearch(newItems, item) < 0) {
+        newItemUsers[item] = without(newItemUsers[item], user);
+      }
+    }
+    for (int item : newItems) {
+      if (Arrays.binarySearch(oldItems, item) < 0) {
+        newItemUsers[item] = with(newItemUsers[item], user);
+      }
+    }
+    return new RatingMatrix(
+        newUserIndex, newUserIds, newItemIndex, newItemIds, newRowItems, newRowRatings,
+        newRowNorms, newItemUsers, nonZeros - oldItems.length + newItems.length);
+  }
+
+  /**
+   * @return the row index of the user, or -1 when the user has never rated anything
+   */
+  int userIndex(Long userId) {
+    Integer index = userId == null ? null : userIndex.get(userId);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @return the column index of the attraction, or -1 when nobody has rated it
+   */
+  int itemIndex(String attractionId) {
+    Integer index = attractionId == null ? null : itemIndex.get(attractionId);
+    return index == null ? -1 : index;
+  }
+
+  long userId(int user) {
+    return userIds[user];
+  }
+
+  String itemId(int item) {
+    return itemIds[item];
+  }
+
+  int userCount() {
+    return userIds.length;
+  }
+
+  int itemCount() {
+    return itemIds.length;
+  }
+
+  boolean isEmpty() {
+    return nonZeros == 0;
+  }
+
+  /**
+   * @return sorted item indexes rated by the user; callers must not modify the array
+   */
+  int[] items(int user) {
+    return rowItems[user];
+  }
+
+  /**
+   * @return ratings parallel to {@link #items(int)}; callers must not modify the array
+   */
+  float[] ratings(int user) {
+    return rowRatings[user];
+  }
+
+  /**
+   * @return the user's rating of the item, or {@code NaN} when absent
+   */
+  float rating(int user, int item) {
+    int slot = Arrays.binarySearch(rowItems[user], item);
+    return slot < 0 ? Float.NaN : rowRatings[user][slot];
+  }
+
+  /**
+   * @return sorted user indexes that rated the item; callers must not modify the array
+   */
+  int[] users(int item) {
+    return itemUsers[item];
+  }
+
+  /**
+   * Cosine similarity of two user rows, computed as a merge join over their sorted items.
+   */
+  double cosine(int user, int other) {
+    double normProduct = rowNorms[user] * rowNorms[other];
+    if (normProduct == 0.0) {
+      return 0.0;
+    }
+    int[] items = rowItems[user];
+    int[] otherItems = rowItems[other];
+    float[] ratings = rowRatings[user];
+    float[] otherRatings = rowRatings[other];
+    double dot = 0.0;
+    int i = 0;
+    int j = 0;
+    while (i < items.length && j < otherItems.length) {
+      if (items[i] == otherItems[j]) {
+        dot += (double) ratings[i] * otherRatings[j];
+        i++;
+        j++;
+      } else if (items[i] < otherItems[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return dot / normProduct;
+  }
+
+  private static void fillRow(
+      Map<String, Float> ratings,
+      Map<String, Integer> itemIndex,
+      int[][] rowItems,
+      float[][] rowRatings,
+      double[] rowNorms,
+      int user) {
+    if (ratings.isEmpty()) {
+      rowItems[user] = NO_ITEMS;
+      rowRatings[user] = NO_RATINGS;
+      rowNorms[user] = 0.0;
+      return;
+    }
+    long[] packed = new long[ratings.size()];
+    int slot = 0;
+    for (Map.Entry<String, Float> entry : ratings.entrySet()) {
+      int item = itemIndex.get(entry.getKey());
+      packed[slot++] = ((long) item << 32) | (Float.floatToIntBits(entry.getValue()) & 0xffffffffL);
+    }
+    Arrays.sort(packed);
+    int[] items = new int[packed.length];
+    float[] values = new float[packed.length];
+    double squares = 0.0;
+    for (int i = 0; i < packed.length; i++) {
+      items[i] = (int) (packed[i] >>> 32);
+      values[i] = Float.intBitsToFloat((int) packed[i]);
+      squares += (double) values[i] * values[i];
+    }
+    rowItems[user] = items;
+    rowRatings[user] = values;
+    rowNorms[user] = Math.sqrt(squares);
+  }
+
+  private static int[][] buildColumns(int[][] rowItems, int itemCount) {
+    int[] sizes = new int[itemCount];
+    for (int[] items : rowItems) {
+      for (int item : items) {
+        sizes[item]++;
+      }
+    }
+    int[][] columns = new int[itemCount][];
+    for (int item = 0; item < itemCount; item++) {
+      columns[item] = sizes[item] == 0 ? NO_ITEMS : new int[sizes[item]];
+    }
+    int[] fill = new int[itemCount];
+    for (int user = 0; user < rowItems.length; user++) {
+      for (int item : rowItems[user]) {
+        columns[item][fill[item]++] = user;
+      }
+    }
+    return columns;
+  }
+
+  private static int[] with(int[] sorted, int value) {
+    int slot = Arrays.binarySearch(sorted, value);
+    if (slot >= 0) {
+      return sorted;
+    }
+    int insertAt = -slot - 1;
+    int[] result = new int[sorted.length + 1];
+    System.arraycopy(sorted, 0, result, 0, insertAt);
+    result[insertAt] = value;
+    System.arraycopy(sorted, insertAt, result, insertAt + 1, sorted.length - insertAt);
+    return result;
+  }
+
+  private static int[] without(int[] sorted, int value) {
+    int slot = Arrays.binarySearch(sorted, value);
+    if (slot < 0) {
+      return sorted;
+    }
+    int[] result = new int[sorted.length - 1];
+    System.arraycopy(sorted, 0, result, 0, slot);
+    System.arraycopy(sorted, slot + 1, result, slot, sorted.length - slot - 1);
+    return result;
+  }
+}
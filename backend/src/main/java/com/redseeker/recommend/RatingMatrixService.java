@@ -0,0 +1,365 @@
+package com.redseeker.recommend;
+
+import com.redseeker.common.DatabasePaths;
+import com.redseeker.user.RatingChangedEvent;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * User-based collaborative filtering over an in-memory {@link RatingMatrix}. Every user keeps a
+ * cached list of its top-K most similar users (cosine similarity, positive only). Rating writes
+ * reload just the affected user's row and patch the neighbour lists of its co-raters in place;
+ * a list is only recomputed from scratch when a neighbour it holds became less similar while the
+ * list was full, and then lazily on the next read.
+ */
+@Service
+public class RatingMatrixService implements CollaborativeScorer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RatingMatrixService.class);
+
+  private final String databaseUrl;
+  private final int neighbourCount;
+
+  // Guarded by this. A null neighbour list means "stale, recompute on next read".
+  private RatingMatrix matrix = RatingMatrix.EMPTY;
+  private Neighbours[] neighbours = new Neighbours[0];
+
+  public RatingMatrixService(
+      DatabasePaths databasePaths, @Value("${recommend.cf.neighbours:50}") int neighbourCount) {
+    this.databaseUrl = databasePaths.getDatabaseUrl();
+    this.neighbourCount = Math.max(1, neighbourCount);
+    try {
+      rebuild();
+    } catch (SQLException ex) {
+      LOGGER.error("Failed to load ratings; collaborative filtering starts empty", ex);
+    }
+  }
+
+  @EventListener
+  public void onRatingChanged(RatingChangedEvent event) {
+    if (event.getUserId() == null) {
+      return;
+    }
+    try {
+      applyRow(event.getUserId(), loadUserRatings(event.getUserId()));
+    } catch (SQLException ex) {
+      LOGGER.warn("Failed to refresh ratings of user {}", event.getUserId(), ex);
+    }
+  }
+
+  /**
+   * @return the current matrix; it is immutable, so callers may read it without locking
+   */
+  synchronized RatingMatrix snapshot() {
+    return matrix;
+  }
+
+  /**
+   * Predicts unrated attractions from the similarity-weighted ratings of the user's top-K
+   * neighbours.
+   */
+  @Override
+  public double[] scoreCatalog(Long userId, AttractionCatalog catalog) {
+    double[] scores = new double[catalog.size()];
+    RatingMatrix snapshot;
+    Neighbours similar;
+    int user;
+    synchronized (this) {
+      snapshot = matrix;
+      if (snapshot.isEmpty()) {
+        return scores;
+      }
+      user = snapshot.userIndex(userId);
+      if (user < 0 || snapshot.items(user).length == 0) {
+        Arrays.fill(scores, 0.5);
+        return scores;
+      }
+      similar = neighboursOf(user);
+    }
+
+    double[] weightedSums = new double[snapshot.itemCount()];
+    double[] similaritySums = new double[snapshot.itemCount()];
+    for (int n = 0; n < similar.size(); n++) {
+      double similarity = similar.similarities[n];
+      int[] items = snapshot.items(similar.users[n]);
+      float[] ratings = snapshot.ratings(similar.users[n]);
+      for (int i = 0; i < items.length; i++) {
+        weightedSums[items[i]] += similarity * ratings[i];
+        similaritySums[items[i]] += similarity;
+      }
+    }
+
+    List<CatalogAttraction> attractions = catalog.getAttractions();
+    for (int position = 0; position < scores.length; position++) {
+      int item = snapshot.itemIndex(attractions.get(position).getId());
+      if (item < 0) {
+        scores[position] = 0.5;
+        continue;
+      }
+      float own = snapshot.rating(user, item);
+      if (!Float.isNaN(own)) {
+        scores[position] = own / 5.0;
+      } else if (similaritySums[item] > 0.0) {
+        scores[position] = weightedSums[item] / similaritySums[item] / 5.0;
+      } else {
+        scores[position] = 0.5;
+      }
+    }
+    return scores;
+  }
+
+  @Override
+  public double scoreOne(Long userId, AttractionCatalog catalog, int position) {
+    RatingMatrix snapshot;
+    Neighbours similar;
+    int user;
+    synchronized (this) {
+      snapshot = matrix;
+      if (snapshot.isEmpty()) {
+        return 0.0;
+      }
+      user = snapshot.userIndex(userId);
+      if (user < 0 || snapshot.items(user).length == 0) {
+        return 0.5;
+      }
+      similar = neighboursOf(user);
+    }
+
+    int item = snapshot.itemIndex(catalog.getAttractions().get(position).getId());
+    if (item < 0) {
+      return 0.5;
+    }
+    float own = snapshot.rating(user, item);
+    if (!Float.isNaN(own)) {
+      return own / 5.0;
+    }
+    double weightedSum = 0.0;
+    double similaritySum = 0.0;
+    for (int n = 0; n < similar.size(); n++) {
+      float rating = snapshot.rating(similar.users[n], item);
+      if (!Float.isNaN(rating)) {
+        weightedSum += similar.similarities[n] * rating;
+        similaritySum += similar.similarities[n];
+      }
+    }
+    return similaritySum > 0.0 ? weightedSum / similaritySum / 5.0 : 0.5;
+  }
+
+  private synchronized void rebuild() throws SQLException {
+    long started = System.nanoTime();
+    RatingMatrix loaded = RatingMatrix.build(loadAllRatings());
+    Neighbours[] lists = new Neighbours[loaded.userCount()];
+    for (int user = 0; user < lists.length; user++) {
+      lists[user] = computeNeighbours(loaded, user);
+    }
+    matrix = loaded;
+    neighbours = lists;
+    LOGGER.info(
+        "Rating matrix built: {} users, {} items in {} ms",
+        loaded.userCount(),
+        loaded.itemCount(),
+        (System.nanoTime() - started) / 1_000_000);
+  }
+
+  private synchronized void applyRow(long userId, Map<String, Float> ratings) {
+    RatingMatrix previous = matrix;
+    RatingMatrix updated = previous.withRow(userId, ratings);
+    int user = updated.userIndex(userId);
+
+    boolean[] affected = new boolean[updated.userCount()];
+    int previousUser = previous.userIndex(userId);
+    if (previousUser >= 0) {
+      markCoRaters(previous, previousUser, affected);
+    }
+    markCoRaters(updated, user, affected);
+
+    matrix = updated;
+    neighbours = Arrays.copyOf(neighbours, updated.userCount());
+    neighbours[user] = computeNeighbours(updated, user);
+    for (int other = 0; other < affected.length; other++) {
+      if (affected[other] && other != user) {
+        neighbours[other] = patch(updated, other, user, updated.cosine(other, user));
+      }
+    }
+  }
+
+  private Neighbours neighboursOf(int user) {
+    Neighbours list = neighbours[user];
+    if (list == null) {
+      list = computeNeighbours(matrix, user);
+      neighbours[user] = list;
+    }
+    return list;
+  }
+
+  /**
+   * Updates {@code user}'s neighbour list after its similarity to {@code changed} became {@code
+   * similarity}. Returns {@code null} (stale) when the change cannot be applied in place.
+   */
+  private Neighbours patch(RatingMatrix ratings, int user, int changed, double similarity) {
+    Neighbours list = neighbours[user];
+    if (list == null) {
+      return null;
+    }
+    int slot = list.indexOf(changed);
+    boolean full = list.size() >= neighbourCount;
+    if (slot >= 0) {
+      if (full && similarity < list.similarities[slot]) {
+        // Someone outside the cached list may now rank higher.
+        return null;
+      }
+      list = list.without(slot);
+    }
+    if (similarity <= 0.0) {
+      return list;
+    }
+    return list.with(ratings, changed, similarity, neighbourCount);
+  }
+
+  private Neighbours computeNeighbours(RatingMatrix ratings, int user) {
+    boolean[] candidates = new boolean[ratings.userCount()];
+    markCoRaters(ratings, user, candidates);
+    Neighbours list = Neighbours.EMPTY;
+    for (int other = 0; other < candidates.length; other++) {
+      if (candidates[other] && other != user) {
+        double similarity = ratings.cosine(user, other);
+        if (similarity > 0.0) {
+          list = list.with(ratings, other, similarity, neighbourCount);
+        }
+      }
+    }
+    return list;
+  }
+
+  private void markCoRaters(RatingMatrix ratings, int user, boolean[] marks) {
+    for (int item : ratings.items(user)) {
+      for (int other : ratings.users(item)) {
+        if (other < marks.length) {
+          marks[other] = true;
+        }
+      }
+    }
+  }
+
+  private Map<Long, Map<String, Float>> loadAllRatings() throws SQLException {
+    String sql = "SELECT user_id, attraction_id, rating FROM attraction_ratings ORDER BY id";
+    Map<Long, Map<String, Float>> result = new LinkedHashMap<>();
+    try (Connection connection = openConnection();
+        PreparedStatement statement = connection.prepareStatement(sql);
+        ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        long userId = resultSet.getLong("user_id");
+        String attractionId = String.valueOf(resultSet.getInt("attraction_id"));
+        result
+            .computeIfAbsent(userId, key -> new HashMap<>())
+            .put(attractionId, resultSet.getFloat("rating"));
+      }
+    }
+    return result;
+  }
+
+  private Map<String, Float> loadUserRatings(long userId) throws SQLException {
+    String sql =
+        "SELECT attraction_id, rating FROM attraction_ratings WHERE user_id = ? ORDER BY id";
+    Map<String, Float> result = new HashMap<>();
+    try (Connection connection = openConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setLong(1, userId);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          result.put(
+              String.valueOf(resultSet.getInt("attraction_id")), resultSet.getFloat("rating"));
+        }
+      }
+    }
+    return result;
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+
+  /**
+   * Immutable neighbour list ordered by similarity descending, then user id ascending.
+   */
+  private static final class Neighbours {
+    private static final Neighbours EMPTY = new Neighbours(new int[0], new double[0]);
+
+    private final int[] users;
+    private final double[] similarities;
+
+    private Neighbours(int[] users, double[] similarities) {
+      this.users = users;
+      this.similarities = similarities;
+    }
+
+    private int size() {
+      return users.length;
+    }
+
+    private int indexOf(int user) {
+      for (int i = 0; i < users.length; i++) {
+        if (users[i] == user) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private Neighbours without(int slot) {
+      int[] nextUsers = new int[users.length - 1];
+      double[] nextSimilarities = new double[users.length - 1];
+      System.arraycopy(users, 0, nextUsers, 0, slot);
+      System.arraycopy(users, slot + 1, nextUsers, slot, users.length - slot - 1);
+      System.arraycopy(similarities, 0, nextSimilarities, 0, slot);
+      System.arraycopy(
+          similarities, slot + 1, nextSimilarities, slot, users.length - slot - 1);
+      return new Neighbours(nextUsers, nextSimilarities);
+    }
+
+    /**
+     * Inserts a neighbour in rank order, keeping at most {@code capacity} entries.
+     */
+    private Neighbours with(RatingMatrix ratings, int user, double similarity, int capacity) {
+      int insertAt = 0;
+      while (insertAt < users.length
+          && ranksBefore(ratings, users[insertAt], similarities[insertAt], user, similarity)) {
+        insertAt++;
+      }
+      if (insertAt >= capacity) {
+        return this;
+      }
+      int size = Math.min(capacity, users.length + 1);
+      int[] nextUsers = new int[size];
+      double[] nextSimilarities = new double[size];
+      System.arraycopy(users, 0, nextUsers, 0, insertAt);
+      System.arraycopy(similarities, 0, nextSimilarities, 0, insertAt);
+      nextUsers[insertAt] = user;
+      nextSimilarities[insertAt] = similarity;
+      int tail = size - insertAt - 1;
+      System.arraycopy(users, insertAt, nextUsers, insertAt + 1, tail);
+      System.arraycopy(similarities, insertAt, nextSimilarities, insertAt + 1, tail);
+      return new Neighbours(nextUsers, nextSimilarities);
+    }
+
+    private static boolean ranksBefore(
+        RatingMatrix ratings, int user, double similarity, int other, double otherSimilarity) {
+      if (similarity != otherSimilarity) {
+        return similarity > otherSimilarity;
+      }
+      return ratings.userId(user) < ratings.userId(other);
+    }
+  }
+}
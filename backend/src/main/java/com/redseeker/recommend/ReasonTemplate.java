@@ -0,0 +1,56 @@
+package com.redseeker.recommend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reason sentence compiled once from a pattern with {@code {n}} argument slots, e.g. {@code
+ * "匹配您的兴趣标签：{0}。"}. Rendering appends the literal segments and arguments straight into the
+ * caller's builder, so no intermediate strings are created. Instances are immutable.
+ */
+final class ReasonTemplate {
+  private final String[] literals;
+  private final int[] slots;
+
+  private ReasonTemplate(String[] literals, int[] slots) {
+    this.literals = literals;
+    this.slots = slots;
+  }
+
+  /**
+   * @throws IllegalArgumentException when a brace does not start a well-formed slot
+   */
+  static ReasonTemplate compile(String pattern) {
+    List<String> literals = new ArrayList<>();
+    List<Integer> slots = new ArrayList<>();
+    int start = 0;
+    for (int open = pattern.indexOf('{'); open >= 0; open = pattern.indexOf('{', start)) {
+      int close = pattern.indexOf('}', open);
+      if (close < 0) {
+        throw new IllegalArgumentException("Unclosed slot in reason template: " + pattern);
+      }
+      int slot;
+      try {
+        slot = Integer.parseInt(pattern.substring(open + 1, close));
+      } catch (NumberFormatException ex) {
+        throw new IllegalArgumentException("Bad slot in reason template: " + pattern, ex);
+      }
+      literals.add(pattern.substring(start, open));
+      slots.add(slot);
+      start = close + 1;
+    }
+    literals.add(pattern.substring(start));
+    return new ReasonTemplate(
+        literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /**
+   * Appends the template with every slot {@code n} replaced by {@code args[n]}.
+   */
+  void appendTo(StringBuilder out, CharSequence... args) {
+    for (int i = 0; i < slots.length; i++) {
+      out.append(literals[i]).append(args[slots[i]]);
+    }
+    out.append(literals[slots.length]);
+  }
+}
@@ -0,0 +1,53 @@
+package com.redseeker.recommend;
+
+public class RecommendCacheStats {
+  private final long hits;
+  private final long misses;
+  private final int size;
+  private final int maxEntries;
+  private final long evictions;
+  private final long invalidations;
+
+  public RecommendCacheStats(
+      long hits, long misses, int size, int maxEntries, long evictions, long invalidations) {
+    this.hits = hits;
+    this.misses = misses;
+    this.size = size;
+    this.maxEntries = maxEntries;
+    this.evictions = evictions;
+    this.invalidations = invalidations;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return hits / (hits + misses), or 0 before the first lookup
+   */
+  public double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0.0 : (double) hits / lookups;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /** Number of times the whole cache was dropped because ratings, browses or models changed. */
+  public long getInvalidations() {
+    return invalidations;
+  }
+}
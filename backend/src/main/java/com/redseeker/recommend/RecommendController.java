@@ -7,22 +7,41 @@ import com.redseeker.user.UserBrowseRequest;
 import com.redseeker.user.UserBrowseResponse;
 import com.redseeker.user.UserService;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/recommend")
 public class RecommendController {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecommendController.class);
+
   private final RecommendService recommendService;
   private final UserService userService;
+  private final long aiStreamTimeoutMs;
 
-  public RecommendController(RecommendService recommendService, UserService userService) {
+  public RecommendController(
+      RecommendService recommendService,
+      UserService userService,
+      @Value("${recommend.ai.stream-timeout-ms:180000}") long aiStreamTimeoutMs) {
     this.recommendService = recommendService;
     this.userService = userService;
+    this.aiStreamTimeoutMs = aiStreamTimeoutMs;
   }
 
   @PostMapping("/list")
@@ -30,11 +49,75 @@ public class RecommendController {
     return ApiResponse.ok(recommendService.getRecommendations(request));
   }
 
+  @GetMapping("/{id}/reason")
+  public ApiResponse<RecommendReason> reason(
+      @PathVariable("id") String id, @Valid RecommendRequest request) {
+    return ApiResponse.ok(recommendService.explainRecommendation(id, request));
+  }
+
+  @GetMapping("/nearby")
+  public ApiResponse<List<NearbyAttraction>> nearby(@Valid NearbyRequest request) {
+    return ApiResponse.ok(recommendService.findNearby(request));
+  }
+
+  @GetMapping("/trending")
+  public ApiResponse<List<TrendingAttraction>> trending(
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    return ApiResponse.ok(recommendService.getTrending(limit));
+  }
+
+  @GetMapping("/cache/stats")
+  public ApiResponse<RecommendCacheStats> cacheStats() {
+    return ApiResponse.ok(recommendService.getCacheStats());
+  }
+
+  @GetMapping("/candidates/stats")
+  public ApiResponse<List<CandidateGeneratorStats>> candidateStats() {
+    return ApiResponse.ok(recommendService.getCandidateStats());
+  }
+
+  @GetMapping("/ai/stats")
+  public ApiResponse<AiClientStats> aiStats() {
+    return ApiResponse.ok(recommendService.getAiStats());
+  }
+
   @PostMapping("/ai-plan")
   public ApiResponse<AiPlanResponse> aiPlan(@Valid @RequestBody AiPlanRequest request) {
     return ApiResponse.ok(recommendService.generateAiPlan(request));
   }
 
+  /**
+   * Streams the AI plan as server-sent events: {@code delta} events carry text fragments as the
+   * model produces them, then one {@code done} event carries the complete plan, or an {@code error}
+   * event the failure message. Generation is cancelled as soon as the emitter times out, fails or
+   * completes, so a departed client does not keep an upstream call running.
+   */
+  @PostMapping(value = "/ai-plan/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter aiPlanStream(@Valid @RequestBody AiPlanRequest request) {
+    SseEmitter emitter = new SseEmitter(aiStreamTimeoutMs);
+    CompletableFuture<AiPlanResponse> plan =
+        recommendService.streamAiPlan(request, delta -> send(emitter, "delta", delta));
+    emitter.onTimeout(() -> plan.cancel(true));
+    emitter.onError(error -> plan.cancel(true));
+    emitter.onCompletion(() -> plan.cancel(true));
+    plan.whenComplete(
+        (response, error) -> {
+          try {
+            if (error == null) {
+              emitter.send(SseEmitter.event().name("done").data(response));
+            } else if (!(error instanceof CancellationException)) {
+              LOGGER.warn("AI plan stream failed", error);
+              emitter.send(SseEmitter.event().name("error").data("AI plan generation failed"));
+            }
+            emitter.complete();
+          } catch (IOException | IllegalStateException ex) {
+            // The client is already gone.
+            emitter.completeWithError(ex);
+          }
+        });
+    return emitter;
+  }
+
   @PostMapping("/browse")
   public ApiResponse<UserBrowseResponse> recordBrowse(
       @RequestHeader(value = "Authorization", required = false) String authHeader,
@@ -59,4 +142,12 @@ public class RecommendController {
     }
     return authHeader;
   }
+
+  private void send(SseEmitter emitter, String event, Object data) {
+    try {
+      emitter.send(SseEmitter.event().name(event).data(data));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
 }
@@ -0,0 +1,80 @@
+package com.redseeker.recommend;
+
+public class RecommendReason {
+  private final String id;
+  private final String name;
+  private final String reason;
+  private final double score;
+  private final double baseScore;
+  private final double contentScore;
+  private final double cfScore;
+  private final double locationScore;
+  private final double timeScore;
+  private final double dateScore;
+
+  public RecommendReason(
+      String id,
+      String name,
+      String reason,
+      double score,
+      double baseScore,
+      double contentScore,
+      double cfScore,
+      double locationScore,
+      double timeScore,
+      double dateScore) {
+    this.id = id;
+    this.name = name;
+    this.reason = reason;
+    this.score = score;
+    this.baseScore = baseScore;
+    this.contentScore = contentScore;
+    this.cfScore = cfScore;
+    this.locationScore = locationScore;
+    this.timeScore = timeScore;
+    this.dateScore = dateScore;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getReason() {
+    return reason;
+  }
+
+  /**
+   * @return the final score, as in {@link RecommendItem}
+   */
+  public double getScore() {
+    return score;
+  }
+
+  public double getBaseScore() {
+    return baseScore;
+  }
+
+  public double getContentScore() {
+    return contentScore;
+  }
+
+  public double getCfScore() {
+    return cfScore;
+  }
+
+  public double getLocationScore() {
+    return locationScore;
+  }
+
+  public double getTimeScore() {
+    return timeScore;
+  }
+
+  public double getDateScore() {
+    return dateScore;
+  }
+}
@@ -0,0 +1,114 @@
+package com.redseeker.recommend;
+
+import java.util.List;
+
+/**
+ * Renders the short explanation shown with a recommendation from its {@link ScoreDetail}. Reasons
+ * come from precompiled templates and at most two are joined, in priority order: nearby, National
+ * Day, matched preferences, similar users, popularity, opening hours. Without any of them the text
+ * falls back to an overall-match note or the attraction history; a lone opening-hours reason is
+ * followed by the history (or a generic note) so it never stands alone.
+ */
+final class RecommendReasons {
+  private static final int MAX_REASONS = 2;
+  private static final String OPEN_HOURS_MARKER = "营业时间";
+
+  private static final ReasonTemplate NEARBY = ReasonTemplate.compile("距离您较近，出行成本低。");
+  private static final ReasonTemplate NATIONAL_DAY =
+      ReasonTemplate.compile("与国庆主题相关，节日期间更有意义。");
+  private static final ReasonTemplate PREFERENCES = ReasonTemplate.compile("匹配您的兴趣标签：{0}。");
+  private static final ReasonTemplate SIMILAR_USERS = ReasonTemplate.compile("相似用户评价较高。");
+  private static final ReasonTemplate POPULAR = ReasonTemplate.compile("综合热度与口碑较高。");
+  private static final ReasonTemplate OPEN_HOURS = ReasonTemplate.compile("营业时间匹配您的计划。");
+  private static final ReasonTemplate OVERALL = ReasonTemplate.compile("综合匹配度较高。");
+  private static final ReasonTemplate HISTORY = ReasonTemplate.compile("{0}");
+  private static final ReasonTemplate MEMORIAL = ReasonTemplate.compile("景点内容具有一定的纪念意义。");
+  private static final String FALLBACK = "推荐给您的行程参考。";
+
+  private RecommendReasons() {}
+
+  /**
+   * @param tags the attraction's tags as returned with the item
+   */
+  static String render(
+      CatalogAttraction attraction,
+      List<String> tags,
+      RecommendRequest request,
+      ScoreDetail detail) {
+    Reasons reasons = new Reasons();
+    if (detail.getLocation() >= 0.75) {
+      reasons.add(NEARBY, null);
+    }
+    if (detail.getDate() >= 0.75 && detail.isNationalDayRelated()) {
+      reasons.add(NATIONAL_DAY, null);
+    }
+    List<String> preferences = request.getPreferences();
+    if (detail.getContent() >= 0.75 && preferences != null && !preferences.isEmpty()) {
+      StringBuilder hits = null;
+      for (String preference : preferences) {
+        if (matchesAny(preference, tags)) {
+          hits = hits == null ? new StringBuilder() : hits.append('、');
+          hits.append(preference);
+        }
+      }
+      if (hits != null) {
+        reasons.add(PREFERENCES, hits);
+      }
+    }
+    if (request.getUserId() != null && detail.getCf() >= 0.75) {
+      reasons.add(SIMILAR_USERS, null);
+    }
+    if (detail.getBase() >= 0.75) {
+      reasons.add(POPULAR, null);
+    }
+    if (detail.getTime() >= 0.85) {
+      reasons.add(OPEN_HOURS, null);
+    }
+
+    String history = attraction.getHistory();
+    boolean hasHistory = history != null && !history.isBlank();
+    if (reasons.count == 0) {
+      if (detail.getTotal() >= 0.75) {
+        reasons.add(OVERALL, null);
+      } else if (hasHistory) {
+        reasons.add(HISTORY, history);
+      }
+    }
+    if (reasons.count == 1 && reasons.text.indexOf(OPEN_HOURS_MARKER) >= 0) {
+      if (hasHistory) {
+        reasons.add(HISTORY, history);
+      } else {
+        reasons.add(MEMORIAL, null);
+      }
+    }
+    return reasons.count == 0 ? FALLBACK : reasons.text.toString();
+  }
+
+  private static boolean matchesAny(String preference, List<String> tags) {
+    if (preference == null || preference.isBlank()) {
+      return false;
+    }
+    for (String tag : tags) {
+      if (AttractionTagIndex.matchesPreference(tag, preference)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The first {@link #MAX_REASONS} reasons, space separated, plus how many were offered. */
+  private static final class Reasons {
+    private final StringBuilder text = new StringBuilder(64);
+    private int count;
+
+    private void add(ReasonTemplate template, CharSequence argument) {
+      if (count < MAX_REASONS) {
+        if (count > 0) {
+          text.append(' ');
+        }
+        template.appendTo(text, argument);
+      }
+      count++;
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package com.redseeker.recommend;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 import java.util.List;
 
 public class RecommendRequest {
@@ -15,6 +18,33 @@ public class RecommendRequest {
   private Double userLatitude;
   private String visitTime;
 
+  /**
+   * Collaborative-filtering engine: "user" (default), "item" or "mf" (matrix factorization).
+   */
+  @Pattern(regexp = "user|item|mf", message = "cfEngine must be user, item or mf")
+  private String cfEngine;
+
+  /** Page size; all remaining attractions when absent. */
+  @Min(value = 1, message = "limit must be at least 1")
+  private Integer limit;
+
+  /** Number of top-ranked attractions to skip. */
+  @Min(value = 0, message = "offset must not be negative")
+  private Integer offset;
+
+  /**
+   * Only rank attractions within this many meters of the user's coordinates; ignored when the
+   * coordinates are absent.
+   */
+  @Positive(message = "maxDistance must be positive")
+  private Double maxDistance;
+
+  /**
+   * Whether items carry their reason text (default true). Without it, reasons can be fetched per
+   * attraction from {@code /api/recommend/{id}/reason}.
+   */
+  private Boolean includeReasons;
+
   public String getCity() {
     return city;
   }
@@ -78,4 +108,44 @@ public class RecommendRequest {
   public void setVisitTime(String visitTime) {
     this.visitTime = visitTime;
   }
+
+  public String getCfEngine() {
+    return cfEngine;
+  }
+
+  public void setCfEngine(String cfEngine) {
+    this.cfEngine = cfEngine;
+  }
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public void setLimit(Integer limit) {
+    this.limit = limit;
+  }
+
+  public Integer getOffset() {
+    return offset;
+  }
+
+  public void setOffset(Integer offset) {
+    this.offset = offset;
+  }
+
+  public Double getMaxDistance() {
+    return maxDistance;
+  }
+
+  public void setMaxDistance(Double maxDistance) {
+    this.maxDistance = maxDistance;
+  }
+
+  public Boolean getIncludeReasons() {
+    return includeReasons;
+  }
+
+  public void setIncludeReasons(Boolean includeReasons) {
+    this.includeReasons = includeReasons;
+  }
 }
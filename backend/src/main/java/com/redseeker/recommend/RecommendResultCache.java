@@ -0,0 +1,283 @@
+package com.redseeker.recommend;
+
+import com.redseeker.user.BrowseChangedEvent;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bounded LRU caches of recommendation pages keyed by the normalized request, and of the score
+ * breakdowns of ranked attractions that reasons are rendered from. Entries are dropped only when an
+ * input they depend on moves on:
+ *
+ * <ul>
+ *   <li>every entry depends on the catalog version and the published popularity version, which
+ *       {@link AttractionStatsService} advances at most once per publish tick;
+ *   <li>personalized entries (with a user id) also depend on the rating matrix instance, the
+ *       item-similarity table and the latent factor model;
+ *   <li>a user's own browses only drop that user's entries.
+ * </ul>
+ *
+ * Results therefore never outlive the writes, catalog rebuilds or model rebuilds they were computed
+ * from, while anonymous pages survive steady browse and rating traffic.
+ */
+@Service
+public class RecommendResultCache {
+  private final AttractionStatsService statsService;
+  private final RatingMatrixService ratingMatrixService;
+  private final ItemSimilarityService itemSimilarityService;
+  private final LatentFactorService latentFactorService;
+  private final int maxEntries;
+  private final int maxDetails;
+
+  // All guarded by this.
+  private final LinkedHashMap<String, Cached<List<RecommendItem>>> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<String, Cached<ScoreDetail>> details =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private DataVersion version;
+  // Bumped on every user event, so a personalized result computed across one is not stored.
+  private long userEvents;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long invalidations;
+
+  public RecommendResultCache(
+      AttractionStatsService statsService,
+      RatingMatrixService ratingMatrixService,
+      ItemSimilarityService itemSimilarityService,
+      LatentFactorService latentFactorService,
+      @Value("${recommend.cache.max-entries:1000}") int maxEntries,
+      @Value("${recommend.cache.max-details:20000}") int maxDetails) {
+    this.statsService = statsService;
+    this.ratingMatrixService = ratingMatrixService;
+    this.itemSimilarityService = itemSimilarityService;
+    this.latentFactorService = latentFactorService;
+    this.maxEntries = Math.max(0, maxEntries);
+    this.maxDetails = Math.max(0, maxDetails);
+  }
+
+  /**
+   * Returns the cached page for {@code key}, computing and caching it on a miss. The loader runs
+   * without holding the cache lock; its result is only stored if no data changed meanwhile.
+   *
+   * @param key normalized request, see {@code RecommendServiceImpl}
+   * @param userId the user the page is personalized for, or {@code null}
+   * @param catalog the catalog snapshot the loader scores against
+   */
+  public List<RecommendItem> getOrCompute(
+      String key, Long userId, AttractionCatalog catalog, Supplier<List<RecommendItem>> loader) {
+    if (maxEntries == 0) {
+      return loader.get();
+    }
+    DataVersion current = currentVersion(catalog);
+    long userEventsBefore;
+    synchronized (this) {
+      validate(current);
+      Cached<List<RecommendItem>> cached = entries.get(key);
+      if (cached != null) {
+        hits++;
+        return cached.value;
+      }
+      misses++;
+      userEventsBefore = userEvents;
+    }
+    List<RecommendItem> result = List.copyOf(loader.get());
+    synchronized (this) {
+      if (current.equals(version)
+          && currentVersion(catalog).equals(current)
+          && (userId == null || userEvents == userEventsBefore)) {
+        entries.put(key, new Cached<>(userId, result));
+        trim(entries, maxEntries);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the cached score breakdown of an attraction, computing and caching it on a miss.
+   *
+   * @param key the normalized scoring request (without paging) followed by the attraction id
+   * @param userId the user the score is personalized for, or {@code null}
+   */
+  ScoreDetail getOrComputeDetail(
+      String key, Long userId, AttractionCatalog catalog, Supplier<ScoreDetail> loader) {
+    if (maxDetails == 0) {
+      return loader.get();
+    }
+    DataVersion current = currentVersion(catalog);
+    synchronized (this) {
+      validate(current);
+      Cached<ScoreDetail> cached = details.get(key);
+      if (cached != null) {
+        return cached.value;
+      }
+    }
+    ScoreDetail result = loader.get();
+    putDetails(Map.of(key, result), userId, catalog, current);
+    return result;
+  }
+
+  /**
+   * @return the state of every input cached values are computed from, for {@link #putDetails}
+   */
+  synchronized DataVersion currentVersion(AttractionCatalog catalog) {
+    return new DataVersion(
+        catalog.getVersion(),
+        statsService.getVersion(),
+        ratingMatrixService.snapshot(),
+        itemSimilarityService.snapshotVersion(),
+        latentFactorService.snapshotVersion(),
+        userEvents);
+  }
+
+  /**
+   * Caches breakdowns computed by a ranking, unless any data they depend on changed since
+   * {@code computedAt}.
+   */
+  void putDetails(
+      Map<String, ScoreDetail> computed,
+      Long userId,
+      AttractionCatalog catalog,
+      DataVersion computedAt) {
+    if (maxDetails == 0 || computed.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      validate(currentVersion(catalog));
+      if (computedAt.equals(version)
+          && (userId == null || computedAt.userEvents == userEvents)) {
+        computed.forEach((key, detail) -> details.put(key, new Cached<>(userId, detail)));
+        trim(details, maxDetails);
+      }
+    }
+  }
+
+  /** A user's browses only change that user's collaborative scores. */
+  @EventListener
+  public synchronized void onBrowseChanged(BrowseChangedEvent event) {
+    userEvents++;
+    if (removeIf(entries, event.getUserId(), false) | removeIf(details, event.getUserId(), false)) {
+      invalidations++;
+    }
+  }
+
+  public synchronized RecommendCacheStats getStats() {
+    return new RecommendCacheStats(
+        hits, misses, entries.size(), maxEntries, evictions, invalidations);
+  }
+
+  private void validate(DataVersion current) {
+    if (current.equals(version)) {
+      return;
+    }
+    if (version != null && !current.sharesInputsWith(version)) {
+      if (!(entries.isEmpty() && details.isEmpty())) {
+        invalidations++;
+        entries.clear();
+        details.clear();
+      }
+    } else if (version != null && !current.personalizesLike(version)) {
+      if (removeIf(entries, null, true) | removeIf(details, null, true)) {
+        invalidations++;
+      }
+    }
+    version = current;
+  }
+
+  /**
+   * Removes the entries of {@code userId}, or of every user when {@code anyUser} is set.
+   *
+   * @return whether anything was removed
+   */
+  private static <T> boolean removeIf(
+      LinkedHashMap<String, Cached<T>> cache, Long userId, boolean anyUser) {
+    return cache.values().removeIf(
+        cached -> cached.userId != null && (anyUser || cached.userId.equals(userId)));
+  }
+
+  private void trim(LinkedHashMap<String, ?> cache, int capacity) {
+    Iterator<? extends Map.Entry<String, ?>> eldest = cache.entrySet().iterator();
+    while (cache.size() > capacity && eldest.hasNext()) {
+      eldest.next();
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  private static final class Cached<T> {
+    private final Long userId;
+    private final T value;
+
+    private Cached(Long userId, T value) {
+      this.userId = userId;
+      this.value = value;
+    }
+  }
+
+  /**
+   * The state of every input a cached value was computed from; compared by identity of parts. The
+   * user event count is not part of equality: it only guards stores of personalized results.
+   */
+  static final class DataVersion {
+    private final long catalogVersion;
+    private final long statsVersion;
+    private final RatingMatrix ratings;
+    private final long similarityVersion;
+    private final long factorVersion;
+    private final long userEvents;
+
+    private DataVersion(
+        long catalogVersion,
+        long statsVersion,
+        RatingMatrix ratings,
+        long similarityVersion,
+        long factorVersion,
+        long userEvents) {
+      this.catalogVersion = catalogVersion;
+      this.statsVersion = statsVersion;
+      this.ratings = ratings;
+      this.similarityVersion = similarityVersion;
+      this.factorVersion = factorVersion;
+      this.userEvents = userEvents;
+    }
+
+    /** Inputs of every entry. */
+    private boolean sharesInputsWith(DataVersion that) {
+      return catalogVersion == that.catalogVersion && statsVersion == that.statsVersion;
+    }
+
+    /** Inputs of personalized entries only. */
+    private boolean personalizesLike(DataVersion that) {
+      return ratings == that.ratings
+          && similarityVersion == that.similarityVersion
+          && factorVersion == that.factorVersion;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof DataVersion)) {
+        return false;
+      }
+      DataVersion that = (DataVersion) other;
+      return sharesInputsWith(that) && personalizesLike(that);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          catalogVersion,
+          statsVersion,
+          System.identityHashCode(ratings),
+          similarityVersion,
+          factorVersion);
+    }
+  }
+}
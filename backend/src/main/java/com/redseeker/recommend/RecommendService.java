@@ -1,9 +1,31 @@
 package com.redseeker.recommend;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface RecommendService {
   List<RecommendItem> getRecommendations(RecommendRequest request);
 
+  RecommendReason explainRecommendation(String attractionId, RecommendRequest request);
+
+  List<NearbyAttraction> findNearby(NearbyRequest request);
+
+  List<TrendingAttraction> getTrending(Integer limit);
+
+  RecommendCacheStats getCacheStats();
+
+  List<CandidateGeneratorStats> getCandidateStats();
+
+  AiClientStats getAiStats();
+
   AiPlanResponse generateAiPlan(AiPlanRequest request);
+
+  /**
+   * Streams the plan text through {@code onDelta} as the model generates it.
+   *
+   * @return completes with the same response {@link #generateAiPlan} would return; cancelling it
+   *     stops the generation
+   */
+  CompletableFuture<AiPlanResponse> streamAiPlan(AiPlanRequest request, Consumer<String> onDelta);
 }
@@ -2,14 +2,7 @@ package com.redseeker.recommend;
 
 import com.redseeker.common.ErrorCode;
 import com.redseeker.common.ServiceException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import jakarta.annotation.PreDestroy;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
@@ -17,31 +10,72 @@ import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class RecommendServiceImpl implements RecommendService {
-  private static final Logger LOGGER = LoggerFactory.getLogger(RecommendServiceImpl.class);
-
   private final AiService aiService;
-  private final String databaseUrl;
+  private final AttractionCatalogService catalogService;
+  private final RatingMatrixService ratingMatrixService;
+  private final ItemSimilarityService itemSimilarityService;
+  private final LatentFactorService latentFactorService;
+  private final AttractionStatsService statsService;
+  private final RecommendResultCache resultCache;
+  private final CandidatePipeline candidatePipeline;
+  private final TrendingService trendingService;
   private static final int NATIONAL_DAY_MONTH = 10;
   private static final int NATIONAL_DAY_DAY = 1;
   private static final int NATIONAL_DAY_WINDOW_DAYS = 20;
-
-  public RecommendServiceImpl(AiService aiService) {
+  private static final int DEFAULT_NEARBY_LIMIT = 20;
+  private static final int DEFAULT_TRENDING_LIMIT = 20;
+  private static final int MAX_TRENDING_LIMIT = 500;
+  private static final int MIN_PARTITION_SIZE = 256;
+  private static final int PARTITIONS_PER_THREAD = 4;
+
+  private final ForkJoinPool scoringPool;
+  private final int parallelThreshold;
+
+  public RecommendServiceImpl(
+      AiService aiService,
+      AttractionCatalogService catalogService,
+      RatingMatrixService ratingMatrixService,
+      ItemSimilarityService itemSimilarityService,
+      LatentFactorService latentFactorService,
+      AttractionStatsService statsService,
+      RecommendResultCache resultCache,
+      CandidatePipeline candidatePipeline,
+      TrendingService trendingService,
+      @Value("${recommend.scoring.parallel-threshold:2000}") int parallelThreshold,
+      @Value("${recommend.scoring.parallelism:0}") int parallelism) {
     this.aiService = aiService;
-    this.databaseUrl = resolveDatabaseUrl();
+    this.catalogService = catalogService;
+    this.ratingMatrixService = ratingMatrixService;
+    this.itemSimilarityService = itemSimilarityService;
+    this.latentFactorService = latentFactorService;
+    this.statsService = statsService;
+    this.resultCache = resultCache;
+    this.candidatePipeline = candidatePipeline;
+    this.trendingService = trendingService;
+    this.parallelThreshold = Math.max(1, parallelThreshold);
+    this.scoringPool =
+        new ForkJoinPool(
+            parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scoringPool.shutdown();
   }
 
   @Override
@@ -51,83 +85,224 @@ public class RecommendServiceImpl implements RecommendService {
     }
 
     // Always recommend all attractions in database; only use city for scoring/tags.
-    List<AttractionRecord> attractions = loadAttractions(null);
-    if (attractions.isEmpty()) {
+    AttractionCatalog catalog = catalogService.current();
+    if (catalog.isEmpty()) {
       return Collections.emptyList();
     }
+    String scoringKey = scoringKey(request, catalog);
+    RecommendResultCache.DataVersion version = resultCache.currentVersion(catalog);
+    return resultCache.getOrCompute(
+        pageKey(scoringKey, request),
+        request.getUserId(),
+        catalog,
+        () -> rank(request, catalog, scoringKey, version));
+  }
 
-    Map<String, Double> averageRatings = loadAverageRatings();
-    Map<String, Integer> ratingCounts = loadRatingCounts();
-    RatingSummary ratingSummary = loadRatingSummary();
-    Map<String, Integer> browseCounts = loadBrowseCounts();
-    int maxBrowseCount =
-        browseCounts.values().stream().max(Integer::compareTo).orElse(0);
-    Map<String, AttractionStageInfo> stageInfoMap = loadAttractionStages();
+  @Override
+  public RecommendReason explainRecommendation(String attractionId, RecommendRequest request) {
+    if (request.getCity() == null || request.getCity().isBlank()) {
+      throw new ServiceException(ErrorCode.VALIDATION_ERROR, "city is required");
+    }
+    AttractionCatalog catalog = catalogService.current();
+    int position = catalog.positionOf(attractionId);
+    if (position < 0) {
+      throw new ServiceException(ErrorCode.NOT_FOUND, "attraction not found: " + attractionId);
+    }
+    ScoreDetail detail =
+        resultCache.getOrComputeDetail(
+            detailKey(scoringKey(request, catalog), attractionId),
+            request.getUserId(),
+            catalog,
+            () -> scoreOne(request, catalog, position));
+    CatalogAttraction attraction = catalog.getAttractions().get(position);
+    List<String> tags = catalog.getTags(position, request.getCity());
+    return new RecommendReason(
+        attraction.getId(),
+        attraction.getName(),
+        RecommendReasons.render(attraction, tags, request, detail),
+        detail.getTotal(),
+        detail.getBase(),
+        detail.getContent(),
+        detail.getCf(),
+        detail.getLocation(),
+        detail.getTime(),
+        detail.getDate());
+  }
 
-    Map<Long, Map<String, Double>> allRatings = loadAllRatings();
-    Map<String, Double> targetUserRatings = Collections.emptyMap();
-    if (request.getUserId() != null) {
-      targetUserRatings = allRatings.getOrDefault(request.getUserId(), Collections.emptyMap());
-    }
-
-    List<RecommendItem> results = new ArrayList<>();
-    for (AttractionRecord attraction : attractions) {
-      List<String> tags = loadAttractionTags(attraction.getId(), request.getCity());
-      String category = formatCategory(attraction.getCategoryId());
-
-      double baseScore = calculateBaseScore(
-          attraction.getId(),
-          averageRatings,
-          ratingCounts,
-          ratingSummary,
-          browseCounts,
-          maxBrowseCount);
-      double contentScore = calculateContentScore(category, tags, request.getPreferences());
-      double cfScore = 0.0;
-      if (request.getUserId() != null && !allRatings.isEmpty()) {
-        cfScore = calculateUserBasedCFScore(targetUserRatings, allRatings, attraction.getId());
+  @Override
+  public List<NearbyAttraction> findNearby(NearbyRequest request) {
+    boolean hasCenter = request.getLongitude() != null && request.getLatitude() != null;
+    int boxParts =
+        (request.getMinLongitude() == null ? 0 : 1)
+            + (request.getMinLatitude() == null ? 0 : 1)
+            + (request.getMaxLongitude() == null ? 0 : 1)
+            + (request.getMaxLatitude() == null ? 0 : 1);
+    if (boxParts != 0 && boxParts != 4) {
+      throw new ServiceException(
+          ErrorCode.VALIDATION_ERROR,
+          "bounding box requires minLongitude, minLatitude, maxLongitude and maxLatitude");
+    }
+    if (!hasCenter && boxParts == 0) {
+      throw new ServiceException(
+          ErrorCode.VALIDATION_ERROR, "longitude and latitude or a bounding box is required");
+    }
+
+    AttractionCatalog catalog = catalogService.current();
+    AttractionGeoIndex index = catalog.getGeoIndex();
+    int limit = request.getLimit() == null ? DEFAULT_NEARBY_LIMIT : request.getLimit();
+    List<AttractionGeoIndex.Hit> hits;
+    if (boxParts == 4) {
+      if (request.getMinLongitude() > request.getMaxLongitude()
+          || request.getMinLatitude() > request.getMaxLatitude()) {
+        throw new ServiceException(
+            ErrorCode.VALIDATION_ERROR, "bounding box minimum must not exceed its maximum");
+      }
+      double referenceLatitude =
+          hasCenter
+              ? request.getLatitude()
+              : (request.getMinLatitude() + request.getMaxLatitude()) / 2;
+      double referenceLongitude =
+          hasCenter
+              ? request.getLongitude()
+              : (request.getMinLongitude() + request.getMaxLongitude()) / 2;
+      hits =
+          index.withinBox(
+              request.getMinLongitude(),
+              request.getMinLatitude(),
+              request.getMaxLongitude(),
+              request.getMaxLatitude(),
+              referenceLatitude,
+              referenceLongitude);
+      if (hasCenter && request.getRadius() != null) {
+        hits.removeIf(hit -> hit.getDistance() > request.getRadius());
       }
-      double locationScore = calculateLocationScore(request, attraction);
-      double timeScore = calculateTimeScore(request.getVisitTime(), attraction.getBusinessHours());
-      double dateScore =
-          calculateDateRelevanceScore(
-              request.getVisitTime(),
+    } else if (request.getRadius() != null) {
+      hits = index.withinRadius(request.getLatitude(), request.getLongitude(), request.getRadius());
+    } else {
+      hits = index.nearest(request.getLatitude(), request.getLongitude(), limit);
+    }
+
+    List<NearbyAttraction> results = new ArrayList<>(Math.min(limit, hits.size()));
+    for (AttractionGeoIndex.Hit hit : hits.subList(0, Math.min(limit, hits.size()))) {
+      CatalogAttraction attraction = catalog.getAttractions().get(hit.getPosition());
+      results.add(
+          new NearbyAttraction(
+              attraction.getId(),
               attraction.getName(),
-              tags,
-              attraction.getHistory(),
-              stageInfoMap.get(attraction.getId()));
+              attraction.getCategory(),
+              attraction.getAddress(),
+              attraction.getLongitude(),
+              attraction.getLatitude(),
+              hit.getDistance()));
+    }
+    return results;
+  }
 
-      double finalScore =
-          calculateFinalScore(
-              baseScore, contentScore, cfScore, locationScore, timeScore, dateScore, request);
+  @Override
+  public List<TrendingAttraction> getTrending(Integer limit) {
+    int size = limit == null ? DEFAULT_TRENDING_LIMIT : limit;
+    if (size < 1 || size > MAX_TRENDING_LIMIT) {
+      throw new ServiceException(
+          ErrorCode.VALIDATION_ERROR, "limit must be between 1 and " + MAX_TRENDING_LIMIT);
+    }
+    AttractionCatalog catalog = catalogService.current();
+    List<TrendingAttraction> results = new ArrayList<>();
+    // Over-fetch slightly: browse records may point at attractions no longer in the catalog.
+    for (String id : trendingService.top(size + DEFAULT_TRENDING_LIMIT)) {
+      CatalogAttraction attraction = catalog.get(id);
+      if (attraction == null) {
+        continue;
+      }
+      results.add(
+          new TrendingAttraction(
+              attraction.getId(),
+              attraction.getName(),
+              attraction.getCategory(),
+              trendingService.score(id),
+              trendingService.recentCount(id)));
+      if (results.size() == size) {
+        break;
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public RecommendCacheStats getCacheStats() {
+    return resultCache.getStats();
+  }
 
+  /**
+   * @param scoringKey normalized request without paging, see {@link #scoringKey}
+   * @param version data version observed before ranking; breakdowns are cached only while current
+   */
+  private List<RecommendItem> rank(
+      RecommendRequest request,
+      AttractionCatalog catalog,
+      String scoringKey,
+      RecommendResultCache.DataVersion version) {
+    double[] cfScores = cfScores(request, catalog);
+    int[] preferenceMatches =
+        countPreferenceMatches(catalog, request.getPreferences(), request.getCity());
+
+    List<CatalogAttraction> attractions = catalog.getAttractions();
+    int[] candidates = positionsWithinMaxDistance(request, catalog);
+    int candidateCount = candidates == null ? attractions.size() : candidates.length;
+    int offset = request.getOffset() == null ? 0 : Math.max(0, request.getOffset());
+    int limit = request.getLimit() == null ? candidateCount : request.getLimit();
+    if (offset >= candidateCount || limit <= 0) {
+      return Collections.emptyList();
+    }
+    candidates =
+        candidatePipeline.select(request, catalog, preferenceMatches, cfScores, candidates);
+    candidateCount = candidates == null ? attractions.size() : candidates.length;
+
+    // Score every candidate and keep the best offset + limit positions (high to low) in bounded
+    // heaps; only the returned attractions get an item, a cached breakdown and reason text built.
+    ScoreBreakdown scores = new ScoreBreakdown(attractions.size());
+    ScoringTask scoring =
+        new ScoringTask(
+            request,
+            catalog,
+            candidates,
+            preferenceMatches,
+            cfScores,
+            scores,
+            (int) Math.min(candidateCount, (long) offset + limit),
+            0,
+            candidateCount);
+    TopKSelector selector =
+        candidateCount >= parallelThreshold
+            ? scoringPool.invoke(scoring)
+            : scoring.compute();
+    int[] ranked = selector.drainSorted();
+
+    boolean cityMentionsNationalDay = AttractionCatalog.mentionsNationalDay(request.getCity());
+    boolean includeReasons = !Boolean.FALSE.equals(request.getIncludeReasons());
+    List<RecommendItem> results = new ArrayList<>(Math.max(0, ranked.length - offset));
+    Map<String, ScoreDetail> details = new HashMap<>();
+    for (int rank = offset; rank < ranked.length; rank++) {
+      int position = ranked[rank];
+      CatalogAttraction attraction = attractions.get(position);
+      List<String> tags = catalog.getTags(position, request.getCity());
+      ScoreDetail detail =
+          scores.detail(position, isNationalDayRelated(catalog, position, cityMentionsNationalDay));
+      details.put(detailKey(scoringKey, attraction.getId()), detail);
       String reason =
-          generateReason(
-              attraction,
-              tags,
-              request,
-              finalScore,
-              baseScore,
-              contentScore,
-              cfScore,
-              locationScore,
-              timeScore,
-              dateScore,
-              stageInfoMap.get(attraction.getId()));
-      
+          includeReasons ? RecommendReasons.render(attraction, tags, request, detail) : null;
+
       // Get rating data
-      Double avgRating = averageRatings.get(attraction.getId());
-      Integer totalRatings = ratingCounts.get(attraction.getId());
-      Integer browseCount = browseCounts.get(attraction.getId());
-      AttractionStageInfo stageInfo = stageInfoMap.get(attraction.getId());
-      
+      Double avgRating = statsService.averageRating(attraction.getId());
+      Integer totalRatings = statsService.ratingCount(attraction.getId());
+      Integer browseCount = statsService.browseCount(attraction.getId());
+
       results.add(
           new RecommendItem(
               attraction.getId(),
               attraction.getName(),
-              category,
+              attraction.getCategory(),
               tags,
-              finalScore,
+              scores.total[position],
               attraction.getHistory(),
               reason,
               attraction.getAddress(),
@@ -138,28 +313,81 @@ public class RecommendServiceImpl implements RecommendService {
               browseCount,
               attraction.getLongitude(),
               attraction.getLatitude(),
-              stageInfo == null ? null : stageInfo.stageStart(),
-              stageInfo == null ? null : stageInfo.stageEnd(),
-              stageInfo == null ? null : stageInfo.stageName()));
+              attraction.getStageStart(),
+              attraction.getStageEnd(),
+              attraction.getStageName()));
+    }
+    resultCache.putDetails(details, request.getUserId(), catalog, version);
+    return results;
+  }
+
+  /**
+   * Scores a single attraction, for reasons requested outside a ranking.
+   */
+  private ScoreDetail scoreOne(RecommendRequest request, AttractionCatalog catalog, int position) {
+    ScoreBreakdown scores = new ScoreBreakdown(1);
+    boolean cityMentionsNationalDay = AttractionCatalog.mentionsNationalDay(request.getCity());
+    Long userId = request.getUserId();
+    scorePosition(
+        request,
+        catalog,
+        position,
+        countPreferenceMatches(catalog, position, request.getPreferences(), request.getCity()),
+        userId == null
+            ? 0.0
+            : collaborativeScorer(request.getCfEngine()).scoreOne(userId, catalog, position),
+        cityMentionsNationalDay,
+        scores,
+        0);
+    return scores.detail(0, isNationalDayRelated(catalog, position, cityMentionsNationalDay));
+  }
+
+  private double[] cfScores(RecommendRequest request, AttractionCatalog catalog) {
+    if (request.getUserId() == null) {
+      return null;
     }
+    return collaborativeScorer(request.getCfEngine()).scoreCatalog(request.getUserId(), catalog);
+  }
 
-    // Sort by score from high to low (descending)
-    return results.stream()
-        .sorted(Comparator.comparingDouble(RecommendItem::getScore).reversed())
-        .collect(Collectors.toList());
+  @Override
+  public List<CandidateGeneratorStats> getCandidateStats() {
+    return candidatePipeline.getStats();
   }
 
   @Override
-  public AiPlanResponse generateAiPlan(AiPlanRequest request) {
-    String prompt =
-        String.format(
-            "Please design a red tourism itinerary. City: %s. Days: %d. Needs: %s.",
-            request.getCity() != null ? request.getCity() : "Shanghai",
-            request.getDays() != null ? request.getDays() : 2,
-            request.getPrompt());
+  public AiClientStats getAiStats() {
+    return aiService.getStats();
+  }
 
-    String aiOutput = aiService.generateContent(prompt);
+  @Override
+  public AiPlanResponse generateAiPlan(AiPlanRequest request) {
+    return toPlanResponse(aiService.generateContent(planPrompt(request)));
+  }
 
+  @Override
+  public CompletableFuture<AiPlanResponse> streamAiPlan(
+      AiPlanRequest request, Consumer<String> onDelta) {
+    CompletableFuture<String> generation = aiService.streamContent(planPrompt(request), onDelta);
+    CompletableFuture<AiPlanResponse> plan = generation.thenApply(this::toPlanResponse);
+    // Dependent futures do not propagate cancellation back to their source.
+    plan.whenComplete(
+        (response, error) -> {
+          if (error != null) {
+            generation.cancel(true);
+          }
+        });
+    return plan;
+  }
+
+  private String planPrompt(AiPlanRequest request) {
+    return String.format(
+        "Please design a red tourism itinerary. City: %s. Days: %d. Needs: %s.",
+        request.getCity() != null ? request.getCity() : "Shanghai",
+        request.getDays() != null ? request.getDays() : 2,
+        request.getPrompt());
+  }
+
+  private AiPlanResponse toPlanResponse(String aiOutput) {
     AiPlanResponse response = new AiPlanResponse();
     response.setSummary("AI generated a personalized plan.");
 
@@ -174,344 +402,306 @@ public class RecommendServiceImpl implements RecommendService {
     return response;
   }
 
-  private List<AttractionRecord> loadAttractions(String city) {
-    String baseSql =
-        "SELECT id, name, address, category, brief_intro, historical_background, business_hours, per_capita_consumption, longitude, latitude "
-            + "FROM attractions";
-    boolean filterCity = city != null && !city.isBlank();
-    String sql = baseSql;
-    if (filterCity) {
-      sql += " WHERE address LIKE ? OR name LIKE ?";
+  /**
+   * Scores candidates {@code [from, to)} into {@code scores} and offers them to {@code selector}.
+   * Ranges are disjoint, so partitions may run concurrently.
+   *
+   * @param candidates catalog positions to score, or {@code null} for the whole catalog
+   */
+  private void scoreRange(
+      RecommendRequest request,
+      AttractionCatalog catalog,
+      int[] candidates,
+      int[] preferenceMatches,
+      double[] cfScores,
+      ScoreBreakdown scores,
+      TopKSelector selector,
+      int from,
+      int to) {
+    boolean cityMentionsNationalDay = AttractionCatalog.mentionsNationalDay(request.getCity());
+    for (int candidate = from; candidate < to; candidate++) {
+      int position = candidates == null ? candidate : candidates[candidate];
+      scorePosition(
+          request,
+          catalog,
+          position,
+          preferenceMatches[position],
+          cfScores == null ? 0.0 : cfScores[position],
+          cityMentionsNationalDay,
+          scores,
+          position);
+      selector.offer(position);
+    }
+  }
+
+  /**
+   * Scores the attraction at a catalog position into slot {@code slot} of {@code scores}.
+   */
+  private void scorePosition(
+      RecommendRequest request,
+      AttractionCatalog catalog,
+      int position,
+      int preferenceMatches,
+      double cfScore,
+      boolean cityMentionsNationalDay,
+      ScoreBreakdown scores,
+      int slot) {
+    CatalogAttraction attraction = catalog.getAttractions().get(position);
+
+    double baseScore = calculateBaseScore(attraction.getId());
+    double contentScore = calculateContentScore(preferenceMatches, request.getPreferences());
+    double locationScore = calculateLocationScore(request, attraction);
+    double timeScore =
+        calculateTimeScore(
+            request.getVisitTime(),
+            attraction.getBusinessHours(),
+            attraction.getParsedBusinessHours());
+    double dateScore =
+        calculateDateRelevanceScore(
+            request.getVisitTime(),
+            isNationalDayRelated(catalog, position, cityMentionsNationalDay));
+
+    scores.base[slot] = baseScore;
+    scores.content[slot] = contentScore;
+    scores.cf[slot] = cfScore;
+    scores.location[slot] = locationScore;
+    scores.time[slot] = timeScore;
+    scores.date[slot] = dateScore;
+    scores.total[slot] =
+        calculateFinalScore(
+            baseScore, contentScore, cfScore, locationScore, timeScore, dateScore, request);
+  }
+
+  private CollaborativeScorer collaborativeScorer(String engine) {
+    if ("item".equals(engine)) {
+      return itemSimilarityService;
+    }
+    if ("mf".equals(engine)) {
+      return latentFactorService;
+    }
+    return ratingMatrixService;
+  }
+
+  /**
+   * @return ascending catalog positions within {@code maxDistance} of the user, or {@code null}
+   *     when the request does not restrict distance
+   */
+  private int[] positionsWithinMaxDistance(RecommendRequest request, AttractionCatalog catalog) {
+    if (request.getMaxDistance() == null
+        || request.getUserLongitude() == null
+        || request.getUserLatitude() == null) {
+      return null;
     }
-
-    List<AttractionRecord> records = new ArrayList<>();
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql)) {
-      if (filterCity) {
-        String pattern = "%" + city.trim() + "%";
-        statement.setString(1, pattern);
-        statement.setString(2, pattern);
-      }
-      try (ResultSet resultSet = statement.executeQuery()) {
-        while (resultSet.next()) {
-          records.add(
-              new AttractionRecord(
-                  String.valueOf(resultSet.getInt("id")),
-                  resultSet.getString("name"),
-                  resultSet.getString("address"),
-                  resultSet.getInt("category"),
-                  resultSet.getString("brief_intro"),
-                  resultSet.getString("historical_background"),
-                  resultSet.getString("business_hours"),
-                  resultSet.getDouble("per_capita_consumption"),
-                  resultSet.getObject("longitude", Double.class),
-                  resultSet.getObject("latitude", Double.class)));
-        }
-      }
-    } catch (SQLException ex) {
-      LOGGER.error("Failed to load attractions", ex);
-      throw new ServiceException(ErrorCode.INTERNAL_ERROR, "Failed to load attractions");
-    }
-    return records;
-  }
-
-  private List<String> loadAttractionTags(String attractionId, String city) {
-    Set<String> tags = new HashSet<>();
-    if (city != null && !city.isBlank()) {
-      tags.add(city.trim());
-    }
-    String sql =
-        "SELECT he.event_name, he.period "
-            + "FROM historical_events he "
-            + "JOIN attraction_events ae ON ae.event_id = he.id "
-            + "WHERE ae.attraction_id = ?";
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql)) {
-      statement.setInt(1, Integer.parseInt(attractionId));
-      try (ResultSet resultSet = statement.executeQuery()) {
-        while (resultSet.next()) {
-          addIfPresent(tags, resultSet.getString("event_name"));
-          addIfPresent(tags, resultSet.getString("period"));
-        }
-      }
-    } catch (SQLException ex) {
-      LOGGER.warn("Failed to load tags for attraction {}", attractionId, ex);
-    }
-    return tags.stream().sorted().collect(Collectors.toList());
-  }
-
-  private Map<String, Double> loadAverageRatings() {
-    String sql = "SELECT attraction_id, AVG(rating) AS avg_rating FROM attraction_ratings GROUP BY attraction_id";
-    Map<String, Double> result = new HashMap<>();
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        ResultSet resultSet = statement.executeQuery()) {
-      while (resultSet.next()) {
-        result.put(
-            String.valueOf(resultSet.getInt("attraction_id")),
-            resultSet.getDouble("avg_rating"));
-      }
-    } catch (SQLException ex) {
-      LOGGER.warn("Failed to load average ratings", ex);
-    }
-    return result;
-  }
-
-  private Map<String, Integer> loadRatingCounts() {
-    String sql = "SELECT attraction_id, COUNT(*) AS cnt FROM attraction_ratings GROUP BY attraction_id";
-    Map<String, Integer> result = new HashMap<>();
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        ResultSet resultSet = statement.executeQuery()) {
-      while (resultSet.next()) {
-        result.put(
-            String.valueOf(resultSet.getInt("attraction_id")),
-            resultSet.getInt("cnt"));
-      }
-    } catch (SQLException ex) {
-      LOGGER.warn("Failed to load rating counts", ex);
-    }
-    return result;
-  }
-
-  private Map<String, Integer> loadBrowseCounts() {
-    String sql = "SELECT attraction_id, COUNT(*) AS cnt FROM user_browse_history GROUP BY attraction_id";
-    Map<String, Integer> result = new HashMap<>();
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        ResultSet resultSet = statement.executeQuery()) {
-      while (resultSet.next()) {
-        result.put(
-            String.valueOf(resultSet.getInt("attraction_id")),
-            resultSet.getInt("cnt"));
-      }
-    } catch (SQLException ex) {
-      LOGGER.warn("Failed to load browse counts", ex);
-    }
-    return result;
-  }
-
-  private Map<Long, Map<String, Double>> loadAllRatings() {
-    String sql = "SELECT user_id, attraction_id, rating FROM attraction_ratings";
-    Map<Long, Map<String, Double>> result = new HashMap<>();
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        ResultSet resultSet = statement.executeQuery()) {
-      while (resultSet.next()) {
-        long userId = resultSet.getLong("user_id");
-        String attractionId = String.valueOf(resultSet.getInt("attraction_id"));
-        double rating = resultSet.getDouble("rating");
-        result.computeIfAbsent(userId, key -> new HashMap<>()).put(attractionId, rating);
+    List<AttractionGeoIndex.Hit> hits =
+        catalog
+            .getGeoIndex()
+            .withinRadius(
+                request.getUserLatitude(), request.getUserLongitude(), request.getMaxDistance());
+    int[] positions = new int[hits.size()];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = hits.get(i).getPosition();
+    }
+    Arrays.sort(positions);
+    return positions;
+  }
+
+  /**
+   * Builds the scoring key: every request field the scores read, with {@code visitTime} reduced to
+   * what the time and date scores actually depend on (the catalog's opening-hours segment of the
+   * time of day, and whether the date is near National Day).
+   */
+  private String scoringKey(RecommendRequest request, AttractionCatalog catalog) {
+    StringBuilder key = new StringBuilder();
+    appendKeyPart(key, request.getCity());
+    if (request.getUserId() != null) {
+      appendKeyPart(
+          key,
+          request.getUserId()
+              + ("item".equals(request.getCfEngine()) || "mf".equals(request.getCfEngine())
+                  ? "/" + request.getCfEngine()
+                  : "/user"));
+    } else {
+      appendKeyPart(key, null);
+    }
+    List<String> preferences = request.getPreferences();
+    key.append(preferences == null ? 0 : preferences.size()).append('|');
+    if (preferences != null) {
+      for (String preference : preferences) {
+        appendKeyPart(key, preference);
       }
-    } catch (SQLException ex) {
-      LOGGER.warn("Failed to load ratings", ex);
-    }
-    return result;
-  }
-
-  private double calculateBaseScore(
-      String attractionId,
-      Map<String, Double> averageRatings,
-      Map<String, Integer> ratingCounts,
-      RatingSummary ratingSummary,
-      Map<String, Integer> browseCounts,
-      int maxBrowseCount) {
-    Double rating = averageRatings.get(attractionId);
-    Integer count = ratingCounts.get(attractionId);
-    double ratingScore = 0.0;
-    if (rating != null && rating > 0) {
-      double globalAvg = ratingSummary.averageRating() > 0 ? ratingSummary.averageRating() : 3.5;
-      int baseCount = ratingSummary.priorCount() > 0 ? ratingSummary.priorCount() : 5;
-      int safeCount = count == null ? 0 : count;
-      double bayesian = (rating * safeCount + globalAvg * baseCount) / (safeCount + baseCount);
-      ratingScore = Math.min(1.0, bayesian / 5.0);
     }
-
-    double heatScore = 0.0;
-    Integer browseCount = browseCounts.get(attractionId);
-    if (browseCount != null && browseCount > 0 && maxBrowseCount > 0) {
-      heatScore = Math.log1p(browseCount) / Math.log1p(maxBrowseCount);
-    }
-
-    if (ratingScore == 0.0 && heatScore == 0.0) {
-      return 0.5;
-    }
-    return (ratingScore * 0.7) + (heatScore * 0.3);
-  }
-
-  private double calculateContentScore(String category, List<String> tags, List<String> preferences) {
+    if (request.getUserLongitude() != null && request.getUserLatitude() != null) {
+      appendKeyPart(
+          key,
+          request.getUserLongitude()
+              + ","
+              + request.getUserLatitude()
+              + ","
+              + request.getMaxDistance());
+    } else {
+      appendKeyPart(key, null);
+    }
+    String visitTime = request.getVisitTime();
+    if (visitTime == null || visitTime.isBlank()) {
+      appendKeyPart(key, null);
+    } else {
+      LocalTime time = parseVisitTime(visitTime);
+      LocalDate date = parseVisitDate(visitTime);
+      appendKeyPart(
+          key,
+          (time == null ? "?" : String.valueOf(catalog.timeSegment(time)))
+              + "/"
+              + (date == null ? "?" : isNearNationalDay(date) ? "N" : "O"));
+    }
+    return key.toString();
+  }
+
+  /** Result-cache key of a page: the scoring key plus paging and whether reasons are included. */
+  private String pageKey(String scoringKey, RecommendRequest request) {
+    return scoringKey
+        + (request.getOffset() == null ? 0 : Math.max(0, request.getOffset()))
+        + '|'
+        + (request.getLimit() == null ? "all" : request.getLimit())
+        + (Boolean.FALSE.equals(request.getIncludeReasons()) ? "|-" : "|r");
+  }
+
+  private String detailKey(String scoringKey, String attractionId) {
+    return scoringKey + attractionId;
+  }
+
+  /** Appends a length-prefixed value, so no value can be confused with a separator. */
+  private void appendKeyPart(StringBuilder key, String value) {
+    if (value == null) {
+      key.append("-|");
+    } else {
+      key.append(value.length()).append(':').append(value).append('|');
+    }
+  }
+
+  /**
+   * Counts, per catalog position, how many (preference, tag) pairs match plus two for every
+   * preference matching the category. A preference matches a text when either contains the other.
+   * All preferences are compiled into one automaton that is run once over each distinct tag, the
+   * catalog's tag automaton finds the tags contained in each preference, and the hits are spread
+   * through the inverted tag index, so attractions without any matching tag are never visited. The
+   * request city counts as a tag of every attraction.
+   */
+  private int[] countPreferenceMatches(
+      AttractionCatalog catalog, List<String> preferences, String city) {
+    int[] matches = new int[catalog.size()];
     if (preferences == null || preferences.isEmpty()) {
-      return 0.5;
+      return matches;
     }
-
-    int matches = 0;
+    List<String> patterns = new ArrayList<>(preferences.size());
     for (String preference : preferences) {
-      if (preference == null || preference.isBlank()) {
-        continue;
-      }
-      if (matchesPreference(category, preference)) {
-        matches += 2;
-      }
-      for (String tag : tags) {
-        if (matchesPreference(tag, preference)) {
-          matches += 1;
-        }
-      }
+      patterns.add(preference == null ? null : preference.trim());
     }
 
-    return Math.min(1.0, matches / 5.0);
-  }
-
-  private double calculateUserBasedCFScore(
-      Map<String, Double> targetUserRatings,
-      Map<Long, Map<String, Double>> allRatings,
-      String targetAttractionId) {
-    if (targetUserRatings == null || targetUserRatings.isEmpty()) {
-      return 0.5;
+    AttractionTagIndex tagIndex = catalog.getTagIndex();
+    BitSet[] matchedTags = new BitSet[patterns.size()];
+    for (int i = 0; i < matchedTags.length; i++) {
+      matchedTags[i] = new BitSet(tagIndex.dictionarySize());
+      if (patterns.get(i) != null && !patterns.get(i).isEmpty()) {
+        tagIndex.collectTagsContainedIn(patterns.get(i), matchedTags[i]);
+      }
     }
-
-    if (targetUserRatings.containsKey(targetAttractionId)) {
-      return targetUserRatings.get(targetAttractionId) / 5.0;
+    KeywordAutomaton preferenceMatcher = KeywordAutomaton.of(patterns);
+    BitSet contained = new BitSet(patterns.size());
+    for (int tagId = 0; tagId < tagIndex.dictionarySize(); tagId++) {
+      contained.clear();
+      preferenceMatcher.collect(tagIndex.tag(tagId), contained);
+      for (int i = contained.nextSetBit(0); i >= 0; i = contained.nextSetBit(i + 1)) {
+        matchedTags[i].set(tagId);
+      }
     }
 
-    double weightedSum = 0.0;
-    double similaritySum = 0.0;
-
-    for (Map.Entry<Long, Map<String, Double>> entry : allRatings.entrySet()) {
-      Map<String, Double> otherRatings = entry.getValue();
-      if (otherRatings == targetUserRatings) {
+    String cityTag = city == null || city.isBlank() ? null : city.trim();
+    int cityTagId = tagIndex.tagId(cityTag);
+    for (int i = 0; i < patterns.size(); i++) {
+      String preference = patterns.get(i);
+      if (preference == null || preference.isEmpty()) {
         continue;
       }
-      double similarity = calculateCosineSimilarity(targetUserRatings, otherRatings);
-      if (similarity > 0 && otherRatings.containsKey(targetAttractionId)) {
-        weightedSum += similarity * otherRatings.get(targetAttractionId);
-        similaritySum += similarity;
+      for (int tagId = matchedTags[i].nextSetBit(0);
+          tagId >= 0;
+          tagId = matchedTags[i].nextSetBit(tagId + 1)) {
+        for (int position : tagIndex.attractionsWithTag(tagId)) {
+          matches[position]++;
+        }
       }
-    }
-
-    if (similaritySum == 0.0) {
-      return 0.5;
-    }
-
-    double predictedRating = weightedSum / similaritySum;
-    return predictedRating / 5.0;
-  }
-
-  private double calculateCosineSimilarity(
-      Map<String, Double> ratings1, Map<String, Double> ratings2) {
-    double dotProduct = 0.0;
-    double norm1 = 0.0;
-    double norm2 = 0.0;
-
-    for (Map.Entry<String, Double> entry : ratings1.entrySet()) {
-      String itemId = entry.getKey();
-      double rating = entry.getValue();
-      norm1 += rating * rating;
-      Double otherRating = ratings2.get(itemId);
-      if (otherRating != null) {
-        dotProduct += rating * otherRating;
+      if (cityTag != null && AttractionTagIndex.matchesPreference(cityTag, preference)) {
+        for (int position = 0; position < matches.length; position++) {
+          if (cityTagId < 0 || !tagIndex.hasTag(position, cityTagId)) {
+            matches[position]++;
+          }
+        }
       }
     }
 
-    for (double rating : ratings2.values()) {
-      norm2 += rating * rating;
+    Map<String, Integer> categoryMatches = new HashMap<>();
+    List<CatalogAttraction> attractions = catalog.getAttractions();
+    for (int position = 0; position < matches.length; position++) {
+      int hits =
+          categoryMatches.computeIfAbsent(
+              attractions.get(position).getCategory(),
+              category -> countMatchingPreferences(category, patterns));
+      matches[position] += 2 * hits;
     }
-
-    if (norm1 == 0.0 || norm2 == 0.0) {
-      return 0.0;
-    }
-    return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    return matches;
   }
 
-  private String generateReason(
-      AttractionRecord attraction,
-      List<String> tags,
-      RecommendRequest request,
-      double finalScore,
-      double baseScore,
-      double contentScore,
-      double cfScore,
-      double locationScore,
-      double timeScore,
-      double dateScore,
-      AttractionStageInfo stageInfo) {
-    List<String> reasons = new ArrayList<>();
-
-    if (locationScore >= 0.75) {
-      reasons.add("距离您较近，出行成本低。");
-    }
-    if (dateScore >= 0.75 && isNationalDayRelated(attraction.getName(), tags, attraction.getHistory(), stageInfo)) {
-      reasons.add("与国庆主题相关，节日期间更有意义。");
-    }
-    if (contentScore >= 0.75 && request.getPreferences() != null && !request.getPreferences().isEmpty()) {
-      List<String> hits =
-          request.getPreferences().stream()
-              .filter(pref -> matchesAny(pref, tags))
-              .collect(Collectors.toList());
-      if (!hits.isEmpty()) {
-        reasons.add("匹配您的兴趣标签：" + String.join("、", hits) + "。");
-      }
-    }
-    if (request.getUserId() != null && cfScore >= 0.75) {
-      reasons.add("相似用户评价较高。");
-    }
-    if (baseScore >= 0.75) {
-      reasons.add("综合热度与口碑较高。");
+  /**
+   * Counts the preference matches of one catalog position exactly as {@link
+   * #countPreferenceMatches(AttractionCatalog, List, String)} does, by testing only that
+   * attraction's own tags (with the request city) and category.
+   */
+  private int countPreferenceMatches(
+      AttractionCatalog catalog, int position, List<String> preferences, String city) {
+    if (preferences == null || preferences.isEmpty()) {
+      return 0;
     }
-    if (timeScore >= 0.85) {
-      reasons.add("营业时间匹配您的计划。");
+    List<String> patterns = new ArrayList<>(preferences.size());
+    for (String preference : preferences) {
+      patterns.add(preference == null ? null : preference.trim());
     }
-
-    if (reasons.isEmpty()) {
-      if (finalScore >= 0.75) {
-        reasons.add("综合匹配度较高。");
-      } else if (attraction.getHistory() != null && !attraction.getHistory().isBlank()) {
-        reasons.add(attraction.getHistory());
+    List<String> tags = catalog.getTags(position, city);
+    int matches = 0;
+    for (String preference : patterns) {
+      if (preference == null || preference.isEmpty()) {
+        continue;
       }
-    }
-
-    if (reasons.size() == 1 && reasons.get(0).contains("营业时间")) {
-      if (attraction.getHistory() != null && !attraction.getHistory().isBlank()) {
-        reasons.add(attraction.getHistory());
-      } else {
-        reasons.add("景点内容具有一定的纪念意义。");
+      for (String tag : tags) {
+        if (AttractionTagIndex.matchesPreference(tag, preference)) {
+          matches++;
+        }
       }
     }
-
-    if (reasons.isEmpty()) {
-      return "推荐给您的行程参考。";
-    }
-    return String.join(" ", reasons.stream().limit(2).collect(Collectors.toList()));
+    String category = catalog.getAttractions().get(position).getCategory();
+    return matches + 2 * countMatchingPreferences(category, patterns);
   }
 
-  private boolean matchesAny(String preference, List<String> tags) {
-    if (preference == null || preference.isBlank()) {
-      return false;
-    }
-    for (String tag : tags) {
-      if (matchesPreference(tag, preference)) {
-        return true;
+  private int countMatchingPreferences(String text, List<String> preferences) {
+    int count = 0;
+    for (String preference : preferences) {
+      if (preference != null && !preference.isEmpty() && AttractionTagIndex.matchesPreference(text, preference)) {
+        count++;
       }
     }
-    return false;
+    return count;
   }
 
-  private boolean matchesPreference(String text, String preference) {
-    if (text == null || preference == null) {
-      return false;
-    }
-    String trimmedText = text.trim();
-    String trimmedPref = preference.trim();
-    if (trimmedText.isEmpty() || trimmedPref.isEmpty()) {
-      return false;
-    }
-    return trimmedText.contains(trimmedPref) || trimmedPref.contains(trimmedText);
+  private double calculateBaseScore(String attractionId) {
+    return statsService.popularity(attractionId);
   }
 
-  private void addIfPresent(Set<String> tags, String value) {
-    if (value != null && !value.isBlank()) {
-      tags.add(value.trim());
+  /**
+   * @param matches preference matches of the attraction, see {@link #countPreferenceMatches}
+   */
+  private double calculateContentScore(int matches, List<String> preferences) {
+    if (preferences == null || preferences.isEmpty()) {
+      return 0.5;
     }
+    return Math.min(1.0, matches / 5.0);
   }
 
   private double calculateFinalScore(
@@ -545,7 +735,7 @@ public class RecommendServiceImpl implements RecommendService {
         + dateScore * dateWeight) / totalWeight;
   }
 
-  private double calculateLocationScore(RecommendRequest request, AttractionRecord attraction) {
+  private double calculateLocationScore(RecommendRequest request, CatalogAttraction attraction) {
     double cityMatchScore =
         calculateCityMatchScore(request.getCity(), attraction.getAddress(), attraction.getName());
     if (request.getUserLongitude() == null || request.getUserLatitude() == null) {
@@ -554,7 +744,7 @@ public class RecommendServiceImpl implements RecommendService {
     if (attraction.getLongitude() == null || attraction.getLatitude() == null) {
       return cityMatchScore > 0 ? cityMatchScore : 0.4;
     }
-    double distance = haversine(
+    double distance = AttractionGeoIndex.haversine(
         request.getUserLatitude(),
         request.getUserLongitude(),
         attraction.getLatitude(),
@@ -567,25 +757,25 @@ public class RecommendServiceImpl implements RecommendService {
     return (distanceScore * 0.7) + (cityMatchScore * 0.3);
   }
 
-  private double calculateTimeScore(String visitTime, String businessHours) {
+  private double calculateTimeScore(
+      String visitTime, String businessHours, BusinessHours parsedHours) {
     if (visitTime == null || visitTime.isBlank()) {
       return 0.5;
     }
     if (businessHours == null || businessHours.isBlank()) {
       return 0.4;
     }
-    if (businessHours.contains("全天")) {
+    if (parsedHours != null && parsedHours.isAllDay()) {
       return 1.0;
     }
     LocalTime targetTime = parseVisitTime(visitTime);
     if (targetTime == null) {
       return 0.4;
     }
-    TimeWindow window = parseBusinessHours(businessHours);
-    if (window == null) {
+    if (parsedHours == null) {
       return 0.4;
     }
-    return window.isWithin(targetTime) ? 1.0 : 0.2;
+    return parsedHours.isOpenAt(targetTime) ? 1.0 : 0.2;
   }
 
   private LocalTime parseVisitTime(String visitTime) {
@@ -600,22 +790,13 @@ public class RecommendServiceImpl implements RecommendService {
     }
   }
 
-  private double calculateDateRelevanceScore(
-      String visitTime,
-      String name,
-      List<String> tags,
-      String history,
-      AttractionStageInfo stageInfo) {
+  private double calculateDateRelevanceScore(String visitTime, boolean related) {
     LocalDate targetDate = parseVisitDate(visitTime);
     if (targetDate == null) {
       return 0.5;
     }
 
-    LocalDate nationalDay =
-        LocalDate.of(targetDate.getYear(), NATIONAL_DAY_MONTH, NATIONAL_DAY_DAY);
-    long days = Math.abs(ChronoUnit.DAYS.between(targetDate, nationalDay));
-    boolean nearNationalDay = days <= NATIONAL_DAY_WINDOW_DAYS;
-    boolean related = isNationalDayRelated(name, tags, history, stageInfo);
+    boolean nearNationalDay = isNearNationalDay(targetDate);
 
     if (nearNationalDay) {
       return related ? 1.0 : 0.4;
@@ -623,6 +804,11 @@ public class RecommendServiceImpl implements RecommendService {
     return related ? 0.6 : 0.5;
   }
 
+  private boolean isNearNationalDay(LocalDate date) {
+    LocalDate nationalDay = LocalDate.of(date.getYear(), NATIONAL_DAY_MONTH, NATIONAL_DAY_DAY);
+    return Math.abs(ChronoUnit.DAYS.between(date, nationalDay)) <= NATIONAL_DAY_WINDOW_DAYS;
+  }
+
   private LocalDate parseVisitDate(String visitTime) {
     if (visitTime == null || visitTime.isBlank()) {
       return null;
@@ -638,37 +824,13 @@ public class RecommendServiceImpl implements RecommendService {
     }
   }
 
+  /**
+   * @param cityMentionsNationalDay whether the request city, which counts as a tag of every
+   *     attraction, contains a National Day keyword
+   */
   private boolean isNationalDayRelated(
-      String name, List<String> tags, String history, AttractionStageInfo stageInfo) {
-    List<String> keywords =
-        List.of("国庆", "建国", "开国", "新中国", "中华人民共和国成立", "天安门", "开国大典", "首都");
-    if (containsAny(name, keywords) || containsAny(history, keywords)) {
-      return true;
-    }
-    if (stageInfo != null
-        && (containsAny(stageInfo.stageName(), keywords))) {
-      return true;
-    }
-    if (tags != null) {
-      for (String tag : tags) {
-        if (containsAny(tag, keywords)) {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  private boolean containsAny(String text, List<String> keywords) {
-    if (text == null || text.isBlank()) {
-      return false;
-    }
-    for (String keyword : keywords) {
-      if (keyword != null && !keyword.isBlank() && text.contains(keyword)) {
-        return true;
-      }
-    }
-    return false;
+      AttractionCatalog catalog, int position, boolean cityMentionsNationalDay) {
+    return cityMentionsNationalDay || catalog.isNationalDayRelated(position);
   }
 
   private double calculateCityMatchScore(String city, String address, String name) {
@@ -683,217 +845,108 @@ public class RecommendServiceImpl implements RecommendService {
     return 0.0;
   }
 
-  private TimeWindow parseBusinessHours(String businessHours) {
-    String normalized = businessHours.replaceAll("\\s", "");
-    String[] parts = normalized.split("[-~至]");
-    if (parts.length < 2) {
-      return null;
-    }
-    LocalTime start = parseHourMinute(parts[0]);
-    LocalTime end = parseHourMinute(parts[1]);
-    if (start == null || end == null) {
-      return null;
-    }
-    return new TimeWindow(start, end);
-  }
-
-  private LocalTime parseHourMinute(String value) {
-    String cleaned = value.replaceAll("[^0-9:]", "");
-    if (cleaned.isEmpty()) {
-      return null;
-    }
-    if (!cleaned.contains(":") && cleaned.length() == 4) {
-      cleaned = cleaned.substring(0, 2) + ":" + cleaned.substring(2);
-    }
-    try {
-      return LocalTime.parse(cleaned);
-    } catch (DateTimeParseException ex) {
-      return null;
-    }
-  }
-
-  private String formatCategory(int categoryId) {
-    switch (categoryId) {
-      case 1:
-        return "Revolutionary Site";
-      case 2:
-        return "Celebrity Residence";
-      case 3:
-        return "Memorial Hall";
-      case 4:
-        return "Martyr Cemetery";
-      case 5:
-        return "Patriotic Education Base";
-      default:
-        return "Category-" + categoryId;
-    }
-  }
-
-  private Connection openConnection() throws SQLException {
-    return DriverManager.getConnection(databaseUrl);
-  }
-
-  private String resolveDatabaseUrl() {
-    String override = System.getenv("REDSEEKER_DB_PATH");
-    if (override != null && !override.isBlank()) {
-      return "jdbc:sqlite:" + override;
-    }
-    Path direct = Paths.get("database", "red_tourism.db");
-    if (Files.exists(direct)) {
-      return "jdbc:sqlite:" + direct.toAbsolutePath();
-    }
-    Path parent = Paths.get("..", "database", "red_tourism.db");
-    if (Files.exists(parent)) {
-      return "jdbc:sqlite:" + parent.toAbsolutePath();
-    }
-    return "jdbc:sqlite:database/red_tourism.db";
-  }
-
-  private Map<String, AttractionStageInfo> loadAttractionStages() {
-    String sql =
-        "SELECT a.id AS attraction_id, MIN(he.start_year) AS start_year, "
-            + "MAX(he.end_year) AS end_year, MIN(he.period) AS period "
-            + "FROM attractions a "
-            + "LEFT JOIN attraction_events ae ON ae.attraction_id = a.id "
-            + "LEFT JOIN historical_events he ON he.id = ae.event_id "
-            + "GROUP BY a.id";
-    Map<String, AttractionStageInfo> result = new HashMap<>();
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        ResultSet resultSet = statement.executeQuery()) {
-      while (resultSet.next()) {
-        String id = String.valueOf(resultSet.getInt("attraction_id"));
-        Integer start = resultSet.getObject("start_year", Integer.class);
-        Integer end = resultSet.getObject("end_year", Integer.class);
-        String period = resultSet.getString("period");
-        result.put(id, new AttractionStageInfo(start, end, period));
+  /**
+   * Per-position score components of one request, kept so breakdowns and reasons can be built
+   * after selection.
+   */
+  private static final class ScoreBreakdown {
+    private final double[] base;
+    private final double[] content;
+    private final double[] cf;
+    private final double[] location;
+    private final double[] time;
+    private final double[] date;
+    private final double[] total;
+
+    private ScoreBreakdown(int size) {
+      this.base = new double[size];
+      this.content = new double[size];
+      this.cf = new double[size];
+      this.location = new double[size];
+      this.time = new double[size];
+      this.date = new double[size];
+      this.total = new double[size];
+    }
+
+    private ScoreDetail detail(int position, boolean nationalDayRelated) {
+      return new ScoreDetail(
+          total[position],
+          base[position],
+          content[position],
+          cf[position],
+          location[position],
+          time[position],
+          date[position],
+          nationalDayRelated);
+    }
+  }
+
+  /**
+   * Scores a range of candidates, splitting it in halves on the scoring pool while it is larger
+   * than a partition; large rankings are always submitted to that pool with {@code invoke}. Each
+   * leaf keeps its own top-K heap and heaps are merged pairwise; the ranking order (score, then
+   * position) is total, so the result does not depend on scheduling.
+   */
+  private final class ScoringTask extends RecursiveTask<TopKSelector> {
+    private final RecommendRequest request;
+    private final AttractionCatalog catalog;
+    private final int[] candidates;
+    private final int[] preferenceMatches;
+    private final double[] cfScores;
+    private final ScoreBreakdown scores;
+    private final int capacity;
+    private final int from;
+    private final int to;
+
+    private ScoringTask(
+        RecommendRequest request,
+        AttractionCatalog catalog,
+        int[] candidates,
+        int[] preferenceMatches,
+        double[] cfScores,
+        ScoreBreakdown scores,
+        int capacity,
+        int from,
+        int to) {
+      this.request = request;
+      this.catalog = catalog;
+      this.candidates = candidates;
+      this.preferenceMatches = preferenceMatches;
+      this.cfScores = cfScores;
+      this.scores = scores;
+      this.capacity = capacity;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected TopKSelector compute() {
+      int partitionSize =
+          Math.max(
+              MIN_PARTITION_SIZE,
+              catalog.size() / (scoringPool.getParallelism() * PARTITIONS_PER_THREAD));
+      // Only split on the scoring pool itself. A caller that happens to run on another pool (the
+      // common pool, say) scores sequentially instead of forking onto that pool.
+      if (to - from <= partitionSize || getPool() != scoringPool) {
+        TopKSelector selector = new TopKSelector(scores.total, capacity);
+        scoreRange(
+            request, catalog, candidates, preferenceMatches, cfScores, scores, selector, from, to);
+        return selector;
       }
-    } catch (SQLException ex) {
-      LOGGER.warn("Failed to load attraction stage info", ex);
-    }
-    return result;
-  }
-
-  private RatingSummary loadRatingSummary() {
-    String sql = "SELECT AVG(rating) AS avg_rating, COUNT(*) AS cnt FROM attraction_ratings";
-    try (Connection connection = openConnection();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        ResultSet resultSet = statement.executeQuery()) {
-      if (resultSet.next()) {
-        double avg = resultSet.getDouble("avg_rating");
-        int cnt = resultSet.getInt("cnt");
-        return new RatingSummary(avg, cnt, 5);
+      int middle = (from + to) >>> 1;
+      ScoringTask left = split(from, middle);
+      ScoringTask right = split(middle, to);
+      right.fork();
+      TopKSelector merged = left.compute();
+      for (int position : right.join().drainSorted()) {
+        merged.offer(position);
       }
-    } catch (SQLException ex) {
-      LOGGER.warn("Failed to load rating summary", ex);
-    }
-    return new RatingSummary(3.5, 0, 5);
-  }
-
-  private double haversine(double lat1, double lon1, double lat2, double lon2) {
-    double earthRadius = 6371000.0;
-    double dLat = Math.toRadians(lat2 - lat1);
-    double dLon = Math.toRadians(lon2 - lon1);
-    double a =
-        Math.sin(dLat / 2) * Math.sin(dLat / 2)
-            + Math.cos(Math.toRadians(lat1))
-                * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-    return earthRadius * c;
-  }
-
-  private record RatingSummary(double averageRating, int totalCount, int priorCount) {}
-
-  private record AttractionStageInfo(Integer stageStart, Integer stageEnd, String stageName) {}
-
-  private record TimeWindow(LocalTime start, LocalTime end) {
-    private boolean isWithin(LocalTime time) {
-      if (start.equals(end)) {
-        return true;
-      }
-      if (start.isBefore(end)) {
-        return !time.isBefore(start) && !time.isAfter(end);
-      }
-      return !time.isBefore(start) || !time.isAfter(end);
-    }
-  }
-
-  private static final class AttractionRecord {
-    private final String id;
-    private final String name;
-    private final String address;
-    private final int categoryId;
-    private final String briefIntro;
-    private final String history;
-    private final String businessHours;
-    private final Double perCapitaConsumption;
-    private final Double longitude;
-    private final Double latitude;
-
-    private AttractionRecord(
-        String id,
-        String name,
-        String address,
-        int categoryId,
-        String briefIntro,
-        String history,
-        String businessHours,
-        Double perCapitaConsumption,
-        Double longitude,
-        Double latitude) {
-      this.id = id;
-      this.name = name;
-      this.address = address;
-      this.categoryId = categoryId;
-      this.briefIntro = briefIntro;
-      this.history = history;
-      this.businessHours = businessHours;
-      this.perCapitaConsumption = perCapitaConsumption;
-      this.longitude = longitude;
-      this.latitude = latitude;
-    }
-
-    private String getId() {
-      return id;
-    }
-
-    private String getName() {
-      return name;
-    }
-
-    private String getAddress() {
-      return address;
-    }
-
-    private int getCategoryId() {
-      return categoryId;
-    }
-
-    private String getBusinessHours() {
-      return businessHours;
-    }
-
-    private Double getPerCapitaConsumption() {
-      return perCapitaConsumption;
-    }
-
-    private String getHistory() {
-      if (history != null && !history.isBlank()) {
-        return history;
-      }
-      if (briefIntro != null && !briefIntro.isBlank()) {
-        return briefIntro;
-      }
-      return address;
-    }
-
-    private Double getLongitude() {
-      return longitude;
+      return merged;
     }
 
-    private Double getLatitude() {
-      return latitude;
+    private ScoringTask split(int start, int end) {
+      return new ScoringTask(
+          request, catalog, candidates, preferenceMatches, cfScores, scores, capacity, start, end);
     }
   }
 }
@@ -0,0 +1,67 @@
+package com.redseeker.recommend;
+
+/**
+ * Score components of one attraction for one request: what its reason is rendered from, kept in
+ * {@link RecommendResultCache} so reasons can be fetched after the page was ranked.
+ */
+final class ScoreDetail {
+  private final double total;
+  private final double base;
+  private final double content;
+  private final double cf;
+  private final double location;
+  private final double time;
+  private final double date;
+  private final boolean nationalDayRelated;
+
+  ScoreDetail(
+      double total,
+      double base,
+      double content,
+      double cf,
+      double location,
+      double time,
+      double date,
+      boolean nationalDayRelated) {
+    this.total = total;
+    this.base = base;
+    this.content = content;
+    this.cf = cf;
+    this.location = location;
+    this.time = time;
+    this.date = date;
+    this.nationalDayRelated = nationalDayRelated;
+  }
+
+  double getTotal() {
+    return total;
+  }
+
+  double getBase() {
+    return base;
+  }
+
+  double getContent() {
+    return content;
+  }
+
+  double getCf() {
+    return cf;
+  }
+
+  double getLocation() {
+    return location;
+  }
+
+  double getTime() {
+    return time;
+  }
+
+  double getDate() {
+    return date;
+  }
+
+  boolean isNationalDayRelated() {
+    return nationalDayRelated;
+  }
+}
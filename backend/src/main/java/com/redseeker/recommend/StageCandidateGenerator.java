@@ -0,0 +1,98 @@
+package com.redseeker.recommend;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Attractions from the historical stages the request is interested in: stages whose name matches a
+ * preference (either containing the other) and stages of attractions the user rated highly. Each
+ * attraction is weighted by the number of such votes its stage received.
+ */
+@Component
+@Order(5)
+class StageCandidateGenerator implements CandidateGenerator {
+  private static final int[] NONE = new int[0];
+  private static final float LIKED_RATING = 4.0f;
+
+  private final RatingMatrixService ratingMatrixService;
+
+  StageCandidateGenerator(RatingMatrixService ratingMatrixService) {
+    this.ratingMatrixService = ratingMatrixService;
+  }
+
+  @Override
+  public String name() {
+    return "stage";
+  }
+
+  @Override
+  public int[] generate(CandidateQuery query) {
+    AttractionCatalog catalog = query.getCatalog();
+    List<CatalogAttraction> attractions = catalog.getAttractions();
+    Map<String, Integer> votes = new HashMap<>();
+
+    List<String> preferences = query.getRequest().getPreferences();
+    if (preferences != null && !preferences.isEmpty()) {
+      Set<String> seen = new HashSet<>();
+      for (CatalogAttraction attraction : attractions) {
+        String stage = stageOf(attraction);
+        if (stage != null && seen.add(stage)) {
+          int matches = countMatches(stage, preferences);
+          if (matches > 0) {
+            votes.put(stage, matches);
+          }
+        }
+      }
+    }
+
+    Long userId = query.getRequest().getUserId();
+    if (userId != null) {
+      RatingMatrix ratings = ratingMatrixService.snapshot();
+      int user = ratings.userIndex(userId);
+      if (user >= 0) {
+        int[] items = ratings.items(user);
+        float[] values = ratings.ratings(user);
+        for (int i = 0; i < items.length; i++) {
+          if (values[i] < LIKED_RATING) {
+            continue;
+          }
+          CatalogAttraction liked = catalog.get(ratings.itemId(items[i]));
+          String stage = liked == null ? null : stageOf(liked);
+          if (stage != null) {
+            votes.merge(stage, 1, Integer::sum);
+          }
+        }
+      }
+    }
+
+    if (votes.isEmpty()) {
+      return NONE;
+    }
+    double[] signal = new double[attractions.size()];
+    for (int position = 0; position < signal.length; position++) {
+      String stage = stageOf(attractions.get(position));
+      signal[position] = stage == null ? 0 : votes.getOrDefault(stage, 0);
+    }
+    return query.top(signal);
+  }
+
+  private static String stageOf(CatalogAttraction attraction) {
+    String stage = attraction.getStageName();
+    return stage == null || stage.isBlank() ? null : stage.trim();
+  }
+
+  private static int countMatches(String stage, List<String> preferences) {
+    int count = 0;
+    for (String preference : preferences) {
+      if (AttractionTagIndex.matchesPreference(stage, preference)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
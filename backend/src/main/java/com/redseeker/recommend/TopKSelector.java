@@ -0,0 +1,92 @@
+package com.redseeker.recommend;
+
+/**
+ * Bounded binary heap selecting the {@code capacity} best catalog positions by score without
+ * boxing. The root holds the worst retained position, so each offer costs O(log capacity). Ties are
+ * broken by lower position first, which matches a stable descending sort of the catalog.
+ */
+final class TopKSelector {
+  private final double[] scores;
+  private final int[] heap;
+  private int size;
+
+  /**
+   * @param scores scores indexed by catalog position; read, never modified
+   */
+  TopKSelector(double[] scores, int capacity) {
+    this.scores = scores;
+    this.heap = new int[Math.max(0, capacity)];
+  }
+
+  void offer(int position) {
+    if (heap.length == 0) {
+      return;
+    }
+    if (size < heap.length) {
+      heap[size] = position;
+      siftUp(size++);
+    } else if (ranksBefore(position, heap[0])) {
+      heap[0] = position;
+      siftDown(0);
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Drains the heap.
+   *
+   * @return the retained positions, best first
+   */
+  int[] drainSorted() {
+    int[] result = new int[size];
+    for (int i = result.length - 1; i >= 0; i--) {
+      result[i] = heap[0];
+      heap[0] = heap[--size];
+      siftDown(0);
+    }
+    return result;
+  }
+
+  private boolean ranksBefore(int position, int other) {
+    double score = scores[position];
+    double otherScore = scores[other];
+    if (score != otherScore) {
+      return score > otherScore;
+    }
+    return position < other;
+  }
+
+  private void siftUp(int index) {
+    int node = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!ranksBefore(heap[parent], node)) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = node;
+  }
+
+  private void siftDown(int index) {
+    int node = heap[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < size && ranksBefore(heap[child], heap[right])) {
+        child = right;
+      }
+      if (!ranksBefore(node, heap[child])) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = node;
+  }
+}
@@ -0,0 +1,41 @@
+package com.redseeker.recommend;
+
+public class TrendingAttraction {
+  private final String id;
+  private final String name;
+  private final String category;
+  private final double score; // Decayed browse count, see TrendingService
+  private final int recentBrowses;
+
+  public TrendingAttraction(
+      String id, String name, String category, double score, int recentBrowses) {
+    this.id = id;
+    this.name = name;
+    this.category = category;
+    this.score = score;
+    this.recentBrowses = recentBrowses;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  /**
+   * @return browses inside the trending window (seven days by default)
+   */
+  public int getRecentBrowses() {
+    return recentBrowses;
+  }
+}
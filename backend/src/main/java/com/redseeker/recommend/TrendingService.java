@@ -0,0 +1,330 @@
+package com.redseeker.recommend;
+
+import com.redseeker.common.DatabasePaths;
+import com.redseeker.user.BrowseChangedEvent;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Recent browse activity per attraction: a ring of time buckets (hourly over seven days by
+ * default) counting browses inside the window, and an exponentially decayed trending score.
+ *
+ * <p>Scores use forward decay: each browse at time {@code t} adds {@code 2^((t - L) / halfLife)}
+ * for a fixed landmark {@code L}, and reading multiplies by {@code 2^(-(now - L) / halfLife)}. So
+ * both updates and reads are O(1), and since every score decays by the same factor, their order and
+ * ratios only change when browses arrive. The landmark is moved forward before the exponents grow
+ * too large.
+ *
+ * <p>Browses are loaded from {@code user_browse_history} within the window and then kept current
+ * from {@link BrowseChangedEvent}s; browses older than the window are ignored. Removed or moved
+ * browse records are only reflected by the periodic reconcile, which reloads the window from SQL.
+ */
+@Service
+public class TrendingService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TrendingService.class);
+  private static final int RECONCILE_ATTEMPTS = 3;
+  private static final double MAX_HALF_LIVES = 60.0;
+  // CURRENT_TIMESTAMP format of SQLite, in UTC.
+  private static final DateTimeFormatter BROWSE_TIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  private final String databaseUrl;
+  private final long bucketMillis;
+  private final int bucketCount;
+  private final double halfLifeMillis;
+
+  // Replaced wholesale by reconcile; mutated in place by events. Guarded by this for writes.
+  private volatile Snapshot snapshot;
+  private long writes;
+  private volatile long version;
+
+  public TrendingService(
+      DatabasePaths databasePaths,
+      @Value("${recommend.trending.bucket-ms:3600000}") long bucketMillis,
+      @Value("${recommend.trending.buckets:168}") int bucketCount,
+      @Value("${recommend.trending.half-life-ms:86400000}") long halfLifeMillis) {
+    this.databaseUrl = databasePaths.getDatabaseUrl();
+    this.bucketMillis = Math.max(1, bucketMillis);
+    this.bucketCount = Math.max(1, bucketCount);
+    this.halfLifeMillis = Math.max(1, halfLifeMillis);
+    long now = System.currentTimeMillis();
+    snapshot = new Snapshot(now - windowMillis());
+    try {
+      snapshot = loadSnapshot(now);
+    } catch (SQLException ex) {
+      LOGGER.error("Failed to load browse history for trending; starting empty until reconcile",
+          ex);
+    }
+  }
+
+  /**
+   * @return the decayed number of recent browses: each browse counts 1 when it happens and half as
+   *     much after every half-life
+   */
+  public double score(String attractionId) {
+    Snapshot current = snapshot;
+    Counter counter = current.counters.get(attractionId);
+    if (counter == null) {
+      return 0.0;
+    }
+    return counter.forward
+        * Math.pow(2, -(System.currentTimeMillis() - current.landmark) / halfLifeMillis);
+  }
+
+  /**
+   * @return the trending score relative to the top attraction's, in [0, 1]
+   */
+  public double normalizedScore(String attractionId) {
+    Snapshot current = snapshot;
+    Counter counter = current.counters.get(attractionId);
+    double max = current.maxForward;
+    return counter == null || max <= 0 ? 0.0 : Math.min(1.0, counter.forward / max);
+  }
+
+  /**
+   * @return the number of browses inside the window
+   */
+  public synchronized int recentCount(String attractionId) {
+    Counter counter = snapshot.counters.get(attractionId);
+    return counter == null
+        ? 0
+        : counter.countSince(Math.floorDiv(System.currentTimeMillis(), bucketMillis));
+  }
+
+  /**
+   * @return ids of the attractions with the highest trending scores, best first; attractions
+   *     without recent browses are never included
+   */
+  public List<String> top(int limit) {
+    Snapshot current = snapshot;
+    Comparator<Map.Entry<String, Counter>> byScore =
+        Comparator.comparingDouble((Map.Entry<String, Counter> entry) -> entry.getValue().forward)
+            .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+    PriorityQueue<Map.Entry<String, Counter>> best = new PriorityQueue<>(byScore);
+    for (Map.Entry<String, Counter> entry : current.counters.entrySet()) {
+      if (entry.getValue().forward <= 0) {
+        continue;
+      }
+      best.add(entry);
+      if (best.size() > limit) {
+        best.poll();
+      }
+    }
+    List<String> ids = new ArrayList<>(best.size());
+    while (!best.isEmpty()) {
+      ids.add(best.poll().getKey());
+    }
+    Collections.reverse(ids);
+    return ids;
+  }
+
+  /**
+   * @return a counter that changes whenever any score may have changed relative to the others
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Counts new browse records only. Updates and deletions do not say when the old record was
+   * browsed, so its bucket is unknown; they are left to the next reconcile instead of being
+   * counted as new browses.
+   */
+  @EventListener
+  public synchronized void onBrowseChanged(BrowseChangedEvent event) {
+    if (event.getAttractionId() == null || event.getPreviousAttractionId() != null) {
+      return;
+    }
+    writes++;
+    version++;
+    long now = System.currentTimeMillis();
+    snapshot.add(
+        String.valueOf(event.getAttractionId()), browseMillis(event.getBrowseTime(), now), now);
+  }
+
+  /**
+   * Reloads the window from SQL. The result is discarded and the attempt repeated when a browse
+   * event arrived while the query ran, since it may or may not be reflected in it.
+   */
+  @Scheduled(
+      fixedDelayString = "${recommend.trending.reconcile-interval-ms:600000}",
+      initialDelayString = "${recommend.trending.reconcile-interval-ms:600000}")
+  public void reconcile() {
+    for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+      long writesBefore;
+      synchronized (this) {
+        writesBefore = writes;
+      }
+      Snapshot loaded;
+      try {
+        loaded = loadSnapshot(System.currentTimeMillis());
+      } catch (SQLException ex) {
+        LOGGER.warn("Failed to reconcile trending counters", ex);
+        return;
+      }
+      synchronized (this) {
+        if (writes == writesBefore) {
+          snapshot = loaded;
+          version++;
+          return;
+        }
+      }
+    }
+    LOGGER.debug("Skipped trending reconcile: browses kept arriving during the query");
+  }
+
+  private Snapshot loadSnapshot(long now) throws SQLException {
+    Snapshot loaded = new Snapshot(now - windowMillis());
+    String sql =
+        "SELECT attraction_id, browse_time FROM user_browse_history WHERE browse_time >= ?";
+    try (Connection connection = openConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(
+          1,
+          BROWSE_TIME_FORMAT.format(
+              LocalDateTime.ofInstant(Instant.ofEpochMilli(now - windowMillis()), ZoneOffset.UTC)));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          loaded.add(
+              String.valueOf(resultSet.getLong("attraction_id")),
+              browseMillis(resultSet.getString("browse_time"), now),
+              now);
+        }
+      }
+    }
+    return loaded;
+  }
+
+  private long windowMillis() {
+    return bucketMillis * bucketCount;
+  }
+
+  /**
+   * @return the browse time in epoch millis, or {@code now} when it is missing or unparseable
+   */
+  private long browseMillis(String browseTime, long now) {
+    if (browseTime == null || browseTime.isBlank()) {
+      return now;
+    }
+    try {
+      return LocalDateTime.parse(browseTime.trim(), BROWSE_TIME_FORMAT)
+          .toInstant(ZoneOffset.UTC)
+          .toEpochMilli();
+    } catch (DateTimeParseException ex) {
+      return now;
+    }
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+
+  /**
+   * Browse counts of one attraction per bucket, in a ring indexed by bucket number modulo the
+   * bucket count, plus its forward-decayed score. Mutated only while holding the service lock.
+   */
+  private final class Counter {
+    private final int[] buckets = new int[bucketCount];
+    private long newestBucket = Long.MIN_VALUE;
+    private int windowTotal;
+    private volatile double forward;
+
+    private void addBrowse(long bucket) {
+      if (newestBucket == Long.MIN_VALUE) {
+        newestBucket = bucket;
+      } else if (bucket > newestBucket) {
+        // Slots of the buckets the ring advances over still hold counts that left the window.
+        if (bucket - newestBucket >= bucketCount) {
+          Arrays.fill(buckets, 0);
+          windowTotal = 0;
+        } else {
+          for (long next = newestBucket + 1; next <= bucket; next++) {
+            int slot = slot(next);
+            windowTotal -= buckets[slot];
+            buckets[slot] = 0;
+          }
+        }
+        newestBucket = bucket;
+      } else if (bucket <= newestBucket - bucketCount) {
+        return;
+      }
+      buckets[slot(bucket)]++;
+      windowTotal++;
+    }
+
+    /**
+     * @return browses in the window ending at {@code currentBucket}
+     */
+    private int countSince(long currentBucket) {
+      if (newestBucket == Long.MIN_VALUE || newestBucket <= currentBucket - bucketCount) {
+        return 0;
+      }
+      int total = windowTotal;
+      for (long expired = newestBucket - bucketCount + 1;
+          expired <= currentBucket - bucketCount;
+          expired++) {
+        total -= buckets[slot(expired)];
+      }
+      return total;
+    }
+
+    private int slot(long bucket) {
+      return (int) Math.floorMod(bucket, (long) bucketCount);
+    }
+  }
+
+  /** One generation of counters sharing a landmark; see the class comment. */
+  private final class Snapshot {
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile double landmark;
+    private volatile double maxForward;
+
+    private Snapshot(long landmark) {
+      this.landmark = landmark;
+    }
+
+    private void add(String attractionId, long browseMillis, long now) {
+      if (browseMillis <= now - windowMillis()) {
+        return;
+      }
+      if ((browseMillis - landmark) / halfLifeMillis > MAX_HALF_LIVES) {
+        rebase(now - windowMillis());
+      }
+      Counter counter = counters.computeIfAbsent(attractionId, key -> new Counter());
+      counter.addBrowse(Math.floorDiv(browseMillis, bucketMillis));
+      counter.forward += Math.pow(2, (browseMillis - landmark) / halfLifeMillis);
+      maxForward = Math.max(maxForward, counter.forward);
+    }
+
+    private void rebase(double newLandmark) {
+      double factor = Math.pow(2, -(newLandmark - landmark) / halfLifeMillis);
+      for (Counter counter : counters.values()) {
+        counter.forward *= factor;
+      }
+      maxForward *= factor;
+      landmark = newLandmark;
+    }
+  }
+}
@@ -1,66 +1,394 @@
 package com.redseeker.recommend;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.zhipu.oapi.ClientV4;
 import com.zhipu.oapi.Constants;
-import com.zhipu.oapi.service.v4.model.ChatCompletionRequest;
-import com.zhipu.oapi.service.v4.model.ChatMessage;
 import com.zhipu.oapi.service.v4.model.ChatMessageRole;
-import com.zhipu.oapi.service.v4.model.ModelApiResponse;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Chat completions over one long-lived HTTP client. Every upstream call passes a semaphore
+ * bulkhead ({@code zhipu.api.max-concurrent} permits, waiting at most
+ * {@code zhipu.api.acquire-timeout-ms}) so a slow model cannot tie up every request thread.
+ * Successful completions are cached by normalized prompt in {@link AiCompletionCache}, and
+ * identical blocking prompts already in flight share one upstream call.
+ */
 @Service
 public class ZhipuAiServiceImpl implements AiService {
 
     @Value("${zhipu.api.key:}")
     private String apiKey;
 
+    /** OpenAI-style endpoint root; point it at a stub server in tests. */
+    @Value("${zhipu.api.base-url:https://open.bigmodel.cn/api/paas/v4}")
+    private String baseUrl;
+
+    @Value("${zhipu.api.timeout-ms:60000}")
+    private long timeoutMs;
+
+    @Value("${zhipu.api.stream-timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${zhipu.api.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
+
     private static final String MODEL = Constants.ModelChatGLM4;
+    private static final String SSE_DATA_PREFIX = "data:";
+    private static final String SSE_DONE = "[DONE]";
+    private static final String NO_KEY_MESSAGE =
+            "Error: API Key not configured. Please set zhipu.api.key in application.yml";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AiCompletionCache completionCache;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0L);
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // Shared by all calls: keeps connections alive and needs no thread per streaming request.
+    private final HttpClient httpClient =
+            HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    public ZhipuAiServiceImpl(
+            AiCompletionCache completionCache,
+            @Value("${zhipu.api.max-concurrent:4}") int maxConcurrent) {
+        this.completionCache = completionCache;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+    }
 
     @Override
     public String generateContent(String prompt) {
         if (apiKey == null || apiKey.isEmpty()) {
-            return "Error: API Key not configured. Please set zhipu.api.key in application.yml";
+            return NO_KEY_MESSAGE;
         }
 
-        ClientV4 client = new ClientV4.Builder(apiKey).build();
+        String key = cacheKey(prompt);
+        String cached = completionCache.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
 
-        List<ChatMessage> messages = new ArrayList<>();
-        ChatMessage chatMessage = new ChatMessage(ChatMessageRole.USER.value(), prompt);
-        messages.add(chatMessage);
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            coalesced.increment();
+            try {
+                return leader.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "Error calling Zhipu AI: interrupted";
+            } catch (ExecutionException e) {
+                return "Error calling Zhipu AI: " + e.getCause().getMessage();
+            }
+        }
 
-        String requestId = String.format("request-%d", System.currentTimeMillis());
+        try {
+            String content = complete(prompt);
+            completionCache.put(key, content);
+            call.complete(content);
+            return content;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            return "Error calling Zhipu AI: " + e.getMessage();
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
 
-        ChatCompletionRequest chatCompletionRequest = ChatCompletionRequest.builder()
-                .model(MODEL)
-                .stream(Boolean.FALSE)
-                .invokeMethod(Constants.invokeMethod)
-                .messages(messages)
-                .requestId(requestId)
-                .build();
+    @Override
+    public CompletableFuture<String> streamContent(String prompt, Consumer<String> onDelta) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            onDelta.accept(NO_KEY_MESSAGE);
+            return CompletableFuture.completedFuture(NO_KEY_MESSAGE);
+        }
 
-        ModelApiResponse invokeModelApiResp = client.invokeModelApi(chatCompletionRequest);
+        String key = cacheKey(prompt);
+        String cached = completionCache.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            onDelta.accept(cached);
+            return CompletableFuture.completedFuture(cached);
+        }
 
-        if (invokeModelApiResp.getCode() != 200) {
-            return "Error calling Zhipu AI: " + invokeModelApiResp.getMsg();
+        HttpRequest request;
+        try {
+            request = chatRequest(prompt, true, streamTimeoutMs);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            acquire();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        upstreamCalls.increment();
+        SseDeltaSubscriber subscriber = new SseDeltaSubscriber(onDelta);
+        CompletableFuture<HttpResponse<String>> upstream;
+        try {
+            upstream = httpClient.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(
+                    subscriber, SseDeltaSubscriber::result, "\n"));
+        } catch (RuntimeException e) {
+            permits.release();
+            failures.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<String> content = new CompletableFuture<>();
+        upstream.whenComplete((result, error) -> {
+            if (error != null) {
+                content.completeExceptionally(
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else if (result.statusCode() != 200) {
+                content.completeExceptionally(new IllegalStateException(
+                        "Zhipu AI returned HTTP " + result.statusCode() + ": " + subscriber.rawBody()));
+            } else {
+                content.complete(result.body());
+            }
+        });
+        // The request timeout only bounds the wait for response headers; this bounds the whole
+        // stream. A deadline, or a caller cancelling the returned future, aborts the upstream call.
+        // The permit is returned here rather than when the upstream future completes: after a
+        // cancellation that future may never complete.
+        content.orTimeout(streamTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((text, error) -> {
+            permits.release();
+            if (error == null) {
+                completionCache.put(key, text);
+            } else {
+                if (!(error instanceof CancellationException)) {
+                    failures.increment();
+                }
+                subscriber.cancel();
+                upstream.cancel(true);
+            }
+        });
+        return content;
+    }
+
+    @Override
+    public AiClientStats getStats() {
+        long acquired = acquisitions.sum();
+        return new AiClientStats(
+                maxConcurrent,
+                maxConcurrent - permits.availablePermits(),
+                waiting.get(),
+                upstreamCalls.sum(),
+                failures.sum(),
+                rejections.sum(),
+                cacheHits.sum(),
+                coalesced.sum(),
+                acquired == 0 ? 0.0 : queueNanos.sum() / 1_000_000.0 / acquired,
+                maxQueueNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Makes one blocking upstream call inside the bulkhead.
+     *
+     * @return the generated content
+     */
+    private String complete(String prompt) {
+        HttpRequest request;
+        try {
+            request = chatRequest(prompt, false, timeoutMs);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
         }
-        
+        acquire();
+        upstreamCalls.increment();
         try {
-            // The response structure is complex, we simplify it here to just get the content text
-            // Typically: data -> choices -> index 0 -> message -> content
-            // The SDK might return a mapped object or a raw one.
-            // ModelApiResponse.getData().getChoices().get(0).getMessage().getContent()
-            // However, to avoid import errors if method names changed, we can serialize/inspect or use safe getters.
-            // Let's assume standard structure:
-            return invokeModelApiResp.getData().getChoices().get(0).getMessage().getContent().toString();
-        } catch (Exception e) {
-            return "Error parsing AI response: " + e.getMessage();
+            HttpResponse<String> response =
+                    httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+            }
+            JsonNode content = objectMapper.readTree(response.body())
+                    .path("choices").path(0).path("message").path("content");
+            if (!content.isTextual()) {
+                throw new IllegalStateException("Unexpected response: " + response.body());
+            }
+            return content.asText();
+        } catch (IOException e) {
+            failures.increment();
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.increment();
+            throw new IllegalStateException("interrupted", e);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Waits for a bulkhead permit, recording the time spent queued.
+     *
+     * @throws RejectedExecutionException when no permit frees up within the acquire timeout
+     */
+    private void acquire() {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        long waited = System.nanoTime() - start;
+        if (!acquired) {
+            rejections.increment();
+            throw new RejectedExecutionException("AI service is busy, please retry later");
+        }
+        acquisitions.increment();
+        queueNanos.add(waited);
+        maxQueueNanos.accumulate(waited);
+    }
+
+    private HttpRequest chatRequest(String prompt, boolean stream, long timeout) throws JsonProcessingException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", MODEL);
+        body.put("stream", stream);
+        body.put("messages", List.of(Map.of("role", ChatMessageRole.USER.value(), "content", prompt)));
+        return HttpRequest.newBuilder(URI.create(trimTrailingSlash(baseUrl) + "/chat/completions"))
+                .timeout(Duration.ofMillis(timeout))
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        objectMapper.writeValueAsString(body), StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /** Prompts differing only in surrounding or repeated whitespace share a cache entry. */
+    private static String cacheKey(String prompt) {
+        String normalized = prompt == null ? "" : WHITESPACE.matcher(prompt.strip()).replaceAll(" ");
+        return AiCompletionCache.key(MODEL, normalized);
+    }
+
+    private static String trimTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Parses the server-sent event lines of a streamed chat completion, forwarding the content delta
+     * of every {@code data:} event and accumulating the full text. Non-event lines (e.g. a JSON error
+     * body) are kept for the error message.
+     */
+    private final class SseDeltaSubscriber implements Flow.Subscriber<String> {
+        private final Consumer<String> onDelta;
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder rawBody = new StringBuilder();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+
+        private SseDeltaSubscriber(Consumer<String> onDelta) {
+            this.onDelta = onDelta;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        /** Stops reading the body and forwarding deltas; safe to call before the body starts. */
+        private void cancel() {
+            cancelled = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (cancelled) {
+                return;
+            }
+            if (!line.startsWith(SSE_DATA_PREFIX)) {
+                if (!line.isBlank() && rawBody.length() < 1000) {
+                    rawBody.append(line);
+                }
+                return;
+            }
+            String data = line.substring(SSE_DATA_PREFIX.length()).trim();
+            if (data.isEmpty() || SSE_DONE.equals(data)) {
+                return;
+            }
+            try {
+                JsonNode delta = objectMapper.readTree(data).path("choices").path(0).path("delta");
+                String content = delta.path("content").asText("");
+                if (!content.isEmpty()) {
+                    text.append(content);
+                    onDelta.accept(content);
+                }
+            } catch (JsonProcessingException e) {
+                rawBody.append(data);
+            }
+            // An exception from onDelta propagates: the HTTP client then cancels the upstream
+            // response and completes the call exceptionally.
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Reported through the response future.
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        private String result() {
+            return text.toString();
+        }
+
+        private String rawBody() {
+            return rawBody.toString();
         }
     }
 }
@@ -0,0 +1,231 @@
+package com.redseeker.route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Attraction-to-attraction distances held in flat primitive arrays: the great-circle distance of
+ * every pair and, per transport mode, the road distance and duration where AMap has answered for
+ * that leg (-1 where it has not). Lookups by matrix index are O(1). Instances are immutable and safe
+ * to share between threads.
+ *
+ * <p>File layout (big-endian): magic {@code "RSDM"}, format version, build time (epoch millis),
+ * attraction count {@code n}, mode count {@code m}, then {@code long[n]} ascending attraction ids,
+ * {@code double[n]} longitudes, {@code double[n]} latitudes, {@code float[n * n]} straight-line
+ * meters, and per mode its name (modified UTF-8), {@code int[n * n]} road meters and {@code int[n *
+ * n]} seconds, all row-major from → to.
+ */
+public final class AttractionDistanceMatrix {
+  private static final int MAGIC = 0x5253444d;
+  private static final int FORMAT_VERSION = 1;
+  private static final double COORDINATE_SCALE = 10_000.0;
+
+  private final long builtAt;
+  private final long[] ids;
+  private final double[] longitudes;
+  private final double[] latitudes;
+  private final float[] straight;
+  private final Map<String, int[]> roadDistances;
+  private final Map<String, int[]> roadDurations;
+  private final Map<Long, Integer> byCoordinate;
+
+  AttractionDistanceMatrix(
+      long builtAt,
+      long[] ids,
+      double[] longitudes,
+      double[] latitudes,
+      float[] straight,
+      Map<String, int[]> roadDistances,
+      Map<String, int[]> roadDurations) {
+    this.builtAt = builtAt;
+    this.ids = ids;
+    this.longitudes = longitudes;
+    this.latitudes = latitudes;
+    this.straight = straight;
+    this.roadDistances = roadDistances;
+    this.roadDurations = roadDurations;
+    this.byCoordinate = new HashMap<>();
+    for (int i = 0; i < ids.length; i++) {
+      byCoordinate.putIfAbsent(coordinateKey(longitudes[i], latitudes[i]), i);
+    }
+  }
+
+  static AttractionDistanceMatrix read(Path path) throws IOException {
+    try (InputStream file = Files.newInputStream(path);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not an attraction distance matrix: " + path);
+      }
+      long builtAt = in.readLong();
+      int n = in.readInt();
+      int modes = in.readInt();
+      long[] ids = new long[n];
+      double[] longitudes = new double[n];
+      double[] latitudes = new double[n];
+      float[] straight = new float[n * n];
+      for (int i = 0; i < n; i++) {
+        ids[i] = in.readLong();
+      }
+      for (int i = 0; i < n; i++) {
+        longitudes[i] = in.readDouble();
+      }
+      for (int i = 0; i < n; i++) {
+        latitudes[i] = in.readDouble();
+      }
+      for (int i = 0; i < straight.length; i++) {
+        straight[i] = in.readFloat();
+      }
+      Map<String, int[]> distances = new LinkedHashMap<>();
+      Map<String, int[]> durations = new LinkedHashMap<>();
+      for (int mode = 0; mode < modes; mode++) {
+        String name = in.readUTF();
+        distances.put(name, readInts(in, n * n));
+        durations.put(name, readInts(in, n * n));
+      }
+      return new AttractionDistanceMatrix(
+          builtAt, ids, longitudes, latitudes, straight, distances, durations);
+    }
+  }
+
+  void write(Path path) throws IOException {
+    try (OutputStream file = Files.newOutputStream(path);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(builtAt);
+      out.writeInt(ids.length);
+      out.writeInt(roadDistances.size());
+      for (long id : ids) {
+        out.writeLong(id);
+      }
+      for (double longitude : longitudes) {
+        out.writeDouble(longitude);
+      }
+      for (double latitude : latitudes) {
+        out.writeDouble(latitude);
+      }
+      for (float value : straight) {
+        out.writeFloat(value);
+      }
+      for (Map.Entry<String, int[]> mode : roadDistances.entrySet()) {
+        out.writeUTF(mode.getKey());
+        writeInts(out, mode.getValue());
+        writeInts(out, roadDurations.get(mode.getKey()));
+      }
+    }
+  }
+
+  public long getBuiltAt() {
+    return builtAt;
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * @return the matrix index of the attraction, or -1 when it is not in the matrix
+   */
+  public int index(Long attractionId) {
+    if (attractionId == null) {
+      return -1;
+    }
+    int index = Arrays.binarySearch(ids, attractionId);
+    return index < 0 ? -1 : index;
+  }
+
+  long id(int index) {
+    return ids[index];
+  }
+
+  double longitude(int index) {
+    return longitudes[index];
+  }
+
+  double latitude(int index) {
+    return latitudes[index];
+  }
+
+  /**
+   * @return the matrix index of the attraction within about 10 m of the point, or -1 when none
+   */
+  public int locate(Double longitude, Double latitude) {
+    if (longitude == null || latitude == null) {
+      return -1;
+    }
+    Integer index = byCoordinate.get(coordinateKey(longitude, latitude));
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @return great-circle meters between two matrix indexes
+   */
+  public double straightDistance(int from, int to) {
+    return straight[from * ids.length + to];
+  }
+
+  /**
+   * @return road meters from one matrix index to another, or -1 when unknown for the mode
+   */
+  public int roadDistance(String mode, int from, int to) {
+    int[] values = roadDistances.get(mode);
+    return values == null ? -1 : values[from * ids.length + to];
+  }
+
+  /**
+   * @return road seconds from one matrix index to another, or -1 when unknown for the mode
+   */
+  public int roadDuration(String mode, int from, int to) {
+    int[] values = roadDurations.get(mode);
+    return values == null ? -1 : values[from * ids.length + to];
+  }
+
+  /**
+   * @return whether the road distance of every ordered pair of distinct indexes is known
+   */
+  public boolean hasRoadDistances(String mode, int[] indexes) {
+    int[] values = roadDistances.get(mode);
+    if (values == null) {
+      return false;
+    }
+    for (int from : indexes) {
+      for (int to : indexes) {
+        if (from != to && values[from * ids.length + to] < 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static long coordinateKey(double longitude, double latitude) {
+    long x = Math.round(longitude * COORDINATE_SCALE);
+    long y = Math.round(latitude * COORDINATE_SCALE);
+    return (x << 32) ^ (y & 0xffffffffL);
+  }
+
+  private static int[] readInts(DataInputStream in, int count) throws IOException {
+    int[] values = new int[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package com.redseeker.route;
+
+import com.redseeker.common.DatabasePaths;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the {@link AttractionDistanceMatrix} of all attractions with coordinates. A background job
+ * rebuilds it when it is older than {@code route.distance-matrix.refresh-interval-ms}, or sooner
+ * when {@link AttractionLegFiller} has fetched new legs: straight-line distances are computed, road
+ * distances and durations are taken from the attraction-to-attraction legs the {@link
+ * DirectionCache} holds. The matrix is written to a file and read back at startup.
+ */
+@Service
+public class AttractionDistanceMatrixService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AttractionDistanceMatrixService.class);
+  private static final List<String> MODES = List.of("walking", "driving", "transit");
+  private static final String MATRIX_FILE = "attraction-distances.matrix";
+
+  private final DirectionCache directionCache;
+  private final String databaseUrl;
+  private final Path matrixFile;
+  private final long refreshIntervalMs;
+  private final AtomicReference<AttractionDistanceMatrix> matrix = new AtomicReference<>();
+  private volatile boolean rebuildRequested;
+
+  public AttractionDistanceMatrixService(
+      DatabasePaths databasePaths,
+      DirectionCache directionCache,
+      @Value("${route.distance-matrix.refresh-interval-ms:86400000}") long refreshIntervalMs,
+      @Value("${route.distance-matrix.file:}") String file) {
+    this.directionCache = directionCache;
+    this.databaseUrl = databasePaths.getDatabaseUrl();
+    this.matrixFile = databasePaths.resolveModelFile(file, MATRIX_FILE);
+    this.refreshIntervalMs = refreshIntervalMs;
+    if (Files.isRegularFile(matrixFile)) {
+      try {
+        matrix.set(AttractionDistanceMatrix.read(matrixFile));
+      } catch (IOException ex) {
+        LOGGER.warn("Failed to read attraction distance matrix {}", matrixFile, ex);
+      }
+    }
+  }
+
+  /**
+   * @return the current matrix, or {@code null} before the first build
+   */
+  public AttractionDistanceMatrix current() {
+    return matrix.get();
+  }
+
+  /**
+   * Makes the next check rebuild the matrix regardless of its age, e.g. after new legs were cached.
+   */
+  void requestRebuild() {
+    rebuildRequested = true;
+  }
+
+  @Scheduled(
+      fixedDelayString = "${route.distance-matrix.check-interval-ms:600000}",
+      initialDelayString = "${route.distance-matrix.initial-delay-ms:10000}")
+  public void rebuildIfStale() {
+    AttractionDistanceMatrix current = matrix.get();
+    if (current != null
+        && !rebuildRequested
+        && System.currentTimeMillis() - current.getBuiltAt() < refreshIntervalMs) {
+      return;
+    }
+    rebuildRequested = false;
+    try {
+      rebuild();
+    } catch (SQLException | IOException ex) {
+      LOGGER.warn("Failed to build attraction distance matrix", ex);
+    }
+  }
+
+  synchronized void rebuild() throws SQLException, IOException {
+    long started = System.nanoTime();
+    List<double[]> rows = loadCoordinates();
+    int n = rows.size();
+    long[] ids = new long[n];
+    double[] longitudes = new double[n];
+    double[] latitudes = new double[n];
+    for (int i = 0; i < n; i++) {
+      ids[i] = (long) rows.get(i)[0];
+      longitudes[i] = rows.get(i)[1];
+      latitudes[i] = rows.get(i)[2];
+    }
+
+    float[] straight = new float[n * n];
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        float distance = (float) haversine(latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+        straight[i * n + j] = distance;
+        straight[j * n + i] = distance;
+      }
+    }
+
+    Map<String, int[]> cached = directionCache.distances();
+    Map<String, int[]> roadDistances = new LinkedHashMap<>();
+    Map<String, int[]> roadDurations = new LinkedHashMap<>();
+    int known = 0;
+    for (String mode : MODES) {
+      int knownBefore = known;
+      int[] distances = new int[n * n];
+      int[] durations = new int[n * n];
+      Arrays.fill(distances, -1);
+      Arrays.fill(durations, -1);
+      String strategy = DirectionCache.defaultStrategy(mode);
+      for (int i = 0; i < n; i++) {
+        distances[i * n + i] = 0;
+        durations[i * n + i] = 0;
+        for (int j = 0; j < n; j++) {
+          if (i == j) {
+            continue;
+          }
+          int[] leg = cached.get(DirectionCache.key(
+              mode, strategy, longitudes[i], latitudes[i], longitudes[j], latitudes[j]));
+          if (leg != null) {
+            distances[i * n + j] = leg[0];
+            durations[i * n + j] = leg[1];
+            known++;
+          }
+        }
+      }
+      // Modes without a single cached leg are left out of the file entirely.
+      if (known > knownBefore) {
+        roadDistances.put(mode, distances);
+        roadDurations.put(mode, durations);
+      }
+    }
+
+    AttractionDistanceMatrix built = new AttractionDistanceMatrix(
+        System.currentTimeMillis(), ids, longitudes, latitudes, straight, roadDistances,
+        roadDurations);
+    Files.createDirectories(matrixFile.getParent());
+    Path temporary = matrixFile.resolveSibling(MATRIX_FILE + ".tmp");
+    built.write(temporary);
+    Files.move(temporary, matrixFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    matrix.set(built);
+    LOGGER.info("Attraction distance matrix built: {} attractions, {} road legs in {} ms",
+        n, known, (System.nanoTime() - started) / 1_000_000);
+  }
+
+  /**
+   * @return {id, longitude, latitude} of every attraction with coordinates, by ascending id
+   */
+  private List<double[]> loadCoordinates() throws SQLException {
+    String sql =
+        "SELECT id, longitude, latitude FROM attractions "
+            + "WHERE longitude IS NOT NULL AND latitude IS NOT NULL ORDER BY id";
+    List<double[]> rows = new ArrayList<>();
+    try (Connection connection = DriverManager.getConnection(databaseUrl);
+        PreparedStatement statement = connection.prepareStatement(sql);
+        ResultSet rs = statement.executeQuery()) {
+      while (rs.next()) {
+        rows.add(new double[] {rs.getLong("id"), rs.getDouble("longitude"), rs.getDouble("latitude")});
+      }
+    }
+    return rows;
+  }
+
+  private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double earthRadius = 6371000.0;
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    return earthRadius * c;
+  }
+}
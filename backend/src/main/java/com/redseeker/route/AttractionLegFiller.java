@@ -0,0 +1,122 @@
+package com.redseeker.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fills in the road legs of the {@link AttractionDistanceMatrix} in the background. Route planning
+ * caches multi-point responses and legs from arbitrary start points, which rarely match an
+ * attraction-to-attraction pair, so each run fetches at most {@code
+ * route.distance-matrix.fill-per-run} missing pairs, nearest first and no longer than {@code
+ * fill-max-meters}, one request at a time. Fetched legs land in the {@link DirectionCache}; the
+ * matrix is rebuilt from it at its next check. Pairs that could not be fetched are not retried
+ * until restart, so an unreachable pair never spends quota twice.
+ */
+@Service
+public class AttractionLegFiller {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AttractionLegFiller.class);
+
+  private final RouteServiceImpl routeService;
+  private final AttractionDistanceMatrixService matrixService;
+  private final int perRun;
+  private final double maxMeters;
+  private final List<String> modes;
+  private final Set<String> attempted = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  public AttractionLegFiller(
+      RouteServiceImpl routeService,
+      AttractionDistanceMatrixService matrixService,
+      @Value("${route.distance-matrix.fill-per-run:20}") int perRun,
+      @Value("${route.distance-matrix.fill-max-meters:30000}") double maxMeters,
+      @Value("${route.distance-matrix.fill-modes:driving}") String modes) {
+    this.routeService = routeService;
+    this.matrixService = matrixService;
+    this.perRun = perRun;
+    this.maxMeters = maxMeters;
+    this.modes = Arrays.stream(modes.split(","))
+        .map(String::trim)
+        .filter(mode -> !mode.isEmpty())
+        .toList();
+  }
+
+  /**
+   * Starts a fill run unless one is still in progress; the requests run asynchronously, so the
+   * shared scheduler thread is not held while they are in flight.
+   */
+  @Scheduled(
+      fixedDelayString = "${route.distance-matrix.fill-interval-ms:600000}",
+      initialDelayString = "${route.distance-matrix.fill-initial-delay-ms:60000}")
+  public void fill() {
+    AttractionDistanceMatrix matrix = matrixService.current();
+    if (matrix == null || perRun <= 0 || !routeService.canFetchRoads()) {
+      return;
+    }
+    List<Leg> legs = missingLegs(matrix);
+    if (legs.isEmpty() || !running.compareAndSet(false, true)) {
+      return;
+    }
+    AtomicInteger filled = new AtomicInteger();
+    CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+    for (Leg leg : legs) {
+      attempted.add(leg.key());
+      chain = chain.thenCompose(ignored -> routeService
+          .fetchLegIntoCache(matrix.longitude(leg.from()), matrix.latitude(leg.from()),
+              matrix.longitude(leg.to()), matrix.latitude(leg.to()), leg.mode())
+          .exceptionally(ex -> false)
+          .thenAccept(ok -> {
+            if (ok) {
+              filled.incrementAndGet();
+            }
+          }));
+    }
+    chain.whenComplete((ignored, ex) -> {
+      running.set(false);
+      if (filled.get() > 0) {
+        LOGGER.info("Fetched {} of {} missing attraction legs", filled.get(), legs.size());
+        matrixService.requestRebuild();
+      }
+    });
+  }
+
+  /**
+   * @return up to {@code perRun} pairs without a road leg that were not attempted yet, nearest
+   *     first
+   */
+  List<Leg> missingLegs(AttractionDistanceMatrix matrix) {
+    List<Leg> candidates = new ArrayList<>();
+    for (String mode : modes) {
+      for (int from = 0; from < matrix.size(); from++) {
+        for (int to = 0; to < matrix.size(); to++) {
+          if (from == to || matrix.roadDistance(mode, from, to) >= 0) {
+            continue;
+          }
+          double meters = matrix.straightDistance(from, to);
+          if (meters > maxMeters) {
+            continue;
+          }
+          String key = mode + ':' + matrix.id(from) + ':' + matrix.id(to);
+          if (!attempted.contains(key)) {
+            candidates.add(new Leg(key, mode, from, to, meters));
+          }
+        }
+      }
+    }
+    candidates.sort(Comparator.comparingDouble(Leg::meters));
+    return candidates.size() > perRun ? candidates.subList(0, perRun) : candidates;
+  }
+
+  record Leg(String key, String mode, int from, int to, double meters) {}
+}
@@ -9,6 +9,7 @@ public class AttractionSummary {
   private String stageName;
   private Integer stageStart;
   private Integer stageEnd;
+  private String businessHours;
 
   public AttractionSummary() {
   }
@@ -84,4 +85,12 @@ public class AttractionSummary {
   public void setStageEnd(Integer stageEnd) {
     this.stageEnd = stageEnd;
   }
+
+  public String getBusinessHours() {
+    return businessHours;
+  }
+
+  public void setBusinessHours(String businessHours) {
+    this.businessHours = businessHours;
+  }
 }
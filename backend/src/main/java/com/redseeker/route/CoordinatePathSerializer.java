@@ -0,0 +1,22 @@
+package com.redseeker.route;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+
+/**
+ * Writes interleaved {@code [lng0, lat0, lng1, lat1, ...]} coordinates as the {@code [[lng, lat],
+ * ...]} array the frontend expects, straight from the primitive array.
+ */
+public class CoordinatePathSerializer extends JsonSerializer<double[]> {
+  @Override
+  public void serialize(double[] coordinates, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeStartArray();
+    for (int i = 0; i + 1 < coordinates.length; i += 2) {
+      generator.writeArray(coordinates, i, 2);
+    }
+    generator.writeEndArray();
+  }
+}
@@ -0,0 +1,315 @@
+package com.redseeker.route;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redseeker.common.DatabasePaths;
+import jakarta.annotation.PostConstruct;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * AMap direction results keyed by transport mode, strategy and the route's coordinates rounded to
+ * four decimals (about 10 m), so repeated legs between the same attractions skip the HTTP call. A
+ * bounded in-memory LRU sits in front of the {@code amap_direction_cache} table of the cache
+ * database ({@code models/cache.db}, see {@link DatabasePaths#getCacheDatabaseUrl()}), which keeps
+ * entries across restarts. Entries expire {@code route.direction-cache.ttl-ms} after they were
+ * stored; only successful AMap responses should be put, never straight-line fallbacks.
+ */
+@Service
+public class DirectionCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DirectionCache.class);
+  private static final double COORDINATE_SCALE = 10_000.0;
+  private static final TypeReference<List<RouteStep>> STEPS_TYPE = new TypeReference<>() {};
+
+  private final String databaseUrl;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final long ttlMillis;
+  private final int maxEntries;
+  private final boolean persistent;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  // Guarded by this.
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  public DirectionCache(
+      DatabasePaths databasePaths,
+      @Value("${route.direction-cache.ttl-ms:604800000}") long ttlMillis,
+      @Value("${route.direction-cache.max-entries:5000}") int maxEntries,
+      @Value("${route.direction-cache.persistent:true}") boolean persistent) {
+    this.databaseUrl = databasePaths.getCacheDatabaseUrl();
+    this.ttlMillis = ttlMillis;
+    this.maxEntries = Math.max(0, maxEntries);
+    this.persistent = persistent;
+  }
+
+  @PostConstruct
+  public void initTable() {
+    if (!isEnabled() || !persistent) {
+      return;
+    }
+    try (Connection connection = openConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute(
+          "CREATE TABLE IF NOT EXISTS amap_direction_cache ("
+              + "cache_key TEXT PRIMARY KEY,"
+              + "distance INTEGER NOT NULL,"
+              + "duration INTEGER NOT NULL,"
+              + "polyline TEXT,"
+              + "steps TEXT,"
+              + "created_at INTEGER NOT NULL"
+              + ")");
+    } catch (SQLException ex) {
+      LOGGER.error("Failed to initialize AMap direction cache table", ex);
+    }
+  }
+
+  /**
+   * @param coordinates longitude/latitude pairs in route order: origin, waypoints, destination
+   * @return the cache key of the route
+   */
+  public static String key(String mode, String strategy, double... coordinates) {
+    StringBuilder key = new StringBuilder(mode).append('|').append(strategy == null ? "" : strategy);
+    for (int i = 0; i + 1 < coordinates.length; i += 2) {
+      key.append(i == 0 ? '|' : ';')
+          .append(Math.round(coordinates[i] * COORDINATE_SCALE))
+          .append(',')
+          .append(Math.round(coordinates[i + 1] * COORDINATE_SCALE));
+    }
+    return key.toString();
+  }
+
+  /**
+   * @return the AMap strategy parameter the services send for a transport mode: fastest route for
+   *     driving, none otherwise
+   */
+  public static String defaultStrategy(String mode) {
+    return "driving".equals(mode) ? "0" : "";
+  }
+
+  /**
+   * @return distance and duration of every unexpired entry, keyed like {@link #key}
+   */
+  public Map<String, int[]> distances() {
+    Map<String, int[]> result = new HashMap<>();
+    if (!isEnabled()) {
+      return result;
+    }
+    long cutoff = System.currentTimeMillis() - ttlMillis;
+    if (persistent) {
+      String sql =
+          "SELECT cache_key, distance, duration FROM amap_direction_cache WHERE created_at > ?";
+      try (Connection connection = openConnection();
+          PreparedStatement statement = connection.prepareStatement(sql)) {
+        statement.setLong(1, cutoff);
+        try (ResultSet rs = statement.executeQuery()) {
+          while (rs.next()) {
+            result.put(
+                rs.getString("cache_key"), new int[] {rs.getInt("distance"), rs.getInt("duration")});
+          }
+        }
+      } catch (SQLException ex) {
+        LOGGER.warn("Failed to read AMap direction cache", ex);
+      }
+    }
+    synchronized (this) {
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        if (entry.getValue().createdAt > cutoff) {
+          result.put(
+              entry.getKey(), new int[] {entry.getValue().distance, entry.getValue().duration});
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a copy of the cached route, or {@code null} when absent or expired
+   */
+  public RouteInfo get(String key) {
+    if (!isEnabled()) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry != null && now - entry.createdAt >= ttlMillis) {
+        entries.remove(key);
+        entry = null;
+      }
+    }
+    if (entry == null && persistent) {
+      entry = load(key, now);
+      if (entry != null) {
+        synchronized (this) {
+          entries.putIfAbsent(key, entry);
+          trim();
+        }
+      }
+    }
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.toRouteInfo();
+  }
+
+  public void put(String key, RouteInfo info) {
+    if (!isEnabled() || info == null) {
+      return;
+    }
+    Entry entry = new Entry(info, System.currentTimeMillis());
+    synchronized (this) {
+      entries.put(key, entry);
+      trim();
+    }
+    if (!persistent) {
+      return;
+    }
+    String sql =
+        "INSERT OR REPLACE INTO amap_direction_cache "
+            + "(cache_key, distance, duration, polyline, steps, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    try (Connection connection = openConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(1, key);
+      statement.setInt(2, entry.distance);
+      statement.setInt(3, entry.duration);
+      statement.setString(4, entry.polyline);
+      statement.setString(5, objectMapper.writeValueAsString(entry.steps));
+      statement.setLong(6, entry.createdAt);
+      statement.executeUpdate();
+    } catch (SQLException | JsonProcessingException ex) {
+      LOGGER.warn("Failed to persist AMap direction", ex);
+    }
+  }
+
+  @Scheduled(
+      fixedDelayString = "${route.direction-cache.purge-interval-ms:3600000}",
+      initialDelayString = "${route.direction-cache.purge-interval-ms:3600000}")
+  public void purgeExpired() {
+    if (!isEnabled()) {
+      return;
+    }
+    long cutoff = System.currentTimeMillis() - ttlMillis;
+    synchronized (this) {
+      entries.values().removeIf(entry -> entry.createdAt <= cutoff);
+    }
+    LOGGER.debug("AMap direction cache: {} hits, {} misses", hits.sum(), misses.sum());
+    if (!persistent) {
+      return;
+    }
+    try (Connection connection = openConnection();
+        PreparedStatement statement =
+            connection.prepareStatement("DELETE FROM amap_direction_cache WHERE created_at <= ?")) {
+      statement.setLong(1, cutoff);
+      int removed = statement.executeUpdate();
+      if (removed > 0) {
+        LOGGER.debug("Purged {} expired AMap directions", removed);
+      }
+    } catch (SQLException ex) {
+      LOGGER.warn("Failed to purge expired AMap directions", ex);
+    }
+  }
+
+  private boolean isEnabled() {
+    return ttlMillis > 0 && maxEntries > 0;
+  }
+
+  private Entry load(String key, long now) {
+    String sql =
+        "SELECT distance, duration, polyline, steps, created_at FROM amap_direction_cache "
+            + "WHERE cache_key = ?";
+    try (Connection connection = openConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(1, key);
+      try (ResultSet rs = statement.executeQuery()) {
+        if (rs.next() && now - rs.getLong("created_at") < ttlMillis) {
+          String steps = rs.getString("steps");
+          return new Entry(
+              rs.getInt("distance"),
+              rs.getInt("duration"),
+              rs.getString("polyline"),
+              steps == null ? List.of() : objectMapper.readValue(steps, STEPS_TYPE),
+              rs.getLong("created_at"));
+        }
+      }
+    } catch (SQLException | JsonProcessingException ex) {
+      LOGGER.warn("Failed to read AMap direction cache", ex);
+    }
+    return null;
+  }
+
+  private void trim() {
+    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+    while (entries.size() > maxEntries && eldest.hasNext()) {
+      eldest.next();
+      eldest.remove();
+    }
+  }
+
+  private Connection openConnection() throws SQLException {
+    return DriverManager.getConnection(databaseUrl);
+  }
+
+  /** Immutable copy of a route, so callers can never change a cached value. */
+  private static final class Entry {
+    private final int distance;
+    private final int duration;
+    private final String polyline;
+    private final List<RouteStep> steps;
+    private final long createdAt;
+
+    private Entry(RouteInfo info, long createdAt) {
+      this(info.getDistance(), info.getDuration(), info.getPolyline(), copySteps(info.getSteps()),
+          createdAt);
+    }
+
+    private Entry(int distance, int duration, String polyline, List<RouteStep> steps,
+        long createdAt) {
+      this.distance = distance;
+      this.duration = duration;
+      this.polyline = polyline;
+      this.steps = steps;
+      this.createdAt = createdAt;
+    }
+
+    private RouteInfo toRouteInfo() {
+      RouteInfo info = new RouteInfo();
+      info.setDistance(distance);
+      info.setDuration(duration);
+      info.setPolyline(polyline);
+      info.setSteps(copySteps(steps));
+      return info;
+    }
+
+    private static List<RouteStep> copySteps(List<RouteStep> steps) {
+      List<RouteStep> copy = new ArrayList<>(steps == null ? 0 : steps.size());
+      if (steps != null) {
+        for (RouteStep step : steps) {
+          copy.add(new RouteStep(step.getInstruction(), step.getRoad(), step.getDistance(),
+              step.getDuration(), step.getPolyline()));
+        }
+      }
+      return copy;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.redseeker.route;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Splits the stops of a multi-day trip into compact, balanced days by capacity-constrained
+ * k-medoids clustering over a stop-to-stop distance matrix.
+ *
+ * <p>Each day holds at most {@code ceil(n / days)} stops. Medoids are seeded farthest-first from
+ * the most central stop. Assignment then places stops in order of regret (how much farther their
+ * second-closest medoid is than their closest), each to the nearest medoid that still has room, so
+ * stops with one obvious day are never crowded out. Every cluster's medoid moves to the member with
+ * the smallest total distance to the others, and the two steps repeat until the medoids settle.
+ * The distance matrix need not be symmetric; both directions are averaged. Deterministic for a
+ * given input.
+ */
+final class ItineraryPartitioner {
+  private static final int MAX_ITERATIONS = 20;
+
+  private ItineraryPartitioner() {}
+
+  /**
+   * @param distance distance from row stop to column stop
+   * @param days number of days, at least 1
+   * @return for each stop, its day in {@code 0..k-1} where {@code k = min(days, n)}; every day
+   *     gets at least one stop
+   */
+  static int[] partition(double[][] distance, int days) {
+    int n = distance.length;
+    int k = Math.max(1, Math.min(days, n));
+    int[] assignment = new int[n];
+    if (k == 1) {
+      return assignment;
+    }
+    double[][] symmetric = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        symmetric[i][j] = (distance[i][j] + distance[j][i]) / 2;
+      }
+    }
+    int capacity = (n + k - 1) / k;
+
+    int[] medoids = seed(symmetric, k);
+    for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+      assign(symmetric, medoids, capacity, assignment);
+      int[] updated = update(symmetric, k, assignment);
+      if (Arrays.equals(updated, medoids)) {
+        break;
+      }
+      medoids = updated;
+    }
+    return assignment;
+  }
+
+  /** Most central stop first, then repeatedly the stop farthest from every chosen medoid. */
+  private static int[] seed(double[][] distance, int k) {
+    int n = distance.length;
+    int[] medoids = new int[k];
+    medoids[0] = medoidOf(distance, n, i -> true);
+    boolean[] chosen = new boolean[n];
+    chosen[medoids[0]] = true;
+    double[] nearest = new double[n];
+    Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+    for (int count = 1; count < k; count++) {
+      int last = medoids[count - 1];
+      int farthest = -1;
+      for (int i = 0; i < n; i++) {
+        nearest[i] = Math.min(nearest[i], distance[i][last]);
+        // Skipping chosen stops keeps medoids distinct even when stops share a location.
+        if (!chosen[i] && (farthest < 0 || nearest[i] > nearest[farthest])) {
+          farthest = i;
+        }
+      }
+      medoids[count] = farthest;
+      chosen[farthest] = true;
+    }
+    return medoids;
+  }
+
+  private static void assign(double[][] distance, int[] medoids, int capacity, int[] assignment) {
+    int n = distance.length;
+    int k = medoids.length;
+    Integer[] byRegret = new Integer[n];
+    double[] regret = new double[n];
+    for (int i = 0; i < n; i++) {
+      byRegret[i] = i;
+      double best = Double.POSITIVE_INFINITY;
+      double second = Double.POSITIVE_INFINITY;
+      for (int medoid : medoids) {
+        double d = distance[i][medoid];
+        if (d < best) {
+          second = best;
+          best = d;
+        } else if (d < second) {
+          second = d;
+        }
+      }
+      regret[i] = second - best;
+    }
+    Arrays.sort(byRegret, (a, b) -> Double.compare(regret[b], regret[a]));
+
+    int[] load = new int[k];
+    // Medoids always stay in their own cluster, so no day can end up empty.
+    boolean[] placed = new boolean[n];
+    for (int cluster = 0; cluster < k; cluster++) {
+      assignment[medoids[cluster]] = cluster;
+      placed[medoids[cluster]] = true;
+      load[cluster]++;
+    }
+    for (int stop : byRegret) {
+      if (placed[stop]) {
+        continue;
+      }
+      int bestCluster = -1;
+      for (int cluster = 0; cluster < k; cluster++) {
+        if (load[cluster] < capacity
+            && (bestCluster < 0
+                || distance[stop][medoids[cluster]] < distance[stop][medoids[bestCluster]])) {
+          bestCluster = cluster;
+        }
+      }
+      assignment[stop] = bestCluster;
+      load[bestCluster]++;
+    }
+  }
+
+  private static int[] update(double[][] distance, int k, int[] assignment) {
+    int[] medoids = new int[k];
+    for (int cluster = 0; cluster < k; cluster++) {
+      int member = cluster;
+      medoids[cluster] = medoidOf(distance, distance.length, i -> assignment[i] == member);
+    }
+    return medoids;
+  }
+
+  /** Member with the smallest total distance to the other members; lowest index on ties. */
+  private static int medoidOf(double[][] distance, int n, IntPredicate member) {
+    int best = -1;
+    double bestTotal = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < n; i++) {
+      if (!member.test(i)) {
+        continue;
+      }
+      double total = 0.0;
+      for (int j = 0; j < n; j++) {
+        if (member.test(j)) {
+          total += distance[i][j];
+        }
+      }
+      if (total < bestTotal) {
+        bestTotal = total;
+        best = i;
+      }
+    }
+    return best;
+  }
+}
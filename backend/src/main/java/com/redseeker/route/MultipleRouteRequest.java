@@ -1,7 +1,10 @@
 package com.redseeker.route;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import java.util.List;
 
 public class MultipleRouteRequest {
@@ -17,6 +20,32 @@ public class MultipleRouteRequest {
 
   private String strategy;
 
+  /** 出发时间 HH:mm，time_window 策略使用，默认 09:00 */
+  @Pattern(regexp = "([01]\\d|2[0-3]):[0-5]\\d")
+  private String startTime;
+
+  /** 每个景点停留分钟数，time_window 策略使用，默认 60 */
+  @Min(0)
+  @Max(720)
+  private Integer dwellMinutes;
+
+  /** 行程天数，大于 1 时按地理位置把景点均衡分到各天，默认 1 */
+  @Min(1)
+  @Max(14)
+  private Integer days;
+
+  /** 前端地图缩放级别，用于确定路径抽稀的容差；为空时使用 route.polyline.default-zoom */
+  @Min(3)
+  @Max(20)
+  private Integer zoom;
+
+  /** 路径输出格式：coordinates（默认，坐标数组 path）或 encoded（编码字符串 encodedPath） */
+  @Pattern(regexp = "coordinates|encoded")
+  private String pathFormat;
+
+  /** 为 true 时在结果的 plan 中附带逐段路线（各段并发单独规划，含距离、耗时与导航步骤），仅单日行程 */
+  private Boolean segments;
+
   public List<Long> getAttractionIds() {
     return attractionIds;
   }
@@ -56,4 +85,52 @@ public class MultipleRouteRequest {
   public void setStrategy(String strategy) {
     this.strategy = strategy;
   }
+
+  public String getStartTime() {
+    return startTime;
+  }
+
+  public void setStartTime(String startTime) {
+    this.startTime = startTime;
+  }
+
+  public Integer getDwellMinutes() {
+    return dwellMinutes;
+  }
+
+  public void setDwellMinutes(Integer dwellMinutes) {
+    this.dwellMinutes = dwellMinutes;
+  }
+
+  public Integer getDays() {
+    return days;
+  }
+
+  public void setDays(Integer days) {
+    this.days = days;
+  }
+
+  public Integer getZoom() {
+    return zoom;
+  }
+
+  public void setZoom(Integer zoom) {
+    this.zoom = zoom;
+  }
+
+  public String getPathFormat() {
+    return pathFormat;
+  }
+
+  public void setPathFormat(String pathFormat) {
+    this.pathFormat = pathFormat;
+  }
+
+  public Boolean getSegments() {
+    return segments;
+  }
+
+  public void setSegments(Boolean segments) {
+    this.segments = segments;
+  }
 }
@@ -0,0 +1,362 @@
+package com.redseeker.route;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Converts an OSM XML extract ({@code .osm} or {@code .osm.gz}) into the {@link RoadGraph} file
+ * read by {@link RoadGraphService}. Every OSM node on a routable {@code highway} way becomes a
+ * graph node and every pair of consecutive way nodes one edge per allowed direction. Access follows
+ * the highway class, then {@code access}, {@code foot} and {@code motor_vehicle} / {@code
+ * motorcar} tags; {@code oneway} and roundabouts restrict cars only. Car speed is {@code maxspeed}
+ * when numeric, otherwise a default per highway class. Edge names are {@code name}, or {@code ref}
+ * when unnamed.
+ *
+ * <p>Run after {@code mvn compile} from {@code backend/}:
+ *
+ * <pre>
+ * java -cp target/classes com.redseeker.route.OsmRoadGraphConverter roads.osm \
+ *     ../database/models/road-network.graph
+ * </pre>
+ *
+ * <p>Nodes and ways are held in memory, so the input should be a city-sized extract filtered to
+ * highways (see {@code backend/README.md}).
+ */
+public final class OsmRoadGraphConverter {
+  private static final double MICRO_DEGREES = 1_000_000.0;
+  private static final int BOTH = RoadGraph.FOOT | RoadGraph.CAR;
+  private static final Map<String, Integer> HIGHWAY_MODES = new HashMap<>();
+  private static final Map<String, Integer> HIGHWAY_KMH = new HashMap<>();
+
+  static {
+    for (String highway : List.of("motorway", "motorway_link", "trunk", "trunk_link")) {
+      HIGHWAY_MODES.put(highway, RoadGraph.CAR);
+    }
+    for (String highway : List.of("primary", "primary_link", "secondary", "secondary_link",
+        "tertiary", "tertiary_link", "unclassified", "residential", "living_street", "service",
+        "road")) {
+      HIGHWAY_MODES.put(highway, BOTH);
+    }
+    for (String highway : List.of("pedestrian", "footway", "path", "steps", "track")) {
+      HIGHWAY_MODES.put(highway, RoadGraph.FOOT);
+    }
+    HIGHWAY_KMH.put("motorway", 100);
+    HIGHWAY_KMH.put("motorway_link", 60);
+    HIGHWAY_KMH.put("trunk", 80);
+    HIGHWAY_KMH.put("trunk_link", 50);
+    HIGHWAY_KMH.put("primary", 60);
+    HIGHWAY_KMH.put("primary_link", 40);
+    HIGHWAY_KMH.put("secondary", 50);
+    HIGHWAY_KMH.put("secondary_link", 40);
+    HIGHWAY_KMH.put("tertiary", 40);
+    HIGHWAY_KMH.put("tertiary_link", 30);
+    HIGHWAY_KMH.put("living_street", 10);
+    HIGHWAY_KMH.put("service", 15);
+    HIGHWAY_KMH.put("track", 15);
+  }
+
+  private OsmRoadGraphConverter() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: OsmRoadGraphConverter <input.osm[.gz]> <output.graph>");
+      System.exit(2);
+    }
+    Path output = Paths.get(args[1]).toAbsolutePath();
+    RoadGraph graph = convert(Paths.get(args[0]));
+    Files.createDirectories(output.getParent());
+    Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+    graph.write(temporary);
+    Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    System.out.printf(Locale.ROOT, "Wrote %d nodes, %d edges to %s%n",
+        graph.nodeCount(), graph.edgeCount(), output);
+  }
+
+  static RoadGraph convert(Path input) throws IOException {
+    try (InputStream file = new BufferedInputStream(Files.newInputStream(input))) {
+      InputStream in = input.getFileName().toString().endsWith(".gz")
+          ? new GZIPInputStream(file)
+          : file;
+      return convert(in);
+    }
+  }
+
+  static RoadGraph convert(InputStream in) throws IOException {
+    Extract extract = new Extract();
+    try {
+      XMLInputFactory factory = XMLInputFactory.newFactory();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      XMLStreamReader reader = factory.createXMLStreamReader(in);
+      try {
+        extract.read(reader);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException ex) {
+      throw new IOException("Malformed OSM XML", ex);
+    }
+    return extract.build();
+  }
+
+  /**
+   * @return the FOOT / CAR mask of a way, 0 when it is not routable
+   */
+  static int modes(Map<String, String> tags) {
+    Integer byClass = HIGHWAY_MODES.get(tags.get("highway"));
+    if (byClass == null) {
+      return 0;
+    }
+    int modes = byClass;
+    String access = tags.get("access");
+    if ("no".equals(access) || "private".equals(access)) {
+      modes = 0;
+    }
+    String foot = tags.get("foot");
+    if ("no".equals(foot) || "private".equals(foot)) {
+      modes &= ~RoadGraph.FOOT;
+    } else if ("yes".equals(foot) || "designated".equals(foot) || "permissive".equals(foot)) {
+      modes |= RoadGraph.FOOT;
+    }
+    String motor = tags.getOrDefault("motor_vehicle", tags.get("motorcar"));
+    if ("no".equals(motor) || "private".equals(motor)) {
+      modes &= ~RoadGraph.CAR;
+    } else if ("yes".equals(motor) || "designated".equals(motor)) {
+      modes |= RoadGraph.CAR;
+    }
+    return modes;
+  }
+
+  /**
+   * @return car km/h of a way, 0 for {@link RoadGraph}'s default
+   */
+  static int carKmh(Map<String, String> tags) {
+    String maxspeed = tags.get("maxspeed");
+    if (maxspeed != null) {
+      String value = maxspeed.trim().toLowerCase(Locale.ROOT);
+      boolean mph = value.endsWith("mph");
+      value = value.replace("mph", "").replace("km/h", "").replace("kmh", "").trim();
+      try {
+        double kmh = Double.parseDouble(value) * (mph ? 1.609344 : 1.0);
+        if (kmh > 0) {
+          return (int) Math.min(255, Math.round(kmh));
+        }
+      } catch (NumberFormatException ex) {
+        // Symbolic values such as "CN:urban" fall back to the highway class.
+      }
+    }
+    return HIGHWAY_KMH.getOrDefault(tags.get("highway"), 0);
+  }
+
+  /**
+   * @return +1 when cars may only drive along the node order, -1 only against it, 0 both ways
+   */
+  static int carDirection(Map<String, String> tags) {
+    String oneway = tags.get("oneway");
+    if ("-1".equals(oneway) || "reverse".equals(oneway)) {
+      return -1;
+    }
+    if ("yes".equals(oneway) || "true".equals(oneway) || "1".equals(oneway)) {
+      return 1;
+    }
+    if ("no".equals(oneway) || "false".equals(oneway) || "0".equals(oneway)) {
+      return 0;
+    }
+    String highway = tags.get("highway");
+    boolean impliedOneway = "motorway".equals(highway)
+        || "roundabout".equals(tags.get("junction"))
+        || "circular".equals(tags.get("junction"));
+    return impliedOneway ? 1 : 0;
+  }
+
+  /** Nodes and routable ways of one extract, collected while streaming the XML. */
+  private static final class Extract {
+    private long[] nodeIds = new long[1024];
+    private int[] nodeLongitudes = new int[1024];
+    private int[] nodeLatitudes = new int[1024];
+    private int nodeCount;
+    private boolean nodesSorted = true;
+
+    private final List<long[]> wayNodes = new ArrayList<>();
+    // Per way: forward modes, backward modes, car km/h, name index.
+    private final List<int[]> wayAttributes = new ArrayList<>();
+    private final Map<String, Integer> names = new LinkedHashMap<>();
+
+    private void read(XMLStreamReader reader) throws XMLStreamException {
+      List<Long> refs = new ArrayList<>();
+      Map<String, String> tags = new HashMap<>();
+      boolean inWay = false;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "node" -> addNode(
+                Long.parseLong(reader.getAttributeValue(null, "id")),
+                Double.parseDouble(reader.getAttributeValue(null, "lon")),
+                Double.parseDouble(reader.getAttributeValue(null, "lat")));
+            case "way" -> {
+              inWay = true;
+              refs.clear();
+              tags.clear();
+            }
+            case "nd" -> {
+              if (inWay) {
+                refs.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+              }
+            }
+            case "tag" -> {
+              if (inWay) {
+                tags.put(reader.getAttributeValue(null, "k"), reader.getAttributeValue(null, "v"));
+              }
+            }
+            default -> {
+              // Relations and metadata are not needed.
+            }
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(reader.getLocalName())) {
+          inWay = false;
+          addWay(refs, tags);
+        }
+      }
+    }
+
+    private void addNode(long id, double longitude, double latitude) {
+      if (nodeCount == nodeIds.length) {
+        nodeIds = Arrays.copyOf(nodeIds, nodeCount * 2);
+        nodeLongitudes = Arrays.copyOf(nodeLongitudes, nodeCount * 2);
+        nodeLatitudes = Arrays.copyOf(nodeLatitudes, nodeCount * 2);
+      }
+      if (nodeCount > 0 && nodeIds[nodeCount - 1] >= id) {
+        nodesSorted = false;
+      }
+      nodeIds[nodeCount] = id;
+      nodeLongitudes[nodeCount] = (int) Math.round(longitude * MICRO_DEGREES);
+      nodeLatitudes[nodeCount] = (int) Math.round(latitude * MICRO_DEGREES);
+      nodeCount++;
+    }
+
+    private void addWay(List<Long> refs, Map<String, String> tags) {
+      int modes = modes(tags);
+      if (modes == 0 || refs.size() < 2) {
+        return;
+      }
+      int direction = carDirection(tags);
+      int forward = direction < 0 ? modes & ~RoadGraph.CAR : modes;
+      int backward = direction > 0 ? modes & ~RoadGraph.CAR : modes;
+      String name = tags.getOrDefault("name", tags.get("ref"));
+      int nameIndex = name == null || name.isBlank()
+          ? -1
+          : names.computeIfAbsent(name, key -> names.size());
+      wayNodes.add(refs.stream().mapToLong(Long::longValue).toArray());
+      wayAttributes.add(new int[] {forward, backward, carKmh(tags), nameIndex});
+    }
+
+    private RoadGraph build() {
+      sortNodes();
+      // Graph index of each OSM node, assigned on first use by a routable way.
+      int[] graphIndex = new int[nodeCount];
+      Arrays.fill(graphIndex, -1);
+      int[] order = new int[nodeCount];
+      int n = 0;
+      List<int[]> edges = new ArrayList<>();
+      for (int way = 0; way < wayNodes.size(); way++) {
+        long[] refs = wayNodes.get(way);
+        int[] attributes = wayAttributes.get(way);
+        int previous = -1;
+        for (long ref : refs) {
+          int osm = Arrays.binarySearch(nodeIds, 0, nodeCount, ref);
+          if (osm < 0) {
+            // Clipped at the extract boundary.
+            previous = -1;
+            continue;
+          }
+          if (graphIndex[osm] < 0) {
+            graphIndex[osm] = n;
+            order[n++] = osm;
+          }
+          int current = graphIndex[osm];
+          if (previous >= 0 && previous != current) {
+            if (attributes[0] != 0) {
+              edges.add(new int[] {previous, current, attributes[0], attributes[2], attributes[3]});
+            }
+            if (attributes[1] != 0) {
+              edges.add(new int[] {current, previous, attributes[1], attributes[2], attributes[3]});
+            }
+          }
+          previous = current;
+        }
+      }
+
+      int[] longitudes = new int[n];
+      int[] latitudes = new int[n];
+      for (int v = 0; v < n; v++) {
+        longitudes[v] = nodeLongitudes[order[v]];
+        latitudes[v] = nodeLatitudes[order[v]];
+      }
+      edges.sort((a, b) -> Integer.compare(a[0], b[0]));
+      int m = edges.size();
+      int[] firstEdge = new int[n + 1];
+      int[] target = new int[m];
+      float[] meters = new float[m];
+      byte[] modes = new byte[m];
+      byte[] carSpeeds = new byte[m];
+      int[] nameIndex = new int[m];
+      for (int i = 0; i < m; i++) {
+        int[] edge = edges.get(i);
+        firstEdge[edge[0] + 1]++;
+        target[i] = edge[1];
+        meters[i] = (float) RoadGraph.haversine(
+            latitudes[edge[0]] / MICRO_DEGREES, longitudes[edge[0]] / MICRO_DEGREES,
+            latitudes[edge[1]] / MICRO_DEGREES, longitudes[edge[1]] / MICRO_DEGREES);
+        modes[i] = (byte) edge[2];
+        carSpeeds[i] = (byte) edge[3];
+        nameIndex[i] = edge[4];
+      }
+      for (int v = 0; v < n; v++) {
+        firstEdge[v + 1] += firstEdge[v];
+      }
+      return new RoadGraph(longitudes, latitudes, firstEdge, target, meters, modes, carSpeeds,
+          nameIndex, names.keySet().toArray(new String[0]));
+    }
+
+    /** OSM files list nodes by ascending id; sort only when this one does not. */
+    private void sortNodes() {
+      if (nodesSorted) {
+        return;
+      }
+      Integer[] byId = new Integer[nodeCount];
+      for (int i = 0; i < nodeCount; i++) {
+        byId[i] = i;
+      }
+      Arrays.sort(byId, (a, b) -> Long.compare(nodeIds[a], nodeIds[b]));
+      long[] ids = new long[nodeCount];
+      int[] lons = new int[nodeCount];
+      int[] lats = new int[nodeCount];
+      for (int i = 0; i < nodeCount; i++) {
+        ids[i] = nodeIds[byId[i]];
+        lons[i] = nodeLongitudes[byId[i]];
+        lats[i] = nodeLatitudes[byId[i]];
+      }
+      nodeIds = ids;
+      nodeLongitudes = lons;
+      nodeLatitudes = lats;
+    }
+  }
+}
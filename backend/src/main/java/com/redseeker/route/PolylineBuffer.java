@@ -0,0 +1,164 @@
+package com.redseeker.route;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of route points stored as interleaved {@code [lng0, lat0, lng1, lat1, ...]}
+ * doubles, filled straight from AMap's {@code "lng,lat;lng,lat"} polyline text.
+ *
+ * <p>{@link #appendPolyline} scans the text once and parses each number in place, without
+ * splitting it into substrings or boxing the values. Plain decimals of up to 15 significant digits,
+ * which covers every AMap coordinate, take the fast path; the division of two exactly representable
+ * values is correctly rounded, so it matches {@link Double#parseDouble}. Anything else (exponents,
+ * longer numbers) falls back to {@code Double.parseDouble}. Not thread-safe.
+ */
+final class PolylineBuffer {
+  private static final int MAX_FAST_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1.0;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private double[] coordinates;
+  private int length;
+
+  PolylineBuffer() {
+    this(256);
+  }
+
+  PolylineBuffer(int expectedPoints) {
+    this.coordinates = new double[Math.max(2, expectedPoints * 2)];
+  }
+
+  /**
+   * @return number of points held
+   */
+  int points() {
+    return length / 2;
+  }
+
+  boolean isEmpty() {
+    return length == 0;
+  }
+
+  /**
+   * @return the backing array; only the first {@code points() * 2} values are meaningful
+   */
+  double[] array() {
+    return coordinates;
+  }
+
+  void add(double longitude, double latitude) {
+    if (length + 2 > coordinates.length) {
+      coordinates = Arrays.copyOf(coordinates, Math.max(coordinates.length * 2, length + 2));
+    }
+    coordinates[length++] = longitude;
+    coordinates[length++] = latitude;
+  }
+
+  /**
+   * Appends every valid point of an AMap polyline. A point is skipped when it has fewer than two
+   * fields or a field that is not a finite number, as the old split-based decoder did.
+   *
+   * @return the number of points skipped
+   */
+  int appendPolyline(CharSequence polyline) {
+    if (polyline == null) {
+      return 0;
+    }
+    int end = polyline.length();
+    int skipped = 0;
+    int start = 0;
+    while (start < end) {
+      int pointEnd = indexOf(polyline, ';', start, end);
+      int comma = indexOf(polyline, ',', start, pointEnd);
+      if (comma < pointEnd) {
+        int latitudeEnd = indexOf(polyline, ',', comma + 1, pointEnd);
+        double longitude = parseNumber(polyline, start, comma);
+        double latitude = parseNumber(polyline, comma + 1, latitudeEnd);
+        if (Double.isFinite(longitude) && Double.isFinite(latitude)) {
+          add(longitude, latitude);
+        } else {
+          skipped++;
+        }
+      } else if (!isBlank(polyline, start, pointEnd)) {
+        skipped++;
+      }
+      start = pointEnd + 1;
+    }
+    return skipped;
+  }
+
+  /**
+   * @return the number in {@code text[from, to)} ignoring surrounding whitespace, or NaN when it is
+   *     not a number
+   */
+  static double parseNumber(CharSequence text, int from, int to) {
+    while (from < to && Character.isWhitespace(text.charAt(from))) {
+      from++;
+    }
+    while (to > from && Character.isWhitespace(text.charAt(to - 1))) {
+      to--;
+    }
+    int i = from;
+    boolean negative = false;
+    if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+      negative = text.charAt(i) == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (; i < to; i++) {
+      char c = text.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (++digits > MAX_FAST_DIGITS) {
+          return parseSlow(text, from, to);
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      } else if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        return parseSlow(text, from, to);
+      }
+    }
+    if (digits == 0) {
+      return parseSlow(text, from, to);
+    }
+    double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+    return negative ? -value : value;
+  }
+
+  private static double parseSlow(CharSequence text, int from, int to) {
+    try {
+      return Double.parseDouble(text.subSequence(from, to).toString());
+    } catch (NumberFormatException ex) {
+      return Double.NaN;
+    }
+  }
+
+  private static int indexOf(CharSequence text, char target, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (text.charAt(i) == target) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  private static boolean isBlank(CharSequence text, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
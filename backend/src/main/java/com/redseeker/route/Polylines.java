@@ -0,0 +1,147 @@
+package com.redseeker.route;
+
+import java.util.Arrays;
+
+/**
+ * Simplification and compact encoding of route geometry. Coordinates are interleaved
+ * {@code [lng0, lat0, lng1, lat1, ...]} doubles, as AMap orders them.
+ *
+ * <p>{@link #simplify} is Douglas–Peucker on a local equirectangular projection, so the tolerance
+ * is in meters; {@link #toleranceMeters} turns a map zoom level into the ground size of a screen
+ * pixel, so a route drawn at that zoom looks the same with far fewer vertices. {@link #encode}
+ * writes the Google encoded polyline format (precision 1e-5, about one meter, latitude before
+ * longitude), which common map libraries decode directly and which is roughly a tenth of the size
+ * of a JSON coordinate array.
+ */
+final class Polylines {
+  private static final double METERS_PER_PIXEL_AT_ZOOM_0 = 156_543.033_92;
+  private static final double METERS_PER_DEGREE_LATITUDE = 110_574.0;
+  private static final double METERS_PER_DEGREE_LONGITUDE = 111_320.0;
+  private static final double ENCODING_SCALE = 1e5;
+
+  private Polylines() {}
+
+  /**
+   * @return meters covered by {@code pixels} screen pixels at the zoom level and latitude
+   */
+  static double toleranceMeters(int zoom, double latitude, double pixels) {
+    return pixels * METERS_PER_PIXEL_AT_ZOOM_0 * Math.cos(Math.toRadians(latitude))
+        / Math.pow(2, zoom);
+  }
+
+  /**
+   * @param points number of points in {@code coordinates} to use
+   * @return the kept points, always including the first and last; every dropped point lies within
+   *     {@code toleranceMeters} of the simplified line
+   */
+  static double[] simplify(double[] coordinates, int points, double toleranceMeters) {
+    if (points < 3 || toleranceMeters <= 0) {
+      return Arrays.copyOf(coordinates, points * 2);
+    }
+    double kx = METERS_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(coordinates[1]));
+    double ky = METERS_PER_DEGREE_LATITUDE;
+    double tolerance = toleranceMeters * toleranceMeters;
+    boolean[] keep = new boolean[points];
+    keep[0] = true;
+    keep[points - 1] = true;
+    int kept = 2;
+
+    // Ranges still to examine, as (first, last) pairs; iterative so long routes cannot overflow
+    // the call stack.
+    int[] ranges = new int[64];
+    int top = 0;
+    ranges[top++] = 0;
+    ranges[top++] = points - 1;
+    while (top > 0) {
+      int last = ranges[--top];
+      int first = ranges[--top];
+      double ax = coordinates[first * 2] * kx;
+      double ay = coordinates[first * 2 + 1] * ky;
+      double dx = coordinates[last * 2] * kx - ax;
+      double dy = coordinates[last * 2 + 1] * ky - ay;
+      double lengthSquared = dx * dx + dy * dy;
+      int farthest = -1;
+      double farthestSquared = tolerance;
+      for (int i = first + 1; i < last; i++) {
+        double px = coordinates[i * 2] * kx - ax;
+        double py = coordinates[i * 2 + 1] * ky - ay;
+        double t = lengthSquared == 0
+            ? 0
+            : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+        double ex = px - t * dx;
+        double ey = py - t * dy;
+        double distanceSquared = ex * ex + ey * ey;
+        if (distanceSquared > farthestSquared) {
+          farthestSquared = distanceSquared;
+          farthest = i;
+        }
+      }
+      if (farthest < 0) {
+        continue;
+      }
+      keep[farthest] = true;
+      kept++;
+      if (top + 4 > ranges.length) {
+        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+      }
+      ranges[top++] = first;
+      ranges[top++] = farthest;
+      ranges[top++] = farthest;
+      ranges[top++] = last;
+    }
+
+    double[] simplified = new double[kept * 2];
+    int at = 0;
+    for (int i = 0; i < points; i++) {
+      if (keep[i]) {
+        simplified[at++] = coordinates[i * 2];
+        simplified[at++] = coordinates[i * 2 + 1];
+      }
+    }
+    return simplified;
+  }
+
+  /**
+   * @return the points in the Google encoded polyline format
+   */
+  static String encode(double[] coordinates) {
+    StringBuilder encoded = new StringBuilder(coordinates.length * 3);
+    long previousLat = 0;
+    long previousLng = 0;
+    for (int i = 0; i + 1 < coordinates.length; i += 2) {
+      long lat = Math.round(coordinates[i + 1] * ENCODING_SCALE);
+      long lng = Math.round(coordinates[i] * ENCODING_SCALE);
+      encodeValue(encoded, lat - previousLat);
+      encodeValue(encoded, lng - previousLng);
+      previousLat = lat;
+      previousLng = lng;
+    }
+    return encoded.toString();
+  }
+
+  /**
+   * @return the points in AMap's {@code "lng,lat;lng,lat"} form, or {@code null} when empty
+   */
+  static String format(double[] coordinates) {
+    if (coordinates.length < 2) {
+      return null;
+    }
+    StringBuilder polyline = new StringBuilder(coordinates.length * 11);
+    for (int i = 0; i + 1 < coordinates.length; i += 2) {
+      if (i > 0) {
+        polyline.append(';');
+      }
+      polyline.append(coordinates[i]).append(',').append(coordinates[i + 1]);
+    }
+    return polyline.toString();
+  }
+
+  private static void encodeValue(StringBuilder encoded, long value) {
+    long rest = value < 0 ? ~(value << 1) : value << 1;
+    while (rest >= 0x20) {
+      encoded.append((char) ((0x20 | (rest & 0x1f)) + 63));
+      rest >>= 5;
+    }
+    encoded.append((char) (rest + 63));
+  }
+}
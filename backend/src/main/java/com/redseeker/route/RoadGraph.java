@@ -0,0 +1,629 @@
+package com.redseeker.route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A directed road network in compressed sparse row form, answering point-to-point shortest-time
+ * queries with bidirectional A*. Instances are immutable and safe to share between threads. Search
+ * state is pooled and reset between queries, touching only the nodes a query reached, so the pool
+ * grows only to the peak number of concurrent queries.
+ *
+ * <p>Edges leaving node {@code v} are {@code firstEdge[v] .. firstEdge[v + 1] - 1}. Every edge has
+ * a length in meters, a mode mask ({@link #FOOT}, {@link #CAR}), a car speed in km/h (0 for the
+ * default) and an index into the road name table (-1 when unnamed). Two-way roads are two edges.
+ * Lengths shorter than the great-circle distance between their endpoints are raised to it on load,
+ * which keeps the straight-line heuristic admissible and consistent.
+ *
+ * <p>Both searches run on reduced costs with the average potential {@code p(v) = (h_t(v) -
+ * h_s(v)) / 2}, where {@code h} is the great-circle distance over the mode's top speed; the query
+ * stops once the two queue minimums together reach the best meeting cost.
+ *
+ * <p>File layout (big-endian), written by {@link OsmRoadGraphConverter} from an OSM extract:
+ * magic {@code "RSRG"}, format version, node count {@code n}, edge count {@code m}, name count
+ * {@code k}, then {@code int[n]} longitudes and {@code int[n]} latitudes in micro-degrees, {@code
+ * int[n + 1]} first edges, {@code int[m]} edge targets, {@code float[m]} meters, {@code byte[m]}
+ * mode masks, {@code byte[m]} car speeds, {@code int[m]} name indexes and {@code k} names in
+ * modified UTF-8.
+ */
+public final class RoadGraph {
+  /** Mode bit of edges open to pedestrians. */
+  public static final int FOOT = 1;
+  /** Mode bit of edges open to cars. */
+  public static final int CAR = 2;
+
+  private static final int MAGIC = 0x52535247;
+  private static final int FORMAT_VERSION = 1;
+  private static final double MICRO_DEGREES = 1_000_000.0;
+  private static final double EARTH_RADIUS = 6371000.0;
+  private static final double DEFAULT_CAR_KMH = 30.0;
+  private static final double GRID_DEGREES = 0.01;
+
+  private final int[] longitudes;
+  private final int[] latitudes;
+  private final int[] firstEdge;
+  private final int[] target;
+  private final float[] meters;
+  private final byte[] modes;
+  private final byte[] carSpeeds;
+  private final int[] nameIndex;
+  private final String[] names;
+  private final double maxCarSpeed;
+
+  // Incoming edges for the backward search: reverseFirst[v] .. reverseFirst[v + 1] - 1 index
+  // reverseEdge, which holds forward edge ids; their sources are in reverseSource.
+  private final int[] reverseFirst;
+  private final int[] reverseEdge;
+  private final int[] reverseSource;
+
+  // Nodes bucketed by GRID_DEGREES cells for snapping: cellKeys is sorted, the nodes of cell i are
+  // cellNodes[cellFirst[i] .. cellFirst[i + 1] - 1].
+  private final long[] cellKeys;
+  private final int[] cellFirst;
+  private final int[] cellNodes;
+
+  private final Queue<Search[]> searches = new ConcurrentLinkedQueue<>();
+
+  RoadGraph(
+      int[] longitudes,
+      int[] latitudes,
+      int[] firstEdge,
+      int[] target,
+      float[] meters,
+      byte[] modes,
+      byte[] carSpeeds,
+      int[] nameIndex,
+      String[] names) {
+    int n = longitudes.length;
+    int m = target.length;
+    this.longitudes = longitudes;
+    this.latitudes = latitudes;
+    this.firstEdge = firstEdge;
+    this.target = target;
+    this.meters = meters;
+    this.modes = modes;
+    this.carSpeeds = carSpeeds;
+    this.nameIndex = nameIndex;
+    this.names = names;
+
+    double fastest = DEFAULT_CAR_KMH;
+    for (int from = 0; from < n; from++) {
+      for (int edge = firstEdge[from]; edge < firstEdge[from + 1]; edge++) {
+        double straight = straightDistance(from, target[edge]);
+        if (meters[edge] < straight) {
+          float raised = (float) straight;
+          meters[edge] = raised < straight ? Math.nextUp(raised) : raised;
+        }
+        fastest = Math.max(fastest, carKmh(edge));
+      }
+    }
+    this.maxCarSpeed = fastest / 3.6;
+
+    reverseFirst = new int[n + 1];
+    for (int edge = 0; edge < m; edge++) {
+      reverseFirst[target[edge] + 1]++;
+    }
+    for (int v = 0; v < n; v++) {
+      reverseFirst[v + 1] += reverseFirst[v];
+    }
+    reverseEdge = new int[m];
+    reverseSource = new int[m];
+    int[] fill = Arrays.copyOf(reverseFirst, n);
+    for (int from = 0; from < n; from++) {
+      for (int edge = firstEdge[from]; edge < firstEdge[from + 1]; edge++) {
+        int slot = fill[target[edge]]++;
+        reverseEdge[slot] = edge;
+        reverseSource[slot] = from;
+      }
+    }
+
+    long[] keys = new long[n];
+    Integer[] byCell = new Integer[n];
+    for (int v = 0; v < n; v++) {
+      keys[v] = cellKey(longitudes[v] / MICRO_DEGREES, latitudes[v] / MICRO_DEGREES);
+      byCell[v] = v;
+    }
+    Arrays.sort(byCell, (a, b) -> Long.compare(keys[a], keys[b]));
+    cellNodes = new int[n];
+    long[] distinct = new long[n];
+    int[] starts = new int[n + 1];
+    int cells = 0;
+    for (int i = 0; i < n; i++) {
+      cellNodes[i] = byCell[i];
+      if (i == 0 || keys[byCell[i]] != distinct[cells - 1]) {
+        distinct[cells] = keys[byCell[i]];
+        starts[cells++] = i;
+      }
+    }
+    starts[cells] = n;
+    cellKeys = Arrays.copyOf(distinct, cells);
+    cellFirst = Arrays.copyOf(starts, cells + 1);
+  }
+
+  static RoadGraph read(Path path) throws IOException {
+    try (InputStream file = Files.newInputStream(path);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not a road graph: " + path);
+      }
+      int n = in.readInt();
+      int m = in.readInt();
+      int k = in.readInt();
+      int[] longitudes = readInts(in, n);
+      int[] latitudes = readInts(in, n);
+      int[] firstEdge = readInts(in, n + 1);
+      int[] target = readInts(in, m);
+      float[] meters = new float[m];
+      for (int i = 0; i < m; i++) {
+        meters[i] = in.readFloat();
+      }
+      byte[] modes = new byte[m];
+      in.readFully(modes);
+      byte[] carSpeeds = new byte[m];
+      in.readFully(carSpeeds);
+      int[] nameIndex = readInts(in, m);
+      String[] names = new String[k];
+      for (int i = 0; i < k; i++) {
+        names[i] = in.readUTF();
+      }
+      if (firstEdge[0] != 0 || firstEdge[n] != m) {
+        throw new IOException("Corrupt road graph: " + path);
+      }
+      return new RoadGraph(
+          longitudes, latitudes, firstEdge, target, meters, modes, carSpeeds, nameIndex, names);
+    }
+  }
+
+  void write(Path path) throws IOException {
+    try (OutputStream file = Files.newOutputStream(path);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(longitudes.length);
+      out.writeInt(target.length);
+      out.writeInt(names.length);
+      writeInts(out, longitudes);
+      writeInts(out, latitudes);
+      writeInts(out, firstEdge);
+      writeInts(out, target);
+      for (float value : meters) {
+        out.writeFloat(value);
+      }
+      out.write(modes);
+      out.write(carSpeeds);
+      writeInts(out, nameIndex);
+      for (String name : names) {
+        out.writeUTF(name);
+      }
+    }
+  }
+
+  public int nodeCount() {
+    return longitudes.length;
+  }
+
+  public int edgeCount() {
+    return target.length;
+  }
+
+  public double longitude(int node) {
+    return longitudes[node] / MICRO_DEGREES;
+  }
+
+  public double latitude(int node) {
+    return latitudes[node] / MICRO_DEGREES;
+  }
+
+  /**
+   * @return the node nearest to the point that has an edge open to the mode, or -1 when none lies
+   *     within {@code maxMeters}
+   */
+  public int nearestNode(double longitude, double latitude, int mode, double maxMeters) {
+    // Cells are narrowest east-west; search enough rings of them to cover maxMeters that way.
+    int rings = (int) Math.ceil(maxMeters / (GRID_DEGREES * 111_000.0 * Math.cos(
+        Math.toRadians(Math.min(Math.abs(latitude), 80.0)))));
+    long x = (long) Math.floor(longitude / GRID_DEGREES);
+    long y = (long) Math.floor(latitude / GRID_DEGREES);
+    int best = -1;
+    double bestMeters = maxMeters;
+    for (long dx = -rings; dx <= rings; dx++) {
+      for (long dy = -rings; dy <= rings; dy++) {
+        int cell = Arrays.binarySearch(cellKeys, (x + dx) << 32 ^ ((y + dy) & 0xffffffffL));
+        if (cell < 0) {
+          continue;
+        }
+        for (int i = cellFirst[cell]; i < cellFirst[cell + 1]; i++) {
+          int node = cellNodes[i];
+          if (!touches(node, mode)) {
+            continue;
+          }
+          double d = haversine(latitude, longitude, latitude(node), longitude(node));
+          if (d <= bestMeters) {
+            bestMeters = d;
+            best = node;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @param mode {@link #FOOT} or {@link #CAR}
+   * @param speed meters per second for every edge, or 0 to use each car edge's own speed
+   * @return the fastest path, or {@code null} when the target cannot be reached
+   */
+  public Leg route(int source, int destination, int mode, double speed) {
+    if (source == destination) {
+      return new Leg(new int[] {source}, new int[0], 0.0, 0.0);
+    }
+    Search[] pair = searches.poll();
+    if (pair == null) {
+      pair = new Search[] {new Search(nodeCount()), new Search(nodeCount())};
+    }
+    try {
+      return search(pair[0], pair[1], source, destination, mode, speed);
+    } finally {
+      pair[0].reset();
+      pair[1].reset();
+      searches.offer(pair);
+    }
+  }
+
+  private Leg search(
+      Search forward, Search backward, int source, int destination, int mode, double speed) {
+    double topSpeed = speed > 0 ? speed : maxCarSpeed;
+    forward.reach(source, 0.0, -1, -1, potential(source, source, destination, topSpeed));
+    backward.reach(destination, 0.0, -1, -1, -potential(destination, source, destination, topSpeed));
+
+    double best = Double.POSITIVE_INFINITY;
+    int meeting = -1;
+    while (!forward.queue.isEmpty() && !backward.queue.isEmpty()) {
+      if (forward.queue.peekKey() + backward.queue.peekKey() >= best) {
+        break;
+      }
+      boolean forwardTurn = forward.queue.size() <= backward.queue.size();
+      Search search = forwardTurn ? forward : backward;
+      Search other = forwardTurn ? backward : forward;
+      int node = search.queue.poll();
+      if (search.settled(node)) {
+        continue;
+      }
+      double base = search.cost[node];
+      if (forwardTurn) {
+        for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+          if ((modes[edge] & mode) == 0) {
+            continue;
+          }
+          int next = target[edge];
+          double cost = base + seconds(edge, speed);
+          if (cost < search.costOf(next)) {
+            search.reach(next, cost, node, edge,
+                cost + potential(next, source, destination, topSpeed));
+            double through = cost + other.costOf(next);
+            if (through < best) {
+              best = through;
+              meeting = next;
+            }
+          }
+        }
+      } else {
+        for (int slot = reverseFirst[node]; slot < reverseFirst[node + 1]; slot++) {
+          int edge = reverseEdge[slot];
+          if ((modes[edge] & mode) == 0) {
+            continue;
+          }
+          int next = reverseSource[slot];
+          double cost = base + seconds(edge, speed);
+          if (cost < search.costOf(next)) {
+            search.reach(next, cost, node, edge,
+                cost - potential(next, source, destination, topSpeed));
+            double through = cost + other.costOf(next);
+            if (through < best) {
+              best = through;
+              meeting = next;
+            }
+          }
+        }
+      }
+    }
+    if (meeting < 0) {
+      return null;
+    }
+    return buildPath(forward, backward, meeting, best);
+  }
+
+  /**
+   * @return the road name of an edge, or {@code null} when unnamed
+   */
+  public String roadName(int edge) {
+    int index = nameIndex[edge];
+    return index < 0 ? null : names[index];
+  }
+
+  public double edgeMeters(int edge) {
+    return meters[edge];
+  }
+
+  /**
+   * @return seconds to travel an edge; see {@link #route}
+   */
+  public double edgeSeconds(int edge, double speed) {
+    return seconds(edge, speed);
+  }
+
+  private double seconds(int edge, double speed) {
+    if (speed > 0) {
+      return meters[edge] / speed;
+    }
+    return meters[edge] / (carKmh(edge) / 3.6);
+  }
+
+  private double carKmh(int edge) {
+    int kmh = carSpeeds[edge] & 0xff;
+    return kmh == 0 ? DEFAULT_CAR_KMH : kmh;
+  }
+
+  private boolean touches(int node, int mode) {
+    for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+      if ((modes[edge] & mode) != 0) {
+        return true;
+      }
+    }
+    for (int slot = reverseFirst[node]; slot < reverseFirst[node + 1]; slot++) {
+      if ((modes[reverseEdge[slot]] & mode) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Average potential: half the difference of the lower bounds to the target and from the source. */
+  private double potential(int node, int source, int destination, double topSpeed) {
+    return (straightDistance(node, destination) - straightDistance(source, node)) / topSpeed / 2;
+  }
+
+  private Leg buildPath(Search forward, Search backward, int meeting, double seconds) {
+    int forwardLength = 0;
+    for (int node = meeting; forward.parent(node) >= 0; node = forward.parent(node)) {
+      forwardLength++;
+    }
+    int backwardLength = 0;
+    for (int node = meeting; backward.parent(node) >= 0; node = backward.parent(node)) {
+      backwardLength++;
+    }
+    int[] nodes = new int[forwardLength + backwardLength + 1];
+    int[] edges = new int[forwardLength + backwardLength];
+    int node = meeting;
+    for (int i = forwardLength; i > 0; i--) {
+      nodes[i] = node;
+      edges[i - 1] = forward.edge(node);
+      node = forward.parent(node);
+    }
+    nodes[0] = node;
+    node = meeting;
+    for (int i = forwardLength; i < edges.length; i++) {
+      edges[i] = backward.edge(node);
+      node = backward.parent(node);
+      nodes[i + 1] = node;
+    }
+    double length = 0.0;
+    for (int edge : edges) {
+      length += meters[edge];
+    }
+    return new Leg(nodes, edges, length, seconds);
+  }
+
+  private double straightDistance(int from, int to) {
+    return haversine(latitude(from), longitude(from), latitude(to), longitude(to));
+  }
+
+  static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return EARTH_RADIUS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+  }
+
+  private static long cellKey(double longitude, double latitude) {
+    long x = (long) Math.floor(longitude / GRID_DEGREES);
+    long y = (long) Math.floor(latitude / GRID_DEGREES);
+    return x << 32 ^ (y & 0xffffffffL);
+  }
+
+  private static int[] readInts(DataInputStream in, int count) throws IOException {
+    int[] values = new int[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  /** A shortest path: its nodes in order and the edges between them. */
+  public static final class Leg {
+    private final int[] nodes;
+    private final int[] edges;
+    private final double meters;
+    private final double seconds;
+
+    private Leg(int[] nodes, int[] edges, double meters, double seconds) {
+      this.nodes = nodes;
+      this.edges = edges;
+      this.meters = meters;
+      this.seconds = seconds;
+    }
+
+    public int[] getNodes() {
+      return nodes;
+    }
+
+    /**
+     * @return edge ids; edge {@code i} leads from {@code nodes[i]} to {@code nodes[i + 1]}
+     */
+    public int[] getEdges() {
+      return edges;
+    }
+
+    public double getMeters() {
+      return meters;
+    }
+
+    public double getSeconds() {
+      return seconds;
+    }
+  }
+
+  /**
+   * One direction of a query. Node state lives in arrays sized to the graph and is reused across
+   * queries; {@link #reset} clears only the nodes the last query reached. The queue holds stale
+   * entries instead of supporting decrease-key.
+   */
+  private static final class Search {
+    private final double[] cost;
+    private final int[] parent;
+    private final int[] via;
+    private final boolean[] done;
+    private final NodeQueue queue = new NodeQueue();
+    private int[] reached = new int[64];
+    private int reachedCount;
+
+    private Search(int nodes) {
+      cost = new double[nodes];
+      parent = new int[nodes];
+      via = new int[nodes];
+      done = new boolean[nodes];
+      Arrays.fill(cost, Double.POSITIVE_INFINITY);
+    }
+
+    private void reach(int node, double nodeCost, int from, int edge, double key) {
+      if (cost[node] == Double.POSITIVE_INFINITY) {
+        if (reachedCount == reached.length) {
+          reached = Arrays.copyOf(reached, reachedCount * 2);
+        }
+        reached[reachedCount++] = node;
+      }
+      cost[node] = nodeCost;
+      parent[node] = from;
+      via[node] = edge;
+      queue.add(node, key);
+    }
+
+    /** Marks a polled node settled; returns whether it already was (a stale queue entry). */
+    private boolean settled(int node) {
+      if (done[node]) {
+        return true;
+      }
+      done[node] = true;
+      return false;
+    }
+
+    private double costOf(int node) {
+      return cost[node];
+    }
+
+    private void reset() {
+      for (int i = 0; i < reachedCount; i++) {
+        cost[reached[i]] = Double.POSITIVE_INFINITY;
+        done[reached[i]] = false;
+      }
+      reachedCount = 0;
+      queue.clear();
+    }
+
+    private int parent(int node) {
+      return parent[node];
+    }
+
+    private int edge(int node) {
+      return via[node];
+    }
+  }
+
+  /** Binary min-heap of nodes keyed by double, backed by primitive arrays. */
+  private static final class NodeQueue {
+    private double[] keys = new double[64];
+    private int[] nodes = new int[64];
+    private int size;
+
+    private boolean isEmpty() {
+      return size == 0;
+    }
+
+    private void clear() {
+      size = 0;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private double peekKey() {
+      return keys[0];
+    }
+
+    private void add(int node, double key) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        nodes = Arrays.copyOf(nodes, size * 2);
+      }
+      int i = size++;
+      while (i > 0) {
+        int up = (i - 1) >>> 1;
+        if (keys[up] <= key) {
+          break;
+        }
+        keys[i] = keys[up];
+        nodes[i] = nodes[up];
+        i = up;
+      }
+      keys[i] = key;
+      nodes[i] = node;
+    }
+
+    private int poll() {
+      int top = nodes[0];
+      size--;
+      double key = keys[size];
+      int node = nodes[size];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && keys[child + 1] < keys[child]) {
+          child++;
+        }
+        if (keys[child] >= key) {
+          break;
+        }
+        keys[i] = keys[child];
+        nodes[i] = nodes[child];
+        i = child;
+      }
+      keys[i] = key;
+      nodes[i] = node;
+      return top;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package com.redseeker.route;
+
+import com.redseeker.common.DatabasePaths;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Local routing on an offline {@link RoadGraph}, used when AMap has no key, fails or times out. The
+ * graph file is read once at startup; without it every method returns {@code null} and callers keep
+ * their straight-line fallback. Routes come back in the same {@link RouteInfo} shape as AMap's, with
+ * one step per named road; the short hops between each point and its snapped road node are added as
+ * straight segments.
+ */
+@Service
+public class RoadGraphService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RoadGraphService.class);
+  private static final String GRAPH_FILE = "road-network.graph";
+  private static final double WALKING_SPEED = 1.2;
+  private static final double TRANSIT_SPEED = 5.0;
+
+  private final RoadGraph graph;
+  private final double maxSnapMeters;
+
+  public RoadGraphService(
+      DatabasePaths databasePaths,
+      @Value("${route.road-graph.file:}") String file,
+      @Value("${route.road-graph.max-snap-meters:1000}") double maxSnapMeters) {
+    this.maxSnapMeters = maxSnapMeters;
+    this.graph = load(databasePaths.resolveModelFile(file, GRAPH_FILE));
+  }
+
+  public boolean isAvailable() {
+    return graph != null;
+  }
+
+  /**
+   * @return the route from one point to another, or {@code null} when there is no graph, a point is
+   *     farther than {@code route.road-graph.max-snap-meters} from any road, or no path exists
+   */
+  public RouteInfo route(RouteLocation origin, RouteLocation destination, String mode) {
+    return route(List.of(origin, destination), mode);
+  }
+
+  /**
+   * @param points origin, waypoints and destination in order
+   * @return the route through every point, or {@code null} as for {@link #route(RouteLocation,
+   *     RouteLocation, String)} when any leg cannot be routed
+   */
+  public RouteInfo route(List<RouteLocation> points, String mode) {
+    if (graph == null || points.size() < 2) {
+      return null;
+    }
+    int modeMask = "walking".equals(mode) ? RoadGraph.FOOT : RoadGraph.CAR;
+    double speed = switch (mode) {
+      case "walking" -> WALKING_SPEED;
+      case "transit" -> TRANSIT_SPEED;
+      default -> 0.0; // each car edge's own speed
+    };
+    // Off-road hops to and from the snapped nodes use the mode's speed, or walking speed by car.
+    double hopSpeed = speed > 0 ? speed : WALKING_SPEED;
+
+    int[] nodes = new int[points.size()];
+    for (int i = 0; i < nodes.length; i++) {
+      RouteLocation point = points.get(i);
+      nodes[i] =
+          graph.nearestNode(point.getLongitude(), point.getLatitude(), modeMask, maxSnapMeters);
+      if (nodes[i] < 0) {
+        return null;
+      }
+    }
+
+    double meters = 0.0;
+    double seconds = 0.0;
+    StringBuilder polyline = new StringBuilder();
+    List<RouteStep> steps = new ArrayList<>();
+    String verb = "walking".equals(mode) ? "步行" : "行驶";
+    for (int leg = 0; leg + 1 < nodes.length; leg++) {
+      RoadGraph.Leg path = graph.route(nodes[leg], nodes[leg + 1], modeMask, speed);
+      if (path == null) {
+        return null;
+      }
+      RouteLocation from = points.get(leg);
+      RouteLocation to = points.get(leg + 1);
+      double hopIn = hop(from, path.getNodes()[0]);
+      double hopOut = hop(to, path.getNodes()[path.getNodes().length - 1]);
+      meters += hopIn + path.getMeters() + hopOut;
+      seconds += (hopIn + hopOut) / hopSpeed + path.getSeconds();
+
+      if (leg == 0) {
+        appendPoint(polyline, from.getLongitude(), from.getLatitude());
+      }
+      for (int node : path.getNodes()) {
+        appendPoint(polyline, graph.longitude(node), graph.latitude(node));
+      }
+      appendPoint(polyline, to.getLongitude(), to.getLatitude());
+      addSteps(steps, path, speed, verb);
+    }
+
+    RouteInfo info = new RouteInfo();
+    info.setDistance((int) Math.round(meters));
+    info.setDuration((int) Math.round(seconds));
+    info.setPolyline(polyline.toString());
+    info.setSteps(steps);
+    return info;
+  }
+
+  /** One step per run of consecutive edges on the same road. */
+  private void addSteps(List<RouteStep> steps, RoadGraph.Leg path, double speed, String verb) {
+    int[] edges = path.getEdges();
+    int[] nodes = path.getNodes();
+    int first = 0;
+    while (first < edges.length) {
+      String road = graph.roadName(edges[first]);
+      int last = first;
+      while (last + 1 < edges.length && Objects.equals(graph.roadName(edges[last + 1]), road)) {
+        last++;
+      }
+      double meters = 0.0;
+      double seconds = 0.0;
+      StringBuilder polyline = new StringBuilder();
+      for (int i = first; i <= last; i++) {
+        meters += graph.edgeMeters(edges[i]);
+        seconds += graph.edgeSeconds(edges[i], speed);
+      }
+      for (int i = first; i <= last + 1; i++) {
+        appendPoint(polyline, graph.longitude(nodes[i]), graph.latitude(nodes[i]));
+      }
+      int distance = (int) Math.round(meters);
+      String instruction = "沿" + (road != null ? road : "无名道路") + verb + distance + "米";
+      steps.add(new RouteStep(
+          instruction, road, distance, (int) Math.round(seconds), polyline.toString()));
+      first = last + 1;
+    }
+  }
+
+  private double hop(RouteLocation point, int node) {
+    return haversine(point.getLatitude(), point.getLongitude(), graph.latitude(node),
+        graph.longitude(node));
+  }
+
+  /** Appends a point unless it repeats the previous one. */
+  private static void appendPoint(StringBuilder polyline, double longitude, double latitude) {
+    String point = longitude + "," + latitude;
+    int previous = polyline.length() - point.length();
+    if (previous >= 0
+        && polyline.indexOf(point, previous) == previous
+        && (previous == 0 || polyline.charAt(previous - 1) == ';')) {
+      return;
+    }
+    if (polyline.length() > 0) {
+      polyline.append(';');
+    }
+    polyline.append(point);
+  }
+
+  private static RoadGraph load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      LOGGER.info("No road graph at {}, offline routing disabled", file);
+      return null;
+    }
+    try {
+      long started = System.nanoTime();
+      RoadGraph graph = RoadGraph.read(file);
+      LOGGER.info("Road graph loaded: {} nodes, {} edges in {} ms", graph.nodeCount(),
+          graph.edgeCount(), (System.nanoTime() - started) / 1_000_000);
+      return graph;
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to read road graph {}", file, ex);
+      return null;
+    }
+  }
+
+  private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double earthRadius = 6371000.0;
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    return earthRadius * c;
+  }
+}
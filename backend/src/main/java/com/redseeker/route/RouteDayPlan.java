@@ -0,0 +1,79 @@
+package com.redseeker.route;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多日行程中某一天的路线（前端格式）
+ */
+public class RouteDayPlan {
+  private int day;                   // 第几天，从 1 开始
+  private List<Long> attractionIds = new ArrayList<>();  // 当天按游览顺序排列的景点
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @JsonSerialize(using = CoordinatePathSerializer.class)
+  private double[] path;             // 路径点数组 [[lng, lat], ...]
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String encodedPath;        // 编码后的路径（pathFormat=encoded 时代替 path）
+  private Integer total_distance;    // 当天总距离（米）
+  private Integer total_duration;    // 当天总时间（秒）
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private List<RouteScheduleStop> schedule;  // 按营业时间排程（仅 time_window 策略）
+
+  public int getDay() {
+    return day;
+  }
+
+  public void setDay(int day) {
+    this.day = day;
+  }
+
+  public List<Long> getAttractionIds() {
+    return attractionIds;
+  }
+
+  public void setAttractionIds(List<Long> attractionIds) {
+    this.attractionIds = attractionIds;
+  }
+
+  public double[] getPath() {
+    return path;
+  }
+
+  public void setPath(double[] path) {
+    this.path = path;
+  }
+
+  public String getEncodedPath() {
+    return encodedPath;
+  }
+
+  public void setEncodedPath(String encodedPath) {
+    this.encodedPath = encodedPath;
+  }
+
+  public Integer getTotal_distance() {
+    return total_distance;
+  }
+
+  public void setTotal_distance(Integer total_distance) {
+    this.total_distance = total_distance;
+  }
+
+  public Integer getTotal_duration() {
+    return total_duration;
+  }
+
+  public void setTotal_duration(Integer total_duration) {
+    this.total_duration = total_duration;
+  }
+
+  public List<RouteScheduleStop> getSchedule() {
+    return schedule;
+  }
+
+  public void setSchedule(List<RouteScheduleStop> schedule) {
+    this.schedule = schedule;
+  }
+}
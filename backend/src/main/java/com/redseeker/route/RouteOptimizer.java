@@ -0,0 +1,249 @@
+package com.redseeker.route;
+
+import java.util.Arrays;
+
+/**
+ * Orders the stops of an open path with fixed endpoints so the total travel cost is minimal.
+ *
+ * <p>Costs come from a precomputed {@code (n + 2) × (n + 2)} matrix: node 0 is the start, nodes
+ * {@code 1..n} are the stops and node {@code n + 1} is the end. A path without a fixed end gives
+ * the end node a zero row and column. Up to {@code exactLimit} stops are solved exactly by
+ * Held–Karp dynamic programming in {@code O(2ⁿ n²)}; larger sets start from a nearest-neighbour
+ * tour improved by 2-opt and Or-opt moves until no move helps or the time budget runs out. The
+ * matrix need not be symmetric. Instances are immutable and safe to share between threads.
+ */
+final class RouteOptimizer {
+  /** Above this Held–Karp needs more than a few hundred megabytes. */
+  static final int MAX_EXACT_LIMIT = 18;
+
+  private static final double EPSILON = 1e-9;
+  private static final int MAX_SEGMENT = 3;
+
+  private final int exactLimit;
+  private final long timeBudgetNanos;
+
+  RouteOptimizer(int exactLimit, long timeBudgetMillis) {
+    this.exactLimit = Math.max(0, Math.min(exactLimit, MAX_EXACT_LIMIT));
+    this.timeBudgetNanos = Math.max(0L, timeBudgetMillis) * 1_000_000L;
+  }
+
+  /**
+   * @param cost travel cost from row node to column node
+   * @return the stops in visiting order, as indexes {@code 0..n-1}
+   */
+  int[] order(double[][] cost) {
+    int stops = cost.length - 2;
+    if (stops <= 0) {
+      return new int[0];
+    }
+    if (stops <= 2 || stops <= exactLimit) {
+      return heldKarp(cost, stops);
+    }
+    int[] tour = nearestNeighbour(cost, stops);
+    improve(cost, tour, System.nanoTime() + timeBudgetNanos);
+    int[] order = new int[stops];
+    for (int i = 0; i < stops; i++) {
+      order[i] = tour[i + 1] - 1;
+    }
+    return order;
+  }
+
+  /**
+   * @param order stops in visiting order, as returned by {@link #order}
+   * @return the cost of travelling start, {@code order}, end
+   */
+  static double length(double[][] cost, int[] order) {
+    double total = 0.0;
+    int previous = 0;
+    for (int stop : order) {
+      total += cost[previous][stop + 1];
+      previous = stop + 1;
+    }
+    return total + cost[previous][cost.length - 1];
+  }
+
+  private static int[] heldKarp(double[][] cost, int stops) {
+    int end = stops + 1;
+    int full = (1 << stops) - 1;
+    // best[mask * stops + last]: cheapest path from the start through exactly the stops in mask,
+    // finishing at stop `last` (which is in mask).
+    double[] best = new double[(full + 1) * stops];
+    byte[] previous = new byte[(full + 1) * stops];
+    Arrays.fill(best, Double.POSITIVE_INFINITY);
+    for (int stop = 0; stop < stops; stop++) {
+      best[(1 << stop) * stops + stop] = cost[0][stop + 1];
+      previous[(1 << stop) * stops + stop] = -1;
+    }
+    for (int mask = 1; mask <= full; mask++) {
+      for (int last = 0; last < stops; last++) {
+        double base = best[mask * stops + last];
+        if ((mask & (1 << last)) == 0 || base == Double.POSITIVE_INFINITY) {
+          continue;
+        }
+        double[] row = cost[last + 1];
+        int rest = full & ~mask;
+        while (rest != 0) {
+          int next = Integer.numberOfTrailingZeros(rest);
+          rest &= rest - 1;
+          int at = (mask | (1 << next)) * stops + next;
+          double candidate = base + row[next + 1];
+          if (candidate < best[at]) {
+            best[at] = candidate;
+            previous[at] = (byte) last;
+          }
+        }
+      }
+    }
+
+    int last = 0;
+    double shortest = Double.POSITIVE_INFINITY;
+    for (int stop = 0; stop < stops; stop++) {
+      double candidate = best[full * stops + stop] + cost[stop + 1][end];
+      if (candidate < shortest) {
+        shortest = candidate;
+        last = stop;
+      }
+    }
+    int[] order = new int[stops];
+    int mask = full;
+    for (int i = stops - 1; i >= 0; i--) {
+      order[i] = last;
+      int before = previous[mask * stops + last];
+      mask &= ~(1 << last);
+      last = before;
+    }
+    return order;
+  }
+
+  /**
+   * @return node indexes of the whole path: start, every stop, end
+   */
+  private static int[] nearestNeighbour(double[][] cost, int stops) {
+    int[] tour = new int[stops + 2];
+    boolean[] visited = new boolean[stops + 2];
+    int current = 0;
+    for (int i = 1; i <= stops; i++) {
+      int nearest = -1;
+      for (int node = 1; node <= stops; node++) {
+        if (!visited[node] && (nearest < 0 || cost[current][node] < cost[current][nearest])) {
+          nearest = node;
+        }
+      }
+      visited[nearest] = true;
+      tour[i] = nearest;
+      current = nearest;
+    }
+    tour[stops + 1] = stops + 1;
+    return tour;
+  }
+
+  private static void improve(double[][] cost, int[] tour, long deadline) {
+    boolean symmetric = isSymmetric(cost);
+    boolean improved = true;
+    while (improved && System.nanoTime() < deadline) {
+      improved = twoOpt(cost, tour, symmetric, deadline);
+      improved |= orOpt(cost, tour, deadline);
+    }
+  }
+
+  /** Reverses {@code tour[i..j]} whenever that shortens the path; endpoints never move. */
+  private static boolean twoOpt(double[][] cost, int[] tour, boolean symmetric, long deadline) {
+    int last = tour.length - 2;
+    boolean improved = false;
+    for (int i = 1; i < last; i++) {
+      if (System.nanoTime() >= deadline) {
+        return improved;
+      }
+      for (int j = i + 1; j <= last; j++) {
+        int a = tour[i - 1];
+        int b = tour[i];
+        int c = tour[j];
+        int d = tour[j + 1];
+        double delta = cost[a][c] + cost[b][d] - cost[a][b] - cost[c][d];
+        if (!symmetric) {
+          // Reversal also flips the direction of every edge inside the segment.
+          for (int k = i; k < j; k++) {
+            delta += cost[tour[k + 1]][tour[k]] - cost[tour[k]][tour[k + 1]];
+          }
+        }
+        if (delta < -EPSILON) {
+          reverse(tour, i, j);
+          improved = true;
+        }
+      }
+    }
+    return improved;
+  }
+
+  /**
+   * Moves a run of up to {@value #MAX_SEGMENT} consecutive stops to another position whenever that
+   * shortens the path.
+   */
+  private static boolean orOpt(double[][] cost, int[] tour, long deadline) {
+    int last = tour.length - 2;
+    boolean improved = false;
+    for (int length = 1; length <= MAX_SEGMENT; length++) {
+      for (int from = 1; from + length - 1 <= last; from++) {
+        if (System.nanoTime() >= deadline) {
+          return improved;
+        }
+        int to = from + length - 1;
+        int first = tour[from];
+        int end = tour[to];
+        int before = tour[from - 1];
+        int after = tour[to + 1];
+        double removed = cost[before][first] + cost[end][after] - cost[before][after];
+        int bestGap = -1;
+        double bestAdded = removed - EPSILON;
+        // Gap k is the edge tour[k] -> tour[k + 1]; gaps touching the run itself are skipped.
+        for (int k = 0; k <= last; k++) {
+          if (k >= from - 1 && k <= to) {
+            continue;
+          }
+          double added = cost[tour[k]][first] + cost[end][tour[k + 1]] - cost[tour[k]][tour[k + 1]];
+          if (added < bestAdded) {
+            bestAdded = added;
+            bestGap = k;
+          }
+        }
+        if (bestGap >= 0) {
+          move(tour, from, to, bestGap);
+          improved = true;
+        }
+      }
+    }
+    return improved;
+  }
+
+  /** Moves {@code tour[from..to]} so it follows the node currently at {@code gap}. */
+  private static void move(int[] tour, int from, int to, int gap) {
+    int length = to - from + 1;
+    int[] run = Arrays.copyOfRange(tour, from, to + 1);
+    if (gap < from) {
+      System.arraycopy(tour, gap + 1, tour, gap + 1 + length, from - gap - 1);
+      System.arraycopy(run, 0, tour, gap + 1, length);
+    } else {
+      System.arraycopy(tour, to + 1, tour, from, gap - to);
+      System.arraycopy(run, 0, tour, gap - length + 1, length);
+    }
+  }
+
+  private static void reverse(int[] tour, int i, int j) {
+    while (i < j) {
+      int swap = tour[i];
+      tour[i++] = tour[j];
+      tour[j--] = swap;
+    }
+  }
+
+  private static boolean isSymmetric(double[][] cost) {
+    for (int i = 0; i < cost.length; i++) {
+      for (int j = i + 1; j < cost.length; j++) {
+        if (Math.abs(cost[i][j] - cost[j][i]) > EPSILON) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -1,23 +1,43 @@
 package com.redseeker.route;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.util.List;
 
 /**
  * 路线规划结果（前端格式）
  */
 public class RoutePlanResult {
-  private List<List<Double>> path;  // 路径点数组 [[lng, lat], ...]
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @JsonSerialize(using = CoordinatePathSerializer.class)
+  private double[] path;             // 路径点数组 [[lng, lat], ...]
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String encodedPath;        // 编码后的路径（pathFormat=encoded 时代替 path）
   private Integer total_distance;   // 总距离（米）
   private Integer total_duration;    // 总时间（秒）
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private List<RouteScheduleStop> schedule;  // 按营业时间排程（仅 time_window 策略）
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private List<RouteDayPlan> days;   // 多日行程的逐日路线（仅 days > 1）
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private RoutePlan plan;            // 逐段路线与历史阶段分组（仅 segments = true 的单日行程）
 
-  public List<List<Double>> getPath() {
+  public double[] getPath() {
     return path;
   }
 
-  public void setPath(List<List<Double>> path) {
+  public void setPath(double[] path) {
     this.path = path;
   }
 
+  public String getEncodedPath() {
+    return encodedPath;
+  }
+
+  public void setEncodedPath(String encodedPath) {
+    this.encodedPath = encodedPath;
+  }
+
   public Integer getTotal_distance() {
     return total_distance;
   }
@@ -33,4 +53,28 @@ public class RoutePlanResult {
   public void setTotal_duration(Integer total_duration) {
     this.total_duration = total_duration;
   }
+
+  public List<RouteScheduleStop> getSchedule() {
+    return schedule;
+  }
+
+  public void setSchedule(List<RouteScheduleStop> schedule) {
+    this.schedule = schedule;
+  }
+
+  public List<RouteDayPlan> getDays() {
+    return days;
+  }
+
+  public void setDays(List<RouteDayPlan> days) {
+    this.days = days;
+  }
+
+  public RoutePlan getPlan() {
+    return plan;
+  }
+
+  public void setPlan(RoutePlan plan) {
+    this.plan = plan;
+  }
 }
@@ -0,0 +1,79 @@
+package com.redseeker.route;
+
+/**
+ * 按营业时间排程时单个景点的到达与离开时间（HH:mm）
+ */
+public class RouteScheduleStop {
+  private Long attractionId;
+  private String name;
+  private String businessHours;
+  private String arrivalTime;
+  private String visitStartTime;
+  private String departureTime;
+  private int waitMinutes;
+  private boolean withinBusinessHours;
+
+  public Long getAttractionId() {
+    return attractionId;
+  }
+
+  public void setAttractionId(Long attractionId) {
+    this.attractionId = attractionId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getBusinessHours() {
+    return businessHours;
+  }
+
+  public void setBusinessHours(String businessHours) {
+    this.businessHours = businessHours;
+  }
+
+  public String getArrivalTime() {
+    return arrivalTime;
+  }
+
+  public void setArrivalTime(String arrivalTime) {
+    this.arrivalTime = arrivalTime;
+  }
+
+  public String getVisitStartTime() {
+    return visitStartTime;
+  }
+
+  public void setVisitStartTime(String visitStartTime) {
+    this.visitStartTime = visitStartTime;
+  }
+
+  public String getDepartureTime() {
+    return departureTime;
+  }
+
+  public void setDepartureTime(String departureTime) {
+    this.departureTime = departureTime;
+  }
+
+  public int getWaitMinutes() {
+    return waitMinutes;
+  }
+
+  public void setWaitMinutes(int waitMinutes) {
+    this.waitMinutes = waitMinutes;
+  }
+
+  public boolean isWithinBusinessHours() {
+    return withinBusinessHours;
+  }
+
+  public void setWithinBusinessHours(boolean withinBusinessHours) {
+    this.withinBusinessHours = withinBusinessHours;
+  }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redseeker.common.ErrorCode;
 import com.redseeker.common.ServiceException;
+import com.redseeker.recommend.BusinessHours;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
@@ -19,16 +20,26 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -36,17 +47,49 @@ public class RouteServiceImpl implements RouteService {
   private static final Logger LOGGER = LoggerFactory.getLogger(RouteServiceImpl.class);
   private static final String DEFAULT_TRANSPORT = "driving";
   private static final String DEFAULT_STRATEGY = "history_first";
+  private static final String DEFAULT_START_TIME = "09:00";
+  private static final int DEFAULT_DWELL_MINUTES = 60;
+  private static final int SECONDS_PER_DAY = 24 * 3600;
+  private static final DateTimeFormatter CLOCK_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
 
   private final String databaseUrl;
   private final String amapKey;
   private final HttpClient httpClient;
   private final ObjectMapper objectMapper;
+  private final RouteOptimizer optimizer;
+  private final TimeWindowScheduler scheduler;
+  private final DirectionCache directionCache;
+  private final RoadGraphService roadGraphService;
+  private final AttractionDistanceMatrixService distanceMatrixService;
+  private final int segmentConcurrency;
+  private final long segmentTimeoutMs;
+  private final int defaultZoom;
+  private final double tolerancePixels;
 
-  public RouteServiceImpl() {
+  public RouteServiceImpl(
+      DirectionCache directionCache,
+      AttractionDistanceMatrixService distanceMatrixService,
+      RoadGraphService roadGraphService,
+      @Value("${route.optimizer.exact-limit:15}") int exactLimit,
+      @Value("${route.optimizer.time-budget-ms:200}") long timeBudgetMillis,
+      @Value("${route.segments.max-concurrent:4}") int segmentConcurrency,
+      @Value("${route.segments.timeout-ms:5000}") long segmentTimeoutMs,
+      @Value("${route.scheduler.time-budget-ms:100}") long schedulerBudgetMillis,
+      @Value("${route.polyline.default-zoom:18}") int defaultZoom,
+      @Value("${route.polyline.tolerance-pixels:1.0}") double tolerancePixels) {
     this.databaseUrl = resolveDatabaseUrl();
     this.amapKey = resolveAmapKey();
     this.httpClient = HttpClient.newHttpClient();
     this.objectMapper = new ObjectMapper();
+    this.optimizer = new RouteOptimizer(exactLimit, timeBudgetMillis);
+    this.scheduler = new TimeWindowScheduler(schedulerBudgetMillis);
+    this.directionCache = directionCache;
+    this.roadGraphService = roadGraphService;
+    this.distanceMatrixService = distanceMatrixService;
+    this.segmentConcurrency = Math.max(1, segmentConcurrency);
+    this.segmentTimeoutMs = segmentTimeoutMs;
+    this.defaultZoom = defaultZoom;
+    this.tolerancePixels = tolerancePixels;
   }
 
   @Override
@@ -79,10 +122,13 @@ public class RouteServiceImpl implements RouteService {
     String mode = normalizeTransport(request.getTransportMode());
     String strategy = request.getStrategy() == null ? DEFAULT_STRATEGY : request.getStrategy().trim();
 
-    List<AttractionSummary> ordered =
-        "shortest".equalsIgnoreCase(strategy)
-            ? sortByShortestWithMultiPoint(start, end, attractions, mode)
-            : sortByHistoryThenDistance(start, attractions, mode);
+    int days = request.getDays() == null ? 1 : request.getDays();
+    if (days > 1 && attractions.size() > 1) {
+      return planMultipleDays(start, end, attractions, mode, strategy, request, days);
+    }
+
+    OrderedStops stops = orderStops(start, end, attractions, mode, strategy, request);
+    List<AttractionSummary> ordered = stops.ordered;
 
     LOGGER.info("规划路线: 起点=({}, {}), 终点=({}, {}), 景点数={}", 
         start.getLongitude(), start.getLatitude(),
@@ -95,22 +141,177 @@ public class RouteServiceImpl implements RouteService {
     RoutePlanResult result = new RoutePlanResult();
     result.setTotal_distance(routeInfo.getDistance());
     result.setTotal_duration(routeInfo.getDuration());
+    result.setSchedule(stops.schedule);
+    double[] coordinates = toCoordinates(start, end, ordered, routeInfo, request.getZoom());
+    if (isEncoded(request)) {
+      result.setEncodedPath(Polylines.encode(coordinates));
+    } else {
+      result.setPath(coordinates);
+    }
+    if (Boolean.TRUE.equals(request.getSegments())) {
+      result.setPlan(buildRoutePlan(start, end, ordered, mode, request.getZoom()));
+    }
     
-    // 将polyline解码为坐标点数组
-    List<List<Double>> path = decodePolyline(routeInfo.getPolyline());
+    return result;
+  }
+
+  /**
+   * 多日行程：按景点间距离做容量约束的 k-medoids 聚类，把景点均衡分到各天（每天至多 ⌈n/days⌉ 个）；
+   * 每天都从起点出发、回到终点，各天独立排序并并发获取路线，单次多点请求的规模随之变小，也更容易命中缓存
+   */
+  private RoutePlanResult planMultipleDays(
+      RouteLocation start,
+      RouteLocation end,
+      List<AttractionSummary> attractions,
+      String mode,
+      String strategy,
+      MultipleRouteRequest request,
+      int days) {
+    int n = attractions.size();
+    double[][] cost = buildCostMatrix(start, null, attractions, mode);
+    double[][] distance = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(cost[i + 1], 1, distance[i], 0, n);
+    }
+    int[] assignment = ItineraryPartitioner.partition(distance, days);
+    List<List<AttractionSummary>> groups = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      while (groups.size() <= assignment[i]) {
+        groups.add(new ArrayList<>());
+      }
+      groups.get(assignment[i]).add(attractions.get(i));
+    }
+    if (!"shortest".equalsIgnoreCase(strategy) && !"time_window".equalsIgnoreCase(strategy)) {
+      // 历史优先：历史阶段较早的一天排在前面
+      groups.sort(Comparator.comparingInt(this::minStageYear));
+    }
+
+    List<DayRoute> dayRoutes = runInLanes(groups.size(), day ->
+        CompletableFuture.supplyAsync(
+                () -> orderStops(start, end, groups.get(day), mode, strategy, request))
+            .thenCompose(stops -> fetchMultiPointRouteAsync(start, end, stops.ordered, mode)
+                .thenApply(info -> toDayRoute(day + 1, start, end, stops, info, request))));
+
+    RoutePlanResult result = new RoutePlanResult();
+    List<RouteDayPlan> dayPlans = new ArrayList<>(dayRoutes.size());
+    int totalDistance = 0;
+    int totalDuration = 0;
+    int length = 0;
+    for (DayRoute dayRoute : dayRoutes) {
+      dayPlans.add(dayRoute.plan);
+      totalDistance += dayRoute.plan.getTotal_distance();
+      totalDuration += dayRoute.plan.getTotal_duration();
+      length += dayRoute.coordinates.length;
+    }
+    // 全程路径由各天已抽稀的路径依次拼接
+    double[] coordinates = new double[length];
+    int offset = 0;
+    for (DayRoute dayRoute : dayRoutes) {
+      System.arraycopy(dayRoute.coordinates, 0, coordinates, offset, dayRoute.coordinates.length);
+      offset += dayRoute.coordinates.length;
+    }
+    if (isEncoded(request)) {
+      result.setEncodedPath(Polylines.encode(coordinates));
+    } else {
+      result.setPath(coordinates);
+    }
+    result.setTotal_distance(totalDistance);
+    result.setTotal_duration(totalDuration);
+    result.setDays(dayPlans);
+    LOGGER.info("规划多日路线: 景点数={}, 天数={}", n, dayPlans.size());
+    return result;
+  }
+
+  private DayRoute toDayRoute(
+      int day,
+      RouteLocation start,
+      RouteLocation end,
+      OrderedStops stops,
+      RouteInfo routeInfo,
+      MultipleRouteRequest request) {
+    RouteDayPlan plan = new RouteDayPlan();
+    plan.setDay(day);
+    plan.setAttractionIds(
+        stops.ordered.stream().map(AttractionSummary::getId).collect(Collectors.toList()));
+    double[] coordinates = toCoordinates(start, end, stops.ordered, routeInfo, request.getZoom());
+    if (isEncoded(request)) {
+      plan.setEncodedPath(Polylines.encode(coordinates));
+    } else {
+      plan.setPath(coordinates);
+    }
+    plan.setTotal_distance(routeInfo.getDistance());
+    plan.setTotal_duration(routeInfo.getDuration());
+    plan.setSchedule(stops.schedule);
+    return new DayRoute(plan, coordinates);
+  }
+
+  private boolean isEncoded(MultipleRouteRequest request) {
+    return "encoded".equalsIgnoreCase(request.getPathFormat());
+  }
+
+  /**
+   * 按策略排序一组景点；time_window 策略同时给出排程
+   */
+  private OrderedStops orderStops(
+      RouteLocation start,
+      RouteLocation end,
+      List<AttractionSummary> attractions,
+      String mode,
+      String strategy,
+      MultipleRouteRequest request) {
+    if ("time_window".equalsIgnoreCase(strategy)) {
+      List<RouteScheduleStop> schedule =
+          scheduleByBusinessHours(start, end, attractions, mode, request);
+      Map<Long, AttractionSummary> byId = new LinkedHashMap<>();
+      attractions.forEach(attraction -> byId.put(attraction.getId(), attraction));
+      List<AttractionSummary> ordered = schedule.stream()
+          .map(stop -> byId.get(stop.getAttractionId()))
+          .collect(Collectors.toList());
+      return new OrderedStops(ordered, schedule);
+    }
+    if ("shortest".equalsIgnoreCase(strategy)) {
+      return new OrderedStops(sortByShortest(start, end, attractions, mode), null);
+    }
+    return new OrderedStops(sortByHistoryThenDistance(start, end, attractions, mode), null);
+  }
+
+  /**
+   * 将路线的polyline解码为抽稀后的坐标 [lng0, lat0, lng1, lat1, ...]；
+   * polyline为空或无效时构建基本路径（起点 -> 景点 -> 终点）
+   */
+  private double[] toCoordinates(
+      RouteLocation start,
+      RouteLocation end,
+      List<AttractionSummary> ordered,
+      RouteInfo routeInfo,
+      Integer zoom) {
+    PolylineBuffer path = decodePolyline(routeInfo.getPolyline());
     
-    LOGGER.info("解码后的路径点数: {}", path.size());
+    LOGGER.info("解码后的路径点数: {}", path.points());
     
-    // 如果polyline为空或无效，构建基本路径（起点 -> 景点 -> 终点）
     if (path.isEmpty()) {
       LOGGER.info("polyline为空，构建基本路径");
       path = buildBasicPath(start, end, ordered);
-      LOGGER.info("构建的基本路径点数: {}", path.size());
+      LOGGER.info("构建的基本路径点数: {}", path.points());
     }
-    
-    result.setPath(path);
-    
-    return result;
+    return simplify(path, zoom);
+  }
+
+  /**
+   * Douglas–Peucker 抽稀：容差为给定缩放级别下 route.polyline.tolerance-pixels 个像素对应的地面距离，
+   * 在该缩放级别下显示效果不变；未指定缩放级别时使用 route.polyline.default-zoom
+   */
+  private double[] simplify(PolylineBuffer path, Integer zoom) {
+    double[] coordinates = path.array();
+    int points = path.points();
+    if (points < 3) {
+      return Arrays.copyOf(coordinates, points * 2);
+    }
+    double tolerance = Polylines.toleranceMeters(
+        zoom != null ? zoom : defaultZoom, coordinates[1], tolerancePixels);
+    double[] simplified = Polylines.simplify(coordinates, points, tolerance);
+    LOGGER.debug("路径抽稀: {} -> {} 个点", points, simplified.length / 2);
+    return simplified;
   }
 
   @Override
@@ -143,19 +344,108 @@ public class RouteServiceImpl implements RouteService {
     };
   }
 
+  /**
+   * 是否配置了高德 key，即能否获取道路路线
+   */
+  boolean canFetchRoads() {
+    return amapKey != null && !amapKey.isBlank();
+  }
+
+  /**
+   * 异步获取两点间的单段路线，高德返回成功时写入路径规划缓存；供景点距离矩阵的后台补全使用
+   *
+   * @return 是否得到了高德的道路结果（降级为直线估算或离线路网时为 false）
+   */
+  CompletableFuture<Boolean> fetchLegIntoCache(
+      double fromLongitude, double fromLatitude, double toLongitude, double toLatitude, String mode) {
+    RouteLocation origin = new RouteLocation();
+    origin.setLongitude(fromLongitude);
+    origin.setLatitude(fromLatitude);
+    AttractionSummary destination =
+        new AttractionSummary(null, "景点", null, toLongitude, toLatitude);
+    String cacheKey = DirectionCache.key(mode, directionStrategy(mode),
+        fromLongitude, fromLatitude, toLongitude, toLatitude);
+    return fetchRouteAsync(origin, destination, mode)
+        .thenApply(info -> directionCache.get(cacheKey) != null);
+  }
+
   private RouteInfo fetchRoute(RouteLocation start, AttractionSummary destination, String mode) {
+    return fetchRouteAsync(start, destination, mode).join();
+  }
+
+  /**
+   * 异步获取单段路线：命中缓存直接返回，否则异步调用高德接口，不占用线程等待响应；
+   * 超过 route.segments.timeout-ms 或调用失败时降级为直线估算，因此返回的 future 不会异常结束
+   */
+  private CompletableFuture<RouteInfo> fetchRouteAsync(
+      RouteLocation start, AttractionSummary destination, String mode) {
     if (amapKey == null || amapKey.isBlank()) {
-      return buildFallbackRoute(start, destination);
+      return CompletableFuture.completedFuture(buildFallbackRoute(start, destination, mode));
     }
-    try {
-      RouteInfo info = callAmapDirection(start, destination, mode);
-      if (info != null) {
-        return info;
-      }
-    } catch (IOException | InterruptedException ex) {
-      LOGGER.warn("Failed to call AMap direction API, falling back", ex);
+    String cacheKey = DirectionCache.key(mode, directionStrategy(mode),
+        start.getLongitude(), start.getLatitude(),
+        destination.getLongitude(), destination.getLatitude());
+    RouteInfo cached = directionCache.get(cacheKey);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
     }
-    return buildFallbackRoute(start, destination);
+    HttpRequest httpRequest = HttpRequest.newBuilder()
+        .uri(URI.create(buildDirectionUrl(start, destination, mode)))
+        .timeout(Duration.ofMillis(segmentTimeoutMs))
+        .GET()
+        .build();
+    return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+        .orTimeout(segmentTimeoutMs, TimeUnit.MILLISECONDS)
+        .thenApply(response -> parseDirectionResponse(response, mode, cacheKey))
+        .exceptionally(ex -> {
+          LOGGER.warn("Failed to call AMap direction API, falling back", ex);
+          return null;
+        })
+        .thenApply(info -> info != null ? info : buildFallbackRoute(start, destination, mode));
+  }
+
+  /**
+   * 并发获取多段路线：同一请求内最多 route.segments.max-concurrent 段同时在途，
+   * 每段完成后立即发起下一段，结果按段的顺序返回；总耗时取决于最慢的几段而非各段之和
+   *
+   * @param origins 每段的起点
+   * @param destinations 每段的终点，与 origins 一一对应
+   */
+  private List<RouteInfo> fetchRoutes(
+      List<RouteLocation> origins, List<AttractionSummary> destinations, String mode) {
+    return runInLanes(destinations.size(),
+        leg -> fetchRouteAsync(origins.get(leg), destinations.get(leg), mode));
+  }
+
+  /**
+   * 以最多 route.segments.max-concurrent 条并行通道执行 count 个异步任务，结果按任务序号返回
+   */
+  private <T> List<T> runInLanes(int count, IntFunction<CompletableFuture<T>> task) {
+    AtomicReferenceArray<T> results = new AtomicReferenceArray<>(count);
+    AtomicInteger next = new AtomicInteger();
+    CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(segmentConcurrency, count)];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = runNext(next, task, results);
+    }
+    CompletableFuture.allOf(lanes).join();
+    List<T> ordered = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ordered.add(results.get(i));
+    }
+    return ordered;
+  }
+
+  private <T> CompletableFuture<Void> runNext(
+      AtomicInteger next, IntFunction<CompletableFuture<T>> task, AtomicReferenceArray<T> results) {
+    int index = next.getAndIncrement();
+    if (index >= results.length()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return task.apply(index)
+        .thenCompose(result -> {
+          results.set(index, result);
+          return runNext(next, task, results);
+        });
   }
 
   /**
@@ -163,26 +453,56 @@ public class RouteServiceImpl implements RouteService {
    */
   private RouteInfo fetchMultiPointRoute(
       RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
+    return fetchMultiPointRouteAsync(start, end, attractions, mode).join();
+  }
+
+  /**
+   * 异步多点路径规划：命中缓存直接返回，否则异步调用高德接口；
+   * 超时或调用失败时降级为直线估算，返回的 future 不会异常结束
+   */
+  private CompletableFuture<RouteInfo> fetchMultiPointRouteAsync(
+      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
     if (amapKey == null || amapKey.isBlank() || attractions.isEmpty()) {
-      return buildFallbackMultiPointRoute(start, end, attractions);
+      return CompletableFuture.completedFuture(
+          buildFallbackMultiPointRoute(start, end, attractions, mode));
     }
-    try {
-      RouteInfo info = callAmapMultiPointDirection(start, end, attractions, mode);
-      if (info != null) {
-        return info;
-      }
-    } catch (IOException | InterruptedException ex) {
-      LOGGER.warn("Failed to call AMap multi-point direction API, falling back", ex);
+    double[] coordinates = new double[attractions.size() * 2 + 4];
+    coordinates[0] = start.getLongitude();
+    coordinates[1] = start.getLatitude();
+    for (int i = 0; i < attractions.size(); i++) {
+      coordinates[i * 2 + 2] = attractions.get(i).getLongitude();
+      coordinates[i * 2 + 3] = attractions.get(i).getLatitude();
     }
-    return buildFallbackMultiPointRoute(start, end, attractions);
+    coordinates[coordinates.length - 2] = end.getLongitude();
+    coordinates[coordinates.length - 1] = end.getLatitude();
+    String cacheKey = DirectionCache.key(mode, directionStrategy(mode), coordinates);
+    RouteInfo cached = directionCache.get(cacheKey);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    HttpRequest httpRequest = HttpRequest.newBuilder()
+        .uri(URI.create(buildMultiPointUrl(start, end, attractions, mode)))
+        .timeout(Duration.ofMillis(segmentTimeoutMs))
+        .GET()
+        .build();
+    return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+        .orTimeout(segmentTimeoutMs, TimeUnit.MILLISECONDS)
+        .thenApply(response -> parseDirectionResponse(response, mode, cacheKey))
+        .exceptionally(ex -> {
+          LOGGER.warn("Failed to call AMap multi-point direction API, falling back", ex);
+          return null;
+        })
+        .thenApply(info -> info != null
+            ? info
+            : buildFallbackMultiPointRoute(start, end, attractions, mode));
   }
 
   /**
-   * 调用高德地图多点路径规划API
+   * 构建高德地图多点路径规划请求地址
    */
-  private RouteInfo callAmapMultiPointDirection(
-      RouteLocation origin, RouteLocation destination, List<AttractionSummary> waypoints, String mode)
-      throws IOException, InterruptedException {
+  private String buildMultiPointUrl(
+      RouteLocation origin, RouteLocation destination, List<AttractionSummary> waypoints, String mode) {
     String baseUrl = switch (mode) {
       case "walking" -> "https://restapi.amap.com/v3/direction/walking";
       case "transit" -> "https://restapi.amap.com/v3/direction/transit/integrated";
@@ -211,34 +531,29 @@ public class RouteServiceImpl implements RouteService {
       query.put("waypoints", waypointsParam.toString());
     }
     if ("driving".equals(mode)) {
-      query.put("strategy", "0"); // 速度优先
+      query.put("strategy", directionStrategy(mode)); // 速度优先
     }
 
-    String url = baseUrl + "?" + buildQuery(query);
-    HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-    HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-    if (response.statusCode() != 200) {
-      LOGGER.warn("AMap multi-point response status {}", response.statusCode());
-      return null;
-    }
-
-    JsonNode root = objectMapper.readTree(response.body());
-    if (!"1".equals(root.path("status").asText())) {
-      LOGGER.warn("AMap multi-point direction failed: {}", root.path("info").asText());
-      return null;
-    }
-
-    if ("transit".equals(mode)) {
-      return parseTransitRoute(root);
-    }
-    return parseStandardRoute(root);
+    return baseUrl + "?" + buildQuery(query);
   }
 
   /**
-   * 构建多点路径的降级方案
+   * 构建多点路径的降级方案：优先使用离线路网规划，路网不可用时按直线估算
    */
   private RouteInfo buildFallbackMultiPointRoute(
-      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions) {
+      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
+    if (!attractions.isEmpty()) {
+      List<RouteLocation> points = new ArrayList<>(attractions.size() + 2);
+      points.add(start);
+      attractions.forEach(attraction -> points.add(toLocation(attraction)));
+      if (end != null) {
+        points.add(end);
+      }
+      RouteInfo offline = roadGraphService.route(points, mode);
+      if (offline != null) {
+        return offline;
+      }
+    }
     int totalDistance = 0;
     int totalDuration = 0;
     StringBuilder polylineBuilder = new StringBuilder();
@@ -272,47 +587,36 @@ public class RouteServiceImpl implements RouteService {
    * 解码polyline为坐标点数组
    * 高德地图的polyline格式：经度,纬度;经度,纬度;...
    */
-  private List<List<Double>> decodePolyline(String polyline) {
-    List<List<Double>> path = new ArrayList<>();
+  private PolylineBuffer decodePolyline(String polyline) {
+    PolylineBuffer path = new PolylineBuffer();
+    appendPolyline(path, polyline);
+    return path;
+  }
+
+  /**
+   * 单遍扫描polyline，坐标直接写入缓冲区，不产生中间字符串和装箱对象；无效的点跳过
+   */
+  private void appendPolyline(PolylineBuffer path, String polyline) {
     if (polyline == null || polyline.isBlank()) {
-      return path;
+      return;
     }
-    
-    // 高德地图polyline格式：经度,纬度;经度,纬度;...
-    String[] points = polyline.split(";");
-    for (String point : points) {
-      if (point == null || point.isBlank()) {
-        continue;
-      }
-      String[] coords = point.split(",");
-      if (coords.length >= 2) {
-        try {
-          double lng = Double.parseDouble(coords[0].trim());
-          double lat = Double.parseDouble(coords[1].trim());
-          // 验证坐标是否有效
-          if (!Double.isNaN(lng) && !Double.isNaN(lat) && 
-              !Double.isInfinite(lng) && !Double.isInfinite(lat)) {
-            path.add(List.of(lng, lat));
-          }
-        } catch (NumberFormatException e) {
-          LOGGER.warn("Failed to parse polyline point: {}", point);
-        }
-      }
+    int skipped = path.appendPolyline(polyline);
+    if (skipped > 0) {
+      LOGGER.warn("Skipped {} invalid polyline points", skipped);
     }
-    return path;
   }
 
   /**
    * 构建基本路径（起点 -> 景点 -> 终点）
    * 当polyline为空时使用
    */
-  private List<List<Double>> buildBasicPath(
+  private PolylineBuffer buildBasicPath(
       RouteLocation start, RouteLocation end, List<AttractionSummary> attractions) {
-    List<List<Double>> path = new ArrayList<>();
+    PolylineBuffer path = new PolylineBuffer(attractions.size() + 2);
     
     // 添加起点
     if (start != null && start.getLongitude() != null && start.getLatitude() != null) {
-      path.add(List.of(start.getLongitude(), start.getLatitude()));
+      path.add(start.getLongitude(), start.getLatitude());
       LOGGER.debug("添加起点: ({}, {})", start.getLongitude(), start.getLatitude());
     }
     
@@ -321,7 +625,7 @@ public class RouteServiceImpl implements RouteService {
     for (AttractionSummary attraction : attractions) {
       if (attraction != null && attraction.getLongitude() != null && 
           attraction.getLatitude() != null) {
-        path.add(List.of(attraction.getLongitude(), attraction.getLatitude()));
+        path.add(attraction.getLongitude(), attraction.getLatitude());
         validAttractions++;
         LOGGER.debug("添加景点 {}: ({}, {})", attraction.getName(), 
             attraction.getLongitude(), attraction.getLatitude());
@@ -343,19 +647,18 @@ public class RouteServiceImpl implements RouteService {
           Math.abs(start.getLatitude() - end.getLatitude()) < 0.0001;
       
       if (!isEndSameAsStart) {
-        path.add(List.of(end.getLongitude(), end.getLatitude()));
+        path.add(end.getLongitude(), end.getLatitude());
         LOGGER.debug("添加终点: ({}, {})", end.getLongitude(), end.getLatitude());
       } else {
         LOGGER.debug("终点与起点相同，跳过");
       }
     }
     
-    LOGGER.info("构建的基本路径总点数: {}", path.size());
+    LOGGER.info("构建的基本路径总点数: {}", path.points());
     return path;
   }
 
-  private RouteInfo callAmapDirection(RouteLocation origin, AttractionSummary destination, String mode)
-      throws IOException, InterruptedException {
+  private String buildDirectionUrl(RouteLocation origin, AttractionSummary destination, String mode) {
     String baseUrl = switch (mode) {
       case "walking" -> "https://restapi.amap.com/v3/direction/walking";
       case "transit" -> "https://restapi.amap.com/v3/direction/transit/integrated";
@@ -369,27 +672,42 @@ public class RouteServiceImpl implements RouteService {
     query.put("origin", originParam);
     query.put("destination", destinationParam);
     if ("driving".equals(mode)) {
-      query.put("strategy", "0");
+      query.put("strategy", directionStrategy(mode));
     }
+    return baseUrl + "?" + buildQuery(query);
+  }
 
-    String url = baseUrl + "?" + buildQuery(query);
-    HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-    HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+  /**
+   * 解析单段路线响应，成功时写入方向缓存；失败返回 null
+   */
+  private RouteInfo parseDirectionResponse(HttpResponse<String> response, String mode, String cacheKey) {
     if (response.statusCode() != 200) {
       LOGGER.warn("AMap response status {}", response.statusCode());
       return null;
     }
 
-    JsonNode root = objectMapper.readTree(response.body());
+    JsonNode root;
+    try {
+      root = objectMapper.readTree(response.body());
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to parse AMap direction response", ex);
+      return null;
+    }
     if (!"1".equals(root.path("status").asText())) {
       LOGGER.warn("AMap direction failed: {}", root.path("info").asText());
       return null;
     }
 
-    if ("transit".equals(mode)) {
-      return parseTransitRoute(root);
-    }
-    return parseStandardRoute(root);
+    RouteInfo info = "transit".equals(mode) ? parseTransitRoute(root) : parseStandardRoute(root);
+    directionCache.put(cacheKey, info);
+    return info;
+  }
+
+  /**
+   * 高德路径规划策略参数：驾车使用速度优先（0），其他方式不传
+   */
+  private String directionStrategy(String mode) {
+    return DirectionCache.defaultStrategy(mode);
   }
 
   private RouteInfo parseStandardRoute(JsonNode root) {
@@ -462,7 +780,15 @@ public class RouteServiceImpl implements RouteService {
         .collect(Collectors.joining("&"));
   }
 
-  private RouteInfo buildFallbackRoute(RouteLocation origin, AttractionSummary destination) {
+  /**
+   * 单段路线的降级方案：优先使用离线路网规划，路网不可用时按直线估算
+   */
+  private RouteInfo buildFallbackRoute(
+      RouteLocation origin, AttractionSummary destination, String mode) {
+    RouteInfo offline = roadGraphService.route(origin, toLocation(destination), mode);
+    if (offline != null) {
+      return offline;
+    }
     double distance = haversine(origin.getLatitude(), origin.getLongitude(), destination.getLatitude(),
         destination.getLongitude());
     RouteInfo info = new RouteInfo();
@@ -480,8 +806,15 @@ public class RouteServiceImpl implements RouteService {
     return info;
   }
 
+  /**
+   * 逐段路线：起点 → 各景点 → 终点，每段单独规划并并发获取，按历史阶段分组景点
+   */
   private RoutePlan buildRoutePlan(
-      RouteLocation start, RouteLocation end, List<AttractionSummary> ordered, String mode) {
+      RouteLocation start,
+      RouteLocation end,
+      List<AttractionSummary> ordered,
+      String mode,
+      Integer zoom) {
     RoutePlan plan = new RoutePlan();
     List<RoutePlanSegment> segments = new ArrayList<>();
     List<RoutePlanStage> stages = buildStages(ordered);
@@ -489,34 +822,29 @@ public class RouteServiceImpl implements RouteService {
 
     int totalDistance = 0;
     int totalDuration = 0;
-    StringBuilder polyline = new StringBuilder();
+    PolylineBuffer polyline = new PolylineBuffer();
 
+    List<RouteLocation> origins = new ArrayList<>();
+    List<AttractionSummary> destinations = new ArrayList<>(ordered);
     RouteLocation current = start;
-    Long currentId = null;
     for (AttractionSummary attraction : ordered) {
-      RouteInfo info = fetchRoute(current, attraction, mode);
-      RoutePlanSegment segment = new RoutePlanSegment();
-      segment.setFromAttractionId(currentId);
-      segment.setToAttractionId(attraction.getId());
-      segment.setDistance(info.getDistance());
-      segment.setDuration(info.getDuration());
-      segment.setPolyline(info.getPolyline());
-      segment.setSteps(info.getSteps());
-      segments.add(segment);
-      totalDistance += info.getDistance();
-      totalDuration += info.getDuration();
-      appendPolyline(polyline, info.getPolyline());
-
+      origins.add(current);
       current = toLocation(attraction);
-      currentId = attraction.getId();
     }
-
     if (end != null && ordered.size() > 0) {
-      RouteInfo info = fetchRoute(current, new AttractionSummary(null, "终点", end.getAddress(),
-          end.getLongitude(), end.getLatitude()), mode);
+      origins.add(current);
+      destinations.add(new AttractionSummary(null, "终点", end.getAddress(),
+          end.getLongitude(), end.getLatitude()));
+    }
+
+    List<RouteInfo> legs = fetchRoutes(origins, destinations, mode);
+    Long currentId = null;
+    for (int i = 0; i < legs.size(); i++) {
+      RouteInfo info = legs.get(i);
+      Long toId = destinations.get(i).getId();
       RoutePlanSegment segment = new RoutePlanSegment();
       segment.setFromAttractionId(currentId);
-      segment.setToAttractionId(null);
+      segment.setToAttractionId(toId);
       segment.setDistance(info.getDistance());
       segment.setDuration(info.getDuration());
       segment.setPolyline(info.getPolyline());
@@ -525,12 +853,13 @@ public class RouteServiceImpl implements RouteService {
       totalDistance += info.getDistance();
       totalDuration += info.getDuration();
       appendPolyline(polyline, info.getPolyline());
+      currentId = toId;
     }
 
     plan.setSegments(segments);
     plan.setTotalDistance(totalDistance);
     plan.setTotalDuration(totalDuration);
-    plan.setFullPolyline(polyline.length() > 0 ? polyline.toString() : null);
+    plan.setFullPolyline(Polylines.format(simplify(polyline, zoom)));
     return plan;
   }
 
@@ -561,16 +890,6 @@ public class RouteServiceImpl implements RouteService {
     return attraction.getStageStart() + ":" + attraction.getStageEnd();
   }
 
-  private void appendPolyline(StringBuilder builder, String polyline) {
-    if (polyline == null || polyline.isBlank()) {
-      return;
-    }
-    if (builder.length() > 0) {
-      builder.append(";");
-    }
-    builder.append(polyline);
-  }
-
   private RouteLocation toLocation(AttractionSummary attraction) {
     RouteLocation location = new RouteLocation();
     location.setLongitude(attraction.getLongitude());
@@ -579,48 +898,220 @@ public class RouteServiceImpl implements RouteService {
     return location;
   }
 
+  /**
+   * 最短路径策略：在起终点固定的前提下求访问顺序
+   * 景点数不超过 route.optimizer.exact-limit 时用 Held–Karp 动态规划求精确最优解，
+   * 否则从最近邻路径出发做 2-opt / Or-opt 局部优化，耗时不超过 route.optimizer.time-budget-ms
+   *
+   * @param end 终点；为 null 时不限定终点（开放路径）
+   */
   private List<AttractionSummary> sortByShortest(
-      RouteLocation start, List<AttractionSummary> attractions, String mode) {
-    List<AttractionSummary> remaining = new ArrayList<>(attractions);
-    List<AttractionSummary> ordered = new ArrayList<>();
-    RouteLocation current = start;
-    while (!remaining.isEmpty()) {
-      AttractionSummary nearest = null;
-      int nearestDistance = Integer.MAX_VALUE;
-      for (AttractionSummary candidate : remaining) {
-        int distance = estimateDistance(current, candidate, mode);
-        if (distance < nearestDistance) {
-          nearestDistance = distance;
-          nearest = candidate;
+      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
+    if (attractions.size() < 2) {
+      return new ArrayList<>(attractions);
+    }
+    int[] order = optimizer.order(buildCostMatrix(start, end, attractions, mode));
+    List<AttractionSummary> ordered = new ArrayList<>(order.length);
+    for (int index : order) {
+      ordered.add(attractions.get(index));
+    }
+    return ordered;
+  }
+
+  /**
+   * 构建距离矩阵：0 为起点，1..n 为景点，n+1 为终点（开放路径时终点行列均为 0）
+   * 景点间距离直接读取预计算的景点距离矩阵；当所有节点都是景点且该出行方式的道路距离均已知时使用道路距离。
+   * 起终点不是景点时，只要景点两两之间的道路距离已知，景点之间仍用道路距离，涉及起终点的边则用直线距离
+   * 乘以这些景点间道路与直线距离之比估算，避免两种口径混用；其余情况统一使用直线距离
+   */
+  private double[][] buildCostMatrix(
+      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
+    return buildMatrix(start, end, attractions, mode, false);
+  }
+
+  /**
+   * 与 {@link #buildCostMatrix} 节点布局相同的行程时间矩阵（秒）
+   * 道路数据完整时使用高德返回的耗时，否则按出行方式的平均速度由距离换算
+   */
+  private double[][] buildTravelTimeMatrix(
+      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
+    return buildMatrix(start, end, attractions, mode, true);
+  }
+
+  private double[][] buildMatrix(
+      RouteLocation start,
+      RouteLocation end,
+      List<AttractionSummary> attractions,
+      String mode,
+      boolean durations) {
+    int size = attractions.size() + 2;
+    List<RouteLocation> nodes = new ArrayList<>(size);
+    nodes.add(start);
+    for (AttractionSummary attraction : attractions) {
+      nodes.add(toLocation(attraction));
+    }
+    nodes.add(end);
+
+    // 开放路径时终点不参与计算，其行列保持为 0
+    int fixed = end == null ? size - 1 : size;
+    AttractionDistanceMatrix matrix = distanceMatrixService.current();
+    int[] indexes = new int[size];
+    Arrays.fill(indexes, -1);
+    boolean useRoad = matrix != null;
+    if (matrix != null) {
+      indexes[0] = matrix.locate(start.getLongitude(), start.getLatitude());
+      for (int i = 0; i < attractions.size(); i++) {
+        indexes[i + 1] = matrix.index(attractions.get(i).getId());
+      }
+      if (end != null) {
+        indexes[size - 1] = matrix.locate(end.getLongitude(), end.getLatitude());
+      }
+      for (int i = 0; i < fixed; i++) {
+        useRoad &= indexes[i] >= 0;
+      }
+      useRoad = useRoad && matrix.hasRoadDistances(mode, Arrays.copyOf(indexes, fixed));
+    }
+    // 景点间道路数据完整时，涉及起终点的边按 道路/直线 比例换算（durations 时为每直线米的秒数）
+    double detour = useRoad || matrix == null ? 0.0 : roadToStraightRatio(
+        matrix, Arrays.copyOfRange(indexes, 1, attractions.size() + 1), mode, durations);
+
+    double[][] cost = new double[size][size];
+    for (int i = 0; i < fixed; i++) {
+      for (int j = 0; j < fixed; j++) {
+        if (i == j) {
+          continue;
+        }
+        boolean betweenAttractions = i > 0 && j > 0 && i <= attractions.size()
+            && j <= attractions.size();
+        if (useRoad || (detour > 0 && betweenAttractions)) {
+          cost[i][j] = durations
+              ? matrix.roadDuration(mode, indexes[i], indexes[j])
+              : matrix.roadDistance(mode, indexes[i], indexes[j]);
+          continue;
+        }
+        if (indexes[i] >= 0 && indexes[j] >= 0) {
+          cost[i][j] = matrix.straightDistance(indexes[i], indexes[j]);
+        } else {
+          cost[i][j] = estimateDistance(nodes.get(i), nodes.get(j), mode);
+        }
+        if (detour > 0) {
+          cost[i][j] *= detour;
+        } else if (durations) {
+          cost[i][j] /= averageSpeed(mode);
         }
       }
-      if (nearest == null) {
-        break;
+    }
+    return cost;
+  }
+
+  /**
+   * @param stops 景点在景点距离矩阵中的下标
+   * @return 景点两两之间道路距离（或耗时）之和与直线距离之和的比值；景点不足两个、不在矩阵中
+   *     或有道路数据缺失时返回 0
+   */
+  private double roadToStraightRatio(
+      AttractionDistanceMatrix matrix, int[] stops, String mode, boolean durations) {
+    if (stops.length < 2) {
+      return 0.0;
+    }
+    for (int index : stops) {
+      if (index < 0) {
+        return 0.0;
       }
-      ordered.add(nearest);
-      remaining.remove(nearest);
-      current = toLocation(nearest);
     }
-    return ordered;
+    if (!matrix.hasRoadDistances(mode, stops)) {
+      return 0.0;
+    }
+    double road = 0.0;
+    double straight = 0.0;
+    for (int from : stops) {
+      for (int to : stops) {
+        if (from != to) {
+          road += durations
+              ? matrix.roadDuration(mode, from, to)
+              : matrix.roadDistance(mode, from, to);
+          straight += matrix.straightDistance(from, to);
+        }
+      }
+    }
+    return straight > 0 ? road / straight : 0.0;
   }
 
   /**
-   * 最短路径策略（使用多点路径规划）
-   * 注意：高德API会自动优化途经点顺序，所以这里只需要按原始顺序传入即可
+   * 按营业时间排程策略：带时间窗的单车辆路径问题
+   * 从出发时间开始，每个景点停留 dwellMinutes，尽量在营业时间内完成游览；
+   * 先按关门时间由早到晚插入到代价最小的位置，再做移动/交换局部搜索，耗时不超过 route.scheduler.time-budget-ms
+   * 营业时间缺失、无法解析或全天开放的景点视为不限时间
    */
-  private List<AttractionSummary> sortByShortestWithMultiPoint(
-      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
-    // 对于最短路径，高德API会自动优化顺序，所以保持原始顺序即可
-    // 或者使用简单的贪心算法预排序
-    return sortByShortest(start, attractions, mode);
+  private List<RouteScheduleStop> scheduleByBusinessHours(
+      RouteLocation start,
+      RouteLocation end,
+      List<AttractionSummary> attractions,
+      String mode,
+      MultipleRouteRequest request) {
+    int n = attractions.size();
+    int[] opens = new int[n];
+    int[] closes = new int[n];
+    int[] dwell = new int[n];
+    int dwellSeconds =
+        (request.getDwellMinutes() == null ? DEFAULT_DWELL_MINUTES : request.getDwellMinutes()) * 60;
+    for (int i = 0; i < n; i++) {
+      BusinessHours hours = BusinessHours.parse(attractions.get(i).getBusinessHours());
+      dwell[i] = dwellSeconds;
+      if (hours == null || hours.isAllDay() || hours.getStart().equals(hours.getEnd())) {
+        closes[i] = TimeWindowScheduler.ALWAYS_OPEN_CLOSE;
+        continue;
+      }
+      opens[i] = hours.getStart().toSecondOfDay();
+      closes[i] = hours.getEnd().toSecondOfDay();
+      if (closes[i] < opens[i]) {
+        closes[i] += SECONDS_PER_DAY; // 跨午夜营业
+      }
+    }
+    String startTime = request.getStartTime() == null ? DEFAULT_START_TIME : request.getStartTime();
+    int startSecond = LocalTime.parse(startTime).toSecondOfDay();
+
+    TimeWindowScheduler.Schedule schedule = scheduler.schedule(
+        buildTravelTimeMatrix(start, end, attractions, mode), opens, closes, dwell, startSecond);
+    List<RouteScheduleStop> stops = new ArrayList<>(n);
+    int[] order = schedule.getOrder();
+    for (int i = 0; i < order.length; i++) {
+      AttractionSummary attraction = attractions.get(order[i]);
+      RouteScheduleStop stop = new RouteScheduleStop();
+      stop.setAttractionId(attraction.getId());
+      stop.setName(attraction.getName());
+      stop.setBusinessHours(attraction.getBusinessHours());
+      stop.setArrivalTime(formatSecondOfDay(schedule.getArrivals()[i]));
+      stop.setVisitStartTime(formatSecondOfDay(schedule.getStarts()[i]));
+      stop.setDepartureTime(formatSecondOfDay(schedule.getDepartures()[i]));
+      stop.setWaitMinutes((schedule.getStarts()[i] - schedule.getArrivals()[i]) / 60);
+      stop.setWithinBusinessHours(schedule.getOnTime()[i]);
+      stops.add(stop);
+    }
+    return stops;
+  }
+
+  /** 平均行进速度（米/秒），仅在缺少道路耗时时用于估算 */
+  private double averageSpeed(String mode) {
+    return switch (mode) {
+      case "walking" -> 1.2;
+      case "transit" -> 5.0;
+      default -> 8.0;
+    };
+  }
+
+  /** 超过 24 点的时间按次日显示，例如 25:30 显示为 01:30 */
+  private String formatSecondOfDay(int second) {
+    return LocalTime.ofSecondOfDay(Math.floorMod(second, SECONDS_PER_DAY)).format(CLOCK_FORMAT);
   }
 
   /**
    * 历史优先策略：按历史事件的start_year排序
-   * 先按历史阶段（start_year）排序，同阶段内按最短路径排序
+   * 先按历史阶段（start_year）排序，同阶段内按最短路径排序；
+   * 中间阶段不限定终点，最后一个阶段须回到终点
    */
   private List<AttractionSummary> sortByHistoryThenDistance(
-      RouteLocation start, List<AttractionSummary> attractions, String mode) {
+      RouteLocation start, RouteLocation end, List<AttractionSummary> attractions, String mode) {
     // 按历史事件的start_year排序
     List<AttractionSummary> sorted = new ArrayList<>(attractions);
     sorted.sort((a, b) -> {
@@ -662,9 +1153,10 @@ public class RouteServiceImpl implements RouteService {
     RouteLocation current = start;
     List<Map.Entry<String, List<AttractionSummary>>> entries = new ArrayList<>(grouped.entrySet());
     entries.sort(Comparator.comparingInt(entry -> minStageYear(entry.getValue())));
-    for (Map.Entry<String, List<AttractionSummary>> entry : entries) {
-      List<AttractionSummary> stageAttractions = entry.getValue();
-      List<AttractionSummary> stageOrdered = sortByShortest(current, stageAttractions, mode);
+    for (int i = 0; i < entries.size(); i++) {
+      List<AttractionSummary> stageAttractions = entries.get(i).getValue();
+      RouteLocation stageEnd = i == entries.size() - 1 ? end : null;
+      List<AttractionSummary> stageOrdered = sortByShortest(current, stageEnd, stageAttractions, mode);
       if (!stageOrdered.isEmpty()) {
         ordered.addAll(stageOrdered);
         current = toLocation(stageOrdered.get(stageOrdered.size() - 1));
@@ -681,10 +1173,10 @@ public class RouteServiceImpl implements RouteService {
         .orElse(Integer.MAX_VALUE);
   }
 
-  private int estimateDistance(RouteLocation origin, AttractionSummary destination, String mode) {
+  private double estimateDistance(RouteLocation origin, RouteLocation destination, String mode) {
     double distance = haversine(origin.getLatitude(), origin.getLongitude(), destination.getLatitude(),
         destination.getLongitude());
-    return (int) Math.round(distance);
+    return distance;
   }
 
   private double haversine(double lat1, double lon1, double lat2, double lon2) {
@@ -702,7 +1194,8 @@ public class RouteServiceImpl implements RouteService {
 
   private AttractionSummary loadAttraction(Long attractionId) {
     String sql =
-        "SELECT id, name, address, longitude, latitude, he.start_year, he.end_year, he.period "
+        "SELECT a.id, a.name, a.address, a.longitude, a.latitude, a.business_hours, "
+            + "he.start_year, he.end_year, he.period "
             + "FROM attractions a "
             + "LEFT JOIN attraction_events ae ON ae.attraction_id = a.id "
             + "LEFT JOIN historical_events he ON he.id = ae.event_id "
@@ -720,6 +1213,7 @@ public class RouteServiceImpl implements RouteService {
                   rs.getDouble("longitude"),
                   rs.getDouble("latitude"));
           summary.setStageName(rs.getString("period"));
+          summary.setBusinessHours(rs.getString("business_hours"));
           Integer start = rs.getObject("start_year", Integer.class);
           Integer end = rs.getObject("end_year", Integer.class);
           summary.setStageStart(start);
@@ -740,7 +1234,8 @@ public class RouteServiceImpl implements RouteService {
     }
     String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
     String sql =
-        "SELECT a.id, a.name, a.address, a.longitude, a.latitude, he.start_year, he.end_year, he.period "
+        "SELECT a.id, a.name, a.address, a.longitude, a.latitude, a.business_hours, "
+            + "he.start_year, he.end_year, he.period "
             + "FROM attractions a "
             + "LEFT JOIN attraction_events ae ON ae.attraction_id = a.id "
             + "LEFT JOIN historical_events he ON he.id = ae.event_id "
@@ -761,6 +1256,7 @@ public class RouteServiceImpl implements RouteService {
           AttractionSummary summary = summaries.get(id);
           if (summary == null) {
             summary = new AttractionSummary(id, name, address, longitude, latitude);
+            summary.setBusinessHours(rs.getString("business_hours"));
             summaries.put(id, summary);
           }
           Integer start = rs.getObject("start_year", Integer.class);
@@ -814,4 +1310,26 @@ public class RouteServiceImpl implements RouteService {
     // 默认使用新的API key
     return "2039f165180b1ece6c8cfb1ae448339b";
   }
+
+  /** 一组景点的游览顺序，time_window 策略下附带排程 */
+  private static final class OrderedStops {
+    private final List<AttractionSummary> ordered;
+    private final List<RouteScheduleStop> schedule;
+
+    private OrderedStops(List<AttractionSummary> ordered, List<RouteScheduleStop> schedule) {
+      this.ordered = ordered;
+      this.schedule = schedule;
+    }
+  }
+
+  /** 多日行程中一天的结果及其抽稀后的坐标，用于拼接全程路径 */
+  private static final class DayRoute {
+    private final RouteDayPlan plan;
+    private final double[] coordinates;
+
+    private DayRoute(RouteDayPlan plan, double[] coordinates) {
+      this.plan = plan;
+      this.coordinates = coordinates;
+    }
+  }
 }
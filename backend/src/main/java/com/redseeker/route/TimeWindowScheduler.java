@@ -0,0 +1,237 @@
+package com.redseeker.route;
+
+import java.util.Arrays;
+
+/**
+ * Orders the stops of a one-day tour so every visit fits the stop's opening hours where possible:
+ * a single-vehicle routing problem with time windows. Travel times use the same
+ * {@code (n + 2) × (n + 2)} node layout as {@link RouteOptimizer} (start, stops, end), in seconds.
+ *
+ * <p>A visit may begin once the stop opens (arriving earlier means waiting) and must end, after the
+ * dwell time, by its closing time. Schedules are compared by, in order: the number of visits that
+ * miss their window, the total overrun of those visits, then the time the tour reaches the end.
+ * Stops are inserted tightest closing time first at their cheapest position, then relocate and swap
+ * moves improve the order until none helps or the CPU budget runs out.
+ */
+final class TimeWindowScheduler {
+  /** Window bound of a stop with unknown or all-day hours. */
+  static final int ALWAYS_OPEN_CLOSE = Integer.MAX_VALUE / 4;
+
+  private static final double MISSED_WEIGHT = 1e12;
+  private static final double OVERRUN_WEIGHT = 1e6;
+
+  private final long timeBudgetNanos;
+
+  TimeWindowScheduler(long timeBudgetMillis) {
+    this.timeBudgetNanos = Math.max(0L, timeBudgetMillis) * 1_000_000L;
+  }
+
+  /**
+   * @param travel travel seconds from row node to column node
+   * @param opens per stop, the second of the day it opens
+   * @param closes per stop, the second of the day it closes; later than {@code opens}, past 86400
+   *     for hours running over midnight
+   * @param dwell per stop, seconds spent there
+   * @param startSecond second of the day the tour leaves the start
+   */
+  Schedule schedule(double[][] travel, int[] opens, int[] closes, int[] dwell, int startSecond) {
+    Problem problem = new Problem(travel, opens, closes, dwell, startSecond);
+    int stops = opens.length;
+    long deadline = System.nanoTime() + timeBudgetNanos;
+
+    Integer[] byClose = new Integer[stops];
+    for (int i = 0; i < stops; i++) {
+      byClose[i] = i;
+    }
+    Arrays.sort(byClose, (a, b) -> closes[a] != closes[b]
+        ? Integer.compare(closes[a], closes[b])
+        : Integer.compare(opens[a], opens[b]));
+
+    int[] order = new int[stops];
+    int[] trial = new int[stops];
+    int count = 0;
+    for (int stop : byClose) {
+      int bestPosition = 0;
+      double bestCost = Double.POSITIVE_INFINITY;
+      for (int position = 0; position <= count; position++) {
+        System.arraycopy(order, 0, trial, 0, position);
+        trial[position] = stop;
+        System.arraycopy(order, position, trial, position + 1, count - position);
+        double cost = problem.cost(trial, count + 1);
+        if (cost < bestCost) {
+          bestCost = cost;
+          bestPosition = position;
+        }
+      }
+      System.arraycopy(order, bestPosition, order, bestPosition + 1, count - bestPosition);
+      order[bestPosition] = stop;
+      count++;
+    }
+
+    double cost = problem.cost(order, stops);
+    boolean improved = true;
+    while (improved && System.nanoTime() < deadline) {
+      improved = false;
+      for (int from = 0; from < stops && System.nanoTime() < deadline; from++) {
+        for (int to = 0; to < stops; to++) {
+          if (to == from) {
+            continue;
+          }
+          relocate(order, trial, from, to);
+          double candidate = problem.cost(trial, stops);
+          if (candidate < cost) {
+            System.arraycopy(trial, 0, order, 0, stops);
+            cost = candidate;
+            improved = true;
+          }
+        }
+      }
+      for (int i = 0; i < stops && System.nanoTime() < deadline; i++) {
+        for (int j = i + 1; j < stops; j++) {
+          System.arraycopy(order, 0, trial, 0, stops);
+          trial[i] = order[j];
+          trial[j] = order[i];
+          double candidate = problem.cost(trial, stops);
+          if (candidate < cost) {
+            System.arraycopy(trial, 0, order, 0, stops);
+            cost = candidate;
+            improved = true;
+          }
+        }
+      }
+    }
+    return problem.simulate(order);
+  }
+
+  /** Copies {@code order} into {@code target} with the stop at {@code from} moved to {@code to}. */
+  private static void relocate(int[] order, int[] target, int from, int to) {
+    int stop = order[from];
+    if (from < to) {
+      System.arraycopy(order, 0, target, 0, from);
+      System.arraycopy(order, from + 1, target, from, to - from);
+      target[to] = stop;
+      System.arraycopy(order, to + 1, target, to + 1, order.length - to - 1);
+    } else {
+      System.arraycopy(order, 0, target, 0, to);
+      target[to] = stop;
+      System.arraycopy(order, to, target, to + 1, from - to);
+      System.arraycopy(order, from + 1, target, from + 1, order.length - from - 1);
+    }
+  }
+
+  private static final class Problem {
+    private final double[][] travel;
+    private final int[] opens;
+    private final int[] closes;
+    private final int[] dwell;
+    private final int startSecond;
+    private final int end;
+
+    private Problem(double[][] travel, int[] opens, int[] closes, int[] dwell, int startSecond) {
+      this.travel = travel;
+      this.opens = opens;
+      this.closes = closes;
+      this.dwell = dwell;
+      this.startSecond = startSecond;
+      this.end = travel.length - 1;
+    }
+
+    /** Cost of visiting the first {@code count} stops of {@code order}; see the class comment. */
+    private double cost(int[] order, int count) {
+      double time = startSecond;
+      int previous = 0;
+      int missed = 0;
+      double overrun = 0.0;
+      for (int i = 0; i < count; i++) {
+        int stop = order[i];
+        time = Math.max(time + travel[previous][stop + 1], opens[stop]) + dwell[stop];
+        if (time > closes[stop]) {
+          missed++;
+          overrun += time - closes[stop];
+        }
+        previous = stop + 1;
+      }
+      time += travel[previous][end];
+      return missed * MISSED_WEIGHT + overrun * OVERRUN_WEIGHT + time;
+    }
+
+    private Schedule simulate(int[] order) {
+      int stops = order.length;
+      int[] arrivals = new int[stops];
+      int[] starts = new int[stops];
+      int[] departures = new int[stops];
+      boolean[] onTime = new boolean[stops];
+      double time = startSecond;
+      int previous = 0;
+      for (int i = 0; i < stops; i++) {
+        int stop = order[i];
+        time += travel[previous][stop + 1];
+        arrivals[i] = (int) Math.round(time);
+        time = Math.max(time, opens[stop]);
+        starts[i] = (int) Math.round(time);
+        time += dwell[stop];
+        departures[i] = (int) Math.round(time);
+        onTime[i] = time <= closes[stop];
+        previous = stop + 1;
+      }
+      time += travel[previous][end];
+      return new Schedule(order, arrivals, starts, departures, onTime, (int) Math.round(time));
+    }
+  }
+
+  /** Visit times in seconds of the day, all indexed by position in {@link #getOrder()}. */
+  static final class Schedule {
+    private final int[] order;
+    private final int[] arrivals;
+    private final int[] starts;
+    private final int[] departures;
+    private final boolean[] onTime;
+    private final int finish;
+
+    private Schedule(
+        int[] order, int[] arrivals, int[] starts, int[] departures, boolean[] onTime, int finish) {
+      this.order = order;
+      this.arrivals = arrivals;
+      this.starts = starts;
+      this.departures = departures;
+      this.onTime = onTime;
+      this.finish = finish;
+    }
+
+    /**
+     * @return stops in visiting order, as indexes {@code 0..n-1}
+     */
+    int[] getOrder() {
+      return order;
+    }
+
+    int[] getArrivals() {
+      return arrivals;
+    }
+
+    /**
+     * @return when each visit begins: the arrival, or the opening time when arriving early
+     */
+    int[] getStarts() {
+      return starts;
+    }
+
+    int[] getDepartures() {
+      return departures;
+    }
+
+    /**
+     * @return whether each visit ends by the stop's closing time
+     */
+    boolean[] getOnTime() {
+      return onTime;
+    }
+
+    /**
+     * @return when the tour reaches the end (or leaves the last stop of an open tour)
+     */
+    int getFinish() {
+      return finish;
+    }
+  }
+}
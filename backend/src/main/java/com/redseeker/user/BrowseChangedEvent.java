@@ -0,0 +1,39 @@
+package com.redseeker.user;
+
+/**
+ * Published after a browse record has been added, updated or deleted. {@code previousAttractionId}
+ * is {@code null} for additions and {@code attractionId} is {@code null} for deletions.
+ */
+public class BrowseChangedEvent {
+  private final Long userId;
+  private final Long previousAttractionId;
+  private final Long attractionId;
+  private final String browseTime;
+
+  public BrowseChangedEvent(
+      Long userId, Long previousAttractionId, Long attractionId, String browseTime) {
+    this.userId = userId;
+    this.previousAttractionId = previousAttractionId;
+    this.attractionId = attractionId;
+    this.browseTime = browseTime;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public Long getPreviousAttractionId() {
+    return previousAttractionId;
+  }
+
+  public Long getAttractionId() {
+    return attractionId;
+  }
+
+  /**
+   * @return the stored browse time of the new record, or {@code null} for deletions
+   */
+  public String getBrowseTime() {
+    return browseTime;
+  }
+}
@@ -0,0 +1,36 @@
+package com.redseeker.user;
+
+/**
+ * Published after an attraction rating has been added, updated or deleted. {@code previousRating}
+ * is {@code null} for additions and {@code rating} is {@code null} for deletions.
+ */
+public class RatingChangedEvent {
+  private final Long userId;
+  private final Long attractionId;
+  private final Integer previousRating;
+  private final Integer rating;
+
+  public RatingChangedEvent(
+      Long userId, Long attractionId, Integer previousRating, Integer rating) {
+    this.userId = userId;
+    this.attractionId = attractionId;
+    this.previousRating = previousRating;
+    this.rating = rating;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public Long getAttractionId() {
+    return attractionId;
+  }
+
+  public Integer getPreviousRating() {
+    return previousRating;
+  }
+
+  public Integer getRating() {
+    return rating;
+  }
+}
@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -25,8 +26,10 @@ public class UserServiceImpl implements UserService {
 
   private final String databaseUrl;
   private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+  private final ApplicationEventPublisher eventPublisher;
 
-  public UserServiceImpl() {
+  public UserServiceImpl(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
     this.databaseUrl = resolveDatabaseUrl();
     // 初始化管理员用户
     initializeAdminUser();
@@ -158,15 +161,19 @@ public class UserServiceImpl implements UserService {
     ensureUserExists(request.getUserId());
     String sql = "INSERT INTO user_browse_history (user_id, attraction_id) VALUES (?, ?)";
     try (Connection connection = openConnection();
-        PreparedStatement statement =
-            connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        PreparedStatement statement = connection.prepareStatement(sql)) {
       statement.setLong(1, request.getUserId());
       statement.setLong(2, request.getAttractionId());
       statement.executeUpdate();
-      try (ResultSet keys = statement.getGeneratedKeys()) {
+      try (PreparedStatement idStatement =
+              connection.prepareStatement("SELECT last_insert_rowid()");
+          ResultSet keys = idStatement.executeQuery()) {
         if (keys.next()) {
           long id = keys.getLong(1);
-          return getBrowseById(id, request.getUserId());
+          UserBrowseResponse created = getBrowseById(id, request.getUserId());
+          publishBrowseChanged(
+              created.getUserId(), null, created.getAttractionId(), created.getBrowseTime());
+          return created;
         }
       }
     } catch (SQLException ex) {
@@ -206,6 +213,7 @@ public class UserServiceImpl implements UserService {
   @Override
   public UserBrowseResponse updateBrowse(UserBrowseUpdateRequest request) {
     ensureUserExists(request.getUserId());
+    UserBrowseResponse previous = getBrowseById(request.getId(), request.getUserId());
     String sql;
     boolean hasBrowseTime = request.getBrowseTime() != null && !request.getBrowseTime().isBlank();
     if (hasBrowseTime) {
@@ -230,12 +238,19 @@ public class UserServiceImpl implements UserService {
       LOGGER.error("Failed to update browse history", ex);
       throw new ServiceException(ErrorCode.INTERNAL_ERROR, "Failed to update browse history");
     }
-    return getBrowseById(request.getId(), request.getUserId());
+    UserBrowseResponse updated = getBrowseById(request.getId(), request.getUserId());
+    publishBrowseChanged(
+        updated.getUserId(),
+        previous.getAttractionId(),
+        updated.getAttractionId(),
+        updated.getBrowseTime());
+    return updated;
   }
 
   @Override
   public void deleteBrowse(Long id, Long userId) {
     ensureUserExists(userId);
+    UserBrowseResponse previous = getBrowseById(id, userId);
     String sql = "DELETE FROM user_browse_history WHERE id = ? AND user_id = ?";
     try (Connection connection = openConnection();
         PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -249,6 +264,7 @@ public class UserServiceImpl implements UserService {
       LOGGER.error("Failed to delete browse history", ex);
       throw new ServiceException(ErrorCode.INTERNAL_ERROR, "Failed to delete browse history");
     }
+    publishBrowseChanged(userId, previous.getAttractionId(), null, null);
   }
 
   @Override
@@ -257,17 +273,21 @@ public class UserServiceImpl implements UserService {
     String sql =
         "INSERT INTO attraction_ratings (attraction_id, user_id, rating, comment) VALUES (?, ?, ?, ?)";
     try (Connection connection = openConnection();
-        PreparedStatement statement =
-            connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        PreparedStatement statement = connection.prepareStatement(sql)) {
       statement.setLong(1, request.getAttractionId());
       statement.setLong(2, request.getUserId());
       statement.setInt(3, request.getRating());
       statement.setString(4, request.getComment());
       statement.executeUpdate();
-      try (ResultSet keys = statement.getGeneratedKeys()) {
+      try (PreparedStatement idStatement =
+              connection.prepareStatement("SELECT last_insert_rowid()");
+          ResultSet keys = idStatement.executeQuery()) {
         if (keys.next()) {
           long id = keys.getLong(1);
-          return getRatingById(id, request.getUserId());
+          UserRatingResponse created = getRatingById(id, request.getUserId());
+          publishRatingChanged(
+              created.getUserId(), created.getAttractionId(), null, created.getRating());
+          return created;
         }
       }
     } catch (SQLException ex) {
@@ -309,6 +329,7 @@ public class UserServiceImpl implements UserService {
   @Override
   public UserRatingResponse updateRating(UserRatingUpdateRequest request) {
     ensureUserExists(request.getUserId());
+    UserRatingResponse previous = getRatingById(request.getId(), request.getUserId());
     String sql = "UPDATE attraction_ratings SET rating = ?, comment = ? WHERE id = ? AND user_id = ?";
     try (Connection connection = openConnection();
         PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -324,12 +345,16 @@ public class UserServiceImpl implements UserService {
       LOGGER.error("Failed to update rating", ex);
       throw new ServiceException(ErrorCode.INTERNAL_ERROR, "Failed to update rating");
     }
-    return getRatingById(request.getId(), request.getUserId());
+    UserRatingResponse updated = getRatingById(request.getId(), request.getUserId());
+    publishRatingChanged(
+        updated.getUserId(), updated.getAttractionId(), previous.getRating(), updated.getRating());
+    return updated;
   }
 
   @Override
   public void deleteRating(Long id, Long userId) {
     ensureUserExists(userId);
+    UserRatingResponse previous = getRatingById(id, userId);
     String sql = "DELETE FROM attraction_ratings WHERE id = ? AND user_id = ?";
     try (Connection connection = openConnection();
         PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -343,6 +368,7 @@ public class UserServiceImpl implements UserService {
       LOGGER.error("Failed to delete rating", ex);
       throw new ServiceException(ErrorCode.INTERNAL_ERROR, "Failed to delete rating");
     }
+    publishRatingChanged(userId, previous.getAttractionId(), previous.getRating(), null);
   }
 
   @Override
@@ -408,6 +434,30 @@ public class UserServiceImpl implements UserService {
     throw new ServiceException(ErrorCode.NOT_FOUND, "rating record not found");
   }
 
+  /**
+   * Notifies in-memory consumers (e.g. the recommendation rating matrix) once a rating write has
+   * been committed. Listener failures are logged and never fail the write itself.
+   */
+  private void publishRatingChanged(
+      Long userId, Long attractionId, Integer previousRating, Integer rating) {
+    try {
+      eventPublisher.publishEvent(
+          new RatingChangedEvent(userId, attractionId, previousRating, rating));
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Failed to publish rating change for user {}", userId, ex);
+    }
+  }
+
+  private void publishBrowseChanged(
+      Long userId, Long previousAttractionId, Long attractionId, String browseTime) {
+    try {
+      eventPublisher.publishEvent(
+          new BrowseChangedEvent(userId, previousAttractionId, attractionId, browseTime));
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Failed to publish browse change for user {}", userId, ex);
+    }
+  }
+
   private void updateLastLogin(Long userId) {
     String sql = "UPDATE users SET last_login = CURRENT_TIMESTAMP WHERE id = ?";
     try (Connection connection = openConnection();
@@ -0,0 +1,52 @@
+package com.redseeker.recommend;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AlsTrainerTest {
+  private static final int FACTORS = 4;
+
+  /**
+   * Users 0-2 browse attractions 0-2 and users 3-5 browse attractions 3-5; user 0 never saw
+   * attraction 2. Its taste group must rank that one above every attraction of the other group.
+   */
+  @Test
+  void recommendsUnseenItemsOfTheSameTasteGroup() {
+    int[][] rowItems = {
+      {0, 1}, {0, 1, 2}, {0, 1, 2}, {3, 4, 5}, {3, 4, 5}, {3, 4, 5}, {}
+    };
+    float[][] rowStrengths = {
+      {3, 1}, {1, 2, 1}, {2, 1, 4}, {1, 1, 1}, {5, 2, 1}, {1, 3, 1}, {}
+    };
+    // Attraction 6 is in the catalog but nobody browsed it.
+    AlsTrainer.Factors factors =
+        new AlsTrainer(FACTORS, 15, 0.1, 10.0, 7L).train(rowItems, rowStrengths, 7);
+
+    double unseenSameGroup = predict(factors, 0, 2);
+    for (int item = 3; item <= 6; item++) {
+      assertTrue(unseenSameGroup > predict(factors, 0, item), "attraction " + item);
+    }
+    assertTrue(predict(factors, 0, 0) > 0.5);
+    assertTrue(Math.abs(predict(factors, 0, 6)) < 0.1);
+    // Users without interactions prefer nothing.
+    assertArrayEquals(new float[FACTORS], row(factors.getUserFactors(), 6));
+  }
+
+  private static double predict(AlsTrainer.Factors factors, int user, int item) {
+    float[] userRow = row(factors.getUserFactors(), user);
+    float[] itemRow = row(factors.getItemFactors(), item);
+    double dot = 0.0;
+    for (int f = 0; f < FACTORS; f++) {
+      dot += userRow[f] * itemRow[f];
+    }
+    return dot;
+  }
+
+  private static float[] row(float[] factors, int row) {
+    float[] out = new float[FACTORS];
+    System.arraycopy(factors, row * FACTORS, out, 0, FACTORS);
+    return out;
+  }
+}
@@ -0,0 +1,55 @@
+package com.redseeker.recommend;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LatentFactorSnapshotTest {
+
+  @Test
+  void mapsWhatWasWritten(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("latent-factors-1.bin");
+    long[] userIds = {3L, 12L, 17L};
+    int[] itemIds = {6, 15, 42, 100};
+    float[] userFactors = {0.1f, 0.2f, -0.3f, 0.4f, 0.5f, 0.6f};
+    float[] itemFactors = {1f, 2f, 3f, 4f, -5f, 6f, 7f, 8f};
+    LatentFactorSnapshot.write(file, 1234L, 2, userIds, itemIds, userFactors, itemFactors);
+
+    LatentFactorSnapshot snapshot = LatentFactorSnapshot.map(file);
+    assertEquals(file, snapshot.getPath());
+    assertEquals(1234L, snapshot.getBuiltAt());
+    assertEquals(2, snapshot.factorCount());
+    for (int i = 0; i < userIds.length; i++) {
+      assertEquals(i, snapshot.userIndex(userIds[i]));
+    }
+    for (int i = 0; i < itemIds.length; i++) {
+      assertEquals(i, snapshot.itemIndex(itemIds[i]));
+    }
+    assertEquals(-1, snapshot.userIndex(4L));
+    assertEquals(-1, snapshot.itemIndex(7));
+    assertEquals(-1, snapshot.itemIndex(101));
+
+    float[] row = new float[2];
+    snapshot.userFactors(1, row);
+    assertArrayEquals(new float[] {-0.3f, 0.4f}, row);
+    assertEquals(-0.3f * -5f + 0.4f * 6f, snapshot.predict(row, 2), 1e-6);
+  }
+
+  @Test
+  void rejectsTruncatedFiles(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("latent-factors-1.bin");
+    LatentFactorSnapshot.write(
+        file, 1L, 2, new long[] {1L}, new int[] {1}, new float[2], new float[2]);
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+    assertThrows(IOException.class, () -> LatentFactorSnapshot.map(file));
+  }
+}
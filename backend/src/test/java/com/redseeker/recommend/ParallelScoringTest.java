@@ -0,0 +1,109 @@
+package com.redseeker.recommend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Ranks a synthetic catalog far above the parallel threshold and compares with sequential. */
+class ParallelScoringTest {
+  private static final int CATALOG_SIZE = 5_000;
+
+  @Test
+  void parallelRankingEqualsSequentialRanking() throws Exception {
+    AttractionCatalogService catalogService = mock(AttractionCatalogService.class);
+    when(catalogService.current()).thenReturn(syntheticCatalog());
+    RecommendServiceImpl parallel = service(catalogService, 1, 4);
+    RecommendServiceImpl sequential = service(catalogService, Integer.MAX_VALUE, 4);
+    try {
+      RecommendRequest request = new RecommendRequest();
+      request.setCity("上海");
+      request.setPreferences(List.of("革命", "纪念馆"));
+      request.setUserLongitude(121.47);
+      request.setUserLatitude(31.23);
+      request.setVisitTime("2024-10-01T10:00:00+08:00");
+      request.setOffset(20);
+      request.setLimit(200);
+
+      List<String> expected = ranking(sequential.getRecommendations(request));
+      assertEquals(200, expected.size());
+      assertEquals(expected, ranking(parallel.getRecommendations(request)));
+      // Callers running on another pool must still get the same ranking.
+      assertEquals(
+          expected,
+          ForkJoinPool.commonPool()
+              .submit(() -> ranking(parallel.getRecommendations(request)))
+              .get());
+      assertEquals(
+          expected,
+          ForkJoinPool.commonPool()
+              .submit(() -> ranking(sequential.getRecommendations(request)))
+              .get());
+    } finally {
+      parallel.shutdown();
+      sequential.shutdown();
+    }
+  }
+
+  private static List<String> ranking(List<RecommendItem> items) {
+    return items.stream()
+        .map(item -> item.getId() + "@" + item.getScore())
+        .collect(Collectors.toList());
+  }
+
+  private static RecommendServiceImpl service(
+      AttractionCatalogService catalogService, int parallelThreshold, int parallelism) {
+    AttractionStatsService statsService = mock(AttractionStatsService.class);
+    RatingMatrixService ratingMatrixService = mock(RatingMatrixService.class);
+    ItemSimilarityService itemSimilarityService = mock(ItemSimilarityService.class);
+    LatentFactorService latentFactorService = mock(LatentFactorService.class);
+    RecommendResultCache resultCache =
+        new RecommendResultCache(
+            statsService, ratingMatrixService, itemSimilarityService, latentFactorService, 0, 0);
+    return new RecommendServiceImpl(
+        mock(AiService.class),
+        catalogService,
+        ratingMatrixService,
+        itemSimilarityService,
+        latentFactorService,
+        statsService,
+        resultCache,
+        new CandidatePipeline(List.of(), Integer.MAX_VALUE, 100),
+        mock(TrendingService.class),
+        parallelThreshold,
+        parallelism);
+  }
+
+  private static AttractionCatalog syntheticCatalog() {
+    Random random = new Random(42);
+    String[] hours = {null, "09:00-17:00", "08:30-16:30", "全天开放", "10:00-22:00"};
+    String[] names = {"纪念馆", "革命旧址", "烈士陵园", "故居", "博物馆"};
+    List<CatalogAttraction> attractions = new ArrayList<>(CATALOG_SIZE);
+    List<List<String>> tags = new ArrayList<>(CATALOG_SIZE);
+    for (int i = 0; i < CATALOG_SIZE; i++) {
+      attractions.add(
+          new CatalogAttraction(
+              String.valueOf(i + 1),
+              names[random.nextInt(names.length)] + i,
+              "上海市",
+              1 + random.nextInt(5),
+              random.nextBoolean() ? "革命历史教育基地" : "城市公园",
+              null,
+              hours[random.nextInt(hours.length)],
+              random.nextDouble() * 100,
+              121.0 + random.nextDouble(),
+              31.0 + random.nextDouble(),
+              1921 + random.nextInt(30),
+              1950 + random.nextInt(30),
+              null));
+      tags.add(random.nextBoolean() ? List.of("革命") : List.of());
+    }
+    return new AttractionCatalog(1, "synthetic", attractions, tags);
+  }
+}
@@ -1,18 +1,24 @@
 package com.redseeker.recommend;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redseeker.user.BrowseChangedEvent;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -26,6 +32,9 @@ public class RecommendControllerTest {
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
   @MockBean
   private AiService aiService;
 
@@ -63,6 +72,153 @@ public class RecommendControllerTest {
         .andExpect(jsonPath("$.data").isArray());
   }
 
+  @Test
+  public void testGetRecommendations_Pagination() throws Exception {
+    RecommendRequest request = new RecommendRequest();
+    request.setCity("上海");
+    request.setPreferences(List.of("抗日战争"));
+    JsonNode all = postList(request);
+
+    request.setOffset(5);
+    request.setLimit(5);
+    JsonNode page = postList(request);
+
+    assertEquals(5, page.size());
+    for (int i = 0; i < page.size(); i++) {
+      assertEquals(all.get(i + 5).get("id"), page.get(i).get("id"));
+      assertEquals(all.get(i + 5).get("reason"), page.get(i).get("reason"));
+    }
+
+    request.setLimit(0);
+    mockMvc.perform(post("/api/recommend/list")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testGetRecommendations_CachedWithinTimeSegment() throws Exception {
+    RecommendRequest request = new RecommendRequest();
+    request.setCity("北京");
+    request.setPreferences(List.of("纪念馆"));
+    request.setVisitTime("2025-07-15T10:05:00+08:00");
+    JsonNode first = postList(request);
+    long hitsBefore = cacheStats().get("hits").asLong();
+
+    request.setVisitTime("2025-07-15T10:06:00+08:00");
+    JsonNode second = postList(request);
+
+    assertEquals(first, second);
+    assertEquals(hitsBefore + 1, cacheStats().get("hits").asLong());
+  }
+
+  @Test
+  public void testReason_MatchesListedItem() throws Exception {
+    RecommendRequest request = new RecommendRequest();
+    request.setCity("北京");
+    request.setPreferences(List.of("纪念馆"));
+    request.setLimit(3);
+    JsonNode withReasons = postList(request);
+
+    request.setIncludeReasons(false);
+    JsonNode withoutReasons = postList(request);
+
+    assertEquals(3, withoutReasons.size());
+    for (int i = 0; i < withoutReasons.size(); i++) {
+      assertTrue(withoutReasons.get(i).get("reason").isNull());
+      String body =
+          mockMvc.perform(get("/api/recommend/" + withoutReasons.get(i).get("id").asText()
+                      + "/reason")
+                  .param("city", "北京")
+                  .param("preferences", "纪念馆"))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      JsonNode reason = objectMapper.readTree(body).get("data");
+      assertEquals(withReasons.get(i).get("reason"), reason.get("reason"));
+      assertEquals(withReasons.get(i).get("score"), reason.get("score"));
+    }
+
+    mockMvc.perform(get("/api/recommend/0/reason").param("city", "北京"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void testNearby_RadiusSortedByDistance() throws Exception {
+    // Centered on 南京长江大桥纪念馆 (id 3), so at least that attraction is inside the radius.
+    String body =
+        mockMvc.perform(get("/api/recommend/nearby")
+                .param("longitude", "118.7333")
+                .param("latitude", "32.1")
+                .param("radius", "50000"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JsonNode data = objectMapper.readTree(body).get("data");
+
+    assertTrue(data.size() > 0);
+    assertEquals("3", data.get(0).get("id").asText());
+    double previous = 0.0;
+    for (JsonNode attraction : data) {
+      double distance = attraction.get("distance").asDouble();
+      assertTrue(distance >= previous && distance <= 50000);
+      previous = distance;
+    }
+
+    mockMvc.perform(get("/api/recommend/nearby").param("radius", "1000"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testTrending_CountsNewBrowse() throws Exception {
+    eventPublisher.publishEvent(new BrowseChangedEvent(1L, null, 3L, null));
+
+    String body =
+        mockMvc.perform(get("/api/recommend/trending").param("limit", "500"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JsonNode data = objectMapper.readTree(body).get("data");
+
+    boolean found = false;
+    double previous = Double.MAX_VALUE;
+    for (JsonNode attraction : data) {
+      double score = attraction.get("score").asDouble();
+      assertTrue(score <= previous);
+      previous = score;
+      if ("3".equals(attraction.get("id").asText())) {
+        found = attraction.get("recentBrowses").asInt() >= 1;
+      }
+    }
+    assertTrue(found);
+
+    // Moving a record to another attraction is not a new browse of it.
+    int before = recentBrowses("6");
+    eventPublisher.publishEvent(new BrowseChangedEvent(1L, 3L, 6L, null));
+    assertEquals(before, recentBrowses("6"));
+
+    mockMvc.perform(get("/api/recommend/trending").param("limit", "0"))
+        .andExpect(status().isBadRequest());
+  }
+
+  private int recentBrowses(String attractionId) throws Exception {
+    String body =
+        mockMvc.perform(get("/api/recommend/trending").param("limit", "500"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    for (JsonNode attraction : objectMapper.readTree(body).get("data")) {
+      if (attractionId.equals(attraction.get("id").asText())) {
+        return attraction.get("recentBrowses").asInt();
+      }
+    }
+    return 0;
+  }
+
   @Test
   public void testAiPlan() throws Exception {
     // Mock the AI service
@@ -81,4 +237,26 @@ public class RecommendControllerTest {
         .andExpect(jsonPath("$.data.plans").isArray())
         .andExpect(jsonPath("$.data.plans[0].description").value("这是AI生成的Mock行程方案。"));
   }
+
+  private JsonNode postList(RecommendRequest request) throws Exception {
+    String body =
+        mockMvc.perform(post("/api/recommend/list")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return objectMapper.readTree(body).get("data");
+  }
+
+  private JsonNode cacheStats() throws Exception {
+    String body =
+        mockMvc.perform(get("/api/recommend/cache/stats"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return objectMapper.readTree(body).get("data");
+  }
 }
@@ -0,0 +1,190 @@
+package com.redseeker.recommend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/** Streams against a local stub of the chat completions endpoint instead of the real model. */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ZhipuAiStreamingTest {
+  private static final List<String> CHUNKS = List.of("第一天：", "参观一大会址。");
+  private static final String STALL_MARKER = "stall-upstream";
+  private static final long STREAM_TIMEOUT_MS = 1_000;
+  private static final List<String> REQUEST_BODIES = new CopyOnWriteArrayList<>();
+  private static final AtomicInteger BLOCKING_CALLS = new AtomicInteger();
+  private static HttpServer stub;
+
+  @Autowired
+  private AiService aiService;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @DynamicPropertySource
+  static void stubModelServer(DynamicPropertyRegistry registry) throws IOException {
+    stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    stub.createContext("/v4/chat/completions", exchange -> {
+      String requestBody =
+          new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+      REQUEST_BODIES.add(requestBody);
+      if (requestBody.contains("\"stream\":false")) {
+        BLOCKING_CALLS.incrementAndGet();
+        try {
+          // Slow enough that concurrent identical prompts overlap.
+          Thread.sleep(300);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        byte[] json = ("{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+                + "\"content\":\"" + String.join("", CHUNKS) + "\"}}]}")
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(json);
+        }
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+      exchange.sendResponseHeaders(200, 0);
+      if (requestBody.contains(STALL_MARKER)) {
+        stall(exchange.getResponseBody());
+        return;
+      }
+      try (OutputStream out = exchange.getResponseBody()) {
+        for (String chunk : CHUNKS) {
+          out.write(("data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + chunk
+                  + "\"}}]}\n\n").getBytes(StandardCharsets.UTF_8));
+          out.flush();
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+      }
+    });
+    stub.setExecutor(Executors.newCachedThreadPool());
+    stub.start();
+    registry.add("zhipu.cache.persistent", () -> "false");
+    registry.add("zhipu.api.stream-timeout-ms", () -> String.valueOf(STREAM_TIMEOUT_MS));
+    registry.add(
+        "zhipu.api.base-url", () -> "http://127.0.0.1:" + stub.getAddress().getPort() + "/v4/");
+  }
+
+  /** Sends one delta, then only keep-alive blank lines until the client hangs up. */
+  private static void stall(OutputStream body) {
+    try (OutputStream out = body) {
+      out.write(("data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + CHUNKS.get(0)
+              + "\"}}]}\n\n").getBytes(StandardCharsets.UTF_8));
+      for (int i = 0; i < 100; i++) {
+        out.flush();
+        Thread.sleep(100);
+        out.write('\n');
+      }
+    } catch (IOException e) {
+      // The client gave up.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @AfterAll
+  static void stopStub() {
+    stub.stop(0);
+  }
+
+  @Test
+  public void testStreamContent_ForwardsDeltas() throws Exception {
+    List<String> deltas = new CopyOnWriteArrayList<>();
+    String text = aiService.streamContent("ping", deltas::add).get(10, TimeUnit.SECONDS);
+
+    assertEquals(CHUNKS, deltas);
+    assertEquals(String.join("", CHUNKS), text);
+    assertTrue(REQUEST_BODIES.get(REQUEST_BODIES.size() - 1).contains("\"stream\":true"));
+  }
+
+  @Test
+  public void testStreamContent_DeadlineAndCancellationReturnPermits() throws Exception {
+    List<String> deltas = new CopyOnWriteArrayList<>();
+    CompletableFuture<String> stalled = aiService.streamContent(STALL_MARKER, deltas::add);
+
+    ExecutionException timedOut =
+        assertThrows(ExecutionException.class, () -> stalled.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(TimeoutException.class, timedOut.getCause());
+    assertEquals(List.of(CHUNKS.get(0)), deltas);
+    assertEquals(0, aiService.getStats().getInFlight());
+
+    CompletableFuture<String> cancelled =
+        aiService.streamContent(STALL_MARKER + " again", delta -> { });
+    assertEquals(1, aiService.getStats().getInFlight());
+    cancelled.cancel(true);
+    assertEquals(0, aiService.getStats().getInFlight());
+  }
+
+  @Test
+  public void testGenerateContent_CoalescesAndCaches() throws Exception {
+    CompletableFuture<String> first =
+        CompletableFuture.supplyAsync(() -> aiService.generateContent("两天 行程"));
+    CompletableFuture<String> second =
+        CompletableFuture.supplyAsync(() -> aiService.generateContent("  两天   行程\n"));
+    String expected = String.join("", CHUNKS);
+
+    assertEquals(expected, first.get(10, TimeUnit.SECONDS));
+    assertEquals(expected, second.get(10, TimeUnit.SECONDS));
+    assertEquals(expected, aiService.generateContent("两天 行程"));
+    assertEquals(1, BLOCKING_CALLS.get());
+    AiClientStats stats = aiService.getStats();
+    // The second call either joined the first or, if it started late, hit the cache.
+    assertEquals(2, stats.getCoalesced() + stats.getCacheHits());
+    assertEquals(0, stats.getInFlight());
+  }
+
+  @Test
+  public void testAiPlanStream_SendsDeltasThenPlan() throws Exception {
+    AiPlanRequest request = new AiPlanRequest();
+    request.setPrompt("红色景点");
+    request.setCity("上海");
+
+    MvcResult result =
+        mockMvc.perform(post("/api/recommend/ai-plan/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    result.getAsyncResult(10_000);
+    String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+    assertTrue(body.indexOf("event:delta\ndata:" + CHUNKS.get(0)) >= 0);
+    assertTrue(body.indexOf("event:done") > body.lastIndexOf("event:delta"));
+    assertTrue(body.contains(String.join("", CHUNKS)));
+  }
+}
@@ -0,0 +1,40 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AttractionDistanceMatrixTest {
+
+  @Test
+  public void testWriteRead_KeepsEveryLookup(@TempDir Path directory) throws Exception {
+    AttractionDistanceMatrix written = new AttractionDistanceMatrix(
+        1234L,
+        new long[] {3, 8},
+        new double[] {121.4737, 121.5},
+        new double[] {31.2208, 31.3},
+        new float[] {0f, 9000f, 9000f, 0f},
+        Map.of("driving", new int[] {0, 12000, -1, 0}),
+        Map.of("driving", new int[] {0, 900, -1, 0}));
+    Path file = directory.resolve("matrix");
+    written.write(file);
+
+    AttractionDistanceMatrix read = AttractionDistanceMatrix.read(file);
+    assertEquals(1234L, read.getBuiltAt());
+    assertEquals(1, read.index(8L));
+    assertEquals(-1, read.index(5L));
+    assertEquals(0, read.locate(121.47372, 31.22079));
+    assertEquals(9000.0, read.straightDistance(1, 0), 1e-6);
+    assertEquals(12000, read.roadDistance("driving", 0, 1));
+    assertEquals(900, read.roadDuration("driving", 0, 1));
+    assertEquals(-1, read.roadDistance("driving", 1, 0));
+    assertEquals(-1, read.roadDistance("walking", 0, 1));
+    assertFalse(read.hasRoadDistances("driving", new int[] {0, 1}));
+    assertTrue(read.hasRoadDistances("driving", new int[] {0}));
+  }
+}
@@ -0,0 +1,75 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+public class AttractionLegFillerTest {
+
+  @Test
+  public void testFill_FetchesNearestMissingLegsOnceWithinQuota() {
+    // 0-1 is 1 km apart with a known 0->1 leg, 0-2 and 1-2 are 5 km and 4 km, 3 is 50 km away.
+    AttractionDistanceMatrix matrix = new AttractionDistanceMatrix(
+        1L,
+        new long[] {10, 11, 12, 13},
+        new double[] {121.0, 121.01, 121.05, 121.5},
+        new double[] {31.0, 31.0, 31.0, 31.0},
+        new float[] {
+          0f, 1000f, 5000f, 50000f,
+          1000f, 0f, 4000f, 49000f,
+          5000f, 4000f, 0f, 45000f,
+          50000f, 49000f, 45000f, 0f},
+        Map.of("driving", new int[] {
+          0, 1200, -1, -1,
+          -1, 0, -1, -1,
+          -1, -1, 0, -1,
+          -1, -1, -1, 0}),
+        Map.of("driving", new int[16]));
+    AttractionDistanceMatrixService matrixService = mock(AttractionDistanceMatrixService.class);
+    when(matrixService.current()).thenReturn(matrix);
+    RouteServiceImpl routeService = mock(RouteServiceImpl.class);
+    when(routeService.canFetchRoads()).thenReturn(true);
+    when(routeService.fetchLegIntoCache(anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+        eq("driving"))).thenReturn(CompletableFuture.completedFuture(true));
+    AttractionLegFiller filler =
+        new AttractionLegFiller(routeService, matrixService, 3, 30000, "driving");
+
+    List<AttractionLegFiller.Leg> legs = filler.missingLegs(matrix);
+    assertEquals(List.of("driving:11:10", "driving:11:12", "driving:12:11"),
+        legs.stream().map(AttractionLegFiller.Leg::key).toList());
+
+    filler.fill();
+    verify(routeService, times(3)).fetchLegIntoCache(anyDouble(), anyDouble(), anyDouble(),
+        anyDouble(), eq("driving"));
+    verify(matrixService).requestRebuild();
+    // Attempted pairs are skipped, the 50 km pairs are out of range.
+    assertEquals(List.of("driving:10:12", "driving:12:10"),
+        filler.missingLegs(matrix).stream().map(AttractionLegFiller.Leg::key).toList());
+  }
+
+  @Test
+  public void testFill_WithoutAmapKey_FetchesNothing() {
+    AttractionDistanceMatrixService matrixService = mock(AttractionDistanceMatrixService.class);
+    when(matrixService.current()).thenReturn(new AttractionDistanceMatrix(
+        1L, new long[] {1, 2}, new double[] {121.0, 121.01}, new double[] {31.0, 31.0},
+        new float[] {0f, 1000f, 1000f, 0f}, Map.of(), Map.of()));
+    RouteServiceImpl routeService = mock(RouteServiceImpl.class);
+    AttractionLegFiller filler =
+        new AttractionLegFiller(routeService, matrixService, 3, 30000, "driving");
+
+    filler.fill();
+    verify(routeService, never()).fetchLegIntoCache(anyDouble(), anyDouble(), anyDouble(),
+        anyDouble(), eq("driving"));
+    verify(matrixService, never()).requestRebuild();
+  }
+}
@@ -0,0 +1,61 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ItineraryPartitionerTest {
+
+  private static double[][] distances(double[][] points) {
+    int n = points.length;
+    double[][] distance = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        distance[i][j] = Math.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]);
+      }
+    }
+    return distance;
+  }
+
+  @Test
+  void separatesDistantGroups() {
+    double[][] points = {
+      {0, 0}, {100, 100}, {1, 0}, {101, 100}, {0, 1}, {100, 101},
+    };
+    int[] days = ItineraryPartitioner.partition(distances(points), 2);
+
+    assertEquals(days[0], days[2]);
+    assertEquals(days[0], days[4]);
+    assertEquals(days[1], days[3]);
+    assertEquals(days[1], days[5]);
+    assertNotEquals(days[0], days[1]);
+  }
+
+  @Test
+  void balancesUnevenGroups() {
+    // Five stops in one town and one far away: three days get two stops each.
+    double[][] points = {
+      {0, 0}, {1, 0}, {2, 0}, {3, 0}, {4, 0}, {500, 0},
+    };
+    int[] days = ItineraryPartitioner.partition(distances(points), 3);
+
+    int[] load = new int[3];
+    for (int day : days) {
+      load[day]++;
+    }
+    assertEquals(2, load[0]);
+    assertEquals(2, load[1]);
+    assertEquals(2, load[2]);
+  }
+
+  @Test
+  void neverUsesMoreDaysThanStops() {
+    double[][] points = {{0, 0}, {0, 0}};
+    int[] days = ItineraryPartitioner.partition(distances(points), 5);
+
+    assertNotEquals(days[0], days[1]);
+    assertTrue(days[0] < 2 && days[1] < 2);
+  }
+}
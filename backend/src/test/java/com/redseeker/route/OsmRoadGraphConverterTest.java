@@ -0,0 +1,97 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.redseeker.common.DatabasePaths;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Converts a hand-made extract of a small block (two east-west streets, one of them one-way, two
+ * cross roads, a footway, a motorway stub, a private service road and a building) and routes on it
+ * through {@link RoadGraphService}.
+ */
+class OsmRoadGraphConverterTest {
+
+  @Test
+  void convertedExtractRoutesByModeAndDirection(@TempDir Path directory) throws Exception {
+    Path extract = Paths.get(getClass().getResource("/route/small-extract.osm").toURI());
+    Path file = directory.resolve("models").resolve("road-network.graph");
+    OsmRoadGraphConverter.main(new String[] {extract.toString(), file.toString()});
+    assertTrue(Files.isRegularFile(file));
+
+    RoadGraph graph = RoadGraph.read(file);
+    // 101..108 are on routable ways; the building node 109 and the clipped node 999 are not.
+    assertEquals(8, graph.nodeCount());
+    // 南街, 北街 (its eastbound edges foot only) and the footway 2×2 each, 西路 and 东路 1×2 each,
+    // the one-way motorway 1.
+    assertEquals(17, graph.edgeCount());
+    // The motorway is closed to pedestrians.
+    assertEquals(-1, graph.nearestNode(116.4100, 39.9000, RoadGraph.FOOT, 100));
+    assertTrue(graph.nearestNode(116.4100, 39.9000, RoadGraph.CAR, 100) >= 0);
+
+    RoadGraphService service = new RoadGraphService(new DatabasePaths(), file.toString(), 100);
+    assertTrue(service.isAvailable());
+    RouteLocation northWest = location(116.3900, 39.9020);
+    RouteLocation northEast = location(116.3940, 39.9020);
+
+    // 北街 is one-way westbound, so eastbound cars go around the block.
+    RouteInfo eastbound = service.route(northWest, northEast, "driving");
+    assertNotNull(eastbound);
+    assertEquals(List.of("西路", "南街", "东路"), roads(eastbound));
+    RouteInfo westbound = service.route(northEast, northWest, "driving");
+    assertEquals(List.of("北街"), roads(westbound));
+    assertTrue(eastbound.getDistance() > 2 * westbound.getDistance());
+
+    // Pedestrians may walk 北街 both ways and take the footway, which cars may not.
+    assertEquals(List.of("北街"), roads(service.route(northWest, northEast, "walking")));
+    RouteInfo footway =
+        service.route(location(116.3920, 39.9000), location(116.3920, 39.9020), "walking");
+    assertEquals(1, footway.getSteps().size());
+    assertNull(footway.getSteps().get(0).getRoad());
+    assertEquals(222, footway.getDistance(), 1);
+    RouteInfo byCar =
+        service.route(location(116.3920, 39.9000), location(116.3920, 39.9020), "driving");
+    assertEquals(List.of("南街", "东路", "北街"), roads(byCar));
+  }
+
+  @Test
+  void readsTagsLikeOsm() {
+    assertEquals(RoadGraph.CAR, OsmRoadGraphConverter.modes(
+        Map.of("highway", "trunk")));
+    assertEquals(RoadGraph.FOOT | RoadGraph.CAR, OsmRoadGraphConverter.modes(
+        Map.of("highway", "trunk", "foot", "yes")));
+    assertEquals(RoadGraph.FOOT, OsmRoadGraphConverter.modes(
+        Map.of("highway", "residential", "motor_vehicle", "no")));
+    assertEquals(0, OsmRoadGraphConverter.modes(Map.of("highway", "proposed")));
+    assertEquals(97, OsmRoadGraphConverter.carKmh(
+        Map.of("highway", "primary", "maxspeed", "60 mph")));
+    assertEquals(60, OsmRoadGraphConverter.carKmh(
+        Map.of("highway", "primary", "maxspeed", "CN:urban")));
+    assertEquals(-1, OsmRoadGraphConverter.carDirection(
+        Map.of("highway", "primary", "oneway", "-1")));
+    assertEquals(1, OsmRoadGraphConverter.carDirection(
+        Map.of("highway", "primary", "junction", "roundabout")));
+    assertEquals(0, OsmRoadGraphConverter.carDirection(
+        Map.of("highway", "motorway", "oneway", "no")));
+  }
+
+  private static List<String> roads(RouteInfo info) {
+    return info.getSteps().stream().map(RouteStep::getRoad).toList();
+  }
+
+  private static RouteLocation location(double longitude, double latitude) {
+    RouteLocation location = new RouteLocation();
+    location.setLongitude(longitude);
+    location.setLatitude(latitude);
+    return location;
+  }
+}
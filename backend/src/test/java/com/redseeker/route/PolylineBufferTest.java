@@ -0,0 +1,43 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PolylineBufferTest {
+
+  @Test
+  void parsesExactlyLikeParseDouble() {
+    Random random = new Random(7);
+    String[] samples = new String[20_000];
+    for (int i = 0; i < samples.length; i++) {
+      double value = (random.nextDouble() - 0.5) * 360;
+      samples[i] = switch (i % 4) {
+        case 0 -> String.format(Locale.ROOT, "%.6f", value);
+        case 1 -> String.format(Locale.ROOT, "%.12f", value);
+        case 2 -> Double.toString(value);
+        default -> Double.toString(value / 1e9);
+      };
+    }
+    for (String sample : samples) {
+      assertEquals(Double.parseDouble(sample),
+          PolylineBuffer.parseNumber(sample, 0, sample.length()), sample);
+    }
+  }
+
+  @Test
+  void skipsInvalidPointsLikeTheSplitDecoder() {
+    PolylineBuffer path = new PolylineBuffer(1);
+    int skipped = path.appendPolyline(
+        "116.397428,39.90923; ;116.1;abc,39.9;116.4,NaN; 116.5 , 40.0 ;-0.5,+1.25,7;");
+
+    assertEquals(3, skipped);
+    assertEquals(3, path.points());
+    assertArrayEquals(new double[] {116.397428, 39.90923, 116.5, 40.0, -0.5, 1.25},
+        Arrays.copyOf(path.array(), path.points() * 2));
+  }
+}
@@ -0,0 +1,38 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class PolylinesTest {
+
+  @Test
+  void encodesTheReferenceExample() {
+    double[] coordinates = {-120.2, 38.5, -120.95, 40.7, -126.453, 43.252};
+    assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", Polylines.encode(coordinates));
+  }
+
+  @Test
+  void dropsOnlyPointsWithinTolerance() {
+    // About 11 m apart along a parallel, with a 0.3 m wobble and one 50 m detour.
+    double[] coordinates = {
+      116.3000, 39.9, 116.3001, 39.9000027, 116.3002, 39.9, 116.3003, 39.90045,
+      116.3004, 39.9, 116.3005, 39.9,
+    };
+    double[] simplified = Polylines.simplify(coordinates, 6, 1.0);
+
+    assertArrayEquals(
+        new double[] {116.3000, 39.9, 116.3002, 39.9, 116.3003, 39.90045, 116.3004, 39.9,
+            116.3005, 39.9},
+        simplified);
+  }
+
+  @Test
+  void toleranceHalvesPerZoomLevel() {
+    double coarse = Polylines.toleranceMeters(15, 30.0, 1.0);
+    double fine = Polylines.toleranceMeters(16, 30.0, 1.0);
+    assertEquals(2.0, coarse / fine, 1e-9);
+    assertEquals(4.14, coarse, 0.01);
+  }
+}
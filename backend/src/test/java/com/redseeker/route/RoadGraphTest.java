@@ -0,0 +1,148 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RoadGraphTest {
+  private static final int SIDE = 12;
+
+  private int[] firstEdge;
+  private int[] target;
+  private byte[] modes;
+
+  /**
+   * A SIDE × SIDE grid about 100 m apart with random one-way streets, speeds and modes; keeps its
+   * CSR arrays in fields for the reference search.
+   */
+  private RoadGraph randomGrid(long seed) {
+    Random random = new Random(seed);
+    int n = SIDE * SIDE;
+    int[] longitudes = new int[n];
+    int[] latitudes = new int[n];
+    for (int v = 0; v < n; v++) {
+      longitudes[v] = 116_300_000 + (v % SIDE) * 1_000 + random.nextInt(200);
+      latitudes[v] = 39_900_000 + (v / SIDE) * 1_000 + random.nextInt(200);
+    }
+    List<int[]> edges = new ArrayList<>();
+    for (int v = 0; v < n; v++) {
+      int x = v % SIDE;
+      int y = v / SIDE;
+      int[] neighbours = {x + 1 < SIDE ? v + 1 : -1, y + 1 < SIDE ? v + SIDE : -1};
+      for (int w : neighbours) {
+        if (w < 0) {
+          continue;
+        }
+        int kind = random.nextInt(4);
+        int mode = random.nextInt(5) == 0 ? RoadGraph.FOOT : RoadGraph.FOOT | RoadGraph.CAR;
+        int speed = 20 + random.nextInt(60);
+        if (kind != 1) {
+          edges.add(new int[] {v, w, mode, speed});
+        }
+        if (kind != 2) {
+          edges.add(new int[] {w, v, mode, speed});
+        }
+      }
+    }
+    edges.sort((a, b) -> Integer.compare(a[0], b[0]));
+    int m = edges.size();
+    firstEdge = new int[n + 1];
+    target = new int[m];
+    float[] meters = new float[m];
+    modes = new byte[m];
+    byte[] speeds = new byte[m];
+    int[] names = new int[m];
+    for (int i = 0; i < m; i++) {
+      int[] edge = edges.get(i);
+      firstEdge[edge[0] + 1]++;
+      target[i] = edge[1];
+      // Below the straight-line distance on purpose: the graph must raise it.
+      meters[i] = 50f + random.nextInt(150);
+      modes[i] = (byte) edge[2];
+      speeds[i] = (byte) edge[3];
+      names[i] = edge[0] / SIDE == edge[1] / SIDE ? 0 : -1;
+    }
+    for (int v = 0; v < n; v++) {
+      firstEdge[v + 1] += firstEdge[v];
+    }
+    return new RoadGraph(longitudes, latitudes, firstEdge, target, meters, modes, speeds, names,
+        new String[] {"长安街"});
+  }
+
+  /** Plain Dijkstra over the same edges, as the reference answer. */
+  private double dijkstra(RoadGraph graph, int source, int destination, int mode, double speed) {
+    double[] cost = new double[graph.nodeCount()];
+    Arrays.fill(cost, Double.POSITIVE_INFINITY);
+    cost[source] = 0.0;
+    PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+    queue.add(new double[] {0.0, source});
+    while (!queue.isEmpty()) {
+      double[] top = queue.poll();
+      int node = (int) top[1];
+      if (top[0] > cost[node]) {
+        continue;
+      }
+      for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+        if ((modes[edge] & mode) == 0) {
+          continue;
+        }
+        double next = cost[node] + graph.edgeSeconds(edge, speed);
+        if (next < cost[target[edge]]) {
+          cost[target[edge]] = next;
+          queue.add(new double[] {next, target[edge]});
+        }
+      }
+    }
+    return cost[destination];
+  }
+
+  @Test
+  void matchesDijkstraOnRandomGrids(@TempDir Path directory) throws Exception {
+    for (long seed = 1; seed <= 5; seed++) {
+      Path file = directory.resolve("graph-" + seed);
+      randomGrid(seed).write(file);
+      RoadGraph graph = RoadGraph.read(file);
+      Random random = new Random(seed);
+      for (int query = 0; query < 40; query++) {
+        int source = random.nextInt(graph.nodeCount());
+        int destination = random.nextInt(graph.nodeCount());
+        int mode = query % 2 == 0 ? RoadGraph.CAR : RoadGraph.FOOT;
+        double speed = mode == RoadGraph.FOOT ? 1.2 : 0.0;
+        double expected = dijkstra(graph, source, destination, mode, speed);
+        RoadGraph.Leg leg = graph.route(source, destination, mode, speed);
+        if (expected == Double.POSITIVE_INFINITY) {
+          assertNull(leg);
+          continue;
+        }
+        assertNotNull(leg);
+        assertEquals(expected, leg.getSeconds(), 1e-6);
+        assertEquals(source, leg.getNodes()[0]);
+        assertEquals(destination, leg.getNodes()[leg.getNodes().length - 1]);
+        double seconds = 0.0;
+        for (int edge : leg.getEdges()) {
+          seconds += graph.edgeSeconds(edge, speed);
+        }
+        assertEquals(expected, seconds, 1e-6);
+      }
+    }
+  }
+
+  @Test
+  void snapsToNearestNodeOpenToTheMode() {
+    RoadGraph graph = randomGrid(7);
+    int node = graph.nearestNode(graph.longitude(30) + 0.00001, graph.latitude(30), RoadGraph.FOOT,
+        500);
+    assertEquals(30, node);
+    assertEquals(-1, graph.nearestNode(117.5, 40.5, RoadGraph.FOOT, 500));
+  }
+}
@@ -0,0 +1,128 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class RouteOptimizerTest {
+
+  @Test
+  public void testHeldKarp_MatchesBruteForce() {
+    Random random = new Random(7);
+    RouteOptimizer optimizer = new RouteOptimizer(15, 200);
+    for (int round = 0; round < 20; round++) {
+      double[][] cost = randomCost(random, 7, round % 2 == 0);
+      int[] order = optimizer.order(cost);
+
+      assertPermutation(order, 7);
+      assertEquals(bruteForce(cost), RouteOptimizer.length(cost, order), 1e-6);
+    }
+  }
+
+  @Test
+  public void testLocalSearch_BeatsNearestNeighbour() {
+    Random random = new Random(11);
+    double[][] cost = randomCost(random, 80, true);
+    int[] order = new RouteOptimizer(0, 500).order(cost);
+
+    assertPermutation(order, 80);
+    assertTrue(RouteOptimizer.length(cost, order) < RouteOptimizer.length(cost, greedy(cost)));
+  }
+
+  @Test
+  public void testOrder_HonoursFixedEnd() {
+    // Start at 2, stops at 1 and 4, end at 0 on a line: the nearer stop first would cost 8.
+    double[] position = {2, 1, 4, 0};
+    double[][] cost = new double[4][4];
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        cost[i][j] = Math.abs(position[i] - position[j]);
+      }
+    }
+
+    assertArrayEquals(new int[] {1, 0}, new RouteOptimizer(15, 200).order(cost));
+    assertEquals(6.0, RouteOptimizer.length(cost, new int[] {1, 0}), 1e-9);
+  }
+
+  private static double[][] randomCost(Random random, int stops, boolean symmetric) {
+    int size = stops + 2;
+    double[] x = new double[size];
+    double[] y = new double[size];
+    for (int i = 0; i < size; i++) {
+      x[i] = random.nextDouble() * 1000;
+      y[i] = random.nextDouble() * 1000;
+    }
+    double[][] cost = new double[size][size];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        cost[i][j] = Math.hypot(x[i] - x[j], y[i] - y[j]) * (symmetric || i < j ? 1.0 : 1.3);
+      }
+    }
+    return cost;
+  }
+
+  private static double bruteForce(double[][] cost) {
+    int[] order = new int[cost.length - 2];
+    Arrays.setAll(order, i -> i);
+    double best = Double.POSITIVE_INFINITY;
+    do {
+      best = Math.min(best, RouteOptimizer.length(cost, order));
+    } while (nextPermutation(order));
+    return best;
+  }
+
+  private static boolean nextPermutation(int[] values) {
+    int i = values.length - 2;
+    while (i >= 0 && values[i] >= values[i + 1]) {
+      i--;
+    }
+    if (i < 0) {
+      return false;
+    }
+    int j = values.length - 1;
+    while (values[j] <= values[i]) {
+      j--;
+    }
+    int swap = values[i];
+    values[i] = values[j];
+    values[j] = swap;
+    for (int a = i + 1, b = values.length - 1; a < b; a++, b--) {
+      swap = values[a];
+      values[a] = values[b];
+      values[b] = swap;
+    }
+    return true;
+  }
+
+  private static int[] greedy(double[][] cost) {
+    int stops = cost.length - 2;
+    int[] order = new int[stops];
+    boolean[] visited = new boolean[stops];
+    int current = 0;
+    for (int i = 0; i < stops; i++) {
+      int nearest = -1;
+      for (int stop = 0; stop < stops; stop++) {
+        if (!visited[stop]
+            && (nearest < 0 || cost[current][stop + 1] < cost[current][nearest + 1])) {
+          nearest = stop;
+        }
+      }
+      visited[nearest] = true;
+      order[i] = nearest;
+      current = nearest + 1;
+    }
+    return order;
+  }
+
+  private static void assertPermutation(int[] order, int stops) {
+    int[] sorted = order.clone();
+    Arrays.sort(sorted);
+    int[] expected = new int[stops];
+    Arrays.setAll(expected, i -> i);
+    assertArrayEquals(expected, sorted);
+  }
+}
@@ -0,0 +1,80 @@
+package com.redseeker.route;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TimeWindowSchedulerTest {
+  private static final int ALWAYS = TimeWindowScheduler.ALWAYS_OPEN_CLOSE;
+
+  /** Nodes on a line: start 0, stops at 600 s, 1200 s and 1800 s, open end. */
+  private static double[][] line() {
+    int[] at = {0, 600, 1200, 1800};
+    double[][] travel = new double[5][5];
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        travel[i][j] = Math.abs(at[i] - at[j]);
+      }
+    }
+    return travel;
+  }
+
+  @Test
+  void visitsEarlyClosingStopFirstEvenWhenFarther() {
+    // Stop 2 closes at 10:00, so it must come before the nearer stops.
+    int[] opens = {0, 0, 0};
+    int[] closes = {ALWAYS, ALWAYS, 10 * 3600};
+    int[] dwell = {1800, 1800, 1800};
+    TimeWindowScheduler.Schedule schedule =
+        new TimeWindowScheduler(50).schedule(line(), opens, closes, dwell, 9 * 3600);
+
+    assertEquals(2, schedule.getOrder()[0]);
+    for (boolean onTime : schedule.getOnTime()) {
+      assertTrue(onTime);
+    }
+    assertEquals(9 * 3600 + 1800, schedule.getArrivals()[0]);
+  }
+
+  @Test
+  void waitsForOpeningAndFlagsMissedWindow() {
+    // Stop 0 opens at 10:00; stop 1 closed at 08:00 and can never be visited in time.
+    int[] opens = {10 * 3600, 0, 0};
+    int[] closes = {ALWAYS, 8 * 3600, ALWAYS};
+    int[] dwell = {600, 600, 600};
+    TimeWindowScheduler.Schedule schedule =
+        new TimeWindowScheduler(50).schedule(line(), opens, closes, dwell, 9 * 3600);
+
+    int[] order = schedule.getOrder();
+    int first = -1;
+    for (int i = 0; i < order.length; i++) {
+      if (order[i] == 0) {
+        first = i;
+      }
+    }
+    assertTrue(schedule.getStarts()[first] >= 10 * 3600);
+    int missed = 0;
+    for (int i = 0; i < order.length; i++) {
+      if (!schedule.getOnTime()[i]) {
+        missed++;
+        assertEquals(1, order[i]);
+      }
+    }
+    assertEquals(1, missed);
+    assertFalse(schedule.getFinish() < schedule.getDepartures()[order.length - 1]);
+  }
+
+  @Test
+  void withoutWindowsFollowsTheShortestOrder() {
+    int[] opens = {0, 0, 0};
+    int[] closes = {ALWAYS, ALWAYS, ALWAYS};
+    int[] dwell = {0, 0, 0};
+    TimeWindowScheduler.Schedule schedule =
+        new TimeWindowScheduler(50).schedule(line(), opens, closes, dwell, 0);
+
+    assertArrayEquals(new int[] {0, 1, 2}, schedule.getOrder());
+    assertEquals(1800, schedule.getFinish());
+  }
+}
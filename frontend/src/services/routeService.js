@@ -115,7 +115,12 @@ export async function planSingleRoute(params) {
  * @param {Object} params.start_location - 起始位置 {longitude, latitude, address?}
  * @param {Object} params.end_location - 结束位置（可选）{longitude, latitude, address?}
  * @param {string} params.transport_mode - 交通方式: 'driving' | 'walking' | 'transit'
- * @param {string} params.strategy - 排序策略: 'history_first' | 'shortest'
+ * @param {string} params.strategy - 排序策略: 'history_first' | 'shortest' | 'time_window'
+ * @param {string} params.startTime - 出发时间 HH:mm（可选，time_window 策略使用，默认 09:00）
+ * @param {number} params.dwellMinutes - 每个景点停留分钟数（可选，time_window 策略使用，默认 60）
+ * @param {number} params.days - 行程天数（可选，大于 1 时结果的 days 字段给出逐日路线，默认 1）
+ * @param {number} params.zoom - 地图缩放级别（可选，用于路径抽稀，默认由后端配置）
+ * @param {string} params.pathFormat - 路径格式（可选）: 'coordinates'（默认，返回 path）| 'encoded'（返回 encodedPath，可用 decodePath 解码）
  * @returns {Promise<Object>} 路线规划结果
  */
 export async function planMultipleRoute(params) {
@@ -124,7 +129,42 @@ export async function planMultipleRoute(params) {
     startLocation: params.startLocation,
     endLocation: params.endLocation,
     transportMode: params.transportMode || 'driving',
-    strategy: params.strategy || 'history_first'
+    strategy: params.strategy || 'history_first',
+    startTime: params.startTime,
+    dwellMinutes: params.dwellMinutes,
+    days: params.days,
+    zoom: params.zoom,
+    pathFormat: params.pathFormat
   })
   return response.data.data
 }
+
+/**
+ * 解码 pathFormat 为 'encoded' 时返回的 encodedPath（Google encoded polyline，精度 1e-5）
+ * @param {string} encoded - 编码后的路径
+ * @returns {Array<Array<number>>} 坐标点数组 [[lng, lat], ...]
+ */
+export function decodePath(encoded) {
+  const path = []
+  let index = 0
+  let lat = 0
+  let lng = 0
+  while (index < encoded.length) {
+    const values = [0, 0]
+    for (let k = 0; k < 2; k++) {
+      let result = 0
+      let shift = 0
+      let byte
+      do {
+        byte = encoded.charCodeAt(index++) - 63
+        result |= (byte & 0x1f) << shift
+        shift += 5
+      } while (byte >= 0x20)
+      values[k] = result & 1 ? ~(result >> 1) : result >> 1
+    }
+    lat += values[0]
+    lng += values[1]
+    path.push([lng / 1e5, lat / 1e5])
+  }
+  return path
+}